@@ -0,0 +1,27 @@
+package com.shybaiev.expense_tracker_backend.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ImportConfig {
+
+    /**
+     * Workers for statement imports. The queue is bounded, a full queue rejects the upload
+     * instead of piling up temp files.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor statementImportExecutor(@Value("${import.worker.threads:2}") int threads,
+                                                          @Value("${import.worker.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("statement-import-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,50 @@
+package com.shybaiev.expense_tracker_backend.configuration;
+
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.ehcache.xml.XmlConfiguration;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Second-level cache region factory that gives every session factory its own Ehcache manager,
+ * built from the XML named by {@code hibernate.javax.cache.uri}. The stock JCache factory shares
+ * one manager per URI across the JVM, so two application contexts on different databases
+ * (as in the test suite) would read each other's cached rows.
+ */
+public class IsolatedEhcacheRegionFactory extends JCacheRegionFactory {
+
+    private static final String CLASSPATH = "classpath:";
+
+    @Override
+    protected CacheManager resolveCacheManager(SessionFactoryOptions settings, Map<String, Object> properties) {
+        EhcacheCachingProvider provider =
+                (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        String location = String.valueOf(properties.getOrDefault(ConfigSettings.CONFIG_URI, "classpath:ehcache.xml"));
+        XmlConfiguration xml = new XmlConfiguration(resolve(location), getClassLoader(provider));
+        return provider.getCacheManager(URI.create("urn:expense-tracker:l2:" + UUID.randomUUID()), xml);
+    }
+
+    private static URL resolve(String location) {
+        try {
+            URL url = location.startsWith(CLASSPATH)
+                    ? IsolatedEhcacheRegionFactory.class.getClassLoader().getResource(location.substring(CLASSPATH.length()))
+                    : URI.create(location).toURL();
+            if (url == null) {
+                throw new CacheException("Second-level cache configuration not found: " + location);
+            }
+            return url;
+        } catch (MalformedURLException | IllegalArgumentException e) {
+            throw new CacheException("Invalid second-level cache configuration location: " + location, e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.shybaiev.expense_tracker_backend.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class PasswordHashingConfig {
+
+    /**
+     * Workers for BCrypt encode and verify, one per core by default. The queue is bounded,
+     * when it is full the attempt is rejected with 429 instead of tying up more request threads.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor passwordHashExecutor(@Value("${security.password.hash-threads:0}") int threads,
+                                                       @Value("${security.password.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        return executor;
+    }
+}
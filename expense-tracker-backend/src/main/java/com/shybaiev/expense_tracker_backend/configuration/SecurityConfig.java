@@ -1,8 +1,16 @@
 package com.shybaiev.expense_tracker_backend.configuration;
 
-import com.shybaiev.expense_tracker_backend.security.CustomUserDetailsService;
+import com.shybaiev.expense_tracker_backend.security.ConcurrencyLimitFilter;
+import com.shybaiev.expense_tracker_backend.security.GradientConcurrencyLimit;
 import com.shybaiev.expense_tracker_backend.security.JwtAuthenticationFilter;
 import com.shybaiev.expense_tracker_backend.security.JwtUtil;
+import com.shybaiev.expense_tracker_backend.security.PasswordHasher;
+import com.shybaiev.expense_tracker_backend.security.RevokedTokenStore;
+import com.shybaiev.expense_tracker_backend.security.UserStatusCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -11,34 +19,58 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 public class SecurityConfig {
 
     private final JwtUtil jwtUtil;
-    private final CustomUserDetailsService userDetailsService;
+    private final UserStatusCache userStatusCache;
+    private final RevokedTokenStore revokedTokenStore;
 
-    public SecurityConfig(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService) {
+    public SecurityConfig(JwtUtil jwtUtil, UserStatusCache userStatusCache, RevokedTokenStore revokedTokenStore) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.userStatusCache = userStatusCache;
+        this.revokedTokenStore = revokedTokenStore;
     }
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtUtil, userDetailsService);
+        return new JwtAuthenticationFilter(jwtUtil, userStatusCache, revokedTokenStore);
+    }
+
+    @Bean
+    public ConcurrencyLimitFilter concurrencyLimitFilter(MeterRegistry meterRegistry,
+                                                         @Value("${api.concurrency.initial-limit:20}") int initialLimit,
+                                                         @Value("${api.concurrency.min-limit:5}") int minLimit,
+                                                         @Value("${api.concurrency.max-limit:200}") int maxLimit,
+                                                         @Value("${api.concurrency.retry-after:PT1S}") Duration retryAfter) {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit);
+        return new ConcurrencyLimitFilter(limit, retryAfter, meterRegistry);
+    }
+
+    // the filter runs inside the security chain only, not a second time as a plain servlet filter
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilterRegistration(ConcurrencyLimitFilter filter) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   ConcurrencyLimitFilter concurrencyLimitFilter) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        // continuation of an already authorized request, e.g. the end of a /stream
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Swagger & H2 console
                         .requestMatchers(
                                 "/v3/api-docs/**",
@@ -48,17 +80,22 @@ public class SecurityConfig {
                                 "/swagger-ui.html",
                                 "/auth/**"
                         ).permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         // auth required for everything else
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class)
+                // shed load before any token is verified
+                .addFilterBefore(concurrencyLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHasher passwordHasher) {
+        // same calibrated strength as the pooled hasher used by login and registration
+        return passwordHasher.getEncoder();
     }
 
     @Bean
@@ -0,0 +1,25 @@
+package com.shybaiev.expense_tracker_backend.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class StreamConfig {
+
+    /**
+     * Writes live update events to the open streams, see LiveUpdateHub. A subscriber has at most
+     * one drain task queued, so the queue is bounded by the connection cap.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor liveUpdateExecutor(@Value("${api.stream.sender-threads:2}") int threads,
+                                                     @Value("${api.stream.max-connections:1000}") int maxConnections) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("live-update-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(maxConnections);
+        return executor;
+    }
+}
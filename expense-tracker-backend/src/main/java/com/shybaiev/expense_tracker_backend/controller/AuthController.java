@@ -1,13 +1,15 @@
 package com.shybaiev.expense_tracker_backend.controller;
 
+import com.shybaiev.expense_tracker_backend.dto.AvailabilityDto;
 import com.shybaiev.expense_tracker_backend.dto.JwtResponse;
 import com.shybaiev.expense_tracker_backend.dto.LoginRequestDto;
+import com.shybaiev.expense_tracker_backend.dto.RefreshTokenRequestDto;
 import com.shybaiev.expense_tracker_backend.dto.UserDto;
 import com.shybaiev.expense_tracker_backend.dto.UserRegisterDto;
 import com.shybaiev.expense_tracker_backend.entity.User;
 import com.shybaiev.expense_tracker_backend.mapper.UserMapper;
 import com.shybaiev.expense_tracker_backend.repository.UserRepository;
-import com.shybaiev.expense_tracker_backend.security.JwtUtil;
+import com.shybaiev.expense_tracker_backend.service.RefreshTokenService;
 import com.shybaiev.expense_tracker_backend.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -26,7 +28,7 @@ public class AuthController {
     private final UserService userService;
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
-    private final JwtUtil jwtUtil;
+    private final RefreshTokenService refreshTokenService;
 
 
     @PostMapping("/register")
@@ -39,11 +41,31 @@ public class AuthController {
 
 
 
+    // answered from memory unless the value may already be taken
+    @GetMapping("/availability")
+    public ResponseEntity<AvailabilityDto> availability(@RequestParam(required = false) String email,
+                                                        @RequestParam(required = false) String username) {
+        if (email == null && username == null) {
+            throw new IllegalArgumentException("email or username is required");
+        }
+        return ResponseEntity.ok(userService.checkAvailability(email, username));
+    }
+
     @PostMapping("/login")
     public ResponseEntity<JwtResponse> login(@Valid @RequestBody LoginRequestDto request) {
         User user = userService.authenticate(request.getEmail(), request.getPassword());
-        String token = jwtUtil.generateToken(user);
-        return ResponseEntity.ok(new JwtResponse(token));
+        return ResponseEntity.ok(refreshTokenService.issue(user));
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<JwtResponse> refresh(@Valid @RequestBody RefreshTokenRequestDto request) {
+        return ResponseEntity.ok(refreshTokenService.refresh(request.getRefreshToken()));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshTokenRequestDto request) {
+        refreshTokenService.logout(request.getRefreshToken());
+        return ResponseEntity.noContent().build();
     }
 
 }
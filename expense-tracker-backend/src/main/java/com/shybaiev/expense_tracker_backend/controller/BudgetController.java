@@ -2,19 +2,27 @@ package com.shybaiev.expense_tracker_backend.controller;
 
 import com.shybaiev.expense_tracker_backend.dto.BudgetCreateUpdateDto;
 import com.shybaiev.expense_tracker_backend.dto.BudgetDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetStatusDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetView;
 import com.shybaiev.expense_tracker_backend.entity.Budget;
 import com.shybaiev.expense_tracker_backend.mapper.BudgetMapper;
+import com.shybaiev.expense_tracker_backend.security.AuthenticatedUser;
 import com.shybaiev.expense_tracker_backend.service.BudgetService;
+import com.shybaiev.expense_tracker_backend.service.BudgetStatusService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.net.URI;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -27,14 +35,16 @@ public class BudgetController {
 
     private final BudgetService budgetService;
     private final BudgetMapper budgetMapper;
+    private final BudgetStatusService budgetStatusService;
+    private final ConditionalResponses conditionalResponses;
 
     @PostMapping
     public ResponseEntity<BudgetDto> addBudget(
             @RequestBody BudgetCreateUpdateDto dto,
-            @AuthenticationPrincipal UserDetails user) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
 
-        String email = user.getUsername();
-        Budget budget = budgetService.createBudgetForUser(dto, email);
+        Long userId = user.getId();
+        Budget budget = budgetService.createBudgetForUser(dto, userId);
         BudgetDto response = budgetMapper.toDto(budget);
         URI location = URI.create("/budgets/" + response.getId());
         return ResponseEntity.created(location).body(response);
@@ -42,58 +52,79 @@ public class BudgetController {
 
     @GetMapping("/{id}")
     public ResponseEntity<BudgetDto> getBudgetById(@PathVariable Long id,
-                                                   @AuthenticationPrincipal UserDetails user) {
-        String email = user.getUsername();
-        Optional<Budget> maybeBudget = budgetService.getBudgetByIdForUser(id, email);
-        if (maybeBudget.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-        BudgetDto body = budgetMapper.toDto(maybeBudget.get());
-        return ResponseEntity.ok(body);
+                                                   @AuthenticationPrincipal AuthenticatedUser user,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long userId = user.getId();
+        return conditionalResponses.conditional(userId, ifNoneMatch, () -> {
+            Optional<BudgetView> maybeBudget = budgetService.getBudgetByIdForUser(id, userId);
+            if (maybeBudget.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            BudgetDto body = budgetMapper.toDto(maybeBudget.get());
+            return ResponseEntity.ok(body);
+        });
     }
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteBudgetById(@PathVariable Long id, @AuthenticationPrincipal UserDetails user) {
-        String email = user.getUsername();
-        budgetService.deleteBudgetForUser(id, email);
+    public ResponseEntity<Void> deleteBudgetById(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser user) {
+        Long userId = user.getId();
+        budgetService.deleteBudgetForUser(id, userId);
         return ResponseEntity.noContent().build(); // 204 No Content
     }
     @PatchMapping("/{id}")
     public ResponseEntity<BudgetDto> updateBudget(@PathVariable Long id,
                                                   @Valid @RequestBody BudgetCreateUpdateDto budgetCreateUpdateDto,
-                                                  @AuthenticationPrincipal UserDetails user) {
-        String email = user.getUsername();
+                                                  @AuthenticationPrincipal AuthenticatedUser user) {
+        Long userId = user.getId();
         try {
-            Budget updated = budgetService.updateBudgetForUser(id, budgetCreateUpdateDto, email);
+            Budget updated = budgetService.updateBudgetForUser(id, budgetCreateUpdateDto, userId);
             return ResponseEntity.ok(budgetMapper.toDto(updated));
         } catch (EntityNotFoundException e) {
             return ResponseEntity.notFound().build();
         }
     }
+    // served from the response cache until one of the user's expenses or budgets changes,
+    // an unchanged If-None-Match gets 304 without touching the database
     @GetMapping
-    public ResponseEntity<List<BudgetDto>> getAllBudgets(@AuthenticationPrincipal UserDetails user) {
-        String email = user.getUsername();
-        List<Budget> budgets = budgetService.getAllBudgetsForUser(email);
-        List<BudgetDto> result = new ArrayList<>(budgets.size());
-        for (Budget b : budgets) {
-            result.add(budgetMapper.toDto(b));
-        }
-        return ResponseEntity.ok(result);
+    public ResponseEntity<byte[]> getAllBudgets(@AuthenticationPrincipal AuthenticatedUser user,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long userId = user.getId();
+        return conditionalResponses.cachedJson(userId, "budgets", "", ifNoneMatch, () -> {
+            List<BudgetView> budgets = budgetService.getAllBudgetsForUser(userId);
+            List<BudgetDto> result = new ArrayList<>(budgets.size());
+            for (BudgetView b : budgets) {
+                result.add(budgetMapper.toDto(b));
+            }
+            return result;
+        });
+    }
+    @GetMapping("/summary")
+    public ResponseEntity<byte[]> getBudgetSummaries(@AuthenticationPrincipal AuthenticatedUser user,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long userId = user.getId();
+        return conditionalResponses.cachedJson(userId, "budgets/summary", "", ifNoneMatch,
+                () -> budgetService.getBudgetSummariesForUser(userId));
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<List<BudgetStatusDto>> getBudgetStatuses(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        Long userId = user.getId();
+        LocalDate asOf = date != null ? date : LocalDate.now(ZoneOffset.UTC);
+        return ResponseEntity.ok(budgetStatusService.getBudgetStatusesForUser(userId, asOf));
     }
+
     @GetMapping("/budgets/{id}/expenses/total")
     public ResponseEntity<BigDecimal> getTotalExpensesForBudget(@PathVariable Long id,
-                                                                @AuthenticationPrincipal UserDetails user) {
-        String email = user.getUsername();
-
-        // Получаем бюджет с проверкой принадлежности пользователю
-        Optional<Budget> maybeBudget = budgetService.getBudgetByIdForUser(id, email);
-        if (maybeBudget.isEmpty()) {
+                                                                @AuthenticationPrincipal AuthenticatedUser user) {
+        Long userId = user.getId();
+        // ownership and sum are checked in one query, a foreign budget looks like a missing one
+        try {
+            BigDecimal total = budgetService.getTotalExpensesForBudgetForUser(id, userId);
+            return ResponseEntity.ok(total);
+        } catch (EntityNotFoundException | AccessDeniedException e) {
             return ResponseEntity.notFound().build();
         }
-
-        // Получаем сумму расходов для пользователя
-        BigDecimal total = budgetService.getTotalExpensesForBudgetForUser(maybeBudget.get(), email);
-
-        return ResponseEntity.ok(total);
     }
 
 
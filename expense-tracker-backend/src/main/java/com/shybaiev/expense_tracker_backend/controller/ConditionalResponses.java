@@ -0,0 +1,86 @@
+package com.shybaiev.expense_tracker_backend.controller;
+
+import com.shybaiev.expense_tracker_backend.service.ResponseCache;
+import com.shybaiev.expense_tracker_backend.service.UserDataVersions;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Conditional GETs for the expense and budget resources. The ETag is the user's data version,
+ * which lives in memory, so an unchanged If-None-Match is answered with 304 before any query
+ * runs or anything is serialized. Responses are private and revalidated on every use.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalResponses {
+
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private final UserDataVersions userDataVersions;
+    private final ResponseCache responseCache;
+
+    /**
+     * A list body served from the {@link ResponseCache}, under the same version as its ETag.
+     */
+    public ResponseEntity<byte[]> cachedJson(Long userId, String endpoint, String params,
+                                             String ifNoneMatch, Supplier<?> loader) {
+        long version = userDataVersions.current(userId);
+        ETag etag = ETag.create(UserDataVersions.etag(userId, version));
+        if (matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        byte[] body = responseCache.get(new ResponseCache.Key(userId, endpoint, params, version), loader);
+        return ResponseEntity.ok()
+                .eTag(etag.formattedTag())
+                .cacheControl(REVALIDATE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Validation for responses that are not cached, e.g. single resources.
+     * Only successful responses carry the tag.
+     */
+    public <T> ResponseEntity<T> conditional(Long userId, String ifNoneMatch, Supplier<ResponseEntity<T>> handler) {
+        ETag etag = ETag.create(UserDataVersions.etag(userId, userDataVersions.current(userId)));
+        if (matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        ResponseEntity<T> response = handler.get();
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .eTag(etag.formattedTag())
+                .cacheControl(REVALIDATE)
+                .body(response.getBody());
+    }
+
+    // If-None-Match uses the weak comparison
+    private static boolean matches(String ifNoneMatch, ETag current) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (ETag candidate : ETag.parse(ifNoneMatch)) {
+            if (candidate.isWildcard() || candidate.compare(current, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> ResponseEntity<T> notModified(ETag etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag.formattedTag())
+                .cacheControl(REVALIDATE)
+                .build();
+    }
+}
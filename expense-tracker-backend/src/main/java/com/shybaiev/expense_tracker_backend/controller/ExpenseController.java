@@ -1,20 +1,37 @@
 // ExpenseController.java
 package com.shybaiev.expense_tracker_backend.controller;
 
+import com.shybaiev.expense_tracker_backend.dto.ChangeSetDto;
 import com.shybaiev.expense_tracker_backend.dto.ExpenseCreateUpdateDto;
 import com.shybaiev.expense_tracker_backend.dto.ExpenseDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseFilter;
+import com.shybaiev.expense_tracker_backend.dto.ExpensePageDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
+import com.shybaiev.expense_tracker_backend.dto.MonthlySpendDto;
 import com.shybaiev.expense_tracker_backend.entity.Expense;
+import com.shybaiev.expense_tracker_backend.mapper.ChangeSetMapper;
 import com.shybaiev.expense_tracker_backend.mapper.ExpenseMapper;
+import com.shybaiev.expense_tracker_backend.security.AuthenticatedUser;
+import com.shybaiev.expense_tracker_backend.service.ChangeFeedService;
+import com.shybaiev.expense_tracker_backend.service.ExpenseExportService;
+import com.shybaiev.expense_tracker_backend.service.ExpensePage;
 import com.shybaiev.expense_tracker_backend.service.ExpenseService;
+import com.shybaiev.expense_tracker_backend.service.ExportFormat;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -26,34 +43,53 @@ public class ExpenseController {
 
     private final ExpenseService expenseService;
     private final ExpenseMapper expenseMapper;
+    private final ExpenseExportService expenseExportService;
+    private final ConditionalResponses conditionalResponses;
+    private final ChangeFeedService changeFeedService;
+    private final ChangeSetMapper changeSetMapper;
 
     @PostMapping
     public ResponseEntity<ExpenseDto> addExpense(@RequestBody ExpenseCreateUpdateDto expenseCreateUpdateDto,
-                                                 @AuthenticationPrincipal UserDetails user) {
-        String email = user.getUsername();
-        Expense saved = expenseService.createExpenseForUser(expenseCreateUpdateDto, email);
+                                                 @AuthenticationPrincipal AuthenticatedUser user) {
+        Long userId = user.getId();
+        Expense saved = expenseService.createExpenseForUser(expenseCreateUpdateDto, userId);
         URI location = URI.create("/expenses/" + saved.getId());
         return ResponseEntity.created(location).body(expenseMapper.toDto(saved));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<ExpenseDto>> addExpenses(@RequestBody List<ExpenseCreateUpdateDto> expenses,
+                                                        @AuthenticationPrincipal AuthenticatedUser user) {
+        Long userId = user.getId();
+        List<Expense> saved = expenseService.createExpensesForUser(expenses, userId);
+        List<ExpenseDto> result = new ArrayList<>(saved.size());
+        for (Expense expense : saved) {
+            result.add(expenseMapper.toDto(expense));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(result);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ExpenseDto> getExpenseById(@PathVariable Long id,
-                                                     @AuthenticationPrincipal UserDetails user) {
-        String email = user.getUsername();
-        Optional<Expense> maybeExpense = expenseService.getExpenseByIdForUser(id, email);
-        if (maybeExpense.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-        ExpenseDto body = expenseMapper.toDto(maybeExpense.get());
-        return ResponseEntity.ok(body);
+                                                     @AuthenticationPrincipal AuthenticatedUser user,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long userId = user.getId();
+        return conditionalResponses.conditional(userId, ifNoneMatch, () -> {
+            Optional<ExpenseView> maybeExpense = expenseService.getExpenseByIdForUser(id, userId);
+            if (maybeExpense.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            ExpenseDto body = expenseMapper.toDto(maybeExpense.get());
+            return ResponseEntity.ok(body);
+        });
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteExpenseById(@PathVariable Long id,
-                                                  @AuthenticationPrincipal UserDetails user) {
-        String email = user.getUsername();
+                                                  @AuthenticationPrincipal AuthenticatedUser user) {
+        Long userId = user.getId();
         try {
-            expenseService.deleteExpenseForUser(id, email);
+            expenseService.deleteExpenseForUser(id, userId);
             return ResponseEntity.noContent().build(); // code 204 No Content
         } catch (EntityNotFoundException e) {
             return ResponseEntity.notFound().build();
@@ -65,10 +101,10 @@ public class ExpenseController {
     @PatchMapping("/{id}")
     public ResponseEntity<ExpenseDto> updateExpense(@PathVariable Long id, 
                                                     @RequestBody ExpenseCreateUpdateDto expenseCreateUpdateDto,
-                                                    @AuthenticationPrincipal UserDetails user) {
-        String email = user.getUsername();
+                                                    @AuthenticationPrincipal AuthenticatedUser user) {
+        Long userId = user.getId();
         try {
-            Expense updated = expenseService.updateExpenseForUser(id, expenseCreateUpdateDto, email);
+            Expense updated = expenseService.updateExpenseForUser(id, expenseCreateUpdateDto, userId);
             return ResponseEntity.ok(expenseMapper.toDto(updated));
         } catch (EntityNotFoundException e) {
             return ResponseEntity.notFound().build();
@@ -77,26 +113,77 @@ public class ExpenseController {
         }
     }
 
+    // the serialized list is reused until one of the user's expenses or budgets changes,
+    // an unchanged If-None-Match gets 304 without touching the database
     @GetMapping
-    public ResponseEntity<List<ExpenseDto>> getAllExpenses(@AuthenticationPrincipal UserDetails user) {
-        String email = user.getUsername();
-        List<Expense> expenses = expenseService.getAllExpensesForUser(email);
-        List<ExpenseDto> result = new ArrayList<>(expenses.size());
-        for (Expense expense : expenses) {
-            result.add(expenseMapper.toDto(expense));
+    public ResponseEntity<byte[]> getAllExpenses(@AuthenticationPrincipal AuthenticatedUser user,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long userId = user.getId();
+        return conditionalResponses.cachedJson(userId, "expenses", "", ifNoneMatch,
+                () -> toDtos(expenseService.getAllExpensesForUser(userId)));
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<ExpensePageDto> getExpensePage(ExpenseFilter filter,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "50") int limit,
+                                                         @AuthenticationPrincipal AuthenticatedUser user,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long userId = user.getId();
+        return conditionalResponses.conditional(userId, ifNoneMatch, () -> {
+            ExpensePage page = expenseService.getExpensePageForUser(userId, filter, cursor, limit);
+            return ResponseEntity.ok(expenseMapper.toPageDto(page));
+        });
+    }
+
+    // expenses and budgets created, updated or deleted after the cursor; without one, everything
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeSetDto> getChanges(@RequestParam(required = false) Long since,
+                                                   @AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(changeSetMapper.toDto(changeFeedService.getChangesForUser(user.getId(), since)));
+    }
+
+    @GetMapping("/export")
+    public void exportExpenses(@RequestParam(defaultValue = "csv") String format,
+                               @AuthenticationPrincipal AuthenticatedUser user,
+                               HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        try (ExpenseExportService.Slot ignored = expenseExportService.acquireSlot()) {
+            response.setContentType(exportFormat.getContentType());
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"expenses." + exportFormat.getFileExtension() + "\"");
+            expenseExportService.exportExpensesForUser(user.getId(), exportFormat, response.getOutputStream());
         }
-        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/monthly")
+    public ResponseEntity<MonthlySpendDto> getMonthlySpend(@RequestParam(required = false) YearMonth month,
+                                                           @AuthenticationPrincipal AuthenticatedUser user,
+                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long userId = user.getId();
+        if (month == null) {
+            // "this month" moves with the calendar, not with the data version
+            return ResponseEntity.ok(expenseService.getMonthlySpendForUser(userId, YearMonth.now(ZoneOffset.UTC)));
+        }
+        return conditionalResponses.conditional(userId, ifNoneMatch,
+                () -> ResponseEntity.ok(expenseService.getMonthlySpendForUser(userId, month)));
     }
 
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<ExpenseDto>> getExpensesByCategory(@PathVariable String category,
-                                                                  @AuthenticationPrincipal UserDetails user) {
-        String email = user.getUsername();
-        List<Expense> expenses = expenseService.getExpensesByCategoryForUser(category, email);
+    public ResponseEntity<byte[]> getExpensesByCategory(@PathVariable String category,
+                                                        @AuthenticationPrincipal AuthenticatedUser user,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long userId = user.getId();
+        return conditionalResponses.cachedJson(userId, "expenses/category", category, ifNoneMatch,
+                () -> toDtos(expenseService.getExpensesByCategoryForUser(category, userId)));
+    }
+
+    private List<ExpenseDto> toDtos(List<ExpenseView> expenses) {
         List<ExpenseDto> result = new ArrayList<>(expenses.size());
-        for (Expense expense : expenses) {
+        for (ExpenseView expense : expenses) {
             result.add(expenseMapper.toDto(expense));
         }
-        return ResponseEntity.ok(result);
+        return result;
     }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.shybaiev.expense_tracker_backend.controller;
+
+import com.shybaiev.expense_tracker_backend.dto.ImportJobDto;
+import com.shybaiev.expense_tracker_backend.mapper.ImportJobMapper;
+import com.shybaiev.expense_tracker_backend.security.AuthenticatedUser;
+import com.shybaiev.expense_tracker_backend.service.ImportJob;
+import com.shybaiev.expense_tracker_backend.service.StatementFormat;
+import com.shybaiev.expense_tracker_backend.service.StatementImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Optional;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/imports")
+@RequiredArgsConstructor
+public class ImportController {
+
+    private final StatementImportService statementImportService;
+    private final ImportJobMapper importJobMapper;
+
+    // accepted right away, progress and row errors are polled from the job resource
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJobDto> importStatement(@RequestParam("file") MultipartFile file,
+                                                        @RequestParam(required = false) String format,
+                                                        @RequestParam(defaultValue = "false") boolean expensesPositive,
+                                                        @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
+        Long userId = user.getId();
+        StatementFormat statementFormat = format != null
+                ? StatementFormat.fromParam(format)
+                : StatementFormat.fromFileName(file.getOriginalFilename());
+        ImportJob job;
+        try (InputStream content = file.getInputStream()) {
+            job = statementImportService.submit(userId, statementFormat, file.getOriginalFilename(), content, expensesPositive);
+        }
+        URI location = URI.create("/imports/" + job.getId());
+        return ResponseEntity.accepted().location(location).body(importJobMapper.toDto(job));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJobDto> getImportJob(@PathVariable UUID id,
+                                                     @AuthenticationPrincipal AuthenticatedUser user) {
+        Long userId = user.getId();
+        Optional<ImportJob> job = statementImportService.getJobForUser(id, userId);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(importJobMapper.toDto(job.get()));
+    }
+}
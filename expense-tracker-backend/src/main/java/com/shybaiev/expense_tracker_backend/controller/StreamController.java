@@ -0,0 +1,23 @@
+package com.shybaiev.expense_tracker_backend.controller;
+
+import com.shybaiev.expense_tracker_backend.security.AuthenticatedUser;
+import com.shybaiev.expense_tracker_backend.service.LiveUpdateHub;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequiredArgsConstructor
+public class StreamController {
+
+    private final LiveUpdateHub liveUpdateHub;
+
+    // server-sent events for every write to the user's expenses and budgets, instead of polling
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@AuthenticationPrincipal AuthenticatedUser user) {
+        return liveUpdateHub.subscribe(user.getId());
+    }
+}
@@ -1,12 +1,21 @@
 package com.shybaiev.expense_tracker_backend.controller;
 import com.shybaiev.expense_tracker_backend.dto.ExpenseDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseFilter;
+import com.shybaiev.expense_tracker_backend.dto.ExpensePageDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
+import com.shybaiev.expense_tracker_backend.dto.UserBatchResponseDto;
 import com.shybaiev.expense_tracker_backend.dto.UserDto;
+import com.shybaiev.expense_tracker_backend.dto.UserPurgeDto;
 import com.shybaiev.expense_tracker_backend.dto.UserCreateUpdateDto;
-import com.shybaiev.expense_tracker_backend.entity.Expense;
 import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.entity.UserPurge;
 import com.shybaiev.expense_tracker_backend.mapper.ExpenseMapper;
 import com.shybaiev.expense_tracker_backend.mapper.UserMapper;
+import com.shybaiev.expense_tracker_backend.service.ExpensePage;
 import com.shybaiev.expense_tracker_backend.service.ExpenseService;
+import com.shybaiev.expense_tracker_backend.service.UserPurgeService;
+import com.shybaiev.expense_tracker_backend.service.UserProvisionResult;
+import com.shybaiev.expense_tracker_backend.service.UserProvisioningService;
 import com.shybaiev.expense_tracker_backend.service.UserService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -31,6 +40,8 @@ public class UserController {
     private final UserMapper userMapper;
     private final ExpenseService expenseService;
     private final ExpenseMapper expenseMapper;
+    private final UserProvisioningService userProvisioningService;
+    private final UserPurgeService userPurgeService;
 
     //admin only
     @PostMapping
@@ -43,6 +54,14 @@ public class UserController {
         return ResponseEntity.created(location).body(userMapper.toDto(saved));
     }
 
+    //admin only, rows are created or rejected individually
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserBatchResponseDto> createUsers(@RequestBody List<UserCreateUpdateDto> users) {
+        List<UserProvisionResult> results = userProvisioningService.provision(users);
+        return ResponseEntity.ok(userMapper.toBatchResponseDto(results));
+    }
+
     //yourself or admin
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or #id == principal.getId()")
@@ -62,9 +81,10 @@ public class UserController {
     }
 
     //yourself or admin, but not admin himself
+    //the account is disabled right away, its data is purged in the background (see /users/{id}/purge)
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or #id == principal.getId()")
-    public ResponseEntity<Void> deleteUserById(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<UserPurgeDto> deleteUserById(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
         boolean isAdmin = userDetails.getAuthorities().stream()
                 .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
         if (isAdmin && userService.getUserById(id)
@@ -80,8 +100,18 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        userService.deleteUser(id);
-        return ResponseEntity.noContent().build();
+        UserPurge purge = userService.deleteUser(id);
+        URI location = URI.create("/users/" + id + "/purge");
+        return ResponseEntity.accepted().location(location).body(userMapper.toPurgeDto(purge));
+    }
+
+    //admin only, progress of the background purge of a deleted user
+    @GetMapping("/{id}/purge")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserPurgeDto> getUserPurge(@PathVariable Long id) {
+        return userPurgeService.getPurge(id)
+                .map(purge -> ResponseEntity.ok(userMapper.toPurgeDto(purge)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
 
@@ -103,15 +133,13 @@ public class UserController {
 
         existingUser.setUsername(userCreateUpdateDto.getUsername());
         existingUser.setEmail(userCreateUpdateDto.getEmail());
-        if (userCreateUpdateDto.getPassword() != null) {
-            existingUser.setPasswordHash(userCreateUpdateDto.getPassword());
-        }
 
         if (isAdmin && userCreateUpdateDto.getRole() != null) {
             existingUser.setRole(userCreateUpdateDto.getRole());
         }
 
-        User updated = userService.updateUser(id, existingUser);
+        // hashed by the service, the raw password never reaches the entity
+        User updated = userService.updateUser(id, existingUser, userCreateUpdateDto.getPassword());
         return ResponseEntity.ok(userMapper.toDto(updated));
     }
 
@@ -142,12 +170,25 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
 
-        List<Expense> expenses = expenseService.getAllExpensesForUser(user.getEmail());
+        List<ExpenseView> expenses = expenseService.getAllExpensesForUser(user.getId());
         List<ExpenseDto> result = new ArrayList<>();
-        for (Expense expense : expenses) {
+        for (ExpenseView expense : expenses) {
             result.add(expenseMapper.toDto(expense));
         }
 
         return ResponseEntity.ok(result);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{id}/expenses/page")
+    @PreAuthorize("hasRole('ADMIN') or #id == principal.getId()")
+    public ResponseEntity<ExpensePageDto> getExpensePageByUser(@PathVariable Long id,
+                                                               ExpenseFilter filter,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "50") int limit) {
+        if (userService.getUserById(id).isEmpty()) {
+            throw new EntityNotFoundException("User not found");
+        }
+        ExpensePage page = expenseService.getExpensePageForUser(id, filter, cursor, limit);
+        return ResponseEntity.ok(expenseMapper.toPageDto(page));
+    }
+}
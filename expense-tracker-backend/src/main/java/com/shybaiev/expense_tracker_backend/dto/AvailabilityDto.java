@@ -0,0 +1,14 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// a field is null when it was not asked for
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AvailabilityDto {
+    private Boolean emailAvailable;
+    private Boolean usernameAvailable;
+}
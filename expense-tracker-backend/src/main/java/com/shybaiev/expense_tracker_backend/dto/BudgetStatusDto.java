@@ -0,0 +1,26 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BudgetStatusDto {
+    private Long budgetId;
+    private String name;
+    private BigDecimal amount;
+    private String timePeriod;
+    private LocalDate windowStart;
+    // exclusive
+    private LocalDate windowEnd;
+    private BigDecimal spent;
+    // negative once the budget is exceeded
+    private BigDecimal remaining;
+    private BigDecimal percentUsed;
+    private boolean overBudget;
+}
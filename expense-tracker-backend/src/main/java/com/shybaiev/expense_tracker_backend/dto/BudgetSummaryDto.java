@@ -0,0 +1,28 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BudgetSummaryDto {
+    private Long budgetId;
+    private String name;
+    private BigDecimal amount;
+    private String timePeriod;
+    // all expenses of the budget, zero when it has none
+    private BigDecimal spent;
+    // negative once the budget is exceeded
+    private BigDecimal remaining;
+    private long expenseCount;
+
+    // used by the JPQL constructor expression, remaining is derived here rather than in SQL
+    public BudgetSummaryDto(Long budgetId, String name, BigDecimal amount, String timePeriod,
+                            BigDecimal spent, long expenseCount) {
+        this(budgetId, name, amount, timePeriod, spent, amount.subtract(spent), expenseCount);
+    }
+}
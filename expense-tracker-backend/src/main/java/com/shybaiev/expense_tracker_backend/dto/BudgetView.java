@@ -0,0 +1,11 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Read-only row of a budget, see {@link ExpenseView}.
+ */
+public record BudgetView(Long id, BigDecimal amount, String name, String description, String timePeriod,
+                         LocalDate startDate, Long userId) {
+}
@@ -0,0 +1,9 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Current window of one budget, {@code end} is exclusive.
+ */
+public record BudgetWindow(Long budgetId, OffsetDateTime start, OffsetDateTime end) {
+}
@@ -0,0 +1,17 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategorySpendDto {
+    // null for expenses without a category
+    private String category;
+    private BigDecimal total;
+    private long count;
+}
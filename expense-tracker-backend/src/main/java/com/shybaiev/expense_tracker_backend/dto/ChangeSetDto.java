@@ -0,0 +1,19 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeSetDto {
+    private List<ExpenseDto> expenses;
+    private List<BudgetDto> budgets;
+    private List<Long> deletedExpenseIds;
+    private List<Long> deletedBudgetIds;
+    // pass as ?since= on the next sync
+    private long cursor;
+}
@@ -0,0 +1,48 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import com.shybaiev.expense_tracker_backend.entity.Expense;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last expense of a page: (timestamp, id).
+ * Travels to the client as an opaque url-safe token.
+ */
+public record ExpenseCursor(OffsetDateTime timestamp, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static ExpenseCursor of(Expense expense) {
+        return new ExpenseCursor(expense.getTimestamp(), expense.getId());
+    }
+
+    public static ExpenseCursor of(ExpenseView expense) {
+        return new ExpenseCursor(expense.timestamp(), expense.id());
+    }
+
+    public String encode() {
+        String raw = timestamp.toInstant().toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ExpenseCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            // every expense has a timestamp, tokens from before that have none and are rejected
+            OffsetDateTime timestamp = Instant.parse(raw.substring(0, separator)).atOffset(ZoneOffset.UTC);
+            return new ExpenseCursor(timestamp, Long.valueOf(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException as well
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Optional filters of the paginated expense listing, every null field is ignored.
+ * Amount and date bounds are inclusive.
+ */
+@Data
+public class ExpenseFilter {
+    private String category;
+    private Long budgetId;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private OffsetDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private OffsetDateTime to;
+}
@@ -0,0 +1,16 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpensePageDto {
+    private List<ExpenseDto> items;
+    // null on the last page
+    private String nextCursor;
+}
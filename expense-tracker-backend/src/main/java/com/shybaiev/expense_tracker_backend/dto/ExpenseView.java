@@ -0,0 +1,12 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Read-only row of an expense, selected with a JPQL constructor expression.
+ * Never managed by the persistence context, so reads skip entity snapshots and dirty checking.
+ */
+public record ExpenseView(Long id, BigDecimal amount, String description, String place, String category,
+                          String source, OffsetDateTime timestamp, Long budgetId, Long userId) {
+}
@@ -0,0 +1,27 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class ImportJobDto {
+    private UUID id;
+    private String status;
+    private String format;
+    private String fileName;
+    private int percentComplete;
+    private long rowsRead;
+    private long imported;
+    private long duplicates;
+    // incoming payments, not spending
+    private long skipped;
+    private long failed;
+    // first rows that failed, capped by import.max-errors
+    private List<ImportRowErrorDto> errors;
+    private String failureMessage;
+    private Instant createdAt;
+    private Instant finishedAt;
+}
@@ -6,5 +6,10 @@ import lombok.Data;
 @Data
 @AllArgsConstructor
 public class JwtResponse {
+    // short-lived access token, sent as "Authorization: Bearer"
     private String token;
+    // single use, exchanged at /auth/refresh for a new pair
+    private String refreshToken;
+    // lifetime of the access token in seconds
+    private long expiresIn;
 }
@@ -0,0 +1,19 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlySpendDto {
+    private YearMonth month;
+    private BigDecimal total;
+    private long count;
+    private List<CategorySpendDto> categories;
+}
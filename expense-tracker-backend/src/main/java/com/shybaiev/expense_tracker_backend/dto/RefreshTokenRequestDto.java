@@ -0,0 +1,10 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class RefreshTokenRequestDto {
+    @NotBlank
+    private String refreshToken;
+}
@@ -0,0 +1,13 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class UserBatchResponseDto {
+    private int created;
+    private int rejected;
+    // one entry per request row, in request order
+    private List<UserBatchRowDto> results;
+}
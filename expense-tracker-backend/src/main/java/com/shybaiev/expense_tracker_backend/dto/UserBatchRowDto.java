@@ -0,0 +1,15 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserBatchRowDto {
+    // position of the row in the request
+    private int index;
+    // CREATED or REJECTED
+    private String status;
+    private UserDto user;
+    private String error;
+}
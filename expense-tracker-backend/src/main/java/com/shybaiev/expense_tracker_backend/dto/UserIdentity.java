@@ -0,0 +1,7 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+/**
+ * The unique fields of a user, selected with a JPQL constructor expression.
+ */
+public record UserIdentity(Long id, String email, String username) {
+}
@@ -0,0 +1,18 @@
+package com.shybaiev.expense_tracker_backend.dto;
+
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+
+@Data
+public class UserPurgeDto {
+    private Long userId;
+    private String status;
+    private int percentComplete;
+    private long expensesTotal;
+    private long expensesDeleted;
+    private long budgetsTotal;
+    private long budgetsDeleted;
+    private OffsetDateTime requestedAt;
+    private OffsetDateTime finishedAt;
+}
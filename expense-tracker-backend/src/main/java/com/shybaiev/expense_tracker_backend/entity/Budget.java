@@ -8,6 +8,8 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -15,6 +17,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "budget")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -39,6 +42,10 @@ public class Budget {
     @NotNull
     LocalDate startDate;
 
+    // change feed position of the last write, see ChangeLog
+    @Column(name = "change_version", nullable = false)
+    private long changeVersion;
+
     @OneToMany(
             mappedBy = "budget",
             cascade = {CascadeType.PERSIST, CascadeType.MERGE}
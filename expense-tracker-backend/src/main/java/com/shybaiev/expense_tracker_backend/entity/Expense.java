@@ -18,7 +18,9 @@ import java.time.OffsetDateTime;
 @Builder
 public class Expense {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // sequence with a pooled optimizer, ids are known before the INSERT so inserts can be batched
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expense_seq")
+    @SequenceGenerator(name = "expense_seq", sequenceName = "expense_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -38,9 +40,17 @@ public class Expense {
     @Column(length = 100)
     private String source;
 
-    @Column()
+    @Column(nullable = false)
     private OffsetDateTime timestamp;
 
+    // set by statement imports only, see StatementImportService
+    @Column(length = 64)
+    private String fingerprint;
+
+    // change feed position of the last write, see ChangeLog
+    @Column(name = "change_version", nullable = false)
+    private long changeVersion;
+
     @JsonBackReference
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "budget_id", nullable = true)
@@ -0,0 +1,57 @@
+package com.shybaiev.expense_tracker_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Sum and count of a user's expenses for one month (UTC) and one category.
+ */
+@Entity
+@Table(
+        name = "expense_monthly_rollup",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_rollup_user_month_category",
+                columnNames = {"user_id", "month_start", "category"})
+)
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExpenseMonthlyRollup {
+
+    // stored instead of NULL so the unique key also covers uncategorised expenses
+    public static final String NO_CATEGORY = "";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // first day of the month
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    @Column(nullable = false, length = 100)
+    private String category;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal total;
+
+    @Column(name = "expense_count", nullable = false)
+    private long expenseCount;
+
+    public static LocalDate monthOf(OffsetDateTime timestamp) {
+        return timestamp.atZoneSameInstant(ZoneOffset.UTC).toLocalDate().withDayOfMonth(1);
+    }
+
+    public static String categoryKey(String category) {
+        return category != null ? category : NO_CATEGORY;
+    }
+}
@@ -0,0 +1,25 @@
+package com.shybaiev.expense_tracker_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Access token id revoked before its expiry. The table is only read at startup,
+ * requests are checked against the in-memory copy.
+ */
+@Entity
+@Table(name = "revoked_access_token")
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedAccessToken {
+
+    @Id
+    @Column(name = "token_id", length = 36)
+    private String tokenId;
+
+    @Column(name = "expires_at", nullable = false)
+    private OffsetDateTime expiresAt;
+}
@@ -0,0 +1,60 @@
+package com.shybaiev.expense_tracker_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Background removal of a deleted user's data. The totals are counted when the user is deleted,
+ * the deleted counters grow with every committed chunk, so progress survives a restart.
+ */
+@Entity
+@Table(name = "user_purge")
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserPurge {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED }
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private Status status = Status.QUEUED;
+
+    @Column(name = "expenses_total", nullable = false)
+    private long expensesTotal;
+
+    @Column(name = "budgets_total", nullable = false)
+    private long budgetsTotal;
+
+    @Column(name = "expenses_deleted", nullable = false)
+    private long expensesDeleted;
+
+    @Column(name = "budgets_deleted", nullable = false)
+    private long budgetsDeleted;
+
+    @Column(name = "requested_at", nullable = false)
+    private OffsetDateTime requestedAt;
+
+    @Column(name = "finished_at")
+    private OffsetDateTime finishedAt;
+
+    public int getPercentComplete() {
+        if (status == Status.COMPLETED) {
+            return 100;
+        }
+        long total = expensesTotal + budgetsTotal;
+        if (total == 0) {
+            return 0;
+        }
+        // the user row itself is the last step, so a running purge stays below 100
+        return (int) Math.min(99, (expensesDeleted + budgetsDeleted) * 100 / total);
+    }
+}
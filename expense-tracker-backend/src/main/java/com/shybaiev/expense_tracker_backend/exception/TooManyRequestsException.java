@@ -0,0 +1,20 @@
+package com.shybaiev.expense_tracker_backend.exception;
+
+import java.time.Duration;
+
+/**
+ * A bounded resource is saturated, answered with 429 and a Retry-After hint.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TooManyRequestsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
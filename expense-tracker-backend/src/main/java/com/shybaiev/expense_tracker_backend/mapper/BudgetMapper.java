@@ -2,6 +2,7 @@ package com.shybaiev.expense_tracker_backend.mapper;
 
 import com.shybaiev.expense_tracker_backend.dto.BudgetCreateUpdateDto;
 import com.shybaiev.expense_tracker_backend.dto.BudgetDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetView;
 import com.shybaiev.expense_tracker_backend.entity.Budget;
 import com.shybaiev.expense_tracker_backend.entity.User;
 import org.springframework.stereotype.Component;
@@ -20,6 +21,18 @@ public class BudgetMapper {
         return budgetDto;
     }
 
+    public BudgetDto toDto(BudgetView view) {
+        BudgetDto budgetDto = new BudgetDto();
+        budgetDto.setId(view.id());
+        budgetDto.setAmount(view.amount());
+        budgetDto.setName(view.name());
+        budgetDto.setDescription(view.description());
+        budgetDto.setTimePeriod(view.timePeriod());
+        budgetDto.setStartDate(view.startDate());
+        budgetDto.setUserId(view.userId());
+        return budgetDto;
+    }
+
     public Budget toEntity(BudgetCreateUpdateDto budgetCreateUpdateDto) {
         Budget budget = new Budget();
         budget.setAmount(budgetCreateUpdateDto.getAmount());
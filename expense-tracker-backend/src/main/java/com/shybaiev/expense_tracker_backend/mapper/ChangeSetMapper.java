@@ -0,0 +1,33 @@
+package com.shybaiev.expense_tracker_backend.mapper;
+
+import com.shybaiev.expense_tracker_backend.dto.BudgetDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetView;
+import com.shybaiev.expense_tracker_backend.dto.ChangeSetDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
+import com.shybaiev.expense_tracker_backend.service.ChangeSet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class ChangeSetMapper {
+
+    private final ExpenseMapper expenseMapper;
+    private final BudgetMapper budgetMapper;
+
+    public ChangeSetDto toDto(ChangeSet changes) {
+        List<ExpenseDto> expenses = new ArrayList<>(changes.expenses().size());
+        for (ExpenseView expense : changes.expenses()) {
+            expenses.add(expenseMapper.toDto(expense));
+        }
+        List<BudgetDto> budgets = new ArrayList<>(changes.budgets().size());
+        for (BudgetView budget : changes.budgets()) {
+            budgets.add(budgetMapper.toDto(budget));
+        }
+        return new ChangeSetDto(expenses, budgets, changes.deletedExpenseIds(), changes.deletedBudgetIds(), changes.cursor());
+    }
+}
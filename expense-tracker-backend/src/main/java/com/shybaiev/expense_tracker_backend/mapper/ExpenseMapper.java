@@ -2,11 +2,17 @@ package com.shybaiev.expense_tracker_backend.mapper;
 
 import com.shybaiev.expense_tracker_backend.dto.ExpenseCreateUpdateDto;
 import com.shybaiev.expense_tracker_backend.dto.ExpenseDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpensePageDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
 import com.shybaiev.expense_tracker_backend.entity.Budget;
 import com.shybaiev.expense_tracker_backend.entity.Expense;
 import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.service.ExpensePage;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 public class ExpenseMapper {
 
@@ -23,6 +29,30 @@ public class ExpenseMapper {
         expenseDto.setUserId(expense.getUser() != null ? expense.getUser().getId() : null);
         return expenseDto;
     }
+
+    public ExpenseDto toDto(ExpenseView view) {
+        ExpenseDto expenseDto = new ExpenseDto();
+        expenseDto.setId(view.id());
+        expenseDto.setAmount(view.amount());
+        expenseDto.setDescription(view.description());
+        expenseDto.setPlace(view.place());
+        expenseDto.setCategory(view.category());
+        expenseDto.setSource(view.source());
+        expenseDto.setTimestamp(view.timestamp());
+        expenseDto.setBudgetId(view.budgetId());
+        expenseDto.setUserId(view.userId());
+        return expenseDto;
+    }
+
+    public ExpensePageDto toPageDto(ExpensePage page) {
+        List<ExpenseDto> items = new ArrayList<>(page.items().size());
+        for (ExpenseView expense : page.items()) {
+            items.add(toDto(expense));
+        }
+        String nextCursor = page.next() != null ? page.next().encode() : null;
+        return new ExpensePageDto(items, nextCursor);
+    }
+
     public Expense toEntity(ExpenseCreateUpdateDto expenseDto) {
         Expense expense = new Expense();
         expense.setAmount(expenseDto.getAmount());
@@ -30,6 +60,7 @@ public class ExpenseMapper {
         expense.setPlace(expenseDto.getPlace());
         expense.setCategory(expenseDto.getCategory());
         expense.setSource(expenseDto.getSource());
+        expense.setTimestamp(expenseDto.getTimestamp());
         if (expenseDto.getBudgetId() != null) {
             Budget budget = new Budget();
             budget.setId(expenseDto.getBudgetId());
@@ -0,0 +1,36 @@
+package com.shybaiev.expense_tracker_backend.mapper;
+
+import com.shybaiev.expense_tracker_backend.dto.ImportJobDto;
+import com.shybaiev.expense_tracker_backend.dto.ImportRowErrorDto;
+import com.shybaiev.expense_tracker_backend.service.ImportJob;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class ImportJobMapper {
+
+    public ImportJobDto toDto(ImportJob job) {
+        ImportJobDto dto = new ImportJobDto();
+        dto.setId(job.getId());
+        dto.setStatus(job.getStatus().name());
+        dto.setFormat(job.getFormat().name());
+        dto.setFileName(job.getFileName());
+        dto.setPercentComplete(job.getPercentComplete());
+        dto.setRowsRead(job.getRowsRead());
+        dto.setImported(job.getImported());
+        dto.setDuplicates(job.getDuplicates());
+        dto.setSkipped(job.getSkipped());
+        dto.setFailed(job.getFailed());
+        List<ImportRowErrorDto> errors = new ArrayList<>();
+        for (ImportJob.RowError error : job.getErrors()) {
+            errors.add(new ImportRowErrorDto(error.line(), error.message()));
+        }
+        dto.setErrors(errors);
+        dto.setFailureMessage(job.getFailureMessage());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        return dto;
+    }
+}
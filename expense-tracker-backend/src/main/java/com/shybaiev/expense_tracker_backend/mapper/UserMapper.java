@@ -1,11 +1,19 @@
 package com.shybaiev.expense_tracker_backend.mapper;
 
+import com.shybaiev.expense_tracker_backend.dto.UserBatchResponseDto;
+import com.shybaiev.expense_tracker_backend.dto.UserBatchRowDto;
 import com.shybaiev.expense_tracker_backend.dto.UserDto;
+import com.shybaiev.expense_tracker_backend.dto.UserPurgeDto;
 import com.shybaiev.expense_tracker_backend.dto.UserCreateUpdateDto;
 import com.shybaiev.expense_tracker_backend.dto.UserRegisterDto;
 import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.entity.UserPurge;
+import com.shybaiev.expense_tracker_backend.service.UserProvisionResult;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 public class UserMapper {
 
@@ -38,4 +46,41 @@ public class UserMapper {
         user.setPasswordHash(dto.getPassword());
         return user;
     }
+
+    public UserBatchResponseDto toBatchResponseDto(List<UserProvisionResult> results) {
+        UserBatchResponseDto dto = new UserBatchResponseDto();
+        List<UserBatchRowDto> rows = new ArrayList<>(results.size());
+        int created = 0;
+        for (UserProvisionResult result : results) {
+            UserBatchRowDto row = new UserBatchRowDto();
+            row.setIndex(result.index());
+            if (result.isCreated()) {
+                row.setStatus("CREATED");
+                row.setUser(toDto(result.user()));
+                created++;
+            } else {
+                row.setStatus("REJECTED");
+                row.setError(result.error());
+            }
+            rows.add(row);
+        }
+        dto.setCreated(created);
+        dto.setRejected(results.size() - created);
+        dto.setResults(rows);
+        return dto;
+    }
+
+    public UserPurgeDto toPurgeDto(UserPurge purge) {
+        UserPurgeDto dto = new UserPurgeDto();
+        dto.setUserId(purge.getUserId());
+        dto.setStatus(purge.getStatus().name());
+        dto.setPercentComplete(purge.getPercentComplete());
+        dto.setExpensesTotal(purge.getExpensesTotal());
+        dto.setExpensesDeleted(purge.getExpensesDeleted());
+        dto.setBudgetsTotal(purge.getBudgetsTotal());
+        dto.setBudgetsDeleted(purge.getBudgetsDeleted());
+        dto.setRequestedAt(purge.getRequestedAt());
+        dto.setFinishedAt(purge.getFinishedAt());
+        return dto;
+    }
 }
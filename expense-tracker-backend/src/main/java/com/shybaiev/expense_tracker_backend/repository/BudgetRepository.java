@@ -1,11 +1,17 @@
 package com.shybaiev.expense_tracker_backend.repository;
 
+import com.shybaiev.expense_tracker_backend.dto.BudgetSummaryDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetView;
 import com.shybaiev.expense_tracker_backend.entity.Budget;
 import com.shybaiev.expense_tracker_backend.entity.Expense;
 import com.shybaiev.expense_tracker_backend.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,5 +19,65 @@ import java.util.Optional;
 public interface BudgetRepository extends JpaRepository<Budget, Long> {
     List<Budget> findAllByUser(User user);
     Optional<Budget> findByExpenses(Expense expense);
-}
 
+    // ownership is part of the WHERE clause, so a foreign id simply yields no row
+    Optional<Budget> findByIdAndUserId(Long id, Long userId);
+    List<Budget> findAllByUserId(Long userId);
+
+    @Query("""
+       select new com.shybaiev.expense_tracker_backend.dto.BudgetView(
+           b.id, b.amount, b.name, b.description, b.timePeriod, b.startDate, b.user.id)
+       from Budget b
+       where b.id = :id and b.user.id = :userId
+       """)
+    Optional<BudgetView> findViewByIdAndUserId(Long id, Long userId);
+
+    @Query("""
+       select new com.shybaiev.expense_tracker_backend.dto.BudgetView(
+           b.id, b.amount, b.name, b.description, b.timePeriod, b.startDate, b.user.id)
+       from Budget b
+       where b.user.id = :userId
+       order by b.id
+       """)
+    List<BudgetView> findViewsByUserId(Long userId);
+
+    // change feed, see ChangeFeedService
+    @Query("""
+       select new com.shybaiev.expense_tracker_backend.dto.BudgetView(
+           b.id, b.amount, b.name, b.description, b.timePeriod, b.startDate, b.user.id)
+       from Budget b
+       where b.user.id = :userId and b.changeVersion > :since and b.changeVersion <= :upTo
+       order by b.changeVersion, b.id
+       """)
+    List<BudgetView> findChangedViews(Long userId, long since, long upTo);
+
+    long countByUserIdAndIdIn(Long userId, Collection<Long> ids);
+
+    @Query("select b from Budget b join b.expenses e where e.id = :expenseId and b.user.id = :userId")
+    Optional<Budget> findByExpenseIdAndUserId(Long expenseId, Long userId);
+
+    // every budget of the user with its spent total; the left join keeps budgets without expenses
+    @Query("""
+       select new com.shybaiev.expense_tracker_backend.dto.BudgetSummaryDto(
+           b.id, b.name, b.amount, b.timePeriod, coalesce(sum(e.amount), 0), count(e.id))
+       from Budget b left join b.expenses e
+       where b.user.id = :userId
+       group by b.id, b.name, b.amount, b.timePeriod
+       order by b.id
+       """)
+    List<BudgetSummaryDto> summarizeAllByUserId(Long userId);
+
+    @Modifying
+    @Query("delete from Budget b where b.id = :id and b.user.id = :userId")
+    int deleteByIdAndUserId(Long id, Long userId);
+
+    long countByUserId(Long userId);
+
+    // user purge, same chunking as ExpenseRepository#findIdsByUserId
+    @Query("select b.id from Budget b where b.user.id = :userId order by b.id")
+    List<Long> findIdsByUserId(Long userId, Limit limit);
+
+    @Modifying
+    @Query("delete from Budget b where b.id in :ids")
+    int deleteAllByIdIn(Collection<Long> ids);
+}
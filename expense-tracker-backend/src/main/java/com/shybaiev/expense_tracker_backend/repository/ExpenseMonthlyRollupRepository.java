@@ -0,0 +1,55 @@
+package com.shybaiev.expense_tracker_backend.repository;
+
+import com.shybaiev.expense_tracker_backend.dto.CategorySpendDto;
+import com.shybaiev.expense_tracker_backend.entity.ExpenseMonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ExpenseMonthlyRollupRepository extends JpaRepository<ExpenseMonthlyRollup, Long> {
+
+    // rows are only written with bulk statements, so reads go through projections, never managed entities
+    @Query("""
+       select new com.shybaiev.expense_tracker_backend.dto.CategorySpendDto(nullif(r.category, ''), r.total, r.expenseCount)
+       from ExpenseMonthlyRollup r
+       where r.userId = :userId and r.monthStart = :monthStart
+       order by r.total desc
+       """)
+    List<CategorySpendDto> findCategoryTotals(Long userId, LocalDate monthStart);
+
+    List<ExpenseMonthlyRollup> findAllByUserId(Long userId);
+
+    // 0 when the row does not exist yet
+    @Modifying
+    @Query("""
+       update ExpenseMonthlyRollup r
+       set r.total = r.total + :amount, r.expenseCount = r.expenseCount + :count
+       where r.userId = :userId and r.monthStart = :monthStart and r.category = :category
+       """)
+    int applyDelta(Long userId, LocalDate monthStart, String category, BigDecimal amount, long count);
+
+    @Modifying
+    @Query("""
+       insert into ExpenseMonthlyRollup (userId, monthStart, category, total, expenseCount)
+       values (:userId, :monthStart, :category, :total, :count)
+       """)
+    void insertRow(Long userId, LocalDate monthStart, String category, BigDecimal total, long count);
+
+    @Modifying
+    @Query("""
+       delete from ExpenseMonthlyRollup r
+       where r.userId = :userId and r.monthStart = :monthStart and r.category = :category
+         and r.expenseCount <= 0
+       """)
+    int deleteIfEmpty(Long userId, LocalDate monthStart, String category);
+
+    @Modifying
+    @Query("delete from ExpenseMonthlyRollup r where r.userId = :userId")
+    int deleteAllByUserId(Long userId);
+}
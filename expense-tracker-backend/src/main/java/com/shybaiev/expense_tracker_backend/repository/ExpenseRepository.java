@@ -1,21 +1,37 @@
 package com.shybaiev.expense_tracker_backend.repository;
 
+import com.shybaiev.expense_tracker_backend.dto.CategorySpendDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
 import com.shybaiev.expense_tracker_backend.entity.Expense;
 import com.shybaiev.expense_tracker_backend.entity.User;
 import com.shybaiev.expense_tracker_backend.entity.Budget;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, ExpenseRepositoryCustom {
+    // e.budget.id and e.user.id read the foreign key columns, no join
+    String SELECT_VIEW = """
+        select new com.shybaiev.expense_tracker_backend.dto.ExpenseView(
+            e.id, e.amount, e.description, e.place, e.category, e.source, e.timestamp, e.budget.id, e.user.id)
+        from Expense e
+        """;
+
     List<Expense> findAllByUser(User user);
     List<Expense> findAllByBudget(Budget budget);
-    List<Expense> findAllByUserAndBudget(User user, Budget budget);
     List<Expense> findAllByCategoryAndUser(String category, User user);
     List<Expense> findAllByTimestampBetweenAndUser(OffsetDateTime from, OffsetDateTime to, User user);
 
@@ -25,16 +41,75 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
         WHERE e.budget = :budget
         """)
     BigDecimal getTotalExpensesByBudget(Budget budget);
+    List<Expense> findAllByUserId(Long userId);
+
+    // ownership is part of the WHERE clause, so a foreign id simply yields no row
+    Optional<Expense> findByIdAndUserId(Long id, Long userId);
+
+    // projections for the read endpoints, same filters as the entity finders above;
+    // the cached and ETag-validated lists are ordered so equal data serializes to equal bytes
+    @Query(SELECT_VIEW + "where e.id = :id and e.user.id = :userId")
+    Optional<ExpenseView> findViewByIdAndUserId(Long id, Long userId);
+
+    @Query(SELECT_VIEW + "where e.user.id = :userId order by e.id")
+    List<ExpenseView> findViewsByUserId(Long userId);
+
+    @Query(SELECT_VIEW + "where e.category = :category and e.user.id = :userId order by e.id")
+    List<ExpenseView> findViewsByCategoryAndUserId(String category, Long userId);
+
+    // change feed, see ChangeFeedService
+    @Query(SELECT_VIEW + "where e.user.id = :userId and e.changeVersion > :since and e.changeVersion <= :upTo order by e.changeVersion, e.id")
+    List<ExpenseView> findChangedViews(Long userId, long since, long upTo);
+
+    @Query(SELECT_VIEW + "where e.budget.id = :budgetId and e.user.id = :userId")
+    List<ExpenseView> findViewsByBudgetIdAndUserId(Long budgetId, Long userId);
 
+    @Query(SELECT_VIEW + "where e.timestamp between :from and :to and e.user.id = :userId")
+    List<ExpenseView> findViewsByTimestampBetweenAndUserId(OffsetDateTime from, OffsetDateTime to, Long userId);
+
+    // empty when the budget does not exist or belongs to someone else
     @Query("""
        select coalesce(sum(e.amount), 0)
+       from Budget b left join b.expenses e
+       where b.id = :budgetId and b.user.id = :userId
+       group by b.id
+       """)
+    Optional<BigDecimal> getTotalExpensesByBudgetIdAndUserId(Long budgetId, Long userId);
+
+    // one row per category, [start, end) so consecutive months never overlap
+    @Query("""
+       select new com.shybaiev.expense_tracker_backend.dto.CategorySpendDto(e.category, sum(e.amount), count(e))
        from Expense e
-       where e.budget = :budget and e.user = :user
+       where e.user.id = :userId and e.timestamp >= :start and e.timestamp < :end
+       group by e.category
+       order by sum(e.amount) desc
        """)
-    BigDecimal getTotalExpensesByBudgetAndUser(Budget budget, User user);
-    List<Expense> findAllByUserId(Long userId);
+    List<CategorySpendDto> sumByCategoryForUser(Long userId, OffsetDateTime start, OffsetDateTime end);
+
+    @Query("select e.fingerprint from Expense e where e.user.id = :userId and e.fingerprint in :fingerprints")
+    List<String> findExistingFingerprints(Long userId, Collection<String> fingerprints);
+
+    @Query("select min(e.timestamp) from Expense e where e.user.id = :userId")
+    Optional<OffsetDateTime> findFirstTimestampByUserId(Long userId);
+
+    @Query("select max(e.timestamp) from Expense e where e.user.id = :userId")
+    Optional<OffsetDateTime> findLastTimestampByUserId(Long userId);
 
+    // must be consumed inside a transaction and closed, rows are fetched from the cursor in chunks
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select e from Expense e where e.user.id = :userId order by e.id")
+    Stream<Expense> streamAllByUserId(Long userId);
 
+    long countByUserId(Long userId);
 
+    // user purge: one chunk of ids, then a set-based DELETE of exactly those rows
+    @Query("select e.id from Expense e where e.user.id = :userId order by e.id")
+    List<Long> findIdsByUserId(Long userId, Limit limit);
 
-}
\ No newline at end of file
+    @Modifying
+    @Query("delete from Expense e where e.id in :ids")
+    int deleteAllByIdIn(Collection<Long> ids);
+}
@@ -0,0 +1,27 @@
+package com.shybaiev.expense_tracker_backend.repository;
+
+import com.shybaiev.expense_tracker_backend.dto.BudgetWindow;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseCursor;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseFilter;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
+import com.shybaiev.expense_tracker_backend.entity.Expense;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ExpenseRepositoryCustom {
+
+    /**
+     * Expenses of the user ordered by timestamp desc (nulls last), then id desc,
+     * starting right after {@code after} (or from the top when null).
+     */
+    List<ExpenseView> findPageForUser(Long userId, ExpenseFilter filter, ExpenseCursor after, int limit);
+
+    /**
+     * Sum of the user's expenses per budget, each budget restricted to its own window.
+     * Budgets without expenses in their window are missing from the result.
+     */
+    Map<Long, BigDecimal> sumByBudgetWindows(Long userId, Collection<BudgetWindow> windows);
+}
@@ -0,0 +1,129 @@
+package com.shybaiev.expense_tracker_backend.repository;
+
+import com.shybaiev.expense_tracker_backend.dto.BudgetWindow;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseCursor;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseFilter;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
+import com.shybaiev.expense_tracker_backend.entity.Expense;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.sqm.NodeBuilder;
+import org.hibernate.query.sqm.tree.expression.SqmExpression;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset ("seek") pagination: the page start is a WHERE condition on (timestamp, id)
+ * instead of an OFFSET, so every page costs the same no matter how deep the client is.
+ * Order and seek match idx_expense_user_timestamp_id, the database reads each page straight off the index.
+ */
+public class ExpenseRepositoryImpl implements ExpenseRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ExpenseView> findPageForUser(Long userId, ExpenseFilter filter, ExpenseCursor after, int limit) {
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaQuery<ExpenseView> query = cb.createQuery(ExpenseView.class);
+        Root<Expense> expense = query.from(Expense.class);
+        Path<OffsetDateTime> timestamp = expense.get("timestamp");
+        Path<Long> id = expense.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(expense.get("user").get("id"), userId));
+
+        if (filter != null) {
+            if (filter.getCategory() != null) {
+                predicates.add(cb.equal(expense.get("category"), filter.getCategory()));
+            }
+            if (filter.getBudgetId() != null) {
+                predicates.add(cb.equal(expense.get("budget").get("id"), filter.getBudgetId()));
+            }
+            Path<BigDecimal> amount = expense.get("amount");
+            if (filter.getMinAmount() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(amount, filter.getMinAmount()));
+            }
+            if (filter.getMaxAmount() != null) {
+                predicates.add(cb.lessThanOrEqualTo(amount, filter.getMaxAmount()));
+            }
+            if (filter.getFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(timestamp, filter.getFrom()));
+            }
+            if (filter.getTo() != null) {
+                predicates.add(cb.lessThanOrEqualTo(timestamp, filter.getTo()));
+            }
+        }
+
+        if (after != null) {
+            predicates.add(seekAfter(cb, timestamp, id, after));
+        }
+
+        // rows come back as projections, nothing is attached to the persistence context
+        query.select(cb.construct(ExpenseView.class, id, expense.get("amount"), expense.get("description"),
+                        expense.get("place"), expense.get("category"), expense.get("source"), timestamp,
+                        expense.get("budget").get("id"), expense.get("user").get("id")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(cb.desc(timestamp), cb.desc(id));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Map<Long, BigDecimal> sumByBudgetWindows(Long userId, Collection<BudgetWindow> windows) {
+        Map<Long, BigDecimal> totals = new HashMap<>();
+        if (windows.isEmpty()) {
+            return totals;
+        }
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Expense> expense = query.from(Expense.class);
+        Path<Long> budgetId = expense.get("budget").get("id");
+        Path<OffsetDateTime> timestamp = expense.get("timestamp");
+        Path<BigDecimal> amount = expense.get("amount");
+
+        // one (budget_id = ? and timestamp in [start, end)) branch per budget, grouped in the same statement
+        List<Predicate> branches = new ArrayList<>(windows.size());
+        for (BudgetWindow window : windows) {
+            branches.add(cb.and(
+                    cb.equal(budgetId, window.budgetId()),
+                    cb.greaterThanOrEqualTo(timestamp, window.start()),
+                    cb.lessThan(timestamp, window.end())));
+        }
+
+        query.multiselect(budgetId, cb.sum(amount))
+                .where(cb.equal(expense.get("user").get("id"), userId), cb.or(branches.toArray(Predicate[]::new)))
+                .groupBy(budgetId);
+
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            totals.put(row.get(0, Long.class), row.get(1, BigDecimal.class));
+        }
+        return totals;
+    }
+
+    // a row value comparison, (timestamp, id) < (?, ?), which the database turns into one index range
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate seekAfter(HibernateCriteriaBuilder cb, Path<OffsetDateTime> timestamp, Path<Long> id,
+                                ExpenseCursor after) {
+        NodeBuilder nodes = (NodeBuilder) cb;
+        Expression row = nodes.tuple(Object[].class, (SqmExpression<?>) timestamp, (SqmExpression<?>) id);
+        Expression cursor = nodes.tuple(Object[].class,
+                (SqmExpression<?>) cb.value(after.timestamp()), (SqmExpression<?>) cb.value(after.id()));
+        return cb.lessThan(row, cursor);
+    }
+}
@@ -0,0 +1,34 @@
+package com.shybaiev.expense_tracker_backend.repository;
+
+import com.shybaiev.expense_tracker_backend.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // compare-and-set: 0 when another request already rotated the token
+    @Modifying
+    @Query("update RefreshToken t set t.revokedAt = :now where t.id = :id and t.revokedAt is null")
+    int revokeIfActive(Long id, OffsetDateTime now);
+
+    @Modifying
+    @Query("update RefreshToken t set t.revokedAt = :now where t.familyId = :familyId and t.revokedAt is null")
+    int revokeFamily(String familyId, OffsetDateTime now);
+
+    // access tokens of the family that may not have expired yet
+    @Query("select t.accessTokenId from RefreshToken t where t.familyId = :familyId and t.createdAt > :issuedAfter")
+    List<String> findAccessTokenIds(String familyId, OffsetDateTime issuedAfter);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt < :now")
+    int deleteExpired(OffsetDateTime now);
+}
@@ -0,0 +1,20 @@
+package com.shybaiev.expense_tracker_backend.repository;
+
+import com.shybaiev.expense_tracker_backend.entity.SyncTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+
+    @Query("""
+       select t.entityId
+       from SyncTombstone t
+       where t.userId = :userId and t.entityType = :type and t.changeVersion > :since and t.changeVersion <= :upTo
+       order by t.changeVersion, t.entityId
+       """)
+    List<Long> findDeletedIds(Long userId, SyncTombstone.Type type, long since, long upTo);
+}
@@ -0,0 +1,21 @@
+package com.shybaiev.expense_tracker_backend.repository;
+
+import com.shybaiev.expense_tracker_backend.entity.UserPurge;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UserPurgeRepository extends JpaRepository<UserPurge, Long> {
+
+    // queued and interrupted purges, oldest request first
+    @Query("""
+        select p.userId
+        from UserPurge p
+        where p.status <> com.shybaiev.expense_tracker_backend.entity.UserPurge.Status.COMPLETED
+        order by p.requestedAt
+        """)
+    List<Long> findPendingUserIds();
+}
@@ -1,14 +1,81 @@
 package com.shybaiev.expense_tracker_backend.repository;
+import com.shybaiev.expense_tracker_backend.dto.UserIdentity;
 import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.security.UserStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+    // login lookup; the query cache keeps the id, the row itself comes from the users region
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "users.byEmail")
+    })
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
 
     boolean existsByUsername(String username);
+
+    @Query("""
+        select new com.shybaiev.expense_tracker_backend.security.UserStatus(u.enabled, u.tokenEpoch)
+        from User u
+        where u.id = :id
+        """)
+    Optional<UserStatus> findStatusById(Long id);
+
+    // own transaction: login runs outside one so no connection is held while BCrypt works
+    @Transactional
+    @Modifying
+    @Query("update User u set u.passwordHash = :newHash where u.id = :id and u.passwordHash = :oldHash")
+    int updatePasswordHash(Long id, String oldHash, String newHash);
+
+    // one statement for both unique fields, only run when the in-memory index reports a possible match
+    @Query("""
+        select new com.shybaiev.expense_tracker_backend.dto.UserIdentity(u.id, u.email, u.username)
+        from User u
+        where u.email = :email or u.username = :username
+        """)
+    List<UserIdentity> findIdentitiesByEmailOrUsername(String email, String username);
+
+    // bulk provisioning checks a whole batch at once
+    @Query("""
+        select new com.shybaiev.expense_tracker_backend.dto.UserIdentity(u.id, u.email, u.username)
+        from User u
+        where u.email in :emails or u.username in :usernames
+        """)
+    List<UserIdentity> findIdentitiesByEmailInOrUsernameIn(Collection<String> emails, Collection<String> usernames);
+
+    @Query("""
+        select new com.shybaiev.expense_tracker_backend.dto.UserIdentity(u.id, u.email, u.username)
+        from User u
+        where u.id > :after
+        order by u.id
+        """)
+    List<UserIdentity> findIdentitiesAfter(Long after, Limit limit);
+
+    // keyset walk over all users for background jobs
+    @Query("select u.id from User u where u.id > :after order by u.id")
+    List<Long> findIdsAfter(Long after, Limit limit);
+
+    // row lock the user's rollup writers and the rollup repair serialize on, held until commit
+    @Query(value = "select id from users where id = :id for update", nativeQuery = true)
+    Optional<Long> lockRowById(Long id);
+
+    // bulk statement, so the expenses and budgets collections are not loaded for the cascade;
+    // the purge has emptied them, rollups and refresh tokens go with ON DELETE CASCADE
+    @Modifying
+    @Query("delete from User u where u.id = :id")
+    int deleteRowById(Long id);
 }
@@ -0,0 +1,70 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Sheds requests beyond the adaptive in-flight limit with 503 and Retry-After, before they
+ * reach authentication, the controllers or the connection pool.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final GradientConcurrencyLimit limit;
+    private final Duration retryAfter;
+    private final Counter rejected;
+
+    public ConcurrencyLimitFilter(GradientConcurrencyLimit limit, Duration retryAfter, MeterRegistry meterRegistry) {
+        this.limit = limit;
+        this.retryAfter = retryAfter;
+        Gauge.builder("api.concurrency.limit", limit, GradientConcurrencyLimit::getLimit)
+                .description("Requests currently allowed in flight")
+                .register(meterRegistry);
+        Gauge.builder("api.concurrency.in-flight", limit, GradientConcurrencyLimit::getInFlight)
+                .description("Requests currently in flight")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("api.concurrency.rejected")
+                .description("Requests shed because the limit was reached")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // monitoring has to keep working while the API is overloaded;
+        // live update streams and exports run for minutes, their latency would drag the limit down
+        // for ordinary requests, so they are capped by LiveUpdateHub and ExpenseExportService instead
+        String uri = request.getRequestURI();
+        return uri.startsWith("/actuator/") || uri.equals("/stream") || uri.equals("/expenses/export");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        if (!limit.tryAcquire()) {
+            rejected.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter.toSeconds()));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Server is busy, retry later");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limit.release(System.nanoTime() - start);
+        }
+    }
+}
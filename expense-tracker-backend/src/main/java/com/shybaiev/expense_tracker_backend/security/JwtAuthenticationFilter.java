@@ -11,15 +11,19 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
-    private final CustomUserDetailsService userDetailsService;
+    private final UserStatusCache userStatusCache;
+    private final RevokedTokenStore revokedTokenStore;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserStatusCache userStatusCache,
+                                   RevokedTokenStore revokedTokenStore) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.userStatusCache = userStatusCache;
+        this.revokedTokenStore = revokedTokenStore;
     }
 
     @Override
@@ -35,14 +39,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             String token = authHeader.substring(7);
-            String username = jwtUtil.extractUsername(token);
+            Optional<JwtClaims> claims = jwtUtil.verify(token);
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                var userDetails = userDetailsService.loadUserByUsername(username);
+            if (claims.isPresent() && SecurityContextHolder.getContext().getAuthentication() == null) {
+                JwtClaims verified = claims.get();
 
-                if (jwtUtil.validateToken(token, userDetails)) {
+                // principal comes from the token itself, only in-memory state is consulted
+                if (verified.userId() != null
+                        && !revokedTokenStore.isRevoked(verified.tokenId())
+                        && userStatusCache.isActive(verified.userId(), verified.tokenEpoch())) {
+                    AuthenticatedUser principal = AuthenticatedUser.from(verified);
                     UsernamePasswordAuthenticationToken auth =
-                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
 
                     auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(auth);
@@ -55,4 +63,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import com.shybaiev.expense_tracker_backend.entity.Role;
+
+import java.time.Instant;
+
+/**
+ * Claims of a token whose signature has already been checked.
+ * Produced once per token by {@link JwtUtil#verify(String)}.
+ */
+public record JwtClaims(String subject, Long userId, Role role, int tokenEpoch, String tokenId,
+                        Instant issuedAt, Instant expiresAt) {
+
+    public boolean isExpired(Instant now) {
+        return expiresAt == null || !expiresAt.isAfter(now);
+    }
+}
@@ -0,0 +1,53 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of verified claims, keyed by the SHA-256 of the raw token.
+ * Expired entries are dropped on read, so a cached token never outlives its "exp".
+ */
+public class JwtClaimsCache {
+
+    private final Map<String, JwtClaims> entries;
+
+    public JwtClaimsCache(int maxSize) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JwtClaims> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized JwtClaims get(String key, Instant now) {
+        JwtClaims claims = entries.get(key);
+        if (claims != null && claims.isExpired(now)) {
+            entries.remove(key);
+            return null;
+        }
+        return claims;
+    }
+
+    public synchronized void put(String key, JwtClaims claims) {
+        entries.put(key, claims);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public static String keyFor(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.shybaiev.expense_tracker_backend.security;
 
+import com.shybaiev.expense_tracker_backend.entity.Role;
 import com.shybaiev.expense_tracker_backend.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,83 +14,116 @@ import io.jsonwebtoken.JwtException;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
 
     private final Key key;
     private final long EXPIRATION_MS;
+    private final JwtParser parser;
+    private final JwtClaimsCache claimsCache;
 
     public JwtUtil(@Value("${jwt.secret}") String secret,
-                   @Value("${jwt.expiration}") long expiration) {
+                   @Value("${jwt.expiration}") long expiration,
+                   @Value("${jwt.claims-cache.max-size:10000}") int claimsCacheSize) {
         // Use a consistent secret key from environment variable
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         this.EXPIRATION_MS = expiration;
+        // JwtParser is immutable and thread-safe, build it once
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.claimsCache = new JwtClaimsCache(claimsCacheSize);
     }
 
     public String generateToken(User user) {
+        return generateToken(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Short-lived access token; tokenId becomes the "jti" claim under which it can be revoked.
+     */
+    public String generateToken(User user, String tokenId) {
         return Jwts.builder()
+                .setId(tokenId)
                 .setSubject(user.getEmail())
                 .claim("role", user.getRole())
                 .claim("userId", user.getId()) // Add user ID to JWT claims
+                .claim("epoch", user.getTokenEpoch())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_MS))
                 .signWith(key)
                 .compact();
     }
 
-    public String extractUsername(String token) {
+    public Duration getAccessTokenTtl() {
+        return Duration.ofMillis(EXPIRATION_MS);
+    }
+
+    /**
+     * Parses the token and checks its signature and expiry exactly once.
+     * Repeated calls with the same token are answered from the claims cache
+     * without touching the crypto.
+     */
+    public Optional<JwtClaims> verify(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        Instant now = Instant.now();
+        String cacheKey = JwtClaimsCache.keyFor(token);
+        JwtClaims cached = claimsCache.get(cacheKey, now);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody()
-                    .getSubject();
-        } catch (JwtException e) {
-            // Log the error and return null instead of throwing
-            System.err.println("Failed to extract username from token: " + e.getMessage());
-            return null;
+            Claims body = parser.parseClaimsJws(token).getBody();
+            JwtClaims claims = toJwtClaims(body);
+            if (claims.isExpired(now)) {
+                return Optional.empty();
+            }
+            claimsCache.put(cacheKey, claims);
+            return Optional.of(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            System.err.println("JWT verification failed: " + e.getMessage());
+            return Optional.empty();
         }
     }
 
+    public String extractUsername(String token) {
+        return verify(token).map(JwtClaims::subject).orElse(null);
+    }
+
     public Long extractUserId(String token) {
-        try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-            return claims.get("userId", Long.class);
-        } catch (JwtException e) {
-            System.err.println("Failed to extract userId from token: " + e.getMessage());
-            return null;
-        }
+        return verify(token).map(JwtClaims::userId).orElse(null);
     }
 
     public boolean validateToken(String token, UserDetails userDetails) {
-        try {
-            String username = extractUsername(token);
-            return username != null
-                    && username.equals(userDetails.getUsername())
-                    && !isTokenExpired(token);
-        } catch (JwtException e) {
-            return false;
-        }
+        return verify(token)
+                .map(claims -> validateToken(claims, userDetails))
+                .orElse(false);
     }
 
-    private boolean isTokenExpired(String token) {
-        try {
-            Date expiration = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody()
-                    .getExpiration();
-            return expiration.before(new Date());
-        } catch (JwtException e) {
-            return true; // Consider expired if we can't parse
-        }
+    public boolean validateToken(JwtClaims claims, UserDetails userDetails) {
+        return claims.subject() != null
+                && claims.subject().equals(userDetails.getUsername())
+                && !claims.isExpired(Instant.now());
+    }
+
+    private JwtClaims toJwtClaims(Claims body) {
+        String role = body.get("role", String.class);
+        Integer epoch = body.get("epoch", Integer.class);
+        return new JwtClaims(
+                body.getSubject(),
+                body.get("userId", Long.class),
+                role != null ? Role.valueOf(role) : null,
+                epoch != null ? epoch : 0,
+                body.getId(),
+                body.getIssuedAt() != null ? body.getIssuedAt().toInstant() : null,
+                body.getExpiration() != null ? body.getExpiration().toInstant() : null
+        );
     }
 }
@@ -0,0 +1,173 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import com.shybaiev.expense_tracker_backend.exception.TooManyRequestsException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs BCrypt on the bounded password-hash pool. The calling request thread only waits,
+ * so at most one hash per core burns CPU, and a full queue is rejected up front.
+ * The strength is calibrated at startup unless it is configured explicitly.
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+
+    static final int MIN_STRENGTH = 10;
+    static final int MAX_STRENGTH = 16;
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final Executor executor;
+    private final int strength;
+    private final BCryptPasswordEncoder encoder;
+
+    public PasswordHasher(@Qualifier("passwordHashExecutor") Executor executor,
+                          @Value("${security.password.bcrypt-strength:0}") int configuredStrength,
+                          @Value("${security.password.target-hash-time:PT0.1S}") Duration targetHashTime) {
+        this.executor = executor;
+        if (configuredStrength > 0) {
+            this.strength = configuredStrength;
+        } else {
+            this.strength = calibrate(targetHashTime, PasswordHasher::measure);
+            log.info("BCrypt strength calibrated to {} for a target of {} ms", strength, targetHashTime.toMillis());
+        }
+        this.encoder = new BCryptPasswordEncoder(strength);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(() -> encoder.encode(rawPassword));
+    }
+
+    /**
+     * Hashes a whole batch in parallel. One worker per pool thread but one pulls the next password
+     * until none are left, so the bounded queue is not flooded and one thread stays free for logins.
+     * Returns the hashes in input order.
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        int size = rawPasswords.size();
+        String[] hashes = new String[size];
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < size) {
+                hashes[i] = encoder.encode(rawPasswords.get(i));
+            }
+        };
+
+        int workers = Math.min(size, batchParallelism());
+        List<CompletableFuture<Void>> running = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            try {
+                running.add(CompletableFuture.runAsync(worker, executor));
+            } catch (TaskRejectedException e) {
+                // the workers already running take over the remaining passwords
+                break;
+            }
+        }
+        if (running.isEmpty() && size > 0) {
+            throw new TooManyRequestsException("Too many password checks in progress, retry later", RETRY_AFTER);
+        }
+        await(CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)));
+        return Arrays.asList(hashes);
+    }
+
+    public boolean matches(CharSequence rawPassword, String hash) {
+        return run(() -> encoder.matches(rawPassword, hash));
+    }
+
+    /**
+     * True when the hash was made with another strength than the current one.
+     */
+    public boolean needsRehash(String hash) {
+        if (hash == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(hash);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * The encoder itself, hashing on the caller's thread.
+     */
+    public PasswordEncoder getEncoder() {
+        return encoder;
+    }
+
+    /**
+     * Highest strength whose projected cost stays within the target. Each extra round doubles
+     * the cost, so one measurement at the minimum strength is enough.
+     */
+    static int calibrate(Duration target, IntToLongFunction nanosAtStrength) {
+        int strength = MIN_STRENGTH;
+        long projected = nanosAtStrength.applyAsLong(strength);
+        while (strength < MAX_STRENGTH && projected * 2 <= target.toNanos()) {
+            strength++;
+            projected *= 2;
+        }
+        return strength;
+    }
+
+    private static long measure(int strength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(strength);
+        long best = Long.MAX_VALUE;
+        // the first rounds include JIT warm-up, the fastest run is the steady-state cost
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration-password");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private <T> T run(Supplier<T> task) {
+        CompletableFuture<T> result;
+        try {
+            result = CompletableFuture.supplyAsync(task, executor);
+        } catch (TaskRejectedException e) {
+            throw new TooManyRequestsException("Too many password checks in progress, retry later", RETRY_AFTER);
+        }
+        return await(result);
+    }
+
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private int batchParallelism() {
+        int poolSize = executor instanceof ThreadPoolTaskExecutor pool
+                ? pool.getMaxPoolSize()
+                : Runtime.getRuntime().availableProcessors();
+        return Math.max(1, poolSize - 1);
+    }
+}
@@ -0,0 +1,107 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import com.shybaiev.expense_tracker_backend.entity.RevokedAccessToken;
+import com.shybaiev.expense_tracker_backend.repository.RevokedAccessTokenRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of access tokens revoked before their expiry, checked on every request without I/O.
+ * The Bloom filter answers the common "never revoked" case, the map confirms a hit and
+ * holds the expiry after which an entry is dropped. Revocations are written to the database
+ * and reloaded at startup; other instances only see them after their own restart, so this
+ * assumes a single backend instance.
+ */
+@Slf4j
+@Component
+public class RevokedTokenStore {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevokedAccessTokenRepository repository;
+    private final int expectedRevocations;
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+
+    public RevokedTokenStore(RevokedAccessTokenRepository repository,
+                             @Value("${security.revocation.expected-revocations:10000}") int expectedRevocations) {
+        this.repository = repository;
+        this.expectedRevocations = expectedRevocations;
+        this.filter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        for (RevokedAccessToken token : repository.findAllByExpiresAtAfter(now)) {
+            revoked.put(token.getTokenId(), token.getExpiresAt().toInstant());
+        }
+        rebuildFilter();
+        log.info("Loaded {} revoked access tokens", revoked.size());
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            return false;
+        }
+        Instant expiresAt = revoked.get(tokenId);
+        // an expired token is rejected by its signature check anyway
+        return expiresAt != null && expiresAt.isAfter(Instant.now());
+    }
+
+    /**
+     * Persists the revocation and makes it visible to the next {@link #isRevoked(String)} call.
+     * Joins the caller's transaction; the in-memory entry is added right away, rejecting a token
+     * slightly early is the safe direction.
+     */
+    public void revoke(String tokenId, Instant expiresAt) {
+        if (tokenId == null || !expiresAt.isAfter(Instant.now()) || revoked.containsKey(tokenId)) {
+            return;
+        }
+        repository.save(new RevokedAccessToken(tokenId, expiresAt.atOffset(ZoneOffset.UTC)));
+        synchronized (this) {
+            revoked.put(tokenId, expiresAt);
+            if (revoked.size() > filter.capacity()) {
+                rebuildFilter();
+            } else {
+                filter.put(tokenId);
+            }
+        }
+    }
+
+    /**
+     * Drops entries whose token has expired, in memory and in the table,
+     * and rebuilds the filter so it does not fill up with stale bits.
+     */
+    @Scheduled(initialDelayString = "${security.revocation.purge-interval:PT10M}",
+            fixedDelayString = "${security.revocation.purge-interval:PT10M}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        int deleted = repository.deleteExpired(now.atOffset(ZoneOffset.UTC));
+        synchronized (this) {
+            revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+            rebuildFilter();
+        }
+        log.debug("Purged {} expired access token revocations", deleted);
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    // callers hold the monitor; the new filter is complete before it is published
+    private void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2), FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+    }
+}
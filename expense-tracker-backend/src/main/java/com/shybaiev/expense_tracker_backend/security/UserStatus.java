@@ -0,0 +1,10 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+/**
+ * Per-user state that decides whether an otherwise valid token is still accepted.
+ */
+public record UserStatus(boolean enabled, int tokenEpoch) {
+
+    // user ids are never reused, so a deleted user can be remembered as missing
+    static final UserStatus MISSING = new UserStatus(false, -1);
+}
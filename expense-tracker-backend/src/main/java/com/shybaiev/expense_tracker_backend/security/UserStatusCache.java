@@ -0,0 +1,86 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory table of the enabled flag and token epoch per user id.
+ * A row is loaded on first use and dropped by {@link #invalidate(Long)} when the user
+ * is updated or deleted, so authenticated requests normally run without a user SELECT.
+ */
+@Component
+public class UserStatusCache {
+
+    private final UserRepository userRepository;
+    private final int maxEntries;
+    private final Map<Long, UserStatus> statuses = new ConcurrentHashMap<>();
+    // moves on every invalidation, a load that overlapped one is returned but not kept
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserStatusCache(UserRepository userRepository,
+                           @Value("${security.user-status-cache.max-size:50000}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * True when the user still exists, is enabled and the token was issued for its current epoch.
+     */
+    public boolean isActive(Long userId, int tokenEpoch) {
+        UserStatus status = get(userId);
+        return status.enabled() && status.tokenEpoch() == tokenEpoch;
+    }
+
+    public UserStatus get(Long userId) {
+        UserStatus status = statuses.get(userId);
+        if (status != null) {
+            return status;
+        }
+        long seen = invalidations.get();
+        status = userRepository.findStatusById(userId).orElse(UserStatus.MISSING);
+        if (statuses.size() >= maxEntries) {
+            // rows are cheap to reload, a full reset keeps the table bounded without LRU bookkeeping
+            statuses.clear();
+        }
+        statuses.put(userId, status);
+        if (invalidations.get() != seen) {
+            // may have read the row before the invalidating commit
+            statuses.remove(userId, status);
+        }
+        return status;
+    }
+
+    /**
+     * Drops the user's row once the caller's transaction has committed, like
+     * {@code UserDataVersions.bump}. Dropping it earlier would let a concurrent request cache the
+     * row as it was before the commit, and nothing would ever drop it again.
+     * Without a transaction the row goes right away.
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        } else {
+            evict(userId);
+        }
+    }
+
+    private void evict(Long userId) {
+        invalidations.incrementAndGet();
+        statuses.remove(userId);
+    }
+}
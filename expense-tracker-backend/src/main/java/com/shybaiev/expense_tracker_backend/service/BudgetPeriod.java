@@ -0,0 +1,88 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Typed form of {@code Budget.timePeriod}. Accepts the names used by clients (DAILY/DAY, WEEKLY/WEEK,
+ * MONTHLY/MONTH, QUARTERLY/QUARTER, YEARLY/YEAR), a plain number of days ("30") or an ISO-8601 period ("P2W").
+ */
+public record BudgetPeriod(Period length) {
+
+    public static final BudgetPeriod MONTHLY = new BudgetPeriod(Period.ofMonths(1));
+
+    public BudgetPeriod {
+        if (length.isZero() || length.isNegative()) {
+            throw new IllegalArgumentException("Budget period must be positive: " + length);
+        }
+    }
+
+    /**
+     * A budget window, {@code end} is exclusive.
+     */
+    public record Window(LocalDate start, LocalDate end) {
+    }
+
+    public static BudgetPeriod parse(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Budget period is required");
+        }
+        String normalized = value.trim().toUpperCase(Locale.ROOT);
+        switch (normalized) {
+            case "DAY", "DAILY" -> {
+                return new BudgetPeriod(Period.ofDays(1));
+            }
+            case "WEEK", "WEEKLY" -> {
+                return new BudgetPeriod(Period.ofWeeks(1));
+            }
+            case "MONTH", "MONTHLY" -> {
+                return MONTHLY;
+            }
+            case "QUARTER", "QUARTERLY" -> {
+                return new BudgetPeriod(Period.ofMonths(3));
+            }
+            case "YEAR", "YEARLY", "ANNUAL", "ANNUALLY" -> {
+                return new BudgetPeriod(Period.ofYears(1));
+            }
+            default -> {
+                // handled below
+            }
+        }
+        try {
+            if (normalized.chars().allMatch(Character::isDigit)) {
+                return new BudgetPeriod(Period.ofDays(Integer.parseInt(normalized)));
+            }
+            return new BudgetPeriod(Period.parse(normalized));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Unsupported budget period: " + value);
+        }
+    }
+
+    /**
+     * The window containing {@code date}. Windows repeat back to back from {@code startDate};
+     * before the budget starts its first window is returned.
+     */
+    public Window windowContaining(LocalDate startDate, LocalDate date) {
+        if (date.isBefore(startDate)) {
+            return new Window(startDate, startOf(startDate, 1));
+        }
+        // a rough guess from the day count, then corrected against the real calendar
+        long approxDays = length.getYears() * 365L + length.getMonths() * 30L + length.getDays();
+        long index = ChronoUnit.DAYS.between(startDate, date) / Math.max(approxDays, 1);
+        while (index > 0 && startOf(startDate, index).isAfter(date)) {
+            index--;
+        }
+        while (!startOf(startDate, index + 1).isAfter(date)) {
+            index++;
+        }
+        return new Window(startOf(startDate, index), startOf(startDate, index + 1));
+    }
+
+    // computed from the start date every time, so month-end clamping never accumulates
+    private LocalDate startOf(LocalDate startDate, long index) {
+        return startDate.plus(length.multipliedBy(Math.toIntExact(index)));
+    }
+}
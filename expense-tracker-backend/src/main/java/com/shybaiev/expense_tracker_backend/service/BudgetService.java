@@ -1,8 +1,12 @@
 package com.shybaiev.expense_tracker_backend.service;
 
 import com.shybaiev.expense_tracker_backend.dto.BudgetCreateUpdateDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetStatusDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetSummaryDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetView;
 import com.shybaiev.expense_tracker_backend.entity.Budget;
 import com.shybaiev.expense_tracker_backend.entity.Expense;
+import com.shybaiev.expense_tracker_backend.entity.SyncTombstone;
 import com.shybaiev.expense_tracker_backend.entity.User;
 import com.shybaiev.expense_tracker_backend.mapper.BudgetMapper;
 import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
@@ -15,9 +19,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 @Service
 @RequiredArgsConstructor
@@ -25,61 +30,41 @@ public class BudgetService {
 
     private final BudgetRepository budgetRepository;
     private final ExpenseRepository expenseRepository;
-    private final ExpenseService expenseService;
+    private final BudgetStatusService budgetStatusService;
 
     private final UserRepository userRepository;
     private final BudgetMapper budgetMapper;
+    private final UserDataVersions userDataVersions;
+    private final ChangeLog changeLog;
+    private final LiveUpdateHub liveUpdateHub;
 
-
-    public Budget createBudgetForUser(BudgetCreateUpdateDto dto, String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    @Transactional
+    public Budget createBudgetForUser(BudgetCreateUpdateDto dto, Long userId) {
+        BudgetPeriod.parse(dto.getTimePeriod());
+        // the principal was already validated, a reference is enough for the FK
+        User user = userRepository.getReferenceById(userId);
 
         Budget budget = budgetMapper.toEntity(dto);
         budget.setUser(user);
+        budget.setChangeVersion(changeLog.next(userId));
 
-        return budgetRepository.save(budget);
+        Budget saved = budgetRepository.save(budget);
+        userDataVersions.bump(userId);
+        liveUpdateHub.publish(userId, () -> new LiveUpdate("budget.created", saved.getChangeVersion(), budgetMapper.toDto(saved)));
+        return saved;
     }
 
-    public Optional<Budget> getBudgetByIdForUser(Long id, String userEmail) {
-        Optional<User> maybeUser = userRepository.findByEmail(userEmail);
-        if (maybeUser.isEmpty()) {
-            throw new EntityNotFoundException("User not found: " + userEmail);
-        }
-        User user = maybeUser.get();
-
-        Optional<Budget> maybeBudget = budgetRepository.findById(id);
-        if (maybeBudget.isEmpty()) {
-            return Optional.empty();
-        }
-        Budget budget = maybeBudget.get();
-        if (budget.getUser() == null) {
-            return Optional.empty();
-        }
-        if (Objects.equals(budget.getUser().getId(), user.getId())) {
-            return Optional.of(budget);
-        } else {
-            // found, but doesnt belong to user
-            return Optional.empty();
-        }
+    @Transactional(readOnly = true)
+    public Optional<BudgetView> getBudgetByIdForUser(Long id, Long userId) {
+        // found, but doesnt belong to user -> empty as well
+        return budgetRepository.findViewByIdAndUserId(id, userId);
     }
 
-    public Budget updateBudgetForUser(Long id, BudgetCreateUpdateDto dto, String userEmail) {
-        Optional<User> maybeUser = userRepository.findByEmail(userEmail);
-        if (maybeUser.isEmpty()) {
-            throw new EntityNotFoundException("User not found: " + userEmail);
-        }
-        User user = maybeUser.get();
+    @Transactional
+    public Budget updateBudgetForUser(Long id, BudgetCreateUpdateDto dto, Long userId) {
+        Budget existing = budgetRepository.findByIdAndUserId(id, userId)
+                .orElseThrow(() -> notFoundOrForbidden(id, "You are not allowed to update this budget"));
 
-        Optional<Budget> maybeBudget = budgetRepository.findById(id);
-        if (maybeBudget.isEmpty()) {
-            throw new EntityNotFoundException("Budget not found: " + id);
-        }
-        Budget existing = maybeBudget.get();
-
-        if (existing.getUser() == null || !Objects.equals(existing.getUser().getId(), user.getId())) {
-            throw new AccessDeniedException("You are not allowed to update this budget");
-        }
         if (dto.getAmount() != null) {
             existing.setAmount(dto.getAmount());
         }
@@ -90,80 +75,83 @@ public class BudgetService {
             existing.setDescription(dto.getDescription());
         }
         if (dto.getTimePeriod() != null) {
+            BudgetPeriod.parse(dto.getTimePeriod());
             existing.setTimePeriod(dto.getTimePeriod());
         }
         if (dto.getStartDate() != null) {
             existing.setStartDate(dto.getStartDate());
         }
+        existing.setChangeVersion(changeLog.next(userId));
 
-        return budgetRepository.save(existing);
+        Budget saved = budgetRepository.save(existing);
+        userDataVersions.bump(userId);
+        liveUpdateHub.publish(userId, () -> new LiveUpdate("budget.updated", saved.getChangeVersion(), budgetMapper.toDto(saved)));
+        return saved;
     }
 
-    public List<Budget> getAllBudgetsForUser(String userEmail) {
-        Optional<User> maybeUser = userRepository.findByEmail(userEmail);
-        if (maybeUser.isEmpty()) {
-            throw new EntityNotFoundException("User not found: " + userEmail);
-        }
-        User user = maybeUser.get();
-        return budgetRepository.findAllByUser(user);
+    @Transactional(readOnly = true)
+    public List<BudgetView> getAllBudgetsForUser(Long userId) {
+        return budgetRepository.findViewsByUserId(userId);
     }
 
-    public Budget getBudgetByExpenseForUser(Expense expense, String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new EntityNotFoundException("User not found: " + userEmail));
-
-        Budget budget = budgetRepository.findByExpenses(expense)
-                .orElseThrow(() -> new EntityNotFoundException("No budget found for expense id: " + expense.getId()));
-
-        if (!budget.getUser().getId().equals(user.getId())) {
+    public Budget getBudgetByExpenseForUser(Expense expense, Long userId) {
+        Optional<Budget> budget = budgetRepository.findByExpenseIdAndUserId(expense.getId(), userId);
+        if (budget.isPresent()) {
+            return budget.get();
+        }
+        if (budgetRepository.findByExpenses(expense).isPresent()) {
             throw new AccessDeniedException("You are not allowed to read this budget");
         }
-
-        return budget;
+        throw new EntityNotFoundException("No budget found for expense id: " + expense.getId());
     }
 
-    public void deleteBudgetForUser(Long id, String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new EntityNotFoundException("User not found: " + userEmail));
-
-        Budget budget = budgetRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Budget not found: " + id));
-
-        if (!Objects.equals(budget.getUser().getId(), user.getId())) {
-            throw new AccessDeniedException("You are not allowed to delete budget id=" + id);
+    @Transactional
+    public void deleteBudgetForUser(Long id, Long userId) {
+        if (budgetRepository.deleteByIdAndUserId(id, userId) == 0) {
+            throw notFoundOrForbidden(id, "You are not allowed to delete budget id=" + id);
         }
-
-        budgetRepository.delete(budget);
+        long version = changeLog.deleted(userId, SyncTombstone.Type.BUDGET, id);
+        userDataVersions.bump(userId);
+        liveUpdateHub.publish(userId, () -> LiveUpdate.deleted("budget.deleted", version, id));
     }
 
 
-    public BigDecimal getTotalExpensesForBudgetForUser(Budget budget, String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new EntityNotFoundException("User not found: " + userEmail));
-
-        if (!Objects.equals(budget.getUser().getId(), user.getId())) {
-            throw new AccessDeniedException("You are not allowed to access this budget");
-        }
-
-        return expenseRepository.getTotalExpensesByBudget(budget);
+    public BigDecimal getTotalExpensesForBudgetForUser(Long budgetId, Long userId) {
+        return expenseRepository.getTotalExpensesByBudgetIdAndUserId(budgetId, userId)
+                .orElseThrow(() -> notFoundOrForbidden(budgetId, "You are not allowed to access this budget"));
     }
 
+    /**
+     * Spent and remaining totals of all budgets in a single grouped statement.
+     */
+    @Transactional(readOnly = true)
+    public List<BudgetSummaryDto> getBudgetSummariesForUser(Long userId) {
+        return budgetRepository.summarizeAllByUserId(userId);
+    }
 
+    /**
+     * True when any budget is over its limit in the window that contains the end of the month,
+     * or today for the current month.
+     */
     @Transactional(readOnly = true)
-    public boolean isUserOverBudgetInMonthForUser(String userEmail, YearMonth yearMonth) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new EntityNotFoundException("User not found: " + userEmail));
+    public boolean isUserOverBudgetInMonthForUser(Long userId, YearMonth yearMonth) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate asOf = yearMonth.equals(YearMonth.from(today)) ? today : yearMonth.atEndOfMonth();
 
-        if (user.getBudgets().isEmpty()) {
-            return false;
+        for (BudgetStatusDto status : budgetStatusService.getBudgetStatusesForUser(userId, asOf)) {
+            if (status.isOverBudget()) {
+                return true;
+            }
         }
-
-        Budget budget = user.getBudgets().getFirst();
-        BigDecimal totalExpenses = expenseService.getTotalExpensesForUserInMonth(userEmail, yearMonth);
-
-        return totalExpenses.compareTo(budget.getAmount()) > 0;
+        return false;
     }
 
-
+    // only reached when the owner-scoped statement matched nothing
+    private RuntimeException notFoundOrForbidden(Long id, String deniedMessage) {
+        if (budgetRepository.existsById(id)) {
+            return new AccessDeniedException(deniedMessage);
+        }
+        return new EntityNotFoundException("Budget not found: " + id);
+    }
 
 }
@@ -0,0 +1,91 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.BudgetStatusDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetWindow;
+import com.shybaiev.expense_tracker_backend.entity.Budget;
+import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates all budgets of a user at once: each budget's current window is derived from its
+ * period and start date, and the spend of every window comes from a single grouped query.
+ */
+@Service
+@RequiredArgsConstructor
+public class BudgetStatusService {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final BudgetRepository budgetRepository;
+    private final ExpenseRepository expenseRepository;
+
+    @Transactional(readOnly = true)
+    public List<BudgetStatusDto> getBudgetStatusesForUser(Long userId, LocalDate asOf) {
+        List<Budget> budgets = budgetRepository.findAllByUserId(userId);
+        if (budgets.isEmpty()) {
+            return List.of();
+        }
+
+        List<BudgetPeriod.Window> periods = new ArrayList<>(budgets.size());
+        List<BudgetWindow> windows = new ArrayList<>(budgets.size());
+        for (Budget budget : budgets) {
+            BudgetPeriod.Window window = periodOf(budget).windowContaining(startDateOf(budget, asOf), asOf);
+            periods.add(window);
+            windows.add(new BudgetWindow(budget.getId(),
+                    window.start().atStartOfDay().atOffset(ZoneOffset.UTC),
+                    window.end().atStartOfDay().atOffset(ZoneOffset.UTC)));
+        }
+
+        Map<Long, BigDecimal> spentByBudget = expenseRepository.sumByBudgetWindows(userId, windows);
+
+        List<BudgetStatusDto> statuses = new ArrayList<>(budgets.size());
+        for (int i = 0; i < budgets.size(); i++) {
+            Budget budget = budgets.get(i);
+            BigDecimal spent = spentByBudget.getOrDefault(budget.getId(), BigDecimal.ZERO);
+            statuses.add(toStatus(budget, periods.get(i), spent));
+        }
+        return statuses;
+    }
+
+    private static BudgetStatusDto toStatus(Budget budget, BudgetPeriod.Window window, BigDecimal spent) {
+        BigDecimal amount = budget.getAmount();
+        BigDecimal percentUsed = amount.signum() > 0
+                ? spent.multiply(HUNDRED).divide(amount, 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
+        return new BudgetStatusDto(
+                budget.getId(),
+                budget.getName(),
+                amount,
+                budget.getTimePeriod(),
+                window.start(),
+                window.end(),
+                spent,
+                amount.subtract(spent),
+                percentUsed,
+                spent.compareTo(amount) > 0);
+    }
+
+    private static BudgetPeriod periodOf(Budget budget) {
+        try {
+            return BudgetPeriod.parse(budget.getTimePeriod());
+        } catch (IllegalArgumentException e) {
+            // rows saved before the period was validated are read as monthly
+            return BudgetPeriod.MONTHLY;
+        }
+    }
+
+    private static LocalDate startDateOf(Budget budget, LocalDate asOf) {
+        return budget.getStartDate() != null ? budget.getStartDate() : asOf.withDayOfMonth(1);
+    }
+}
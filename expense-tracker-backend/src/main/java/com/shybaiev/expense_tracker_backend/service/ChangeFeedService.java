@@ -0,0 +1,50 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.entity.SyncTombstone;
+import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
+import com.shybaiev.expense_tracker_backend.repository.SyncTombstoneRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Delta sync for clients that keep a local copy: instead of the whole history, a client sends the
+ * cursor of its last sync and gets the rows changed since, so the payload follows the number of changes.
+ * The cursor is the user's change version, see {@link ChangeLog}.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChangeFeedService {
+
+    private final ChangeLog changeLog;
+    private final ExpenseRepository expenseRepository;
+    private final BudgetRepository budgetRepository;
+    private final SyncTombstoneRepository tombstoneRepository;
+
+    /**
+     * Changes after {@code since}, or every row of the user when it is null.
+     * A row changed several times is returned once, in its current state.
+     */
+    @Transactional(readOnly = true)
+    public ChangeSet getChangesForUser(Long userId, Long since) {
+        if (since != null && since < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        // rows written before the change feed existed carry version 0
+        long after = since != null ? since : -1;
+        // read first: rows committed while the queries below run are above it and come with the next sync
+        long upTo = changeLog.current(userId);
+        if (since != null && since >= upTo) {
+            return new ChangeSet(List.of(), List.of(), List.of(), List.of(), upTo);
+        }
+        return new ChangeSet(
+                expenseRepository.findChangedViews(userId, after, upTo),
+                budgetRepository.findChangedViews(userId, after, upTo),
+                tombstoneRepository.findDeletedIds(userId, SyncTombstone.Type.EXPENSE, after, upTo),
+                tombstoneRepository.findDeletedIds(userId, SyncTombstone.Type.BUDGET, after, upTo),
+                upTo);
+    }
+}
@@ -0,0 +1,65 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.entity.SyncTombstone;
+import com.shybaiev.expense_tracker_backend.repository.SyncTombstoneRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Hands out the change versions behind the change feed. Each user has a counter in
+ * {@code users.change_version}; a write transaction moves it forward once and stamps the expenses
+ * and budgets it touches with the new value. The UPDATE keeps the user's row locked until commit,
+ * so a second writer of the same user waits, and versions become visible in the order they were
+ * handed out: a client that has seen version n can never miss a later commit of a version below n.
+ * <p>
+ * The counter is written with plain JDBC and is not mapped on {@code User}, so moving it does not
+ * evict the cached users the way a bulk JPQL update would.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChangeLog {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SyncTombstoneRepository tombstoneRepository;
+
+    /**
+     * Next version of the user, to be called once per write transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long next(Long userId) {
+        if (jdbcTemplate.update("UPDATE users SET change_version = change_version + 1 WHERE id = ?", userId) == 0) {
+            throw new EntityNotFoundException("User not found: " + userId);
+        }
+        return current(userId);
+    }
+
+    /**
+     * Highest version of the user whose changes are visible to the caller's transaction.
+     */
+    public long current(Long userId) {
+        Long version = jdbcTemplate.queryForObject("SELECT change_version FROM users WHERE id = ?", Long.class, userId);
+        return version != null ? version : 0;
+    }
+
+    /**
+     * Records the deletion under a new version of the user and returns that version.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long deleted(Long userId, SyncTombstone.Type type, Long entityId) {
+        long version = next(userId);
+        tombstoneRepository.save(SyncTombstone.builder()
+                .userId(userId)
+                .entityType(type)
+                .entityId(entityId)
+                .changeVersion(version)
+                .deletedAt(OffsetDateTime.now())
+                .build());
+        return version;
+    }
+}
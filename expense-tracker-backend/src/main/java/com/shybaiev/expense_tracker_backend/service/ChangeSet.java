@@ -0,0 +1,17 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.BudgetView;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
+
+import java.util.List;
+
+/**
+ * Everything that changed after a client's cursor: current state of the created and updated rows,
+ * ids of the deleted ones, and the cursor to send next time.
+ */
+public record ChangeSet(List<ExpenseView> expenses,
+                        List<BudgetView> budgets,
+                        List<Long> deletedExpenseIds,
+                        List<Long> deletedBudgetIds,
+                        long cursor) {
+}
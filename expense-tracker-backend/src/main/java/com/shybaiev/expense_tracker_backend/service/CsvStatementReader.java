@@ -0,0 +1,190 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RFC 4180 style CSV with a header row. Columns are matched by name (see {@link #COLUMNS}),
+ * the delimiter (comma, semicolon or tab) is taken from the header line, quoted fields may span lines.
+ */
+public class CsvStatementReader implements StatementReader {
+
+    private static final int DATE = 0;
+    private static final int AMOUNT = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int PLACE = 3;
+    private static final int CATEGORY = 4;
+    private static final int REFERENCE = 5;
+
+    // header names as exported by common banks, compared after normalize()
+    private static final Map<String, Integer> COLUMNS = Map.ofEntries(
+            Map.entry("date", DATE), Map.entry("timestamp", DATE), Map.entry("booking date", DATE),
+            Map.entry("transaction date", DATE), Map.entry("posted", DATE), Map.entry("value date", DATE),
+            Map.entry("amount", AMOUNT), Map.entry("value", AMOUNT), Map.entry("sum", AMOUNT),
+            Map.entry("description", DESCRIPTION), Map.entry("memo", DESCRIPTION), Map.entry("details", DESCRIPTION),
+            Map.entry("purpose", DESCRIPTION), Map.entry("text", DESCRIPTION),
+            Map.entry("place", PLACE), Map.entry("payee", PLACE), Map.entry("merchant", PLACE),
+            Map.entry("counterparty", PLACE), Map.entry("name", PLACE),
+            Map.entry("category", CATEGORY),
+            Map.entry("reference", REFERENCE), Map.entry("id", REFERENCE), Map.entry("transaction id", REFERENCE),
+            Map.entry("fitid", REFERENCE));
+
+    private static final int MAX_HEADER_LENGTH = 8192;
+
+    private final BufferedReader reader;
+    private char delimiter;
+    // column index per field, -1 when the statement has no such column
+    private int[] positions;
+    private long line = 1;
+    private int pushedBack = -1;
+
+    public CsvStatementReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+    }
+
+    @Override
+    public StatementRow next() throws IOException {
+        if (positions == null) {
+            readHeader();
+        }
+        List<String> record;
+        long start;
+        do {
+            start = line;
+            record = readRecord();
+            if (record == null) {
+                return null;
+            }
+        } while (record.size() == 1 && record.getFirst().isBlank());
+
+        return new StatementRow(start, field(record, DATE), field(record, AMOUNT), field(record, DESCRIPTION),
+                field(record, PLACE), field(record, CATEGORY), field(record, REFERENCE));
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() throws IOException {
+        reader.mark(MAX_HEADER_LENGTH);
+        String first = reader.readLine();
+        if (first == null) {
+            throw new IOException("CSV statement is empty");
+        }
+        reader.reset();
+        delimiter = detectDelimiter(first);
+
+        List<String> header = readRecord();
+        positions = new int[] {-1, -1, -1, -1, -1, -1};
+        for (int i = 0; i < header.size(); i++) {
+            Integer field = COLUMNS.get(normalize(header.get(i)));
+            if (field != null && positions[field] < 0) {
+                positions[field] = i;
+            }
+        }
+        if (positions[DATE] < 0 || positions[AMOUNT] < 0) {
+            throw new IOException("CSV header must contain a date and an amount column");
+        }
+    }
+
+    private String field(List<String> record, int field) {
+        int position = positions[field];
+        if (position < 0 || position >= record.size()) {
+            return null;
+        }
+        String value = record.get(position).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // null at end of input
+    private List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        long quoteStart = 0;
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+        while (true) {
+            if (c < 0) {
+                if (quoted) {
+                    throw new IOException("Unterminated quoted field starting on line " + quoteStart);
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    int after = read();
+                    if (after == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = after;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+                quoteStart = line;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                fields.add(field.toString());
+                return fields;
+            } else if (c == '\r') {
+                int after = read();
+                if (after != '\n') {
+                    pushedBack = after;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pushedBack != -1) {
+            c = pushedBack;
+            pushedBack = -1;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private static char detectDelimiter(String headerLine) {
+        char best = ',';
+        long bestCount = 0;
+        for (char candidate : new char[] {',', ';', '\t'}) {
+            long count = headerLine.chars().filter(ch -> ch == candidate).count();
+            if (count > bestCount) {
+                best = candidate;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    private static String normalize(String header) {
+        // excel adds a byte order mark in front of the first column
+        return header.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT).replace('_', ' ').replace('-', ' ');
+    }
+}
@@ -0,0 +1,134 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shybaiev.expense_tracker_backend.entity.Expense;
+import com.shybaiev.expense_tracker_backend.mapper.ExpenseMapper;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
+import jakarta.persistence.EntityManager;
+import com.shybaiev.expense_tracker_backend.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Writes a user's whole expense history straight to an output stream.
+ * Rows come from a database cursor and every entity is detached once written,
+ * so heap usage does not grow with the number of exported rows.
+ * An export holds a connection for as long as the client reads, so only a few run at once;
+ * they bypass the API concurrency limit, whose latency samples they would distort.
+ */
+@Service
+public class ExpenseExportService {
+
+    static final String CSV_HEADER = "id,timestamp,amount,category,description,place,source,budgetId";
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(30);
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseMapper expenseMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final Semaphore slots;
+
+    public ExpenseExportService(ExpenseRepository expenseRepository, ExpenseMapper expenseMapper,
+                                ObjectMapper objectMapper, EntityManager entityManager,
+                                @Value("${api.export.max-concurrent:4}") int maxConcurrent) {
+        this.expenseRepository = expenseRepository;
+        this.expenseMapper = expenseMapper;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.slots = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Held for the duration of one export, released by {@link Slot#close()}.
+     */
+    public interface Slot extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Reserves one of the export slots, before the response is committed,
+     * so a busy server can still answer 429.
+     */
+    public Slot acquireSlot() {
+        if (!slots.tryAcquire()) {
+            throw new TooManyRequestsException("Too many exports in progress, retry later", RETRY_AFTER);
+        }
+        return slots::release;
+    }
+
+    /**
+     * Exports all expenses of the user. The caller owns {@code out}, it is flushed but not closed.
+     */
+    @Transactional(readOnly = true)
+    public void exportExpensesForUser(Long userId, ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (Stream<Expense> expenses = expenseRepository.streamAllByUserId(userId)) {
+            switch (format) {
+                case CSV -> writeCsv(expenses, writer);
+                case NDJSON -> writeNdjson(expenses, writer);
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeCsv(Stream<Expense> expenses, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        Iterator<Expense> rows = expenses.iterator();
+        while (rows.hasNext()) {
+            Expense expense = rows.next();
+            writer.write(String.valueOf(expense.getId()));
+            writer.write(',');
+            writer.write(csvField(expense.getTimestamp()));
+            writer.write(',');
+            writer.write(csvField(expense.getAmount() != null ? expense.getAmount().toPlainString() : null));
+            writer.write(',');
+            writer.write(csvField(expense.getCategory()));
+            writer.write(',');
+            writer.write(csvField(expense.getDescription()));
+            writer.write(',');
+            writer.write(csvField(expense.getPlace()));
+            writer.write(',');
+            writer.write(csvField(expense.getSource()));
+            writer.write(',');
+            // the budget is a lazy proxy, reading its id does not load it
+            writer.write(csvField(expense.getBudget() != null ? expense.getBudget().getId() : null));
+            writer.write('\n');
+            entityManager.detach(expense);
+        }
+    }
+
+    private void writeNdjson(Stream<Expense> expenses, Writer writer) throws IOException {
+        Iterator<Expense> rows = expenses.iterator();
+        while (rows.hasNext()) {
+            Expense expense = rows.next();
+            writer.write(objectMapper.writeValueAsString(expenseMapper.toDto(expense)));
+            writer.write('\n');
+            entityManager.detach(expense);
+        }
+    }
+
+    static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
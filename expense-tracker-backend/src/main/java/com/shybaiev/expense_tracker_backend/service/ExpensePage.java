@@ -0,0 +1,12 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.ExpenseCursor;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
+
+import java.util.List;
+
+/**
+ * One slice of the keyset-paginated listing, {@code next} is null on the last page.
+ */
+public record ExpensePage(List<ExpenseView> items, ExpenseCursor next) {
+}
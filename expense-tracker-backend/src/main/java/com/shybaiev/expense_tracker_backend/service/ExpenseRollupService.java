@@ -0,0 +1,218 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.CategorySpendDto;
+import com.shybaiev.expense_tracker_backend.entity.Expense;
+import com.shybaiev.expense_tracker_backend.entity.ExpenseMonthlyRollup;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseMonthlyRollupRepository;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Keeps {@link ExpenseMonthlyRollup} in step with the expense table. The write methods join the
+ * caller's transaction, so a rollup delta commits or rolls back together with the expense change.
+ * Rows are only touched through bulk statements, so no stale rollup entity sits in the persistence context.
+ * Expenses without a timestamp belong to no month and are not rolled up.
+ * Every write first takes the user's row lock, so two transactions never race to insert the same
+ * missing row and a repair never rewrites rows under an uncommitted delta.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExpenseRollupService {
+
+    private final ExpenseMonthlyRollupRepository rollupRepository;
+    private final ExpenseRepository expenseRepository;
+    private final UserRepository userRepository;
+    private final UserDataVersions userDataVersions;
+
+    /**
+     * The fields of an expense that decide its rollup row and contribution.
+     */
+    public record Contribution(OffsetDateTime timestamp, String category, BigDecimal amount) {
+
+        public static Contribution of(Expense expense) {
+            return new Contribution(expense.getTimestamp(), expense.getCategory(), expense.getAmount());
+        }
+
+        boolean isCounted() {
+            return timestamp != null && amount != null;
+        }
+
+        boolean sameRowAs(Contribution other) {
+            return ExpenseMonthlyRollup.monthOf(timestamp).equals(ExpenseMonthlyRollup.monthOf(other.timestamp))
+                    && Objects.equals(category, other.category);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void added(Long userId, Contribution contribution) {
+        if (contribution.isCounted()) {
+            lockUser(userId);
+            apply(userId, contribution, contribution.amount(), 1);
+        }
+    }
+
+    /**
+     * Same as {@link #added} for many expenses, with one statement per touched (month, category) row.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addedAll(Long userId, List<Contribution> contributions) {
+        Map<RowKey, Contribution> rows = new HashMap<>();
+        Map<RowKey, Long> counts = new HashMap<>();
+        for (Contribution contribution : contributions) {
+            if (!contribution.isCounted()) {
+                continue;
+            }
+            RowKey key = new RowKey(ExpenseMonthlyRollup.monthOf(contribution.timestamp()),
+                    ExpenseMonthlyRollup.categoryKey(contribution.category()));
+            rows.merge(key, contribution, (a, b) -> new Contribution(a.timestamp(), a.category(), a.amount().add(b.amount())));
+            counts.merge(key, 1L, Long::sum);
+        }
+        if (!rows.isEmpty()) {
+            lockUser(userId);
+        }
+        for (Map.Entry<RowKey, Contribution> row : rows.entrySet()) {
+            apply(userId, row.getValue(), row.getValue().amount(), counts.get(row.getKey()));
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removed(Long userId, Contribution contribution) {
+        if (contribution.isCounted()) {
+            lockUser(userId);
+            apply(userId, contribution, contribution.amount().negate(), -1);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void changed(Long userId, Contribution before, Contribution after) {
+        if (before.isCounted() && after.isCounted() && before.sameRowAs(after)) {
+            BigDecimal delta = after.amount().subtract(before.amount());
+            if (delta.signum() != 0) {
+                lockUser(userId);
+                apply(userId, after, delta, 0);
+            }
+            return;
+        }
+        removed(userId, before);
+        added(userId, after);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CategorySpendDto> getCategoryTotals(Long userId, LocalDate monthStart) {
+        return rollupRepository.findCategoryTotals(userId, monthStart);
+    }
+
+    /**
+     * Recomputes the user's rollup from the expense table, one grouped query per month, and
+     * rewrites it when any row differs. Returns true when a repair was needed.
+     * Holds the user's row lock throughout, so no expense write commits between the recompute and the rewrite.
+     */
+    @Transactional
+    public boolean verifyAndRepair(Long userId) {
+        if (userRepository.lockRowById(userId).isEmpty()) {
+            // purged meanwhile, its rollup went with the user row
+            return false;
+        }
+        Map<RowKey, ExpenseMonthlyRollup> expected = computeFromExpenses(userId);
+
+        Map<RowKey, ExpenseMonthlyRollup> stored = new HashMap<>();
+        for (ExpenseMonthlyRollup row : rollupRepository.findAllByUserId(userId)) {
+            stored.put(RowKey.of(row), row);
+        }
+
+        if (matches(expected, stored)) {
+            return false;
+        }
+        rollupRepository.deleteAllByUserId(userId);
+        for (ExpenseMonthlyRollup row : expected.values()) {
+            rollupRepository.insertRow(userId, row.getMonthStart(), row.getCategory(), row.getTotal(), row.getExpenseCount());
+        }
+        // the monthly spend read from these rows has changed, cached responses must go
+        userDataVersions.bump(userId);
+        return true;
+    }
+
+    // taken before the first rollup statement, also on paths where the change log locked the row already
+    private void lockUser(Long userId) {
+        userRepository.lockRowById(userId);
+    }
+
+    private void apply(Long userId, Contribution contribution, BigDecimal amount, long count) {
+        LocalDate monthStart = ExpenseMonthlyRollup.monthOf(contribution.timestamp());
+        String category = ExpenseMonthlyRollup.categoryKey(contribution.category());
+
+        int updated = rollupRepository.applyDelta(userId, monthStart, category, amount, count);
+        if (updated == 0) {
+            if (count <= 0) {
+                // no row to correct, the verify job reconciles it
+                return;
+            }
+            rollupRepository.insertRow(userId, monthStart, category, amount, count);
+        } else if (count < 0) {
+            rollupRepository.deleteIfEmpty(userId, monthStart, category);
+        }
+    }
+
+    private Map<RowKey, ExpenseMonthlyRollup> computeFromExpenses(Long userId) {
+        Map<RowKey, ExpenseMonthlyRollup> rows = new HashMap<>();
+        Optional<OffsetDateTime> first = expenseRepository.findFirstTimestampByUserId(userId);
+        Optional<OffsetDateTime> last = expenseRepository.findLastTimestampByUserId(userId);
+        if (first.isEmpty() || last.isEmpty()) {
+            return rows;
+        }
+
+        LocalDate lastMonth = ExpenseMonthlyRollup.monthOf(last.get());
+        for (LocalDate month = ExpenseMonthlyRollup.monthOf(first.get());
+             !month.isAfter(lastMonth);
+             month = month.plusMonths(1)) {
+            OffsetDateTime start = month.atStartOfDay().atOffset(ZoneOffset.UTC);
+            OffsetDateTime end = month.plusMonths(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+            for (CategorySpendDto spend : expenseRepository.sumByCategoryForUser(userId, start, end)) {
+                ExpenseMonthlyRollup row = ExpenseMonthlyRollup.builder()
+                        .userId(userId)
+                        .monthStart(month)
+                        .category(ExpenseMonthlyRollup.categoryKey(spend.getCategory()))
+                        .total(spend.getTotal())
+                        .expenseCount(spend.getCount())
+                        .build();
+                rows.put(RowKey.of(row), row);
+            }
+        }
+        return rows;
+    }
+
+    private static boolean matches(Map<RowKey, ExpenseMonthlyRollup> expected, Map<RowKey, ExpenseMonthlyRollup> stored) {
+        if (expected.size() != stored.size()) {
+            return false;
+        }
+        for (Map.Entry<RowKey, ExpenseMonthlyRollup> entry : expected.entrySet()) {
+            ExpenseMonthlyRollup actual = stored.get(entry.getKey());
+            if (actual == null
+                    || actual.getExpenseCount() != entry.getValue().getExpenseCount()
+                    || actual.getTotal().compareTo(entry.getValue().getTotal()) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record RowKey(LocalDate monthStart, String category) {
+        static RowKey of(ExpenseMonthlyRollup row) {
+            return new RowKey(row.getMonthStart(), row.getCategory());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Walks all users in id order and repairs rollups that drifted from the expense table.
+ * The first run after startup also backfills users whose rollup is still empty.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "expense.rollup.verify.enabled", havingValue = "true", matchIfMissing = true)
+public class ExpenseRollupVerifyJob {
+
+    private final UserRepository userRepository;
+    private final ExpenseRollupService expenseRollupService;
+
+    @Value("${expense.rollup.verify.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(initialDelayString = "${expense.rollup.verify.initial-delay:PT1M}",
+            fixedDelayString = "${expense.rollup.verify.interval:PT24H}")
+    public void run() {
+        int checked = 0;
+        int repaired = 0;
+        Long after = 0L;
+        List<Long> ids;
+        do {
+            ids = userRepository.findIdsAfter(after, Limit.of(batchSize));
+            for (Long userId : ids) {
+                // one transaction per user keeps locks short
+                if (expenseRollupService.verifyAndRepair(userId)) {
+                    repaired++;
+                }
+                checked++;
+            }
+            if (!ids.isEmpty()) {
+                after = ids.getLast();
+            }
+        } while (ids.size() == batchSize);
+        log.info("Expense rollup verification done: {} users checked, {} repaired", checked, repaired);
+    }
+}
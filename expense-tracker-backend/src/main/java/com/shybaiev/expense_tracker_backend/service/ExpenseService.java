@@ -1,68 +1,135 @@
 package com.shybaiev.expense_tracker_backend.service;
 
+import com.shybaiev.expense_tracker_backend.dto.CategorySpendDto;
 import com.shybaiev.expense_tracker_backend.dto.ExpenseCreateUpdateDto;
-import com.shybaiev.expense_tracker_backend.entity.Budget;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseCursor;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseFilter;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
+import com.shybaiev.expense_tracker_backend.dto.MonthlySpendDto;
 import com.shybaiev.expense_tracker_backend.entity.Expense;
+import com.shybaiev.expense_tracker_backend.entity.SyncTombstone;
 import com.shybaiev.expense_tracker_backend.entity.User;
 import com.shybaiev.expense_tracker_backend.mapper.ExpenseMapper;
+import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
 import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
 import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.time.YearMonth;
-import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
+/**
+ * All lookups are scoped by the owner id taken from the authenticated principal,
+ * so each call is a single query and a foreign id behaves like a missing one.
+ */
 @Service
 @RequiredArgsConstructor
 public class ExpenseService {
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int MAX_BATCH_SIZE = 10_000;
+    private static final BigDecimal MIN_AMOUNT = new BigDecimal("0.01");
+    // matches hibernate.jdbc.batch_size, the persistence context is flushed and cleared per JDBC batch
+    private static final int FLUSH_SIZE = 50;
+
     private final ExpenseRepository expenseRepository;
     private final UserRepository userRepository;
     private final ExpenseMapper expenseMapper;
-
-    public Expense createExpenseForUser(ExpenseCreateUpdateDto expenseCreateUpdateDto, String email){
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    private final ExpenseRollupService expenseRollupService;
+    private final BudgetRepository budgetRepository;
+    private final EntityManager entityManager;
+    private final UserDataVersions userDataVersions;
+    private final ChangeLog changeLog;
+    private final LiveUpdateHub liveUpdateHub;
+
+    @Transactional
+    public Expense createExpenseForUser(ExpenseCreateUpdateDto expenseCreateUpdateDto, Long userId){
+        // the principal was already validated, a reference is enough for the FK
+        User user = userRepository.getReferenceById(userId);
 
         Expense expense = expenseMapper.toEntity(expenseCreateUpdateDto);
         expense.setUser(user);
-        return expenseRepository.save(expense);
+        if (expense.getTimestamp() == null) {
+            expense.setTimestamp(OffsetDateTime.now());
+        }
+        expense.setChangeVersion(changeLog.next(userId));
+        Expense saved = expenseRepository.save(expense);
+        expenseRollupService.added(userId, ExpenseRollupService.Contribution.of(saved));
+        userDataVersions.bump(userId);
+        liveUpdateHub.publish(userId, () -> new LiveUpdate("expense.created", saved.getChangeVersion(), expenseMapper.toDto(saved)));
+        return saved;
     }
 
-    public Optional<Expense> getExpenseByIdForUser(Long id, String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new EntityNotFoundException("User not found: " + email));
-
-        Optional<Expense> maybeExpense = expenseRepository.findById(id);
-        if (maybeExpense.isEmpty()) {
-            return Optional.empty();
+    /**
+     * Creates all expenses in one transaction, or none of them.
+     */
+    @Transactional
+    public List<Expense> createExpensesForUser(List<ExpenseCreateUpdateDto> dtos, Long userId) {
+        validateBatch(dtos, userId);
+        OffsetDateTime now = OffsetDateTime.now();
+
+        List<Expense> expenses = new ArrayList<>(dtos.size());
+        for (ExpenseCreateUpdateDto dto : dtos) {
+            Expense expense = expenseMapper.toEntity(dto);
+            if (expense.getTimestamp() == null) {
+                expense.setTimestamp(now);
+            }
+            expenses.add(expense);
         }
+        persistAll(expenses, userId);
+        userDataVersions.bump(userId);
+        liveUpdateHub.publish(userId, () -> LiveUpdate.changes(expenses.getFirst().getChangeVersion()));
+        return expenses;
+    }
 
-        Expense expense = maybeExpense.get();
-        if (expense.getUser() == null || !Objects.equals(expense.getUser().getId(), user.getId())) {
-            return Optional.empty(); // Expense doesn't belong to user
+    /**
+     * Stores imported expenses whose fingerprint the user does not have yet, checked with one query
+     * for the whole batch. Returns the expenses that were actually inserted.
+     */
+    @Transactional
+    public List<Expense> importExpensesForUser(List<Expense> expenses, Long userId) {
+        Set<String> fingerprints = new HashSet<>();
+        for (Expense expense : expenses) {
+            fingerprints.add(expense.getFingerprint());
         }
+        Set<String> seen = new HashSet<>(expenseRepository.findExistingFingerprints(userId, fingerprints));
 
-        return Optional.of(expense);
+        List<Expense> fresh = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            // also drops repeats inside the batch itself; identical statement lines arrive
+            // with distinct fingerprints, so only true duplicates land here
+            if (seen.add(expense.getFingerprint())) {
+                fresh.add(expense);
+            }
+        }
+        persistAll(fresh, userId);
+        if (!fresh.isEmpty()) {
+            userDataVersions.bump(userId);
+            liveUpdateHub.publish(userId, () -> LiveUpdate.changes(fresh.getFirst().getChangeVersion()));
+        }
+        return fresh;
     }
 
-    public Expense updateExpenseForUser(Long existingExpenseId, ExpenseCreateUpdateDto dto, String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
+    @Transactional(readOnly = true)
+    public Optional<ExpenseView> getExpenseByIdForUser(Long id, Long userId) {
+        return expenseRepository.findViewByIdAndUserId(id, userId);
+    }
 
-        Expense existingExpense = expenseRepository.findById(existingExpenseId)
-                .orElseThrow(() -> new EntityNotFoundException("Expense with id " + existingExpenseId + " not found"));
-
-        if (existingExpense.getUser() == null || !Objects.equals(existingExpense.getUser().getId(), user.getId())) {
-            throw new AccessDeniedException("You are not allowed to update this expense");
-        }
+    @Transactional
+    public Expense updateExpenseForUser(Long existingExpenseId, ExpenseCreateUpdateDto dto, Long userId) {
+        Expense existingExpense = expenseRepository.findByIdAndUserId(existingExpenseId, userId)
+                .orElseThrow(() -> notFoundOrForbidden(existingExpenseId, "update"));
+        ExpenseRollupService.Contribution before = ExpenseRollupService.Contribution.of(existingExpense);
 
         if (dto.getAmount() != null) {
             existingExpense.setAmount(dto.getAmount());
@@ -82,73 +149,151 @@ public class ExpenseService {
         if (dto.getTimestamp() != null) {
             existingExpense.setTimestamp(dto.getTimestamp());
         }
+        existingExpense.setChangeVersion(changeLog.next(userId));
 
-        return expenseRepository.save(existingExpense);
+        Expense saved = expenseRepository.save(existingExpense);
+        expenseRollupService.changed(userId, before, ExpenseRollupService.Contribution.of(saved));
+        userDataVersions.bump(userId);
+        liveUpdateHub.publish(userId, () -> new LiveUpdate("expense.updated", saved.getChangeVersion(), expenseMapper.toDto(saved)));
+        return saved;
     }
 
 
-    public List<Expense> getAllExpensesForUser(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new EntityNotFoundException("User not found: " + email));
-
-        return expenseRepository.findAllByUser(user);
+    // reads return projections in read-only transactions: no managed entities, no flush at commit
+    @Transactional(readOnly = true)
+    public List<ExpenseView> getAllExpensesForUser(Long userId) {
+        return expenseRepository.findViewsByUserId(userId);
     }
 
-    public List<Expense> getAllExpensesByBudgetForUser(Budget budget, String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new EntityNotFoundException("User not found: " + email));
-
-        if (budget.getUser() == null || !Objects.equals(budget.getUser().getId(), user.getId())) {
-            throw new AccessDeniedException("You are not allowed to access this budget's expenses");
-        }
-
-        return expenseRepository.findAllByBudget(budget);
+    @Transactional(readOnly = true)
+    public List<ExpenseView> getAllExpensesByBudgetForUser(Long budgetId, Long userId) {
+        return expenseRepository.findViewsByBudgetIdAndUserId(budgetId, userId);
     }
 
-    public List<Expense> getExpensesByCategoryForUser(String category, String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new EntityNotFoundException("User not found: " + email));
-
-        return expenseRepository.findAllByCategoryAndUser(category, user);
+    @Transactional(readOnly = true)
+    public List<ExpenseView> getExpensesByCategoryForUser(String category, Long userId) {
+        return expenseRepository.findViewsByCategoryAndUserId(category, userId);
     }
 
-    public List<Expense> getExpensesByDateRangeForUser(OffsetDateTime from, OffsetDateTime to, String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new EntityNotFoundException("User not found: " + email));
-
-        return expenseRepository.findAllByTimestampBetweenAndUser(from, to, user);
+    @Transactional(readOnly = true)
+    public List<ExpenseView> getExpensesByDateRangeForUser(OffsetDateTime from, OffsetDateTime to, Long userId) {
+        return expenseRepository.findViewsByTimestampBetweenAndUserId(from, to, userId);
     }
 
-    public void deleteExpenseForUser(Long id, String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new EntityNotFoundException("User not found: " + email));
-
-        Expense expense = expenseRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Expense with id " + id + " not found"));
-
-        if (expense.getUser() == null || !Objects.equals(expense.getUser().getId(), user.getId())) {
-            throw new AccessDeniedException("You are not allowed to delete this expense");
+    /**
+     * Keyset-paginated listing, newest first. The date range of the filter has the same inclusive
+     * bounds as {@link #getExpensesByDateRangeForUser}, either end may be left open.
+     */
+    @Transactional(readOnly = true)
+    public ExpensePage getExpensePageForUser(Long userId, ExpenseFilter filter, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        if (filter.getFrom() != null && filter.getTo() != null && filter.getFrom().isAfter(filter.getTo())) {
+            throw new IllegalArgumentException("from must not be after to");
         }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        ExpenseCursor after = cursor != null ? ExpenseCursor.decode(cursor) : null;
 
-        expenseRepository.deleteById(id);
+        // one extra row tells whether another page exists without a count query
+        List<ExpenseView> rows = expenseRepository.findPageForUser(userId, filter, after, pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return new ExpensePage(rows, null);
+        }
+        List<ExpenseView> items = rows.subList(0, pageSize);
+        return new ExpensePage(items, ExpenseCursor.of(items.getLast()));
     }
 
-    public BigDecimal getTotalExpensesForUserInMonth(String email, YearMonth yearMonth) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new EntityNotFoundException("User not found: " + email));
+    @Transactional
+    public void deleteExpenseForUser(Long id, Long userId) {
+        // loaded first, the rollup needs the amount, category and month being removed
+        Expense expense = expenseRepository.findByIdAndUserId(id, userId)
+                .orElseThrow(() -> notFoundOrForbidden(id, "delete"));
+        expenseRepository.delete(expense);
+        expenseRollupService.removed(userId, ExpenseRollupService.Contribution.of(expense));
+        long version = changeLog.deleted(userId, SyncTombstone.Type.EXPENSE, id);
+        userDataVersions.bump(userId);
+        liveUpdateHub.publish(userId, () -> LiveUpdate.deleted("expense.deleted", version, id));
+    }
 
-        OffsetDateTime start = yearMonth.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
-        OffsetDateTime end = yearMonth.atEndOfMonth().atTime(23, 59, 59).atOffset(ZoneOffset.UTC);
+    public BigDecimal getTotalExpensesForUserInMonth(Long userId, YearMonth yearMonth) {
+        return getMonthlySpendForUser(userId, yearMonth).getTotal();
+    }
 
-        List<Expense> expenses = expenseRepository.findAllByTimestampBetweenAndUser(start, end, user);
+    /**
+     * Spend of the month broken down by category, read from the monthly rollup,
+     * so the cost follows the number of categories rather than the number of expenses.
+     */
+    @Transactional(readOnly = true)
+    public MonthlySpendDto getMonthlySpendForUser(Long userId, YearMonth yearMonth) {
+        List<CategorySpendDto> categories = expenseRollupService.getCategoryTotals(userId, yearMonth.atDay(1));
 
         BigDecimal total = BigDecimal.ZERO;
+        long count = 0;
+        for (CategorySpendDto category : categories) {
+            total = total.add(category.getTotal());
+            count += category.getCount();
+        }
+        return new MonthlySpendDto(yearMonth, total, count, categories);
+    }
+
+    /**
+     * Ids come from the pooled sequence, so the INSERTs go out in JDBC batches,
+     * and the rollup gets one statement per touched month and category.
+     * All expenses of the call share one change version.
+     */
+    private void persistAll(List<Expense> expenses, Long userId) {
+        if (expenses.isEmpty()) {
+            return;
+        }
+        User user = userRepository.getReferenceById(userId);
+        long version = changeLog.next(userId);
+        List<ExpenseRollupService.Contribution> contributions = new ArrayList<>(expenses.size());
+        int pending = 0;
         for (Expense expense : expenses) {
-            if (expense.getAmount() != null) {
-                total = total.add(expense.getAmount());
+            expense.setUser(user);
+            expense.setChangeVersion(version);
+            entityManager.persist(expense);
+            contributions.add(ExpenseRollupService.Contribution.of(expense));
+
+            if (++pending == FLUSH_SIZE) {
+                // keeps the persistence context small, the returned entities are detached but fully populated
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
             }
         }
+        expenseRollupService.addedAll(userId, contributions);
+    }
+
+    private void validateBatch(List<ExpenseCreateUpdateDto> dtos, Long userId) {
+        if (dtos == null || dtos.isEmpty()) {
+            throw new IllegalArgumentException("At least one expense is required");
+        }
+        if (dtos.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " expenses per batch");
+        }
+        Set<Long> budgetIds = new HashSet<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            ExpenseCreateUpdateDto dto = dtos.get(i);
+            if (dto == null || dto.getAmount() == null || dto.getAmount().compareTo(MIN_AMOUNT) < 0) {
+                throw new IllegalArgumentException("Expense " + i + ": amount must be greater than 0");
+            }
+            if (dto.getBudgetId() != null) {
+                budgetIds.add(dto.getBudgetId());
+            }
+        }
+        // one query for all referenced budgets instead of a lookup per row
+        if (!budgetIds.isEmpty() && budgetRepository.countByUserIdAndIdIn(userId, budgetIds) != budgetIds.size()) {
+            throw new IllegalArgumentException("Unknown budget in batch");
+        }
+    }
 
-        return total;
+    // only reached when the owner-scoped statement matched nothing
+    private RuntimeException notFoundOrForbidden(Long id, String action) {
+        if (expenseRepository.existsById(id)) {
+            return new AccessDeniedException("You are not allowed to " + action + " this expense");
+        }
+        return new EntityNotFoundException("Expense with id " + id + " not found");
     }
 }
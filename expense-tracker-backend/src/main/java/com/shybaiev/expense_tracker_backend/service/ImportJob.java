@@ -0,0 +1,168 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one statement import. Written by the import worker, read by the job resource,
+ * so counters are atomic and the error list is guarded by the job itself.
+ */
+public class ImportJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    public record RowError(long line, String message) {
+    }
+
+    private final UUID id = UUID.randomUUID();
+    private final Long userId;
+    private final StatementFormat format;
+    private final String fileName;
+    private final long totalBytes;
+    private final int maxErrors;
+    private final Instant createdAt = Instant.now();
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    // only the first maxErrors rows are kept, failed still counts all of them
+    private final List<RowError> errors = new ArrayList<>();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile String failureMessage;
+    private volatile Instant finishedAt;
+
+    public ImportJob(Long userId, StatementFormat format, String fileName, long totalBytes, int maxErrors) {
+        this.userId = userId;
+        this.format = format;
+        this.fileName = fileName;
+        this.totalBytes = totalBytes;
+        this.maxErrors = maxErrors;
+    }
+
+    void start() {
+        status = Status.RUNNING;
+    }
+
+    void complete() {
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    void fail(String message) {
+        failureMessage = message;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+
+    void addBytesRead(long count) {
+        bytesRead.addAndGet(count);
+    }
+
+    void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    void rowsImported(long count) {
+        imported.addAndGet(count);
+    }
+
+    void rowsDuplicate(long count) {
+        duplicates.addAndGet(count);
+    }
+
+    void rowSkipped() {
+        skipped.incrementAndGet();
+    }
+
+    void rowFailed(long line, String message) {
+        failed.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < maxErrors) {
+                errors.add(new RowError(line, message));
+            }
+        }
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    /**
+     * Share of the file consumed so far, from the bytes read rather than rows, since the row count
+     * is unknown until the end.
+     */
+    public int getPercentComplete() {
+        if (isFinished()) {
+            return 100;
+        }
+        if (totalBytes <= 0) {
+            return 0;
+        }
+        return (int) Math.min(99, bytesRead.get() * 100 / totalBytes);
+    }
+
+    public List<RowError> getErrors() {
+        synchronized (errors) {
+            return List.copyOf(errors);
+        }
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public StatementFormat getFormat() {
+        return format;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getFailureMessage() {
+        return failureMessage;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getImported() {
+        return imported.get();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+}
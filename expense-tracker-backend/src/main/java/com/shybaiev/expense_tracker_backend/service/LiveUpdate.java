@@ -0,0 +1,19 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import java.util.Map;
+
+/**
+ * One event of the live stream: its SSE name, the change version it belongs to, sent as the
+ * event id so a client can continue from the change feed, and the JSON payload.
+ */
+public record LiveUpdate(String name, long cursor, Object data) {
+
+    public static LiveUpdate deleted(String name, long cursor, Long id) {
+        return new LiveUpdate(name, cursor, Map.of("id", id));
+    }
+
+    // a batch or an import: too many rows for one event, the client reads them from the change feed
+    public static LiveUpdate changes(long cursor) {
+        return new LiveUpdate("changes", cursor, Map.of("cursor", cursor));
+    }
+}
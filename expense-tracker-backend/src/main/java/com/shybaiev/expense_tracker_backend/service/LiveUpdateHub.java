@@ -0,0 +1,270 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * In-memory fan-out of {@link LiveUpdate}s to the open {@code /stream} connections of each user.
+ * Publishing never touches a socket: events go into a bounded buffer per subscriber, which the
+ * sender pool drains one subscriber at a time. A client that reads slower than its events arrive
+ * has its backlog replaced by a single {@code resync} event and catches up through the change feed,
+ * so a slow connection costs one buffer, not a blocked writer.
+ * Held in memory only, like the other per-instance state this assumes a single backend instance.
+ */
+@Slf4j
+@Component
+public class LiveUpdateHub {
+
+    // buffered like events, compared by identity; resync has no change version of its own
+    private static final LiveUpdate HEARTBEAT = new LiveUpdate("heartbeat", -1, null);
+    private static final LiveUpdate RESYNC = new LiveUpdate("resync", -1, Map.of());
+    private static final String READY = "ready";
+
+    private final ChangeLog changeLog;
+    private final TaskExecutor sender;
+    private final int maxConnections;
+    private final int maxConnectionsPerUser;
+    private final int bufferSize;
+    private final Duration timeout;
+    private final Duration reconnectDelay;
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Counter overflows;
+
+    public LiveUpdateHub(ChangeLog changeLog,
+                         @Qualifier("liveUpdateExecutor") TaskExecutor sender,
+                         MeterRegistry meterRegistry,
+                         @Value("${api.stream.max-connections:1000}") int maxConnections,
+                         @Value("${api.stream.max-connections-per-user:5}") int maxConnectionsPerUser,
+                         @Value("${api.stream.buffer-size:100}") int bufferSize,
+                         @Value("${api.stream.timeout:PT30M}") Duration timeout,
+                         @Value("${api.stream.reconnect-delay:PT5S}") Duration reconnectDelay) {
+        this.changeLog = changeLog;
+        this.sender = sender;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.reconnectDelay = reconnectDelay;
+        Gauge.builder("api.stream.connections", connections, AtomicInteger::get)
+                .description("Open live update streams")
+                .register(meterRegistry);
+        this.overflows = Counter.builder("api.stream.overflows")
+                .description("Subscriber buffers that overflowed and were replaced by a resync event")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream for the user. The first event, {@code ready}, carries the current change
+     * version: a client fills the gap since its last sync from the change feed up to that cursor.
+     */
+    public SseEmitter subscribe(Long userId) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            throw new TooManyRequestsException("Too many open streams, retry later", reconnectDelay);
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        boolean[] added = {false};
+        subscribers.compute(userId, (id, list) -> {
+            List<Subscriber> current = list != null ? list : new CopyOnWriteArrayList<>();
+            if (current.size() < maxConnectionsPerUser) {
+                current.add(subscriber);
+                added[0] = true;
+            }
+            return current.isEmpty() ? null : current;
+        });
+        if (!added[0]) {
+            connections.decrementAndGet();
+            throw new TooManyRequestsException("Too many open streams for this user, retry later", reconnectDelay);
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+
+        long cursor = changeLog.current(userId);
+        subscriber.offer(new LiveUpdate(READY, cursor, Map.of("cursor", cursor)));
+        return emitter;
+    }
+
+    /**
+     * Sends the update to every open stream of the user once the caller's transaction has
+     * committed, so no client hears about a write that is rolled back afterwards.
+     * Without a transaction it is sent right away. The update, usually a DTO of the written row,
+     * is only built when the user still has a stream open at that point, and then once for all of them.
+     */
+    public void publish(Long userId, Supplier<LiveUpdate> update) {
+        if (!subscribers.containsKey(userId)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fanOut(userId, update);
+                }
+            });
+        } else {
+            fanOut(userId, update);
+        }
+    }
+
+    /**
+     * Keeps idle connections open through proxies and finds the ones whose client is gone:
+     * sending to a closed socket fails and removes the subscriber.
+     */
+    @Scheduled(initialDelayString = "${api.stream.heartbeat:PT15S}", fixedDelayString = "${api.stream.heartbeat:PT15S}")
+    public void heartbeat() {
+        for (List<Subscriber> list : subscribers.values()) {
+            for (Subscriber subscriber : list) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    public int connectionCount() {
+        return connections.get();
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        for (List<Subscriber> list : subscribers.values()) {
+            for (Subscriber subscriber : list) {
+                subscriber.emitter.complete();
+                subscriber.close();
+            }
+        }
+    }
+
+    private void fanOut(Long userId, Supplier<LiveUpdate> update) {
+        List<Subscriber> list = subscribers.get(userId);
+        if (list == null) {
+            return;
+        }
+        LiveUpdate built = update.get();
+        for (Subscriber subscriber : list) {
+            subscriber.offer(built);
+        }
+    }
+
+    // a builder is consumed by sending it, so every subscriber gets its own
+    private SseEmitter.SseEventBuilder toEvent(LiveUpdate update) {
+        if (update == HEARTBEAT) {
+            return SseEmitter.event().comment("heartbeat");
+        }
+        SseEmitter.SseEventBuilder event = SseEmitter.event().name(update.name());
+        if (update.cursor() >= 0) {
+            event.id(String.valueOf(update.cursor()));
+        }
+        if (READY.equals(update.name())) {
+            event.reconnectTime(reconnectDelay.toMillis());
+        }
+        return event.data(update.data(), MediaType.APPLICATION_JSON);
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (id, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+        connections.decrementAndGet();
+    }
+
+    private final class Subscriber {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        // guarded by this
+        private final Queue<LiveUpdate> buffer = new ArrayDeque<>();
+        private boolean draining;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private void offer(LiveUpdate update) {
+            synchronized (this) {
+                if (closed.get()) {
+                    return;
+                }
+                if (buffer.size() >= bufferSize) {
+                    overflows.increment();
+                    buffer.clear();
+                    buffer.add(RESYNC);
+                } else {
+                    buffer.add(update);
+                }
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (TaskRejectedException e) {
+                log.warn("Live update sender is saturated, closing stream of user {}", userId);
+                emitter.complete();
+                close();
+            }
+        }
+
+        // runs on the sender pool, at most one drain per subscriber at a time
+        private void drain() {
+            while (true) {
+                LiveUpdate next;
+                synchronized (this) {
+                    next = buffer.poll();
+                    if (next == null || closed.get()) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(toEvent(next));
+                } catch (Exception e) {
+                    // the client went away, the container completes the emitter
+                    log.debug("Live update stream of user {} closed: {}", userId, e.getMessage());
+                    close();
+                    return;
+                }
+            }
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                synchronized (this) {
+                    buffer.clear();
+                    draining = false;
+                }
+                remove(this);
+            }
+        }
+    }
+}
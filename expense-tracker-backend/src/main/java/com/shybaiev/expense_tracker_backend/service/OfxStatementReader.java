@@ -0,0 +1,137 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the {@code <STMTTRN>} blocks of an OFX statement. Works for both the SGML flavour (1.x, no closing
+ * tags on values) and XML (2.x), since every value simply runs up to the next tag.
+ */
+public class OfxStatementReader implements StatementReader {
+
+    private final PushbackReader reader;
+    private long line = 1;
+
+    public OfxStatementReader(Reader reader) {
+        this.reader = new PushbackReader(reader instanceof BufferedReader ? reader : new BufferedReader(reader));
+    }
+
+    @Override
+    public StatementRow next() throws IOException {
+        Map<String, String> transaction = null;
+        long start = 0;
+        String tag;
+        while ((tag = nextTag()) != null) {
+            if (tag.equals("STMTTRN")) {
+                transaction = new HashMap<>();
+                start = line;
+            } else if (tag.equals("/STMTTRN")) {
+                if (transaction != null) {
+                    return new StatementRow(start, toIsoTimestamp(transaction.get("DTPOSTED")), transaction.get("TRNAMT"),
+                            transaction.get("MEMO"), transaction.get("NAME"), null, transaction.get("FITID"));
+                }
+            } else if (transaction != null && !tag.startsWith("/")) {
+                String value = readText();
+                if (!value.isEmpty()) {
+                    transaction.put(tag, value);
+                }
+            }
+        }
+        if (transaction != null) {
+            throw new IOException("Unterminated STMTTRN starting on line " + start);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * OFX dates look like {@code 20250115}, {@code 20250115093000} or {@code 20250115093000.000[-5:EST]}
+     * and are UTC unless a bracketed offset is given. Unparseable values are passed on unchanged,
+     * so the row is reported instead of the file.
+     */
+    static String toIsoTimestamp(String value) {
+        if (value == null || value.length() < 8) {
+            return value;
+        }
+        try {
+            LocalDate date = LocalDate.of(Integer.parseInt(value.substring(0, 4)),
+                    Integer.parseInt(value.substring(4, 6)), Integer.parseInt(value.substring(6, 8)));
+            LocalTime time = LocalTime.MIDNIGHT;
+            if (value.length() >= 14 && Character.isDigit(value.charAt(8))) {
+                time = LocalTime.of(Integer.parseInt(value.substring(8, 10)),
+                        Integer.parseInt(value.substring(10, 12)), Integer.parseInt(value.substring(12, 14)));
+            }
+            ZoneOffset offset = ZoneOffset.UTC;
+            int bracket = value.indexOf('[');
+            if (bracket >= 0) {
+                String zone = value.substring(bracket + 1, value.indexOf(']', bracket));
+                int colon = zone.indexOf(':');
+                double hours = Double.parseDouble(colon >= 0 ? zone.substring(0, colon) : zone);
+                offset = ZoneOffset.ofTotalSeconds((int) Math.round(hours * 3600));
+            }
+            return OffsetDateTime.of(date, time, offset).toString();
+        } catch (RuntimeException e) {
+            return value;
+        }
+    }
+
+    // upper-cased tag name including a leading '/' for closing tags, null at end of input
+    private String nextTag() throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != '<') {
+            // text outside a tracked element, including the SGML header
+        }
+        if (c == -1) {
+            return null;
+        }
+        StringBuilder tag = new StringBuilder();
+        while ((c = read()) != -1 && c != '>') {
+            tag.append((char) c);
+        }
+        if (c == -1) {
+            throw new IOException("Unterminated tag on line " + line);
+        }
+        return tag.toString().trim().toUpperCase(Locale.ROOT);
+    }
+
+    private String readText() throws IOException {
+        StringBuilder text = new StringBuilder();
+        int c;
+        while ((c = read()) != -1 && c != '<') {
+            text.append((char) c);
+        }
+        if (c == '<') {
+            reader.unread(c);
+        }
+        return unescape(text.toString().trim());
+    }
+
+    private int read() throws IOException {
+        int c = reader.read();
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+}
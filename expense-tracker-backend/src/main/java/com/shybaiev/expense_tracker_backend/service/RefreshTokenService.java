@@ -0,0 +1,132 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.JwtResponse;
+import com.shybaiev.expense_tracker_backend.entity.RefreshToken;
+import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.repository.RefreshTokenRepository;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.JwtClaimsCache;
+import com.shybaiev.expense_tracker_backend.security.JwtUtil;
+import com.shybaiev.expense_tracker_backend.security.RevokedTokenStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Issues access/refresh token pairs and rotates refresh tokens. Every refresh token is single use:
+ * presenting one that was already rotated means it leaked, so its whole family is revoked,
+ * together with the access tokens issued from it that have not expired yet.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final JwtUtil jwtUtil;
+    private final RevokedTokenStore revokedTokenStore;
+
+    @Value("${jwt.refresh-expiration:2592000000}")
+    private long refreshExpirationMs;
+
+    /**
+     * Starts a new token family for a freshly authenticated user.
+     */
+    @Transactional
+    public JwtResponse issue(User user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchanges a refresh token for a new pair. Concurrent refreshes with the same token
+     * count as reuse: only one of them can win the compare-and-set.
+     */
+    // the family revocation has to commit even though the request fails
+    @Transactional(noRollbackFor = ResponseStatusException.class)
+    public JwtResponse refresh(String rawToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHash(JwtClaimsCache.keyFor(rawToken))
+                .orElseThrow(() -> unauthorized("Invalid refresh token"));
+        OffsetDateTime now = OffsetDateTime.now();
+
+        if (current.getRevokedAt() != null || refreshTokenRepository.revokeIfActive(current.getId(), now) == 0) {
+            log.warn("Refresh token reuse for user {}, revoking family {}", current.getUserId(), current.getFamilyId());
+            revokeFamily(current.getFamilyId(), now);
+            throw unauthorized("Refresh token has already been used");
+        }
+        if (!current.getExpiresAt().isAfter(now)) {
+            throw unauthorized("Refresh token expired");
+        }
+        User user = userRepository.findById(current.getUserId())
+                .filter(User::isEnabled)
+                .orElseThrow(() -> unauthorized("User is disabled"));
+        return issue(user, current.getFamilyId());
+    }
+
+    /**
+     * Ends the session the refresh token belongs to. Unknown tokens are ignored.
+     */
+    @Transactional
+    public void logout(String rawToken) {
+        refreshTokenRepository.findByTokenHash(JwtClaimsCache.keyFor(rawToken))
+                .ifPresent(token -> revokeFamily(token.getFamilyId(), OffsetDateTime.now()));
+    }
+
+    @Transactional
+    @Scheduled(initialDelayString = "${security.revocation.purge-interval:PT10M}",
+            fixedDelayString = "${security.revocation.purge-interval:PT10M}")
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(OffsetDateTime.now());
+        log.debug("Purged {} expired refresh tokens", deleted);
+    }
+
+    private JwtResponse issue(User user, String familyId) {
+        String accessTokenId = UUID.randomUUID().toString();
+        String rawToken = newRawToken();
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUserId(user.getId());
+        refreshToken.setTokenHash(JwtClaimsCache.keyFor(rawToken));
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setAccessTokenId(accessTokenId);
+        refreshToken.setExpiresAt(OffsetDateTime.now().plus(Duration.ofMillis(refreshExpirationMs)));
+        refreshTokenRepository.save(refreshToken);
+
+        String accessToken = jwtUtil.generateToken(user, accessTokenId);
+        return new JwtResponse(accessToken, rawToken, jwtUtil.getAccessTokenTtl().toSeconds());
+    }
+
+    private void revokeFamily(String familyId, OffsetDateTime now) {
+        refreshTokenRepository.revokeFamily(familyId, now);
+        Duration accessTtl = jwtUtil.getAccessTokenTtl();
+        // only access tokens issued within one TTL can still be valid
+        for (String accessTokenId : refreshTokenRepository.findAccessTokenIds(familyId, now.minus(accessTtl))) {
+            // upper bound of the token's expiry, the row is created right before the token is signed
+            revokedTokenStore.revoke(accessTokenId, now.plus(accessTtl).toInstant());
+        }
+    }
+
+    // 256 random bits, url-safe so clients can pass it around verbatim
+    private static String newRawToken() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static ResponseStatusException unauthorized(String reason) {
+        return new ResponseStatusException(HttpStatus.UNAUTHORIZED, reason);
+    }
+}
@@ -0,0 +1,115 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Serialized JSON bodies of the per-user list endpoints, keyed by user, endpoint, parameters
+ * and the user's {@link UserDataVersions data version}. A write moves the user to a new version,
+ * so stale bodies are never served; they just age out. Bounded by total body size (LRU) and
+ * by a TTL. A max size of 0 turns caching off.
+ */
+@Component
+public class ResponseCache {
+
+    public record Key(Long userId, String endpoint, String params, long version) {
+    }
+
+    private record Entry(byte[] body, Instant expiresAt) {
+    }
+
+    private final UserDataVersions userDataVersions;
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final Duration ttl;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public ResponseCache(UserDataVersions userDataVersions,
+                         ObjectMapper objectMapper,
+                         @Value("${api.response-cache.max-bytes:67108864}") long maxBytes,
+                         @Value("${api.response-cache.ttl:PT5M}") Duration ttl) {
+        this.userDataVersions = userDataVersions;
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Returns the cached body or serializes what the loader returns. The version is read before
+     * the loader runs, so a write committing in between at worst stores newer rows under the
+     * older version.
+     */
+    public byte[] get(Long userId, String endpoint, String params, Supplier<?> loader) {
+        return get(new Key(userId, endpoint, params, userDataVersions.current(userId)), loader);
+    }
+
+    // for callers that already read the version, e.g. to derive an ETag from it
+    public byte[] get(Key key, Supplier<?> loader) {
+        Instant now = Instant.now();
+        byte[] cached = lookup(key, now);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] body = serialize(loader.get());
+        // a single body may take at most a quarter of the cache, bigger ones are not worth evicting for
+        if (body.length <= maxBytes / 4) {
+            store(key, new Entry(body, now.plus(ttl)));
+        }
+        return body;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized byte[] lookup(Key key, Instant now) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.expiresAt().isAfter(now)) {
+            remove(key);
+            return null;
+        }
+        return entry.body();
+    }
+
+    private synchronized void store(Key key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            totalBytes -= previous.body().length;
+        }
+        totalBytes += entry.body().length;
+        // least recently used first
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().getValue().body().length;
+            eldest.remove();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.body().length;
+        }
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response body could not be serialized", e);
+        }
+    }
+}
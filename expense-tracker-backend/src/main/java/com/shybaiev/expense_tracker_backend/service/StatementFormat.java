@@ -0,0 +1,36 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import java.io.Reader;
+import java.util.Locale;
+
+public enum StatementFormat {
+    CSV,
+    OFX;
+
+    public StatementReader open(Reader reader) {
+        return switch (this) {
+            case CSV -> new CsvStatementReader(reader);
+            case OFX -> new OfxStatementReader(reader);
+        };
+    }
+
+    public static StatementFormat fromParam(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported statement format: " + value);
+        }
+    }
+
+    /**
+     * Taken from the file extension when the client does not name a format.
+     */
+    public static StatementFormat fromFileName(String fileName) {
+        int dot = fileName != null ? fileName.lastIndexOf('.') : -1;
+        if (dot < 0) {
+            throw new IllegalArgumentException("Statement format is required");
+        }
+        String extension = fileName.substring(dot + 1);
+        return "qfx".equalsIgnoreCase(extension) ? OFX : fromParam(extension);
+    }
+}
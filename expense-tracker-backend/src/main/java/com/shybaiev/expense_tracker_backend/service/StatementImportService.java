@@ -0,0 +1,319 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.entity.Expense;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Imports bank statements in the background. The upload is spooled to a temp file, then a worker
+ * streams it row by row, maps and validates each row, and hands fixed-size batches to
+ * {@link ExpenseService#importExpensesForUser}, each batch in its own transaction. Rows are deduplicated
+ * by a content fingerprint, so importing an overlapping statement again only adds the new lines,
+ * while identical lines within one statement stay separate expenses.
+ * Jobs are kept in memory for {@code import.job.retention} after they finish.
+ */
+@Slf4j
+@Service
+public class StatementImportService {
+
+    private static final DateTimeFormatter DOTTED_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final int MAX_DESCRIPTION = 255;
+    private static final int MAX_SHORT_TEXT = 100;
+
+    private final ExpenseService expenseService;
+    private final TaskExecutor executor;
+    private final int batchSize;
+    private final int maxErrors;
+    private final Duration retention;
+    private final Map<UUID, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public StatementImportService(ExpenseService expenseService,
+                                  @Qualifier("statementImportExecutor") TaskExecutor executor,
+                                  @Value("${import.batch-size:500}") int batchSize,
+                                  @Value("${import.max-errors:100}") int maxErrors,
+                                  @Value("${import.job.retention:PT1H}") Duration retention) {
+        this.expenseService = expenseService;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.retention = retention;
+    }
+
+    /**
+     * Spools the statement to disk and queues it. {@code expensesPositive} is for statements that list
+     * spending as positive amounts; by default negative amounts are spending and positive ones
+     * (incoming payments) are skipped.
+     */
+    public ImportJob submit(Long userId, StatementFormat format, String fileName, InputStream content,
+                            boolean expensesPositive) throws IOException {
+        evictExpiredJobs();
+
+        Path file = Files.createTempFile("statement-import-", "." + format.name().toLowerCase(Locale.ROOT));
+        try {
+            long size = Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+            ImportJob job = new ImportJob(userId, format, fileName, size, maxErrors);
+            jobs.put(job.getId(), job);
+            try {
+                executor.execute(() -> run(job, file, expensesPositive));
+            } catch (TaskRejectedException e) {
+                jobs.remove(job.getId());
+                throw e;
+            }
+            return job;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    // someone else's job looks like a missing one
+    public Optional<ImportJob> getJobForUser(UUID id, Long userId) {
+        ImportJob job = jobs.get(id);
+        if (job == null || !job.getUserId().equals(userId)) {
+            return Optional.empty();
+        }
+        return Optional.of(job);
+    }
+
+    void run(ImportJob job, Path file, boolean expensesPositive) {
+        job.start();
+        try (InputStream in = new ProgressInputStream(Files.newInputStream(file), job);
+             StatementReader reader = job.getFormat().open(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<Expense> batch = new ArrayList<>(batchSize);
+            List<Long> lines = new ArrayList<>(batchSize);
+            // how often each content fingerprint occurred so far in this file
+            Map<String, Integer> occurrences = new HashMap<>();
+            StatementRow row;
+            while ((row = reader.next()) != null) {
+                job.rowRead();
+                Expense expense;
+                try {
+                    expense = toExpense(row, job.getUserId(), expensesPositive);
+                } catch (IllegalArgumentException e) {
+                    job.rowFailed(row.line(), e.getMessage());
+                    continue;
+                }
+                if (expense == null) {
+                    job.rowSkipped();
+                    continue;
+                }
+                int occurrence = occurrences.merge(expense.getFingerprint(), 1, Integer::sum) - 1;
+                expense.setFingerprint(withOccurrence(expense.getFingerprint(), occurrence));
+                batch.add(expense);
+                lines.add(row.line());
+                if (batch.size() == batchSize) {
+                    writeBatch(job, batch, lines);
+                }
+            }
+            writeBatch(job, batch, lines);
+            job.complete();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Statement import {} failed", job.getId(), e);
+            job.fail(e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete import file {}", file, e);
+            }
+        }
+    }
+
+    private void writeBatch(ImportJob job, List<Expense> batch, List<Long> lines) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            int inserted = expenseService.importExpensesForUser(batch, job.getUserId()).size();
+            job.rowsImported(inserted);
+            job.rowsDuplicate(batch.size() - inserted);
+        } catch (DataAccessException e) {
+            // e.g. the same statement imported twice at once; the batch rolled back, later batches still run
+            log.warn("Statement import {} could not save a batch", job.getId(), e);
+            for (Long line : lines) {
+                job.rowFailed(line, "Could not be saved");
+            }
+        }
+        batch.clear();
+        lines.clear();
+    }
+
+    /**
+     * Null for rows that are not spending (incoming payments).
+     */
+    static Expense toExpense(StatementRow row, Long userId, boolean expensesPositive) {
+        if (row.date() == null) {
+            throw new IllegalArgumentException("Missing date");
+        }
+        if (row.amount() == null) {
+            throw new IllegalArgumentException("Missing amount");
+        }
+        OffsetDateTime timestamp = parseTimestamp(row.date());
+        BigDecimal amount = parseAmount(row.amount());
+        if (amount.signum() == 0) {
+            throw new IllegalArgumentException("Amount must not be zero");
+        }
+        if ((amount.signum() > 0) != expensesPositive) {
+            return null;
+        }
+
+        Expense expense = new Expense();
+        expense.setTimestamp(timestamp);
+        expense.setAmount(amount.abs());
+        expense.setDescription(truncate(row.description(), MAX_DESCRIPTION));
+        expense.setPlace(truncate(row.place(), MAX_SHORT_TEXT));
+        expense.setCategory(truncate(row.category(), MAX_SHORT_TEXT));
+        expense.setSource("import");
+        expense.setFingerprint(fingerprint(userId, timestamp, expense.getAmount(), row));
+        return expense;
+    }
+
+    /**
+     * SHA-256 over the fields that identify a bank transaction. Formatting differences (offset, scale,
+     * case, surrounding whitespace) do not change it. Identical lines without a bank reference share it,
+     * {@link #withOccurrence} tells them apart.
+     */
+    static String fingerprint(Long userId, OffsetDateTime timestamp, BigDecimal amount, StatementRow row) {
+        return sha256(userId + "|" + timestamp.toInstant() + "|" + amount.stripTrailingZeros().toPlainString()
+                + "|" + normalize(row.description()) + "|" + normalize(row.place()) + "|" + normalize(row.reference()));
+    }
+
+    /**
+     * Fingerprint of the nth line (from 0) of a file with the given content fingerprint, so two identical
+     * coffees on the same day import as two expenses, and importing the file again still adds neither.
+     * The first occurrence keeps the content fingerprint, the one stored before repeats were counted.
+     */
+    static String withOccurrence(String fingerprint, int occurrence) {
+        return occurrence == 0 ? fingerprint : sha256(fingerprint + "#" + occurrence);
+    }
+
+    private static String sha256(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // dates without a time or offset are taken as UTC, like the rest of the month arithmetic
+    static OffsetDateTime parseTimestamp(String value) {
+        try {
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException ignored) {
+            // try the next shape
+        }
+        try {
+            return LocalDateTime.parse(value).atOffset(ZoneOffset.UTC);
+        } catch (DateTimeParseException ignored) {
+            // try the next shape
+        }
+        try {
+            return LocalDate.parse(value).atStartOfDay().atOffset(ZoneOffset.UTC);
+        } catch (DateTimeParseException ignored) {
+            // try the next shape
+        }
+        try {
+            return LocalDate.parse(value, DOTTED_DATE).atStartOfDay().atOffset(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Unsupported date: " + value);
+        }
+    }
+
+    /**
+     * Accepts "1234.50", "-1,234.50" and "1.234,50"; when both separators occur the first one groups thousands.
+     */
+    static BigDecimal parseAmount(String value) {
+        String amount = value.replace(" ", "").replace("\u00A0", "");
+        int comma = amount.indexOf(',');
+        int dot = amount.indexOf('.');
+        if (comma >= 0 && dot >= 0) {
+            amount = comma < dot ? amount.replace(",", "") : amount.replace(".", "").replace(',', '.');
+        } else if (comma >= 0) {
+            amount = amount.replace(',', '.');
+        }
+        try {
+            return new BigDecimal(amount).setScale(2, RoundingMode.UNNECESSARY);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unsupported amount: " + value);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount has more than two decimals: " + value);
+        }
+    }
+
+    private void evictExpiredJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String truncate(String value, int max) {
+        return value == null || value.length() <= max ? value : value.substring(0, max);
+    }
+
+    // lets the job report progress from the bytes consumed so far
+    private static final class ProgressInputStream extends FilterInputStream {
+        private final ImportJob job;
+
+        ProgressInputStream(InputStream in, ImportJob job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                job.addBytesRead(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                job.addBytesRead(n);
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Pull parser over a statement file, one row at a time, so memory use does not depend on file size.
+ * A malformed file (as opposed to a bad row) is reported with an {@link IOException}.
+ */
+public interface StatementReader extends Closeable {
+
+    /**
+     * The next transaction, or null at the end of the file.
+     */
+    StatementRow next() throws IOException;
+}
@@ -0,0 +1,9 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+/**
+ * One transaction line of an uploaded statement, still as text. {@code line} is where the row starts
+ * in the file and is used in error reports; fields missing from the statement are null.
+ */
+public record StatementRow(long line, String date, String amount, String description,
+                           String place, String category, String reference) {
+}
@@ -0,0 +1,76 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of each user's expenses and budgets, bumped by every write in {@link ExpenseService}
+ * and {@link BudgetService}. Versions come from one process-wide clock, so a value is never
+ * handed out twice: anything keyed by an older version is simply never asked for again.
+ * Held in memory only, like the other per-instance caches this assumes a single backend instance.
+ */
+@Component
+public class UserDataVersions {
+
+    private final int maxEntries;
+    // starts from the startup time, so a version handed out before a restart (and the ETags
+    // derived from it) is not handed out again after it
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis() << 10);
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    // version of every user without an entry, moved forward whenever the table is reset
+    private volatile long baseline = clock.incrementAndGet();
+
+    public UserDataVersions(@Value("${api.response-cache.max-users:50000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long current(Long userId) {
+        Long version = versions.get(userId);
+        return version != null ? version : baseline;
+    }
+
+    /**
+     * Opaque strong validator of everything the user can read, changes with every write.
+     * The user id keeps users that share the baseline apart.
+     */
+    public static String etag(Long userId, long version) {
+        return userId + "-" + Long.toHexString(version);
+    }
+
+    /**
+     * Moves the user to a new version once the caller's transaction has committed. Bumping
+     * earlier would let a concurrent reader store the old rows under the new version.
+     * Without a transaction the version moves right away.
+     */
+    public void bump(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    advance(userId);
+                }
+            });
+        } else {
+            advance(userId);
+        }
+    }
+
+    private void advance(Long userId) {
+        if (versions.size() >= maxEntries) {
+            // a fresh baseline invalidates every user at once, which keeps the table bounded
+            synchronized (this) {
+                if (versions.size() >= maxEntries) {
+                    baseline = clock.incrementAndGet();
+                    versions.clear();
+                }
+            }
+        }
+        versions.put(userId, clock.incrementAndGet());
+    }
+}
@@ -0,0 +1,138 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.UserIdentity;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bloom filters over all emails and usernames, so a value that was never taken is recognised
+ * without a query. A "maybe" still has to be confirmed against the database, and the unique
+ * constraints on users stay the final guarantee: values taken on another instance, or while
+ * the filters were being rebuilt, are only caught by the INSERT.
+ * Freed values keep their bits until the next rebuild, which only costs an extra query.
+ */
+@Slf4j
+@Component
+public class UserIdentityIndex {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int PAGE_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final int expectedUsers;
+
+    private volatile Filters current;
+    // receives additions while a rebuild is scanning the table
+    private volatile Filters building;
+
+    public UserIdentityIndex(UserRepository userRepository,
+                             @Value("${security.user-identity-index.expected-users:100000}") int expectedUsers) {
+        this.userRepository = userRepository;
+        this.expectedUsers = expectedUsers;
+        // answers "maybe" for everything until the first load completes
+        this.current = Filters.unloaded();
+    }
+
+    /**
+     * Loads both filters from the table in keyset pages and swaps them in as a whole.
+     * Runs at startup and periodically, which also resizes the filters to the user count.
+     */
+    @PostConstruct
+    @Scheduled(initialDelayString = "${security.user-identity-index.rebuild-interval:PT6H}",
+            fixedDelayString = "${security.user-identity-index.rebuild-interval:PT6H}")
+    public synchronized void rebuild() {
+        int expected = Math.max(expectedUsers, (int) Math.min(Integer.MAX_VALUE / 2, userRepository.count()) * 2);
+        Filters next = new Filters(expected);
+        building = next;
+        try {
+            Long after = 0L;
+            List<UserIdentity> page;
+            do {
+                page = userRepository.findIdentitiesAfter(after, Limit.of(PAGE_SIZE));
+                for (UserIdentity identity : page) {
+                    next.add(identity.email(), identity.username());
+                }
+                if (!page.isEmpty()) {
+                    after = page.getLast().id();
+                }
+            } while (page.size() == PAGE_SIZE);
+            current = next;
+        } finally {
+            building = null;
+        }
+        log.info("User identity index loaded with {} users", next.size.get());
+    }
+
+    public boolean mightContainEmail(String email) {
+        return email != null && current.mightContainEmail(email);
+    }
+
+    public boolean mightContainUsername(String username) {
+        return username != null && current.mightContainUsername(username);
+    }
+
+    // called after a user was stored or renamed
+    public void add(String email, String username) {
+        current.add(email, username);
+        Filters pending = building;
+        if (pending != null) {
+            pending.add(email, username);
+        }
+    }
+
+    private static final class Filters {
+
+        private final BloomFilter emails;
+        private final BloomFilter usernames;
+        private final int capacity;
+        private final boolean loaded;
+        private final AtomicInteger size = new AtomicInteger();
+
+        private Filters(int capacity) {
+            this(capacity, true);
+        }
+
+        private Filters(int capacity, boolean loaded) {
+            this.emails = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+            this.usernames = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+            this.capacity = capacity;
+            this.loaded = loaded;
+        }
+
+        private static Filters unloaded() {
+            return new Filters(1, false);
+        }
+
+        private void add(String email, String username) {
+            if (email != null) {
+                emails.put(email);
+            }
+            if (username != null) {
+                usernames.put(username);
+            }
+            size.incrementAndGet();
+        }
+
+        // past its capacity the false positive rate climbs, so everything is sent to the database
+        private boolean saturated() {
+            return !loaded || size.get() > capacity;
+        }
+
+        private boolean mightContainEmail(String email) {
+            return saturated() || emails.mightContain(email);
+        }
+
+        private boolean mightContainUsername(String username) {
+            return saturated() || usernames.mightContain(username);
+        }
+    }
+}
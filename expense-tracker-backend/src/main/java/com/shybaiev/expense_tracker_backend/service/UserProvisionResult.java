@@ -0,0 +1,21 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.entity.User;
+
+/**
+ * Outcome of one row of a provisioning batch: the stored user, or the reason it was rejected.
+ */
+public record UserProvisionResult(int index, User user, String error) {
+
+    public static UserProvisionResult created(int index, User user) {
+        return new UserProvisionResult(index, user, null);
+    }
+
+    public static UserProvisionResult rejected(int index, String error) {
+        return new UserProvisionResult(index, null, error);
+    }
+
+    public boolean isCreated() {
+        return user != null;
+    }
+}
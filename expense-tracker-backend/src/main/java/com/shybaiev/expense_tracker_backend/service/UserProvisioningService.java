@@ -0,0 +1,167 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.UserCreateUpdateDto;
+import com.shybaiev.expense_tracker_backend.dto.UserIdentity;
+import com.shybaiev.expense_tracker_backend.entity.Role;
+import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.mapper.UserMapper;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.PasswordHasher;
+import jakarta.persistence.EntityExistsException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates many users in one request. Rows are validated on their own and rejected individually;
+ * uniqueness is checked for the whole batch with one query, the passwords are hashed in parallel
+ * on the password pool, and the accepted rows are inserted in JDBC batches by
+ * {@link UserService#createUsers}. No transaction is open while BCrypt runs.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserProvisioningService {
+
+    public static final int MAX_BATCH_SIZE = 5_000;
+
+    private final UserService userService;
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final PasswordHasher passwordHasher;
+    private final Validator validator;
+
+    /**
+     * Returns one result per row, in request order. A user registered concurrently with one of the
+     * accepted rows trips the unique constraints, then nothing is created and the batch is rejected.
+     */
+    public List<UserProvisionResult> provision(List<UserCreateUpdateDto> rows) {
+        if (rows == null || rows.isEmpty()) {
+            throw new IllegalArgumentException("At least one user is required");
+        }
+        if (rows.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " users per batch");
+        }
+
+        String[] errors = new String[rows.size()];
+        User[] users = new User[rows.size()];
+        Set<String> emails = new HashSet<>();
+        Set<String> usernames = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            UserCreateUpdateDto dto = rows.get(i);
+            String error = validate(dto);
+            if (error == null && emails.contains(dto.getEmail())) {
+                error = "Duplicate email in batch";
+            }
+            if (error == null && usernames.contains(dto.getUsername())) {
+                error = "Duplicate username in batch";
+            }
+            if (error != null) {
+                errors[i] = error;
+                continue;
+            }
+            emails.add(dto.getEmail());
+            usernames.add(dto.getUsername());
+            users[i] = toUser(dto);
+        }
+
+        rejectTaken(users, errors, emails, usernames);
+
+        List<User> accepted = new ArrayList<>();
+        List<String> passwords = new ArrayList<>();
+        for (User user : users) {
+            if (user != null) {
+                accepted.add(user);
+                passwords.add(user.getPasswordHash());
+            }
+        }
+        if (!accepted.isEmpty()) {
+            List<String> hashes = passwordHasher.encodeAll(passwords);
+            for (int i = 0; i < accepted.size(); i++) {
+                accepted.get(i).setPasswordHash(hashes.get(i));
+            }
+            insert(accepted);
+        }
+        log.info("Provisioned {} of {} users", accepted.size(), rows.size());
+
+        List<UserProvisionResult> results = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            results.add(users[i] != null
+                    ? UserProvisionResult.created(i, users[i])
+                    : UserProvisionResult.rejected(i, errors[i]));
+        }
+        return results;
+    }
+
+    // one statement for every email and username of the batch
+    private void rejectTaken(User[] users, String[] errors, Set<String> emails, Set<String> usernames) {
+        if (emails.isEmpty()) {
+            return;
+        }
+        Set<String> takenEmails = new HashSet<>();
+        Set<String> takenUsernames = new HashSet<>();
+        for (UserIdentity identity : userRepository.findIdentitiesByEmailInOrUsernameIn(emails, usernames)) {
+            takenEmails.add(identity.email());
+            takenUsernames.add(identity.username());
+        }
+        for (int i = 0; i < users.length; i++) {
+            if (users[i] == null) {
+                continue;
+            }
+            if (takenEmails.contains(users[i].getEmail())) {
+                errors[i] = "Email already in use";
+            } else if (takenUsernames.contains(users[i].getUsername())) {
+                errors[i] = "Username already in use";
+            } else {
+                continue;
+            }
+            users[i] = null;
+        }
+    }
+
+    private void insert(List<User> users) {
+        try {
+            userService.createUsers(users);
+        } catch (DataIntegrityViolationException | ConstraintViolationException e) {
+            throw new EntityExistsException("Email or username of the batch was taken concurrently, no user was created");
+        }
+    }
+
+    // the entity's own constraints, checked per row so one bad row does not fail the INSERT batch
+    private String validate(UserCreateUpdateDto dto) {
+        if (dto == null) {
+            return "Row is empty";
+        }
+        if (dto.getPassword() == null || dto.getPassword().isBlank()) {
+            return "password: must not be blank";
+        }
+        User user = userMapper.updateToEntity(dto);
+        for (String property : List.of("username", "email")) {
+            Set<ConstraintViolation<User>> violations = validator.validateProperty(user, property);
+            if (!violations.isEmpty()) {
+                return property + ": " + violations.iterator().next().getMessage();
+            }
+        }
+        return null;
+    }
+
+    private User toUser(UserCreateUpdateDto dto) {
+        User user = userMapper.updateToEntity(dto);
+        if (user.getRole() == null) {
+            user.setRole(Role.USER);
+        }
+        if (dto.getEnabled() == null) {
+            user.setEnabled(true);
+        }
+        return user;
+    }
+}
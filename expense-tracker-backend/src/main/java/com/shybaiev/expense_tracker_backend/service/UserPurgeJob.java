@@ -0,0 +1,40 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.repository.UserPurgeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Works off the purges recorded by deleted users, one chunk transaction at a time.
+ * A failing purge is logged and retried on the next run; the others are not held up by it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserPurgeJob {
+
+    private final UserPurgeRepository userPurgeRepository;
+    private final UserPurgeService userPurgeService;
+
+    @Value("${user.purge.chunk-size:1000}")
+    private int chunkSize;
+
+    @Scheduled(initialDelayString = "${user.purge.interval:PT10S}",
+            fixedDelayString = "${user.purge.interval:PT10S}")
+    public void run() {
+        for (Long userId : userPurgeRepository.findPendingUserIds()) {
+            try {
+                int chunks = 0;
+                while (!userPurgeService.purgeChunk(userId, chunkSize)) {
+                    chunks++;
+                }
+                log.info("Purged user {} in {} chunks", userId, chunks + 1);
+            } catch (RuntimeException e) {
+                log.warn("Purge of user {} failed, retrying on the next run", userId, e);
+            }
+        }
+    }
+}
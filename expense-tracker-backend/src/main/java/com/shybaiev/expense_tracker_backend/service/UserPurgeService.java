@@ -0,0 +1,84 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.entity.UserPurge;
+import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
+import com.shybaiev.expense_tracker_backend.repository.UserPurgeRepository;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.UserStatusCache;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Removes a deleted user's data with set-based DELETE statements, one bounded chunk per
+ * transaction: expenses first (they reference budgets), then budgets, then the user row.
+ * Locks and undo stay small however many rows the user had, and every chunk is committed
+ * together with its progress, so an interrupted purge resumes where it stopped.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserPurgeService {
+
+    private final UserPurgeRepository userPurgeRepository;
+    private final UserRepository userRepository;
+    private final ExpenseRepository expenseRepository;
+    private final BudgetRepository budgetRepository;
+    private final UserStatusCache userStatusCache;
+
+    /**
+     * Records the purge in the caller's transaction, next to the soft delete of the user.
+     */
+    @Transactional
+    public UserPurge schedule(Long userId) {
+        UserPurge purge = UserPurge.builder()
+                .userId(userId)
+                .expensesTotal(expenseRepository.countByUserId(userId))
+                .budgetsTotal(budgetRepository.countByUserId(userId))
+                .requestedAt(OffsetDateTime.now())
+                .build();
+        return userPurgeRepository.save(purge);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<UserPurge> getPurge(Long userId) {
+        return userPurgeRepository.findById(userId);
+    }
+
+    /**
+     * Deletes the next chunk of at most {@code chunkSize} rows. Returns true once the user row
+     * is gone as well.
+     */
+    @Transactional
+    public boolean purgeChunk(Long userId, int chunkSize) {
+        UserPurge purge = userPurgeRepository.findById(userId)
+                .orElseThrow(() -> new EntityNotFoundException("No purge for user " + userId));
+        if (purge.getStatus() == UserPurge.Status.COMPLETED) {
+            return true;
+        }
+        purge.setStatus(UserPurge.Status.RUNNING);
+
+        List<Long> ids = expenseRepository.findIdsByUserId(userId, Limit.of(chunkSize));
+        if (!ids.isEmpty()) {
+            purge.setExpensesDeleted(purge.getExpensesDeleted() + expenseRepository.deleteAllByIdIn(ids));
+            return false;
+        }
+        ids = budgetRepository.findIdsByUserId(userId, Limit.of(chunkSize));
+        if (!ids.isEmpty()) {
+            purge.setBudgetsDeleted(purge.getBudgetsDeleted() + budgetRepository.deleteAllByIdIn(ids));
+            return false;
+        }
+        userRepository.deleteRowById(userId);
+        // the cached row still says disabled, once committed the user is missing
+        userStatusCache.invalidate(userId);
+        purge.setStatus(UserPurge.Status.COMPLETED);
+        purge.setFinishedAt(OffsetDateTime.now());
+        return true;
+    }
+}
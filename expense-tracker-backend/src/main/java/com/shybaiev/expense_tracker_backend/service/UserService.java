@@ -1,31 +1,49 @@
 package com.shybaiev.expense_tracker_backend.service;
 
+import com.shybaiev.expense_tracker_backend.dto.AvailabilityDto;
+import com.shybaiev.expense_tracker_backend.dto.UserIdentity;
 import com.shybaiev.expense_tracker_backend.dto.UserRegisterDto;
 import com.shybaiev.expense_tracker_backend.entity.Role;
 import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.entity.UserPurge;
 import com.shybaiev.expense_tracker_backend.mapper.UserMapper;
 import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.exception.TooManyRequestsException;
+import com.shybaiev.expense_tracker_backend.security.PasswordHasher;
+import com.shybaiev.expense_tracker_backend.security.UserStatusCache;
 import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
+    // matches hibernate.jdbc.batch_size, the persistence context is flushed and cleared per JDBC batch
+    private static final int FLUSH_SIZE = 50;
+
     private final UserRepository userRepository;
     private final UserMapper userMapper;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final UserStatusCache userStatusCache;
+    private final UserIdentityIndex userIdentityIndex;
+    private final EntityManager entityManager;
+    private final UserPurgeService userPurgeService;
+    private final TransactionOperations transactionOperations;
 
     public User createUser(User user) {
         if (user.getPasswordHash() != null && !user.getPasswordHash().isBlank()) {
-            user.setPasswordHash(passwordEncoder.encode(user.getPasswordHash()));
+            user.setPasswordHash(passwordHasher.encode(user.getPasswordHash()));
         } else {
             throw new IllegalArgumentException("Password must not be empty");
         }
@@ -34,14 +52,57 @@ public class UserService {
             user.setRole(Role.USER);
         }
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userIdentityIndex.add(saved.getEmail(), saved.getUsername());
+        return saved;
+    }
+
+    /**
+     * Inserts validated users whose passwords are already hashed, all in one transaction.
+     * Ids come from the pooled sequence, so the INSERTs go out in JDBC batches.
+     */
+    @Transactional
+    public void createUsers(List<User> users) {
+        int pending = 0;
+        for (User user : users) {
+            entityManager.persist(user);
+            if (++pending == FLUSH_SIZE) {
+                // the returned entities are detached but fully populated
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+        entityManager.flush();
+        for (User user : users) {
+            userIdentityIndex.add(user.getEmail(), user.getUsername());
+        }
     }
 
+    // deleted users are gone for every caller, even while their data is still being purged
+    @Transactional(readOnly = true)
     public Optional<User> getUserById(Long id) {
-        return userRepository.findById(id);
+        return userRepository.findById(id).filter(user -> user.getDeletedAt() == null);
     }
 
-    public User updateUser(Long id, User updatedUser) {
+    /**
+     * Applies the changed fields of {@code updatedUser}; its password hash is ignored. A new password
+     * is hashed first, outside the transaction like at registration, so no connection is held
+     * while BCrypt works.
+     */
+    public User updateUser(Long id, User updatedUser, String newPassword) {
+        String newPasswordHash = null;
+        if (newPassword != null) {
+            if (newPassword.isBlank()) {
+                throw new IllegalArgumentException("Password must not be empty");
+            }
+            newPasswordHash = passwordHasher.encode(newPassword);
+        }
+        String passwordHash = newPasswordHash;
+        return transactionOperations.execute(status -> applyUpdate(id, updatedUser, passwordHash));
+    }
+
+    private User applyUpdate(Long id, User updatedUser, String newPasswordHash) {
         Optional<User> foundUser = userRepository.findById(id);
         if (foundUser.isPresent()) {
             User existingUser = foundUser.get();
@@ -51,57 +112,122 @@ public class UserService {
             if (updatedUser.getEmail() != null) {
                 existingUser.setEmail(updatedUser.getEmail());
             }
-            if (updatedUser.getPasswordHash() != null) {
-                existingUser.setPasswordHash(updatedUser.getPasswordHash());
+            if (newPasswordHash != null) {
+                existingUser.setPasswordHash(newPasswordHash);
             }
             if (updatedUser.getRole() != null) {
                 existingUser.setRole(updatedUser.getRole());
             }
             existingUser.setEnabled(updatedUser.isEnabled());
-            return userRepository.save(existingUser);
+            // email, role and enabled are baked into issued tokens, so retire them on every update
+            existingUser.setTokenEpoch(existingUser.getTokenEpoch() + 1);
+            User saved = userRepository.save(existingUser);
+            userStatusCache.invalidate(id);
+            userIdentityIndex.add(saved.getEmail(), saved.getUsername());
+            return saved;
         }
         else {
             throw new EntityNotFoundException("User with id " + id + " not found");
         }
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
-        return userRepository.findAll();
+        return userRepository.findAll().stream()
+                .filter(user -> user.getDeletedAt() == null)
+                .toList();
     }
 
-    public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new EntityNotFoundException("User with id " + id + " not found");
-        }
-        userRepository.deleteById(id);
+    /**
+     * Disables the account and retires its tokens right away; expenses, budgets and the user
+     * row are removed afterwards by {@link UserPurgeJob}. Email and username stay taken until
+     * the purge has finished.
+     */
+    @Transactional
+    public UserPurge deleteUser(Long id) {
+        User user = userRepository.findById(id)
+                .filter(u -> u.getDeletedAt() == null)
+                .orElseThrow(() -> new EntityNotFoundException("User with id " + id + " not found"));
+        user.setEnabled(false);
+        user.setDeletedAt(OffsetDateTime.now());
+        user.setTokenEpoch(user.getTokenEpoch() + 1);
+        // dropped once the soft delete has committed, a request in between cannot re-cache the enabled row
+        userStatusCache.invalidate(id);
+        return userPurgeService.schedule(id);
     }
 
 
     public User registerUser(UserRegisterDto dto) {
-        if (userRepository.existsByEmail(dto.getEmail())) {
+        AvailabilityDto availability = checkAvailability(dto.getEmail(), dto.getUsername());
+        if (!availability.getEmailAvailable()) {
             throw new EntityExistsException("Email already in use");
         }
-        if (userRepository.existsByUsername(dto.getUsername())) {
+        if (!availability.getUsernameAvailable()) {
             throw new EntityExistsException("Username already in use");
         }
 
         User user = userMapper.registerToEntity(dto);
-        user.setPasswordHash(passwordEncoder.encode(dto.getPassword()));
+        user.setPasswordHash(passwordHasher.encode(dto.getPassword()));
         user.setRole(Role.USER);
         user.setEnabled(true);
 
-        return userRepository.save(user);
+        User saved;
+        try {
+            saved = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // taken concurrently or on another instance, the unique constraints have the last word
+            throw new EntityExistsException("Email or username already in use");
+        }
+        userIdentityIndex.add(saved.getEmail(), saved.getUsername());
+        return saved;
+    }
+
+    /**
+     * Values the in-memory index has never seen are free without a query; only a possible match
+     * is confirmed, with one statement for both fields. A null argument is not checked and
+     * comes back as null.
+     */
+    public AvailabilityDto checkAvailability(String email, String username) {
+        boolean emailMaybeTaken = userIdentityIndex.mightContainEmail(email);
+        boolean usernameMaybeTaken = userIdentityIndex.mightContainUsername(username);
+
+        boolean emailTaken = false;
+        boolean usernameTaken = false;
+        if (emailMaybeTaken || usernameMaybeTaken) {
+            for (UserIdentity match : userRepository.findIdentitiesByEmailOrUsername(email, username)) {
+                emailTaken |= emailMaybeTaken && match.email().equals(email);
+                usernameTaken |= usernameMaybeTaken && match.username().equals(username);
+            }
+        }
+        return new AvailabilityDto(email != null ? !emailTaken : null, username != null ? !usernameTaken : null);
     }
 
     public User authenticate(String email, String rawPassword) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials"));
 
-        if (!passwordEncoder.matches(rawPassword, user.getPasswordHash())) {
+        if (user.getDeletedAt() != null || !passwordHasher.matches(rawPassword, user.getPasswordHash())) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials");
         }
+        if (passwordHasher.needsRehash(user.getPasswordHash())) {
+            rehash(user, rawPassword);
+        }
 
         return user;
     }
 
+    // the raw password is only known at login, so that is when a hash of an older strength is replaced
+    private void rehash(User user, String rawPassword) {
+        String current = user.getPasswordHash();
+        try {
+            String upgraded = passwordHasher.encode(rawPassword);
+            // compare-and-set, a password changed in the meantime wins
+            if (userRepository.updatePasswordHash(user.getId(), current, upgraded) == 1) {
+                user.setPasswordHash(upgraded);
+            }
+        } catch (TooManyRequestsException e) {
+            // the pool is busy, the login itself succeeded and the next one will retry
+        }
+    }
+
 }
@@ -0,0 +1,32 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Sequence for expense ids, so Hibernate can assign ids without a round trip per insert
+ * and batch the INSERTs. The increment has to match the allocationSize on {@code Expense.id}.
+ * Written in Java because the start value depends on the ids already in the table,
+ * and there is no portable SQL to restart a sequence from a query.
+ */
+public class V4__expense_id_sequence extends BaseJavaMigration {
+
+    static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            long maxId;
+            try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM expense")) {
+                rs.next();
+                maxId = rs.getLong(1);
+            }
+            // the pooled optimizer hands out (value - increment, value], the first block must start above maxId
+            long start = maxId + ALLOCATION_SIZE;
+            statement.execute("CREATE SEQUENCE expense_seq START WITH " + start + " INCREMENT BY " + ALLOCATION_SIZE);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Sequence for user ids, same scheme as {@link V4__expense_id_sequence}: ids are assigned
+ * before the INSERT, so bulk provisioning can send its INSERTs in JDBC batches.
+ * The increment has to match the allocationSize on {@code User.id}.
+ */
+public class V7__users_id_sequence extends BaseJavaMigration {
+
+    static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            long maxId;
+            try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM users")) {
+                rs.next();
+                maxId = rs.getLong(1);
+            }
+            long start = maxId + ALLOCATION_SIZE;
+            statement.execute("CREATE SEQUENCE users_seq START WITH " + start + " INCREMENT BY " + ALLOCATION_SIZE);
+        }
+    }
+}
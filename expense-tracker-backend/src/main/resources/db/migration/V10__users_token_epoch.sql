@@ -0,0 +1,4 @@
+-- Incremented to invalidate every access token issued to a user (password change, disable, delete).
+-- Databases baselined at V1 predate the column. IF NOT EXISTS keeps this a no-op on development
+-- databases created while the column was still part of V1.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_epoch INTEGER NOT NULL DEFAULT 0;
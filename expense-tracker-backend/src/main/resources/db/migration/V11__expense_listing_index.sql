@@ -0,0 +1,10 @@
+-- Expense listings are ordered by (timestamp DESC, id DESC) and page on from the row value seek
+-- (timestamp, id) < (?, ?); this index serves both, so a page only reads its own rows however long
+-- the user's history is. The seek needs every row to have a timestamp: creates and imports always
+-- set one, rows written before that get the migration time, the rollup verify job counts them in.
+UPDATE expense SET timestamp = CURRENT_TIMESTAMP WHERE timestamp IS NULL;
+ALTER TABLE expense ALTER COLUMN timestamp SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_expense_user_timestamp_id ON expense (user_id, timestamp DESC, id DESC);
+-- its prefix serves the owner-scoped date ranges as well, the ascending V2 index is redundant
+DROP INDEX IF EXISTS idx_expense_user_timestamp;
@@ -0,0 +1,43 @@
+-- Schema as previously generated by hibernate ddl-auto=update.
+-- Existing databases are baselined at this version and skip it.
+
+CREATE TABLE users (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username      VARCHAR(50)  NOT NULL,
+    email         VARCHAR(255) NOT NULL,
+    password_hash VARCHAR(255) NOT NULL,
+    role          VARCHAR(30)  NOT NULL,
+    enabled       BOOLEAN      NOT NULL,
+    created_at    TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at    TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE INDEX idx_users_username ON users (username);
+CREATE INDEX idx_users_email ON users (email);
+
+CREATE TABLE budget (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    amount      NUMERIC(19, 2) NOT NULL,
+    name        VARCHAR(255),
+    description VARCHAR(255),
+    time_period VARCHAR(255),
+    start_date  DATE,
+    user_id     BIGINT NOT NULL,
+    CONSTRAINT fk_budget_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE expense (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    amount      NUMERIC(19, 2) NOT NULL,
+    description VARCHAR(255),
+    place       VARCHAR(100),
+    category    VARCHAR(100),
+    source      VARCHAR(100),
+    timestamp   TIMESTAMP(6) WITH TIME ZONE,
+    budget_id   BIGINT,
+    user_id     BIGINT NOT NULL,
+    CONSTRAINT fk_expense_budget FOREIGN KEY (budget_id) REFERENCES budget (id),
+    CONSTRAINT fk_expense_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
@@ -0,0 +1,11 @@
+-- Owner-scoped date ranges. Ascending and without id it cannot serve the keyset listing order,
+-- V11 replaces it with (user_id, timestamp DESC, id DESC).
+CREATE INDEX IF NOT EXISTS idx_expense_user_timestamp ON expense (user_id, timestamp);
+-- Category listings per user.
+CREATE INDEX IF NOT EXISTS idx_expense_user_category ON expense (user_id, category);
+-- Expenses of a budget and budget totals.
+CREATE INDEX IF NOT EXISTS idx_expense_budget ON expense (budget_id);
+
+-- The unique constraints already come with an index each.
+DROP INDEX IF EXISTS idx_users_email;
+DROP INDEX IF EXISTS idx_users_username;
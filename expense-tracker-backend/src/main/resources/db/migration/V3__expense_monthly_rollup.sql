@@ -0,0 +1,12 @@
+-- Per user, month and category spend, maintained together with every expense write.
+-- category is '' for uncategorised expenses so the unique key never contains NULL.
+CREATE TABLE expense_monthly_rollup (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id       BIGINT         NOT NULL,
+    month_start   DATE           NOT NULL,
+    category      VARCHAR(100)   NOT NULL,
+    total         NUMERIC(19, 2) NOT NULL,
+    expense_count BIGINT         NOT NULL,
+    CONSTRAINT uk_rollup_user_month_category UNIQUE (user_id, month_start, category),
+    CONSTRAINT fk_rollup_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
@@ -0,0 +1,4 @@
+-- Content fingerprint of expenses created by a statement import, NULL for manual entries.
+-- The unique key makes re-importing the same statement a no-op.
+ALTER TABLE expense ADD COLUMN fingerprint VARCHAR(64);
+ALTER TABLE expense ADD CONSTRAINT uk_expense_user_fingerprint UNIQUE (user_id, fingerprint);
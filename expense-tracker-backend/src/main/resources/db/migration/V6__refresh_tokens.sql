@@ -0,0 +1,25 @@
+-- Rotating refresh tokens. Only the SHA-256 of the raw token is stored.
+-- All tokens rotated from one login share a family, reuse of a rotated token revokes the family.
+-- access_token_id is the jti of the access token issued together with the row.
+CREATE TABLE refresh_token (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id         BIGINT                      NOT NULL,
+    token_hash      VARCHAR(64)                 NOT NULL,
+    family_id       VARCHAR(36)                 NOT NULL,
+    access_token_id VARCHAR(36)                 NOT NULL,
+    created_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    expires_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    revoked_at      TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT uk_refresh_token_hash UNIQUE (token_hash),
+    CONSTRAINT fk_refresh_token_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+CREATE INDEX idx_refresh_token_family ON refresh_token (family_id);
+CREATE INDEX idx_refresh_token_expires_at ON refresh_token (expires_at);
+
+-- Access token ids revoked before their expiry, loaded into memory at startup.
+-- Rows are purged once the token would have expired anyway.
+CREATE TABLE revoked_access_token (
+    token_id   VARCHAR(36)                 PRIMARY KEY,
+    expires_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+CREATE INDEX idx_revoked_access_token_expires_at ON revoked_access_token (expires_at);
@@ -0,0 +1,19 @@
+-- Deleting a user only disables the account and records a purge; UserPurgeJob then removes
+-- expenses and budgets in bounded chunks and drops the user row last.
+ALTER TABLE users ADD COLUMN deleted_at TIMESTAMP(6) WITH TIME ZONE;
+
+-- Progress of one purge. No foreign key, the row outlives the user it describes.
+CREATE TABLE user_purge (
+    user_id          BIGINT                      PRIMARY KEY,
+    status           VARCHAR(20)                 NOT NULL,
+    expenses_total   BIGINT                      NOT NULL,
+    budgets_total    BIGINT                      NOT NULL,
+    expenses_deleted BIGINT                      NOT NULL DEFAULT 0,
+    budgets_deleted  BIGINT                      NOT NULL DEFAULT 0,
+    requested_at     TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    finished_at      TIMESTAMP(6) WITH TIME ZONE
+);
+CREATE INDEX idx_user_purge_status ON user_purge (status);
+
+-- the purge selects budget ids per user in chunks
+CREATE INDEX IF NOT EXISTS idx_budget_user ON budget (user_id);
@@ -0,0 +1,21 @@
+-- Change feed for client sync (GET /expenses/changes). Every write transaction takes the next
+-- value of users.change_version and stamps the rows it creates or updates with it; the UPDATE
+-- holds the user's row lock until commit, so one user's versions become visible in order.
+ALTER TABLE users ADD COLUMN change_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE expense ADD COLUMN change_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE budget ADD COLUMN change_version BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX idx_expense_user_change ON expense (user_id, change_version);
+CREATE INDEX idx_budget_user_change ON budget (user_id, change_version);
+
+-- deleted expenses and budgets, so a client can drop them without a full sync
+CREATE TABLE sync_tombstone (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id        BIGINT                      NOT NULL,
+    entity_type    VARCHAR(20)                 NOT NULL,
+    entity_id      BIGINT                      NOT NULL,
+    change_version BIGINT                      NOT NULL,
+    deleted_at     TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT fk_sync_tombstone_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+CREATE INDEX idx_sync_tombstone_user_change ON sync_tombstone (user_id, change_version);
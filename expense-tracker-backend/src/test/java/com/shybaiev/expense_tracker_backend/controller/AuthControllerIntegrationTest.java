@@ -3,6 +3,7 @@ package com.shybaiev.expense_tracker_backend.controller;
 import com.shybaiev.expense_tracker_backend.entity.Role;
 import com.shybaiev.expense_tracker_backend.entity.User;
 import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.PasswordHasher;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,11 +11,14 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -33,6 +37,12 @@ class AuthControllerIntegrationTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void setup() {
         userRepository.deleteAll();
@@ -66,6 +76,63 @@ class AuthControllerIntegrationTest {
         assertThat(passwordEncoder.matches("plainpassword", saved.getPasswordHash())).isTrue();
     }
 
+    @Test
+    void testRegisterDuplicateEmailOrUsernameIsConflict() throws Exception {
+        String registerJson = """
+        {
+          "username": "taken",
+          "email": "taken@email.com",
+          "password": "plainpassword"
+        }
+        """;
+        mockMvc.perform(post("/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(registerJson))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(registerJson.replace("\"taken\"", "\"other\"")))
+                .andExpect(status().isConflict())
+                .andExpect(content().string("Email already in use"));
+
+        mockMvc.perform(post("/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(registerJson.replace("taken@email.com", "other@email.com")))
+                .andExpect(status().isConflict())
+                .andExpect(content().string("Username already in use"));
+    }
+
+    @Test
+    void testAvailability() throws Exception {
+        // registered through the service, which keeps the in-memory index up to date
+        mockMvc.perform(post("/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {
+                          "username": "present",
+                          "email": "present@email.com",
+                          "password": "plainpassword"
+                        }
+                        """))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/auth/availability")
+                        .param("email", "present@email.com")
+                        .param("username", "absent"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.emailAvailable").value(false))
+                .andExpect(jsonPath("$.usernameAvailable").value(true));
+
+        mockMvc.perform(get("/auth/availability").param("username", "present"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usernameAvailable").value(false))
+                .andExpect(jsonPath("$.emailAvailable").doesNotExist());
+
+        mockMvc.perform(get("/auth/availability"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void loginSuccess() throws Exception {
         // подготовка пользователя
@@ -92,6 +159,35 @@ class AuthControllerIntegrationTest {
                 .andExpect(jsonPath("$.token").exists());
     }
 
+    @Test
+    void loginRehashesPasswordOfOtherStrength() throws Exception {
+        User user = new User();
+        user.setUsername("legacyuser");
+        user.setEmail("legacy@email.com");
+        user.setPasswordHash(new BCryptPasswordEncoder(5).encode("secret123"));
+        user.setRole(Role.USER);
+        user.setEnabled(true);
+        user = userRepository.save(user);
+
+        String json = """
+            {
+              "email": "legacy@email.com",
+              "password": "secret123"
+            }
+            """;
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isOk());
+
+        String stored = jdbcTemplate.queryForObject(
+                "select password_hash from users where id = ?", String.class, user.getId());
+        assertThat(passwordHasher.needsRehash(stored)).isFalse();
+        assertThat(stored).startsWith(String.format("$2a$%02d$", passwordHasher.getStrength()));
+        assertThat(passwordEncoder.matches("secret123", stored)).isTrue();
+    }
+
     @Test
     void loginWrongPassword() throws Exception {
         User user = new User();
@@ -83,4 +83,77 @@ class AuthFlowIntegrationTest {
                 .andExpect(jsonPath("$.email").value(saved.getEmail()))
                 .andExpect(jsonPath("$.username").value(saved.getUsername()));
     }
+
+    @Test
+    void testRefreshRotatesAndReuseRevokesTheFamily() throws Exception {
+        // given
+        User saved = register("rotating");
+        JsonNode login = login("rotating");
+        String firstRefresh = login.get("refreshToken").asText();
+        assertThat(login.get("expiresIn").asLong()).isPositive();
+
+        // when
+        JsonNode rotated = refresh(firstRefresh, 200);
+        String secondAccess = rotated.get("token").asText();
+        String secondRefresh = rotated.get("refreshToken").asText();
+
+        // then
+        assertThat(secondRefresh).isNotEqualTo(firstRefresh);
+        mockMvc.perform(get("/users/" + saved.getId()).header("Authorization", "Bearer " + secondAccess))
+                .andExpect(status().isOk());
+
+        // when: the rotated token is presented again
+        refresh(firstRefresh, 401);
+
+        // then: the whole family is gone, including the access token issued from it
+        refresh(secondRefresh, 401);
+        mockMvc.perform(get("/users/" + saved.getId()).header("Authorization", "Bearer " + secondAccess))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void testLogoutRevokesAccessAndRefreshToken() throws Exception {
+        // given
+        User saved = register("leaving");
+        JsonNode login = login("leaving");
+        String access = login.get("token").asText();
+        String refreshToken = login.get("refreshToken").asText();
+
+        // when
+        mockMvc.perform(post("/auth/logout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\": \"" + refreshToken + "\"}"))
+                .andExpect(status().isNoContent());
+
+        // then
+        mockMvc.perform(get("/users/" + saved.getId()).header("Authorization", "Bearer " + access))
+                .andExpect(status().isForbidden());
+        refresh(refreshToken, 401);
+    }
+
+    private User register(String name) throws Exception {
+        mockMvc.perform(post("/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + name + "\", \"email\": \"" + name + "@email.com\", \"password\": \"secret-password\"}"))
+                .andExpect(status().isCreated());
+        return userRepository.findByEmail(name + "@email.com").orElseThrow();
+    }
+
+    private JsonNode login(String name) throws Exception {
+        String response = mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"" + name + "@email.com\", \"password\": \"secret-password\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private JsonNode refresh(String refreshToken, int expectedStatus) throws Exception {
+        String response = mockMvc.perform(post("/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\": \"" + refreshToken + "\"}"))
+                .andExpect(status().is(expectedStatus))
+                .andReturn().getResponse().getContentAsString();
+        return response.isEmpty() ? null : objectMapper.readTree(response);
+    }
 }
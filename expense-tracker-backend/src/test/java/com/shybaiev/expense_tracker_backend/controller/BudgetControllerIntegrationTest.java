@@ -1,9 +1,11 @@
 package com.shybaiev.expense_tracker_backend.controller;
 
 import com.shybaiev.expense_tracker_backend.entity.Budget;
+import com.shybaiev.expense_tracker_backend.entity.Role;
 import com.shybaiev.expense_tracker_backend.entity.User;
 import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
 import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.AuthenticatedUser;
 import org.junit.jupiter.api.Test;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,17 +13,17 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
-import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import org.springframework.transaction.annotation.Transactional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureMockMvc
-@WithMockUser(username = "john@example.com")
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
 @Transactional
 class BudgetControllerIntegrationTest {
@@ -43,7 +45,8 @@ class BudgetControllerIntegrationTest {
         user.setEmail("john@example.com");
         user.setPasswordHash("hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd");
         user.setEnabled(true);
-        user = userRepository.save(user);
+        user = userRepository.saveAndFlush(user);
+        RequestPostProcessor john = user(new AuthenticatedUser(user.getId(), user.getEmail(), Role.USER));
         // language=JSON
         String createJson = """
         {
@@ -59,6 +62,7 @@ class BudgetControllerIntegrationTest {
 
         // 1. Create budget (POST)
         mockMvc.perform(post("/budgets")
+                        .with(john)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(createJson))
                 .andExpect(status().isCreated())
@@ -71,7 +75,8 @@ class BudgetControllerIntegrationTest {
         Long id = saved.getId();
 
         // 2. Get budget (GET)
-        mockMvc.perform(get("/budgets/" + id))
+        mockMvc.perform(get("/budgets/" + id)
+                        .with(john))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(id))
                 .andExpect(jsonPath("$.amount").value(1020.50));
@@ -90,6 +95,7 @@ class BudgetControllerIntegrationTest {
         """;
 
         mockMvc.perform(patch("/budgets/" + id)
+                        .with(john)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(updateJson))
                 .andExpect(status().isOk())
@@ -97,13 +103,15 @@ class BudgetControllerIntegrationTest {
                 .andExpect(jsonPath("$.description").value("some updated descripton"));
 
         // 4. Delete budget (DELETE)
-        mockMvc.perform(delete("/budgets/" + id))
+        mockMvc.perform(delete("/budgets/" + id)
+                        .with(john))
                 .andExpect(status().isNoContent());
 
         assertThat(budgetRepository.existsById(id)).isFalse();
 
         // 5. Try to get deleted budget (GET → 404)
-        mockMvc.perform(get("/budgets/" + id))
+        mockMvc.perform(get("/budgets/" + id)
+                        .with(john))
                 .andExpect(status().isNotFound());
     }
 }
@@ -3,26 +3,39 @@ package com.shybaiev.expense_tracker_backend.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shybaiev.expense_tracker_backend.dto.BudgetCreateUpdateDto;
 import com.shybaiev.expense_tracker_backend.dto.BudgetDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetStatusDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetSummaryDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetView;
 import com.shybaiev.expense_tracker_backend.entity.Budget;
 import com.shybaiev.expense_tracker_backend.mapper.BudgetMapper;
+import com.shybaiev.expense_tracker_backend.security.WithAuthenticatedUser;
 import com.shybaiev.expense_tracker_backend.service.BudgetService;
+import com.shybaiev.expense_tracker_backend.service.BudgetStatusService;
+import com.shybaiev.expense_tracker_backend.service.ResponseCache;
+import com.shybaiev.expense_tracker_backend.service.UserDataVersions;
 import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
-import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -32,6 +45,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(BudgetController.class)
 @AutoConfigureMockMvc(addFilters = false)
+@Import(ConditionalResponses.class)
 class BudgetControllerTest {
 
     @Autowired
@@ -46,8 +60,25 @@ class BudgetControllerTest {
     @MockitoBean
     private BudgetMapper budgetMapper;
 
+    @MockitoBean
+    private BudgetStatusService budgetStatusService;
+
+    @MockitoBean
+    private ResponseCache responseCache;
+
+    @MockitoBean
+    private UserDataVersions userDataVersions;
+
+    // no caching in this slice, every request runs the loader
+    @BeforeEach
+    void passThroughResponseCache() {
+        when(userDataVersions.current(anyLong())).thenReturn(7L);
+        when(responseCache.get(any(ResponseCache.Key.class), any()))
+                .thenAnswer(inv -> objectMapper.writeValueAsBytes(inv.getArgument(1, Supplier.class).get()));
+    }
+
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testAddBudget() throws Exception {
         BudgetCreateUpdateDto createDto = new BudgetCreateUpdateDto();
         createDto.setAmount(new BigDecimal("250.00"));
@@ -66,7 +97,7 @@ class BudgetControllerTest {
         responseDto.setName("Monthly");
         responseDto.setTimePeriod("MONTH");
 
-        when(budgetService.createBudgetForUser(eq(createDto), eq("testuser@email.com")))
+        when(budgetService.createBudgetForUser(eq(createDto), eq(1L)))
                 .thenReturn(saved);
 
         when(budgetMapper.toDto(saved)).thenReturn(responseDto);
@@ -84,13 +115,9 @@ class BudgetControllerTest {
 
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testGetBudgetByIdFound() throws Exception {
-        Budget entity = new Budget();
-        entity.setId(5L);
-        entity.setAmount(new BigDecimal("100.00"));
-        entity.setName("Weekly");
-        entity.setTimePeriod("WEEK");
+        BudgetView entity = new BudgetView(5L, new BigDecimal("100.00"), "Weekly", null, "WEEK", null, 1L);
 
         BudgetDto dto = new BudgetDto();
         dto.setId(5L);
@@ -98,7 +125,7 @@ class BudgetControllerTest {
         dto.setName("Weekly");
         dto.setTimePeriod("WEEK");
 
-        when(budgetService.getBudgetByIdForUser(5L,"testuser@email.com")).thenReturn(Optional.of(entity));
+        when(budgetService.getBudgetByIdForUser(5L, 1L)).thenReturn(Optional.of(entity));
         when(budgetMapper.toDto(entity)).thenReturn(dto);
 
         mockMvc.perform(get("/budgets/5"))
@@ -110,26 +137,36 @@ class BudgetControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testGetBudgetByIdNotFound() throws Exception {
-        when(budgetService.getBudgetByIdForUser(404L, "testuser@email.com"))
+        when(budgetService.getBudgetByIdForUser(404L, 1L))
                 .thenReturn(Optional.empty());
 
         mockMvc.perform(get("/budgets/404"))
-                .andExpect(status().isNotFound());
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist("ETag"));
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
+    void testGetBudgetByIdNotModified() throws Exception {
+        mockMvc.perform(get("/budgets/5").header("If-None-Match", "\"1-7\""))
+                .andExpect(status().isNotModified());
+
+        verifyNoInteractions(budgetService);
+    }
+
+    @Test
+    @WithAuthenticatedUser
     void testDeleteBudgetById() throws Exception {
-        doNothing().when(budgetService).deleteBudgetForUser(7L, "testuser@email.com");
+        doNothing().when(budgetService).deleteBudgetForUser(7L, 1L);
 
         mockMvc.perform(delete("/budgets/7"))
                 .andExpect(status().isNoContent());
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testUpdateBudgetOk() throws Exception {
         BudgetCreateUpdateDto updateDto = new BudgetCreateUpdateDto();
         updateDto.setAmount(new BigDecimal("300.50"));
@@ -148,7 +185,7 @@ class BudgetControllerTest {
         dto.setName("Updated");
         dto.setTimePeriod("MONTH");
 
-        when(budgetService.updateBudgetForUser(eq(3L), any(BudgetCreateUpdateDto.class), eq("testuser@email.com")))
+        when(budgetService.updateBudgetForUser(eq(3L), any(BudgetCreateUpdateDto.class), eq(1L)))
                 .thenReturn(updated);
         when(budgetMapper.toDto(updated)).thenReturn(dto);
 
@@ -163,11 +200,11 @@ class BudgetControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testUpdateBudgetNotFound() throws Exception {
         BudgetCreateUpdateDto updateDto = new BudgetCreateUpdateDto();
 
-        when(budgetService.updateBudgetForUser(eq(999L), any(BudgetCreateUpdateDto.class), eq("testuser@email.com")))
+        when(budgetService.updateBudgetForUser(eq(999L), any(BudgetCreateUpdateDto.class), eq(1L)))
                 .thenThrow(new EntityNotFoundException("not found"));
 
         mockMvc.perform(patch("/budgets/999")
@@ -177,19 +214,10 @@ class BudgetControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testGetAllBudgets() throws Exception {
-        Budget b1 = new Budget();
-        b1.setId(1L);
-        b1.setAmount(new BigDecimal("50.00"));
-        b1.setName("B1");
-        b1.setTimePeriod("WEEK");
-
-        Budget b2 = new Budget();
-        b2.setId(2L);
-        b2.setAmount(new BigDecimal("200.00"));
-        b2.setName("B2");
-        b2.setTimePeriod("MONTH");
+        BudgetView b1 = new BudgetView(1L, new BigDecimal("50.00"), "B1", null, "WEEK", null, 1L);
+        BudgetView b2 = new BudgetView(2L, new BigDecimal("200.00"), "B2", null, "MONTH", null, 1L);
 
         BudgetDto d1 = new BudgetDto();
         d1.setId(1L);
@@ -203,7 +231,7 @@ class BudgetControllerTest {
         d2.setName("B2");
         d2.setTimePeriod("MONTH");
 
-        when(budgetService.getAllBudgetsForUser("testuser@email.com")).thenReturn(List.of(b1, b2));
+        when(budgetService.getAllBudgetsForUser(1L)).thenReturn(List.of(b1, b2));
         when(budgetMapper.toDto(b1)).thenReturn(d1);
         when(budgetMapper.toDto(b2)).thenReturn(d2);
 
@@ -221,13 +249,9 @@ class BudgetControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testGetTotalExpensesForBudgetFound() throws Exception {
-        Budget budget = new Budget();
-        budget.setId(5L);
-
-        when(budgetService.getBudgetByIdForUser(5L,"testuser@email.com")).thenReturn(Optional.of(budget));
-        when(budgetService.getTotalExpensesForBudgetForUser(budget,"testuser@email.com")).thenReturn(new BigDecimal("123.45"));
+        when(budgetService.getTotalExpensesForBudgetForUser(5L, 1L)).thenReturn(new BigDecimal("123.45"));
 
         mockMvc.perform(get("/budgets/budgets/5/expenses/total"))
                 .andExpect(status().isOk())
@@ -235,11 +259,54 @@ class BudgetControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testGetTotalExpensesForBudgetNotFound() throws Exception {
-        when(budgetService.getBudgetByIdForUser(999L,"testuser@email.com")).thenReturn(Optional.empty());
+        when(budgetService.getTotalExpensesForBudgetForUser(999L, 1L))
+                .thenThrow(new EntityNotFoundException("Budget not found: 999"));
 
         mockMvc.perform(get("/budgets/budgets/999/expenses/total"))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithAuthenticatedUser
+    void testGetTotalExpensesForBudgetOfOtherUser() throws Exception {
+        when(budgetService.getTotalExpensesForBudgetForUser(8L, 1L))
+                .thenThrow(new AccessDeniedException("You are not allowed to access this budget"));
+
+        mockMvc.perform(get("/budgets/budgets/8/expenses/total"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithAuthenticatedUser
+    void testGetBudgetStatuses() throws Exception {
+        BudgetStatusDto status = new BudgetStatusDto(3L, "Groceries", new BigDecimal("200.00"), "MONTHLY",
+                LocalDate.of(2025, 3, 1), LocalDate.of(2025, 4, 1), new BigDecimal("250.00"),
+                new BigDecimal("-50.00"), new BigDecimal("125.00"), true);
+        when(budgetStatusService.getBudgetStatusesForUser(1L, LocalDate.of(2025, 3, 15))).thenReturn(List.of(status));
+
+        mockMvc.perform(get("/budgets/status").param("date", "2025-03-15"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].budgetId").value(3))
+                .andExpect(jsonPath("$[0].windowStart").value("2025-03-01"))
+                .andExpect(jsonPath("$[0].windowEnd").value("2025-04-01"))
+                .andExpect(jsonPath("$[0].percentUsed").value(125.00))
+                .andExpect(jsonPath("$[0].overBudget").value(true));
+    }
+
+    @Test
+    @WithAuthenticatedUser
+    void testGetBudgetSummaries() throws Exception {
+        BudgetSummaryDto summary = new BudgetSummaryDto(4L, "Food", new BigDecimal("100.00"), "MONTHLY",
+                new BigDecimal("40.00"), 3);
+        when(budgetService.getBudgetSummariesForUser(1L)).thenReturn(List.of(summary));
+
+        mockMvc.perform(get("/budgets/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].budgetId").value(4))
+                .andExpect(jsonPath("$[0].spent").value(40.00))
+                .andExpect(jsonPath("$[0].remaining").value(60.00))
+                .andExpect(jsonPath("$[0].expenseCount").value(3));
+    }
+}
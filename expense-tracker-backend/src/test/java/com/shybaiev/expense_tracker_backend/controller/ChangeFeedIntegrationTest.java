@@ -0,0 +1,136 @@
+package com.shybaiev.expense_tracker_backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shybaiev.expense_tracker_backend.entity.Role;
+import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.AuthenticatedUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@Transactional
+class ChangeFeedIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private RequestPostProcessor anna;
+    private RequestPostProcessor ben;
+
+    @BeforeEach
+    void setUp() {
+        anna = principal("anna");
+        ben = principal("ben");
+    }
+
+    @Test
+    void testChangesSinceCursorContainOnlyLaterWrites() throws Exception {
+        long firstId = createExpense(anna, "10.00");
+        long secondId = createExpense(anna, "20.00");
+        long budgetId = createBudget(anna);
+        createExpense(ben, "99.00");
+
+        // full sync without a cursor
+        JsonNode full = changes(anna, null);
+        assertThat(full.get("expenses")).hasSize(2);
+        assertThat(full.get("budgets").get(0).get("id").asLong()).isEqualTo(budgetId);
+        long cursor = full.get("cursor").asLong();
+
+        // nothing happened since
+        JsonNode empty = changes(anna, cursor);
+        assertThat(empty.get("expenses")).isEmpty();
+        assertThat(empty.get("budgets")).isEmpty();
+        assertThat(empty.get("cursor").asLong()).isEqualTo(cursor);
+
+        mockMvc.perform(patch("/expenses/" + firstId)
+                        .with(anna)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 15.00}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/expenses/" + secondId).with(anna))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/budgets/" + budgetId).with(anna))
+                .andExpect(status().isNoContent());
+
+        JsonNode delta = changes(anna, cursor);
+        assertThat(delta.get("expenses")).hasSize(1);
+        assertThat(delta.get("expenses").get(0).get("id").asLong()).isEqualTo(firstId);
+        assertThat(delta.get("expenses").get(0).get("amount").decimalValue()).isEqualByComparingTo("15.00");
+        assertThat(delta.get("budgets")).isEmpty();
+        assertThat(delta.get("deletedExpenseIds").get(0).asLong()).isEqualTo(secondId);
+        assertThat(delta.get("deletedBudgetIds").get(0).asLong()).isEqualTo(budgetId);
+        assertThat(delta.get("cursor").asLong()).isEqualTo(cursor + 3);
+    }
+
+    @Test
+    void testNegativeCursorIsRejected() throws Exception {
+        mockMvc.perform(get("/expenses/changes").param("since", "-1").with(anna))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode changes(RequestPostProcessor principal, Long since) throws Exception {
+        var request = get("/expenses/changes").with(principal);
+        if (since != null) {
+            request.param("since", String.valueOf(since));
+        }
+        String body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private long createExpense(RequestPostProcessor principal, String amount) throws Exception {
+        String body = mockMvc.perform(post("/expenses")
+                        .with(principal)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": " + amount + ", \"category\": \"Food\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    private long createBudget(RequestPostProcessor principal) throws Exception {
+        String body = mockMvc.perform(post("/budgets")
+                        .with(principal)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"amount": 500.00, "name": "Groceries", "timePeriod": "30", "startDate": "2025-09-01"}
+                                """))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    private RequestPostProcessor principal(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPasswordHash("hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd");
+        user.setEnabled(true);
+        user = userRepository.saveAndFlush(user);
+        return user(new AuthenticatedUser(user.getId(), user.getEmail(), Role.USER));
+    }
+}
@@ -1,26 +1,32 @@
 package com.shybaiev.expense_tracker_backend.controller;
 
 import com.shybaiev.expense_tracker_backend.entity.Expense;
+import com.shybaiev.expense_tracker_backend.entity.Role;
 import com.shybaiev.expense_tracker_backend.entity.User;
 import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
 import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.AuthenticatedUser;
+import com.shybaiev.expense_tracker_backend.service.ExpenseRollupService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
-import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureMockMvc
-@WithMockUser(username = "john@example.com")
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
 @Transactional
 class ExpenseControllerIntegrationTest {
@@ -34,6 +40,9 @@ class ExpenseControllerIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ExpenseRollupService rollupService;
+
     @Test
     void testFullCrudCycleExpense() throws Exception {
 
@@ -42,7 +51,8 @@ class ExpenseControllerIntegrationTest {
         user.setEmail("john@example.com");
         user.setPasswordHash("hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd");
         user.setEnabled(true);
-        user = userRepository.save(user);
+        user = userRepository.saveAndFlush(user);
+        RequestPostProcessor john = user(new AuthenticatedUser(user.getId(), user.getEmail(), Role.USER));
 
         // language=JSON
         String createJson = """
@@ -60,6 +70,7 @@ class ExpenseControllerIntegrationTest {
 
         // 1. Create expense (POST)
         mockMvc.perform(post("/expenses")
+                        .with(john)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(createJson))
                 .andExpect(status().isCreated())
@@ -72,7 +83,8 @@ class ExpenseControllerIntegrationTest {
         Long id = saved.getId();
 
         // 2. Get expense (GET)
-        mockMvc.perform(get("/expenses/" + id))
+        mockMvc.perform(get("/expenses/" + id)
+                        .with(john))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(id))
                 .andExpect(jsonPath("$.amount").value(120.50));
@@ -91,6 +103,7 @@ class ExpenseControllerIntegrationTest {
         """;
 
         mockMvc.perform(patch("/expenses/" + id)
+                        .with(john)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(updateJson))
                 .andExpect(status().isOk())
@@ -98,13 +111,142 @@ class ExpenseControllerIntegrationTest {
                 .andExpect(jsonPath("$.description").value("Updated Internet Bill"));
 
         // 4. Delete expense (DELETE)
-        mockMvc.perform(delete("/expenses/" + id))
+        mockMvc.perform(delete("/expenses/" + id)
+                        .with(john))
                 .andExpect(status().isNoContent());
 
         assertThat(expenseRepository.existsById(id)).isFalse();
 
         // 5. Try to get deleted expense (GET → 404)
-        mockMvc.perform(get("/expenses/" + id))
+        mockMvc.perform(get("/expenses/" + id)
+                        .with(john))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void testExportStreamsOnlyOwnExpenses() throws Exception {
+        User owner = saveUser("export@example.com", "exporter");
+        User other = saveUser("other-export@example.com", "other-exporter");
+        saveExpense(owner, "12.50", "Food");
+        saveExpense(owner, "40.00", "Fuel");
+        saveExpense(other, "99.00", "Hidden");
+        RequestPostProcessor exporter = user(new AuthenticatedUser(owner.getId(), owner.getEmail(), Role.USER));
+
+        String csv = mockMvc.perform(get("/expenses/export").with(exporter))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(csv.lines()).hasSize(3);
+        assertThat(csv).contains("Food", "Fuel").doesNotContain("Hidden");
+
+        String ndjson = mockMvc.perform(get("/expenses/export").param("format", "ndjson").with(exporter))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(ndjson.lines()).hasSize(2).allMatch(line -> line.startsWith("{") && line.endsWith("}"));
+    }
+
+    @Test
+    void testMonthlySpendFollowsExpenseWrites() throws Exception {
+        User owner = saveUser("rollup@example.com", "rollup");
+        RequestPostProcessor john = user(new AuthenticatedUser(owner.getId(), owner.getEmail(), Role.USER));
+
+        // language=JSON
+        String food = """
+            {"amount": 10.00, "category": "Food", "timestamp": "2025-03-10T12:00:00Z"}
+            """;
+        // language=JSON
+        String moreFood = """
+            {"amount": 5.50, "category": "Food", "timestamp": "2025-03-31T23:59:59.500Z"}
+            """;
+        mockMvc.perform(post("/expenses").with(john).contentType(MediaType.APPLICATION_JSON).content(food))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/expenses").with(john).contentType(MediaType.APPLICATION_JSON).content(moreFood))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/expenses/monthly").param("month", "2025-03").with(john))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(15.50))
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.categories.length()").value(1));
+
+        Long firstId = expenseRepository.findAllByUserId(owner.getId()).stream()
+                .filter(e -> e.getAmount().compareTo(new BigDecimal("10.00")) == 0)
+                .findFirst().orElseThrow().getId();
+
+        // moves the expense to another category and month
+        mockMvc.perform(patch("/expenses/" + firstId).with(john).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"category\": \"Fuel\", \"timestamp\": \"2025-04-01T08:00:00Z\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/expenses/monthly").param("month", "2025-03").with(john))
+                .andExpect(jsonPath("$.total").value(5.50))
+                .andExpect(jsonPath("$.count").value(1));
+        mockMvc.perform(get("/expenses/monthly").param("month", "2025-04").with(john))
+                .andExpect(jsonPath("$.total").value(10.00))
+                .andExpect(jsonPath("$.categories[0].category").value("Fuel"));
+
+        mockMvc.perform(delete("/expenses/" + firstId).with(john))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/expenses/monthly").param("month", "2025-04").with(john))
+                .andExpect(jsonPath("$.total").value(0))
+                .andExpect(jsonPath("$.categories.length()").value(0));
+        assertThat(rollupService.verifyAndRepair(owner.getId())).isFalse();
+    }
+
+    @Test
+    void testBatchCreatesAllExpensesWithDistinctIds() throws Exception {
+        User owner = saveUser("batch@example.com", "batcher");
+        RequestPostProcessor john = user(new AuthenticatedUser(owner.getId(), owner.getEmail(), Role.USER));
+
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 120; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"amount\": 1.25, \"category\": \"Bank\", \"timestamp\": \"2025-05-0")
+                    .append(1 + i % 9).append("T10:00:00Z\"}");
+        }
+        body.append(']');
+
+        mockMvc.perform(post("/expenses/batch").with(john).contentType(MediaType.APPLICATION_JSON).content(body.toString()))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(120))
+                .andExpect(jsonPath("$[0].userId").value(owner.getId()));
+
+        assertThat(expenseRepository.findAllByUserId(owner.getId()))
+                .hasSize(120)
+                .extracting(Expense::getId).doesNotHaveDuplicates();
+        mockMvc.perform(get("/expenses/monthly").param("month", "2025-05").with(john))
+                .andExpect(jsonPath("$.total").value(150.00))
+                .andExpect(jsonPath("$.count").value(120));
+        assertThat(rollupService.verifyAndRepair(owner.getId())).isFalse();
+
+        // one bad row rejects the whole batch
+        mockMvc.perform(post("/expenses/batch").with(john).contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"amount\": 3.00}, {\"amount\": -1}]"))
+                .andExpect(status().isBadRequest());
+        assertThat(expenseRepository.findAllByUserId(owner.getId())).hasSize(120);
+    }
+
+    private User saveUser(String email, String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPasswordHash("hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd");
+        user.setEnabled(true);
+        return userRepository.saveAndFlush(user);
+    }
+
+    private void saveExpense(User user, String amount, String category) {
+        Expense expense = new Expense();
+        expense.setUser(user);
+        expense.setAmount(new BigDecimal(amount));
+        expense.setCategory(category);
+        expense.setTimestamp(OffsetDateTime.now());
+        expenseRepository.save(expense);
+    }
 }
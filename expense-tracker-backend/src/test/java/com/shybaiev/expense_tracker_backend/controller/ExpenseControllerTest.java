@@ -1,28 +1,49 @@
 package com.shybaiev.expense_tracker_backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shybaiev.expense_tracker_backend.dto.CategorySpendDto;
+import com.shybaiev.expense_tracker_backend.dto.ChangeSetDto;
 import com.shybaiev.expense_tracker_backend.dto.ExpenseCreateUpdateDto;
 import com.shybaiev.expense_tracker_backend.dto.ExpenseDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseFilter;
+import com.shybaiev.expense_tracker_backend.dto.ExpensePageDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
+import com.shybaiev.expense_tracker_backend.dto.MonthlySpendDto;
 import com.shybaiev.expense_tracker_backend.entity.Expense;
+import com.shybaiev.expense_tracker_backend.mapper.ChangeSetMapper;
 import com.shybaiev.expense_tracker_backend.mapper.ExpenseMapper;
+import com.shybaiev.expense_tracker_backend.security.WithAuthenticatedUser;
+import com.shybaiev.expense_tracker_backend.service.ChangeFeedService;
+import com.shybaiev.expense_tracker_backend.service.ChangeSet;
+import com.shybaiev.expense_tracker_backend.service.ExpenseExportService;
+import com.shybaiev.expense_tracker_backend.service.ExpensePage;
 import com.shybaiev.expense_tracker_backend.service.ExpenseService;
+import com.shybaiev.expense_tracker_backend.service.ExportFormat;
+import com.shybaiev.expense_tracker_backend.service.ResponseCache;
+import com.shybaiev.expense_tracker_backend.service.UserDataVersions;
 import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -30,6 +51,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(ExpenseController.class)
 @AutoConfigureMockMvc(addFilters = false)
+@Import(ConditionalResponses.class)
 class ExpenseControllerTest {
 
     @Autowired
@@ -44,8 +66,31 @@ class ExpenseControllerTest {
     @MockitoBean
     private ExpenseMapper expenseMapper;
 
+    @MockitoBean
+    private ExpenseExportService expenseExportService;
+
+    @MockitoBean
+    private ResponseCache responseCache;
+
+    @MockitoBean
+    private ChangeFeedService changeFeedService;
+
+    @MockitoBean
+    private ChangeSetMapper changeSetMapper;
+
+    @MockitoBean
+    private UserDataVersions userDataVersions;
+
+    // no caching in this slice, every request runs the loader
+    @BeforeEach
+    void passThroughResponseCache() {
+        when(userDataVersions.current(anyLong())).thenReturn(7L);
+        when(responseCache.get(any(ResponseCache.Key.class), any()))
+                .thenAnswer(inv -> objectMapper.writeValueAsBytes(inv.getArgument(1, Supplier.class).get()));
+    }
+
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testAddExpense() throws Exception {
         ExpenseCreateUpdateDto createDto = new ExpenseCreateUpdateDto();
         createDto.setAmount(new BigDecimal("12.34"));
@@ -61,7 +106,7 @@ class ExpenseControllerTest {
         responseDto.setAmount(new BigDecimal("12.34"));
         responseDto.setDescription("Lunch");
 
-        when(expenseService.createExpenseForUser(eq(createDto), eq("testuser@email.com"))).thenReturn(saved);
+        when(expenseService.createExpenseForUser(eq(createDto), eq(1L))).thenReturn(saved);
         when(expenseMapper.toDto(saved)).thenReturn(responseDto);
 
         mockMvc.perform(post("/expenses")
@@ -75,19 +120,46 @@ class ExpenseControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
+    void testAddExpensesBatch() throws Exception {
+        ExpenseCreateUpdateDto first = new ExpenseCreateUpdateDto();
+        first.setAmount(new BigDecimal("1.00"));
+        ExpenseCreateUpdateDto second = new ExpenseCreateUpdateDto();
+        second.setAmount(new BigDecimal("2.00"));
+
+        Expense savedFirst = new Expense();
+        savedFirst.setId(51L);
+        Expense savedSecond = new Expense();
+        savedSecond.setId(52L);
+        ExpenseDto firstDto = new ExpenseDto();
+        firstDto.setId(51L);
+        ExpenseDto secondDto = new ExpenseDto();
+        secondDto.setId(52L);
+
+        when(expenseService.createExpensesForUser(eq(List.of(first, second)), eq(1L)))
+                .thenReturn(List.of(savedFirst, savedSecond));
+        when(expenseMapper.toDto(savedFirst)).thenReturn(firstDto);
+        when(expenseMapper.toDto(savedSecond)).thenReturn(secondDto);
+
+        mockMvc.perform(post("/expenses/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(first, second))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(52));
+    }
+
+    @Test
+    @WithAuthenticatedUser
     void testGetExpenseByIdFound() throws Exception {
-        Expense entity = new Expense();
-        entity.setId(5L);
-        entity.setAmount(new BigDecimal("99.99"));
-        entity.setDescription("Groceries");
+        ExpenseView entity = new ExpenseView(5L, new BigDecimal("99.99"), "Groceries", null, null, null, null, null, 1L);
 
         ExpenseDto dto = new ExpenseDto();
         dto.setId(5L);
         dto.setAmount(new BigDecimal("99.99"));
         dto.setDescription("Groceries");
 
-        when(expenseService.getExpenseByIdForUser(5L, "testuser@email.com")).thenReturn(Optional.of(entity));
+        when(expenseService.getExpenseByIdForUser(5L, 1L)).thenReturn(Optional.of(entity));
         when(expenseMapper.toDto(entity)).thenReturn(dto);
 
         mockMvc.perform(get("/expenses/5"))
@@ -98,43 +170,43 @@ class ExpenseControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testGetExpenseByIdNotFound() throws Exception {
-        when(expenseService.getExpenseByIdForUser(404L, "testuser@email.com")).thenReturn(Optional.empty());
+        when(expenseService.getExpenseByIdForUser(404L, 1L)).thenReturn(Optional.empty());
 
         mockMvc.perform(get("/expenses/404"))
                 .andExpect(status().isNotFound());
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testDeleteExpenseById() throws Exception {
-        doNothing().when(expenseService).deleteExpenseForUser(7L, "testuser@email.com");
+        doNothing().when(expenseService).deleteExpenseForUser(7L, 1L);
 
         mockMvc.perform(delete("/expenses/7"))
                 .andExpect(status().isNoContent());
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testDeleteExpenseById_NotFound() throws Exception {
-        doThrow(new EntityNotFoundException("Expense not found")).when(expenseService).deleteExpenseForUser(404L, "testuser@email.com");
+        doThrow(new EntityNotFoundException("Expense not found")).when(expenseService).deleteExpenseForUser(404L, 1L);
 
         mockMvc.perform(delete("/expenses/404"))
                 .andExpect(status().isNotFound());
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testDeleteExpenseById_AccessDenied() throws Exception {
-        doThrow(new AccessDeniedException("Access denied")).when(expenseService).deleteExpenseForUser(7L, "testuser@email.com");
+        doThrow(new AccessDeniedException("Access denied")).when(expenseService).deleteExpenseForUser(7L, 1L);
 
         mockMvc.perform(delete("/expenses/7"))
                 .andExpect(status().isForbidden());
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testUpdateExpenseOk() throws Exception {
         ExpenseCreateUpdateDto updateDto = new ExpenseCreateUpdateDto();
         updateDto.setAmount(new BigDecimal("15.50"));
@@ -155,7 +227,7 @@ class ExpenseControllerTest {
         dto.setDescription("Updated");
 
         when(expenseMapper.toEntity(any(ExpenseCreateUpdateDto.class))).thenReturn(updatedInput);
-        when(expenseService.updateExpenseForUser(eq(3L), any(ExpenseCreateUpdateDto.class), eq("testuser@email.com"))).thenReturn(updatedResult);
+        when(expenseService.updateExpenseForUser(eq(3L), any(ExpenseCreateUpdateDto.class), eq(1L))).thenReturn(updatedResult);
         when(expenseMapper.toDto(updatedResult)).thenReturn(dto);
 
         mockMvc.perform(patch("/expenses/3")
@@ -168,13 +240,13 @@ class ExpenseControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testUpdateExpenseNotFound() throws Exception {
         ExpenseCreateUpdateDto updateDto = new ExpenseCreateUpdateDto();
 
         Expense mapped = new Expense();
         when(expenseMapper.toEntity(any(ExpenseCreateUpdateDto.class))).thenReturn(mapped);
-        when(expenseService.updateExpenseForUser(eq(999L), any(ExpenseCreateUpdateDto.class), eq("testuser@email.com")))
+        when(expenseService.updateExpenseForUser(eq(999L), any(ExpenseCreateUpdateDto.class), eq(1L)))
                 .thenThrow(new EntityNotFoundException("not found"));
 
         mockMvc.perform(patch("/expenses/999")
@@ -184,13 +256,13 @@ class ExpenseControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testUpdateExpenseAccessDenied() throws Exception {
         ExpenseCreateUpdateDto updateDto = new ExpenseCreateUpdateDto();
 
         Expense mapped = new Expense();
         when(expenseMapper.toEntity(any(ExpenseCreateUpdateDto.class))).thenReturn(mapped);
-        when(expenseService.updateExpenseForUser(eq(3L), any(ExpenseCreateUpdateDto.class), eq("testuser@email.com")))
+        when(expenseService.updateExpenseForUser(eq(3L), any(ExpenseCreateUpdateDto.class), eq(1L)))
                 .thenThrow(new AccessDeniedException("access denied"));
 
         mockMvc.perform(patch("/expenses/3")
@@ -200,19 +272,46 @@ class ExpenseControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
+    void testGetAllExpensesCarriesEtag() throws Exception {
+        when(expenseService.getAllExpensesForUser(1L)).thenReturn(List.of());
+
+        mockMvc.perform(get("/expenses"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-7\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"));
+    }
+
+    @Test
+    @WithAuthenticatedUser
+    void testUnchangedIfNoneMatchIsAnsweredBeforeQuery() throws Exception {
+        mockMvc.perform(get("/expenses").header("If-None-Match", "\"1-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"1-7\""))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/expenses/3").header("If-None-Match", "\"0-1\", W/\"1-7\""))
+                .andExpect(status().isNotModified());
+
+        verifyNoInteractions(expenseService, responseCache);
+    }
+
+    @Test
+    @WithAuthenticatedUser
+    void testStaleIfNoneMatchGetsFullBody() throws Exception {
+        when(expenseService.getAllExpensesForUser(1L)).thenReturn(List.of());
+
+        mockMvc.perform(get("/expenses").header("If-None-Match", "\"1-6\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-7\""))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    @WithAuthenticatedUser
     void testGetAllExpenses() throws Exception {
-        Expense e1 = new Expense();
-        e1.setId(1L);
-        e1.setAmount(new BigDecimal("50.00"));
-        e1.setDescription("E1");
-        e1.setCategory("Food");
-
-        Expense e2 = new Expense();
-        e2.setId(2L);
-        e2.setAmount(new BigDecimal("200.00"));
-        e2.setDescription("E2");
-        e2.setCategory("Transport");
+        ExpenseView e1 = new ExpenseView(1L, new BigDecimal("50.00"), "E1", null, "Food", null, null, null, 1L);
+        ExpenseView e2 = new ExpenseView(2L, new BigDecimal("200.00"), "E2", null, "Transport", null, null, null, 1L);
 
         ExpenseDto d1 = new ExpenseDto();
         d1.setId(1L);
@@ -226,7 +325,7 @@ class ExpenseControllerTest {
         d2.setDescription("E2");
         d2.setCategory("Transport");
 
-        when(expenseService.getAllExpensesForUser("testuser@email.com")).thenReturn(List.of(e1, e2));
+        when(expenseService.getAllExpensesForUser(1L)).thenReturn(List.of(e1, e2));
         when(expenseMapper.toDto(e1)).thenReturn(d1);
         when(expenseMapper.toDto(e2)).thenReturn(d2);
 
@@ -242,13 +341,9 @@ class ExpenseControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testGetExpensesByCategory() throws Exception {
-        Expense e1 = new Expense();
-        e1.setId(1L);
-        e1.setAmount(new BigDecimal("25.00"));
-        e1.setDescription("Food expense");
-        e1.setCategory("Food");
+        ExpenseView e1 = new ExpenseView(1L, new BigDecimal("25.00"), "Food expense", null, "Food", null, null, null, 1L);
 
         ExpenseDto d1 = new ExpenseDto();
         d1.setId(1L);
@@ -256,7 +351,7 @@ class ExpenseControllerTest {
         d1.setDescription("Food expense");
         d1.setCategory("Food");
 
-        when(expenseService.getExpensesByCategoryForUser("Food", "testuser@email.com")).thenReturn(List.of(e1));
+        when(expenseService.getExpensesByCategoryForUser("Food", 1L)).thenReturn(List.of(e1));
         when(expenseMapper.toDto(e1)).thenReturn(d1);
 
         mockMvc.perform(get("/expenses/category/Food"))
@@ -269,12 +364,119 @@ class ExpenseControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "testuser@email.com")
+    @WithAuthenticatedUser
     void testGetExpensesByCategoryEmpty() throws Exception {
-        when(expenseService.getExpensesByCategoryForUser("NonExistent", "testuser@email.com")).thenReturn(new ArrayList<>());
+        when(expenseService.getExpensesByCategoryForUser("NonExistent", 1L)).thenReturn(new ArrayList<>());
 
         mockMvc.perform(get("/expenses/category/NonExistent"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(0));
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithAuthenticatedUser
+    void testGetExpensePage() throws Exception {
+        ExpenseView e1 = new ExpenseView(7L, null, null, null, null, null, null, null, 1L);
+
+        ExpenseDto d1 = new ExpenseDto();
+        d1.setId(7L);
+        d1.setCategory("Food");
+
+        ExpensePage page = new ExpensePage(List.of(e1), null);
+        when(expenseService.getExpensePageForUser(eq(1L), any(ExpenseFilter.class), eq("abc"), eq(20)))
+                .thenReturn(page);
+        when(expenseMapper.toPageDto(page)).thenReturn(new ExpensePageDto(List.of(d1), "next"));
+
+        mockMvc.perform(get("/expenses/page")
+                        .param("category", "Food")
+                        .param("minAmount", "10.00")
+                        .param("from", "2025-03-01T00:00:00Z")
+                        .param("cursor", "abc")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(7))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(expenseService).getExpensePageForUser(eq(1L), argThat(filter ->
+                "Food".equals(filter.getCategory())
+                        && new BigDecimal("10.00").equals(filter.getMinAmount())
+                        && filter.getFrom() != null), eq("abc"), eq(20));
+    }
+
+    @Test
+    @WithAuthenticatedUser
+    void testGetExpensePageInvalidCursor() throws Exception {
+        when(expenseService.getExpensePageForUser(eq(1L), any(ExpenseFilter.class), eq("broken"), eq(50)))
+                .thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        mockMvc.perform(get("/expenses/page").param("cursor", "broken"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithAuthenticatedUser
+    void testExportExpensesCsv() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("id\n1\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(expenseExportService).exportExpensesForUser(eq(1L), eq(ExportFormat.CSV), any(OutputStream.class));
+
+        mockMvc.perform(get("/expenses/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"expenses.csv\""))
+                .andExpect(content().string("id\n1\n"));
+    }
+
+    @Test
+    @WithAuthenticatedUser
+    void testExportExpensesUnsupportedFormat() throws Exception {
+        mockMvc.perform(get("/expenses/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(expenseExportService);
+    }
+
+    @Test
+    @WithAuthenticatedUser
+    void testGetMonthlySpend() throws Exception {
+        YearMonth month = YearMonth.of(2025, 3);
+        MonthlySpendDto spend = new MonthlySpendDto(month, new BigDecimal("30.00"), 3,
+                List.of(new CategorySpendDto("Food", new BigDecimal("30.00"), 3)));
+        when(expenseService.getMonthlySpendForUser(1L, month)).thenReturn(spend);
+
+        mockMvc.perform(get("/expenses/monthly").param("month", "2025-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.month").value("2025-03"))
+                .andExpect(jsonPath("$.total").value(30.00))
+                .andExpect(jsonPath("$.count").value(3))
+                .andExpect(jsonPath("$.categories[0].category").value("Food"));
+    }
+
+    @Test
+    @WithAuthenticatedUser
+    void testGetChangesSinceCursor() throws Exception {
+        ExpenseDto changed = new ExpenseDto();
+        changed.setId(3L);
+        ChangeSet changes = new ChangeSet(List.of(), List.of(), List.of(4L), List.of(), 12L);
+        when(changeFeedService.getChangesForUser(1L, 10L)).thenReturn(changes);
+        when(changeSetMapper.toDto(changes)).thenReturn(new ChangeSetDto(List.of(changed), List.of(), List.of(4L), List.of(), 12L));
+
+        mockMvc.perform(get("/expenses/changes").param("since", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.expenses[0].id").value(3))
+                .andExpect(jsonPath("$.deletedExpenseIds[0]").value(4))
+                .andExpect(jsonPath("$.cursor").value(12));
+    }
+
+    @Test
+    @WithAuthenticatedUser
+    void testGetChangesRejectsInvalidCursor() throws Exception {
+        when(changeFeedService.getChangesForUser(1L, -5L)).thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        mockMvc.perform(get("/expenses/changes").param("since", "-5"))
+                .andExpect(status().isBadRequest());
+    }
+}
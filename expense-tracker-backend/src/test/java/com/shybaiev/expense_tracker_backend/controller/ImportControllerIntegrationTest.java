@@ -0,0 +1,138 @@
+package com.shybaiev.expense_tracker_backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shybaiev.expense_tracker_backend.entity.Role;
+import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// not @Transactional: the import worker writes in its own transactions and has to see the committed user
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class ImportControllerIntegrationTest {
+
+    private static final String STATEMENT = """
+            date,amount,payee,memo
+            2025-06-01,-12.00,Bakery,Bread
+            2025-06-01,-12.00,Bakery,Bread
+            2025-06-02,-30.50,Fuel Station,Pump 2
+            2025-06-03,1500.00,Employer,Salary
+            2025-06-04,oops,Kiosk,Paper
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+
+    @AfterEach
+    void cleanUp() {
+        if (owner != null) {
+            jdbcTemplate.update("delete from expense_monthly_rollup where user_id = ?", owner.getId());
+            jdbcTemplate.update("delete from expense where user_id = ?", owner.getId());
+            userRepository.deleteById(owner.getId());
+        }
+    }
+
+    @Test
+    void testImportIsDeduplicatedOnSecondUpload() throws Exception {
+        owner = saveUser("import@example.com", "importer");
+        RequestPostProcessor john = user(new AuthenticatedUser(owner.getId(), owner.getEmail(), Role.USER));
+
+        JsonNode first = awaitJob(upload(john), john);
+        assertThat(first.get("status").asText()).isEqualTo("COMPLETED");
+        assertThat(first.get("rowsRead").asLong()).isEqualTo(5);
+        // the two identical bakery lines are two purchases
+        assertThat(first.get("imported").asLong()).isEqualTo(3);
+        assertThat(first.get("skipped").asLong()).isEqualTo(1);
+        assertThat(first.get("failed").asLong()).isEqualTo(1);
+        assertThat(first.get("errors").get(0).get("line").asLong()).isEqualTo(6);
+
+        JsonNode second = awaitJob(upload(john), john);
+        assertThat(second.get("imported").asLong()).isZero();
+        assertThat(second.get("duplicates").asLong()).isEqualTo(3);
+        assertThat(expenseRepository.findAllByUserId(owner.getId())).hasSize(3);
+
+        mockMvc.perform(get("/expenses/monthly").param("month", "2025-06").with(john))
+                .andExpect(jsonPath("$.total").value(54.50));
+
+        // another user cannot see the job
+        RequestPostProcessor stranger = user(new AuthenticatedUser(owner.getId() + 1000, "x@example.com", Role.USER));
+        mockMvc.perform(get("/imports/" + second.get("id").asText()).with(stranger))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testUnsupportedFormatIsRejected() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "statement.pdf", "application/pdf", new byte[] {1});
+        mockMvc.perform(multipart("/imports").file(file).with(user(new AuthenticatedUser(1L, "a@example.com", Role.USER))))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String upload(RequestPostProcessor john) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "june.csv", "text/csv",
+                STATEMENT.getBytes(StandardCharsets.UTF_8));
+        String body = mockMvc.perform(multipart("/imports").file(file).with(john))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asText();
+    }
+
+    private JsonNode awaitJob(String id, RequestPostProcessor john) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            String body = mockMvc.perform(get("/imports/" + id).with(john))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode job = objectMapper.readTree(body);
+            String status = job.get("status").asText();
+            if (status.equals("COMPLETED") || status.equals("FAILED")) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Import " + id + " did not finish");
+    }
+
+    private User saveUser(String email, String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPasswordHash("hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd");
+        user.setEnabled(true);
+        return userRepository.save(user);
+    }
+}
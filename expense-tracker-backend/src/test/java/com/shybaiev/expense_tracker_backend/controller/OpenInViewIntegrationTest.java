@@ -0,0 +1,129 @@
+package com.shybaiev.expense_tracker_backend.controller;
+
+import com.shybaiev.expense_tracker_backend.entity.Budget;
+import com.shybaiev.expense_tracker_backend.entity.Expense;
+import com.shybaiev.expense_tracker_backend.entity.Role;
+import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// not @Transactional: a test transaction would keep the session open across the request and hide lazy loading
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class OpenInViewIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+
+    @AfterEach
+    void cleanUp() {
+        if (owner != null) {
+            jdbcTemplate.update("delete from expense_monthly_rollup where user_id = ?", owner.getId());
+            jdbcTemplate.update("delete from expense where user_id = ?", owner.getId());
+            jdbcTemplate.update("delete from budget where user_id = ?", owner.getId());
+            userRepository.deleteById(owner.getId());
+        }
+    }
+
+    @Test
+    void testNoSessionIsBoundToTheRequest() {
+        assertThat(context.getBeansOfType(OpenEntityManagerInViewInterceptor.class)).isEmpty();
+    }
+
+    @Test
+    void testWriteResponsesAreMappedAfterTheTransactionEnded() throws Exception {
+        owner = saveUser();
+        RequestPostProcessor john = user(new AuthenticatedUser(owner.getId(), owner.getEmail(), Role.USER));
+        Budget budget = saveBudget(owner);
+        Expense expense = new Expense();
+        expense.setUser(owner);
+        expense.setBudget(budget);
+        expense.setAmount(new BigDecimal("12.00"));
+        expense.setCategory("Food");
+        expense.setTimestamp(OffsetDateTime.parse("2025-06-01T10:00:00Z"));
+        expense = expenseRepository.save(expense);
+
+        // the associations are lazy proxies by now, only their ids may be read
+        mockMvc.perform(patch("/expenses/" + expense.getId())
+                        .with(john)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 15.00}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.budgetId").value(budget.getId()))
+                .andExpect(jsonPath("$.userId").value(owner.getId()));
+
+        mockMvc.perform(patch("/budgets/" + budget.getId())
+                        .with(john)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Renamed\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(owner.getId()));
+
+        mockMvc.perform(get("/expenses/" + expense.getId()).with(john))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.amount").value(15.00))
+                .andExpect(jsonPath("$.budgetId").value(budget.getId()));
+    }
+
+    private User saveUser() {
+        User user = new User();
+        user.setUsername("osiv");
+        user.setEmail("osiv@example.com");
+        user.setPasswordHash("hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd");
+        user.setEnabled(true);
+        return userRepository.save(user);
+    }
+
+    private Budget saveBudget(User user) {
+        Budget budget = new Budget();
+        budget.setUser(user);
+        budget.setName("Groceries");
+        budget.setAmount(new BigDecimal("300.00"));
+        budget.setTimePeriod("MONTHLY");
+        budget.setStartDate(LocalDate.parse("2025-06-01"));
+        return budgetRepository.save(budget);
+    }
+}
@@ -0,0 +1,146 @@
+package com.shybaiev.expense_tracker_backend.controller;
+
+import com.shybaiev.expense_tracker_backend.entity.Expense;
+import com.shybaiev.expense_tracker_backend.entity.Role;
+import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// not @Transactional: the data version (and with it the ETag) only moves after the service transaction has committed
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class ResponseCacheIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+
+    @AfterEach
+    void cleanUp() {
+        if (owner != null) {
+            jdbcTemplate.update("delete from expense_monthly_rollup where user_id = ?", owner.getId());
+            jdbcTemplate.update("delete from expense where user_id = ?", owner.getId());
+            jdbcTemplate.update("delete from budget where user_id = ?", owner.getId());
+            userRepository.deleteById(owner.getId());
+        }
+    }
+
+    @Test
+    void testListIsServedFromCacheUntilServiceWrite() throws Exception {
+        owner = saveUser();
+        RequestPostProcessor john = user(new AuthenticatedUser(owner.getId(), owner.getEmail(), Role.USER));
+
+        mockMvc.perform(get("/expenses").with(john))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(0));
+
+        // written behind the services' back, so the cached body is still current for them
+        Expense sneaked = new Expense();
+        sneaked.setAmount(new BigDecimal("5.00"));
+        sneaked.setTimestamp(OffsetDateTime.now());
+        sneaked.setUser(owner);
+        expenseRepository.save(sneaked);
+
+        mockMvc.perform(get("/expenses").with(john))
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(post("/expenses")
+                        .with(john)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 12.00, \"description\": \"Lunch\"}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/expenses").with(john))
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void testBudgetWriteInvalidatesBudgetList() throws Exception {
+        owner = saveUser();
+        RequestPostProcessor john = user(new AuthenticatedUser(owner.getId(), owner.getEmail(), Role.USER));
+
+        mockMvc.perform(get("/budgets").with(john))
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(post("/budgets")
+                        .with(john)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name": "Food", "amount": 300.00, "timePeriod": "MONTH", "startDate": "2025-01-01"}
+                                """))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/budgets").with(john))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Food"));
+    }
+
+    @Test
+    void testEtagChangesOnlyWithServiceWrites() throws Exception {
+        owner = saveUser();
+        RequestPostProcessor john = user(new AuthenticatedUser(owner.getId(), owner.getEmail(), Role.USER));
+
+        String etag = mockMvc.perform(get("/expenses").with(john))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/expenses").with(john).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/expenses")
+                        .with(john)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 3.00}"))
+                .andExpect(status().isCreated());
+
+        String changed = mockMvc.perform(get("/expenses").with(john).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(changed).isNotEqualTo(etag);
+
+        mockMvc.perform(get("/budgets").with(john).header("If-None-Match", changed))
+                .andExpect(status().isNotModified());
+    }
+
+    private User saveUser() {
+        User user = new User();
+        user.setUsername("cached");
+        user.setEmail("cached@example.com");
+        user.setPasswordHash("hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd");
+        user.setEnabled(true);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,93 @@
+package com.shybaiev.expense_tracker_backend.controller;
+
+import com.shybaiev.expense_tracker_backend.entity.Role;
+import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// not @Transactional: events are only pushed once the service transaction has committed
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class StreamIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+
+    @AfterEach
+    void cleanUp() {
+        if (owner != null) {
+            jdbcTemplate.update("delete from expense_monthly_rollup where user_id = ?", owner.getId());
+            jdbcTemplate.update("delete from expense where user_id = ?", owner.getId());
+            userRepository.deleteById(owner.getId());
+        }
+    }
+
+    @Test
+    void testCommittedWritesArePushedToOpenStream() throws Exception {
+        owner = saveUser();
+        RequestPostProcessor john = user(new AuthenticatedUser(owner.getId(), owner.getEmail(), Role.USER));
+
+        MvcResult stream = mockMvc.perform(get("/stream").with(john).accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(post("/expenses")
+                        .with(john)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 12.50, \"category\": \"Food\"}"))
+                .andExpect(status().isCreated());
+
+        String events = awaitEvent(stream, "event:expense.created");
+        assertThat(events).startsWith("event:ready\nid:0\nretry:5000\ndata:{\"cursor\":0}");
+        assertThat(events).contains("event:expense.created\nid:1\ndata:{");
+        assertThat(events).contains("\"amount\":12.5");
+    }
+
+    // events are written by the sender pool, so the response fills up asynchronously
+    private static String awaitEvent(MvcResult stream, String event) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String content = stream.getResponse().getContentAsString();
+        while (!content.contains(event) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            content = stream.getResponse().getContentAsString();
+        }
+        assertThat(content).contains(event);
+        return content;
+    }
+
+    private User saveUser() {
+        User user = new User();
+        user.setUsername("streamer");
+        user.setEmail("streamer@example.com");
+        user.setPasswordHash("hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd");
+        user.setEnabled(true);
+        return userRepository.save(user);
+    }
+}
@@ -1,19 +1,33 @@
 package com.shybaiev.expense_tracker_backend.controller;
 
+import com.shybaiev.expense_tracker_backend.entity.Budget;
+import com.shybaiev.expense_tracker_backend.entity.Expense;
 import com.shybaiev.expense_tracker_backend.entity.Role;
 import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
 import com.shybaiev.expense_tracker_backend.repository.UserRepository;
 import com.shybaiev.expense_tracker_backend.security.CustomUserDetails;
+import com.shybaiev.expense_tracker_backend.service.UserPurgeJob;
+import com.shybaiev.expense_tracker_backend.service.UserPurgeService;
+import com.shybaiev.expense_tracker_backend.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -30,6 +44,24 @@ class UserControllerIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    @Autowired
+    private UserPurgeService userPurgeService;
+
+    @Autowired
+    private UserPurgeJob userPurgeJob;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserService userService;
+
     @Test
     void testFullCrudCycleUser() throws Exception {
 
@@ -98,17 +130,153 @@ class UserControllerIntegrationTest {
 
         assertThat(userRepository.findById(id).get().getEmail()).isEqualTo("new@email.com");
 
-        // 4. Delete user (DELETE)
+        // 4. Delete user (DELETE) — disabled right away, data purged in the background
         mockMvc.perform(delete("/users/" + id)
                         .with(user(new CustomUserDetails(admin))))
-                .andExpect(status().isNoContent());
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/users/" + id + "/purge"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
 
-        assertThat(userRepository.existsById(id)).isFalse();
+        assertThat(userRepository.findById(id).get().isEnabled()).isFalse();
 
         // 5. Try to get deleted user (GET → 404)
         mockMvc.perform(get("/users/" + id)
                         .with(user(new CustomUserDetails(admin))))
                 .andExpect(status().isNotFound());
+
+        // 6. Purge runs, the row is gone
+        userPurgeJob.run();
+
+        assertThat(userRepository.existsById(id)).isFalse();
+        mockMvc.perform(get("/users/" + id + "/purge")
+                        .with(user(new CustomUserDetails(admin))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.percentComplete").value(100));
     }
-}
 
+    @Test
+    void testPatchedPasswordIsHashedAndAccepted() throws Exception {
+        // given
+        User owner = new User();
+        owner.setUsername("patcher");
+        owner.setEmail("patcher@test.com");
+        owner.setPasswordHash(passwordEncoder.encode("old_password_123"));
+        owner.setRole(Role.USER);
+        owner.setEnabled(true);
+        userRepository.save(owner);
+
+        // language=JSON
+        String updateJson = """
+         {
+          "username": "patcher",
+          "email": "patcher@test.com",
+          "password": "new_password_456"
+        }
+        """;
+
+        // when
+        mockMvc.perform(patch("/users/" + owner.getId())
+                        .with(user(new CustomUserDetails(owner)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updateJson))
+                .andExpect(status().isOk());
+
+        // then
+        String stored = userRepository.findById(owner.getId()).orElseThrow().getPasswordHash();
+        assertThat(stored).startsWith("$2").isNotEqualTo("new_password_456");
+        assertThat(userService.authenticate("patcher@test.com", "new_password_456").getId()).isEqualTo(owner.getId());
+        assertThatThrownBy(() -> userService.authenticate("patcher@test.com", "old_password_123"))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void testPurgeDeletesExpensesAndBudgetsInChunks() throws Exception {
+        User owner = new User();
+        owner.setUsername("purged");
+        owner.setEmail("purged@test.com");
+        owner.setPasswordHash("test_password_123456test_password_123456test_password_123456");
+        owner.setRole(Role.USER);
+        owner.setEnabled(true);
+        userRepository.saveAndFlush(owner);
+        Long id = owner.getId();
+
+        Budget budget = new Budget();
+        budget.setName("Monthly");
+        budget.setAmount(new BigDecimal("100.00"));
+        budget.setTimePeriod("MONTHLY");
+        budget.setStartDate(LocalDate.of(2025, 1, 1));
+        budget.setUser(owner);
+        budgetRepository.save(budget);
+        for (int i = 0; i < 5; i++) {
+            Expense expense = new Expense();
+            expense.setAmount(new BigDecimal("1.00"));
+            expense.setTimestamp(OffsetDateTime.now());
+            expense.setUser(owner);
+            expense.setBudget(budget);
+            expenseRepository.save(expense);
+        }
+        expenseRepository.flush();
+
+        mockMvc.perform(delete("/users/" + id)
+                        .with(user(new CustomUserDetails(owner))))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.expensesTotal").value(5))
+                .andExpect(jsonPath("$.budgetsTotal").value(1));
+
+        // 2 + 2 + 1 expenses, 1 budget, then the user row
+        int chunks = 1;
+        while (!userPurgeService.purgeChunk(id, 2)) {
+            chunks++;
+        }
+
+        assertThat(chunks).isEqualTo(5);
+        assertThat(expenseRepository.countByUserId(id)).isZero();
+        assertThat(budgetRepository.countByUserId(id)).isZero();
+        assertThat(userRepository.existsById(id)).isFalse();
+        assertThat(userPurgeService.getPurge(id)).get()
+                .satisfies(purge -> {
+                    assertThat(purge.getExpensesDeleted()).isEqualTo(5);
+                    assertThat(purge.getBudgetsDeleted()).isEqualTo(1);
+                });
+    }
+
+    @Test
+    void testBatchCreateReportsEveryRow() throws Exception {
+        User admin = new User();
+        admin.setUsername("batchadmin");
+        admin.setEmail("batchadmin@test.com");
+        admin.setPasswordHash("test_password_123456test_password_123456test_password_123456");
+        admin.setRole(Role.ADMIN);
+        admin.setEnabled(true);
+        userRepository.save(admin);
+
+        // language=JSON
+        String batchJson = """
+        [
+          {"username": "dept1", "email": "dept1@corp.com", "password": "secret-1"},
+          {"username": "dept2", "email": "dept2@corp.com", "password": "secret-2", "role": "ADMIN"},
+          {"username": "dept3", "email": "batchadmin@test.com", "password": "secret-3"},
+          {"username": "dept1", "email": "dept4@corp.com", "password": "secret-4"}
+        ]
+        """;
+
+        mockMvc.perform(post("/users/batch")
+                        .with(user(new CustomUserDetails(admin)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batchJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.results[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.results[0].user.email").value("dept1@corp.com"))
+                .andExpect(jsonPath("$.results[1].user.role").value("ADMIN"))
+                .andExpect(jsonPath("$.results[2].status").value("REJECTED"))
+                .andExpect(jsonPath("$.results[2].error").value("Email already in use"))
+                .andExpect(jsonPath("$.results[3].error").value("Duplicate username in batch"));
+
+        User created = userRepository.findByEmail("dept1@corp.com").orElseThrow();
+        assertThat(passwordEncoder.matches("secret-1", created.getPasswordHash())).isTrue();
+        assertThat(userRepository.findByEmail("dept4@corp.com")).isEmpty();
+    }
+}
@@ -2,14 +2,19 @@ package com.shybaiev.expense_tracker_backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shybaiev.expense_tracker_backend.configuration.SecurityTestConfig;
+import com.shybaiev.expense_tracker_backend.dto.UserBatchResponseDto;
 import com.shybaiev.expense_tracker_backend.dto.UserDto;
 import com.shybaiev.expense_tracker_backend.dto.UserCreateUpdateDto;
 import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.entity.UserPurge;
 import com.shybaiev.expense_tracker_backend.entity.Role;
 import com.shybaiev.expense_tracker_backend.mapper.ExpenseMapper;
 import com.shybaiev.expense_tracker_backend.mapper.UserMapper;
 import com.shybaiev.expense_tracker_backend.security.CustomUserDetails;
 import com.shybaiev.expense_tracker_backend.service.ExpenseService;
+import com.shybaiev.expense_tracker_backend.service.UserProvisionResult;
+import com.shybaiev.expense_tracker_backend.service.UserProvisioningService;
+import com.shybaiev.expense_tracker_backend.service.UserPurgeService;
 import com.shybaiev.expense_tracker_backend.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,6 +30,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
@@ -53,6 +59,12 @@ class UserControllerTest {
     @MockitoBean
     private ExpenseMapper expenseMapper;
 
+    @MockitoBean
+    private UserProvisioningService userProvisioningService;
+
+    @MockitoBean
+    private UserPurgeService userPurgeService;
+
     private User admin;
     private User user;
 
@@ -91,7 +103,7 @@ class UserControllerTest {
         dto.setRole(Role.ADMIN); // try to elevate role to admin
 
         when(userService.getUserById(2L)).thenReturn(Optional.of(user));
-        when(userService.updateUser(eq(2L), any(User.class)))
+        when(userService.updateUser(eq(2L), any(User.class), eq("newPass")))
                 .thenAnswer(invocation -> {
                     User u = invocation.getArgument(1);
                     user.setUsername(u.getUsername());
@@ -129,7 +141,7 @@ class UserControllerTest {
         dto.setRole(Role.ADMIN);
 
         when(userService.getUserById(2L)).thenReturn(Optional.of(user));
-        when(userService.updateUser(eq(2L), any(User.class))).thenAnswer(invocation -> invocation.getArgument(1));
+        when(userService.updateUser(eq(2L), any(User.class), eq("adminPass"))).thenAnswer(invocation -> invocation.getArgument(1));
         when(userMapper.toDto(any(User.class))).thenReturn(userDto);
 
         mockMvc.perform(patch("/users/2")
@@ -142,7 +154,7 @@ class UserControllerTest {
     @Test
     void testGetAllExpensesSelf() throws Exception {
         when(userService.getUserById(2L)).thenReturn(Optional.of(user));
-        when(expenseService.getAllExpensesForUser(user.getEmail())).thenReturn(List.of());
+        when(expenseService.getAllExpensesForUser(user.getId())).thenReturn(List.of());
 
         mockMvc.perform(get("/users/2/expenses")
                         .with(user(new CustomUserDetails(user))))
@@ -152,7 +164,7 @@ class UserControllerTest {
     @Test
     void testGetAllExpensesAdmin() throws Exception {
         when(userService.getUserById(2L)).thenReturn(Optional.of(user));
-        when(expenseService.getAllExpensesForUser(user.getEmail())).thenReturn(List.of());
+        when(expenseService.getAllExpensesForUser(user.getId())).thenReturn(List.of());
 
         mockMvc.perform(get("/users/2/expenses")
                         .with(user(new CustomUserDetails(admin))))
@@ -162,21 +174,22 @@ class UserControllerTest {
     @Test
     void testDeleteSelf() throws Exception {
         when(userService.getUserById(2L)).thenReturn(Optional.of(user));
-        doNothing().when(userService).deleteUser(2L);
+        when(userService.deleteUser(2L)).thenReturn(UserPurge.builder().userId(2L).build());
 
         mockMvc.perform(delete("/users/2")
                         .with(user(new CustomUserDetails(user))))
-                .andExpect(status().isNoContent());
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/users/2/purge"));
     }
 
     @Test
     void testDeleteUserByAdmin() throws Exception {
         when(userService.getUserById(2L)).thenReturn(Optional.of(user));
-        doNothing().when(userService).deleteUser(2L);
+        when(userService.deleteUser(2L)).thenReturn(UserPurge.builder().userId(2L).build());
 
         mockMvc.perform(delete("/users/2")
                         .with(user(new CustomUserDetails(admin))))
-                .andExpect(status().isNoContent());
+                .andExpect(status().isAccepted());
     }
 
     @Test
@@ -187,4 +200,24 @@ class UserControllerTest {
                         .with(user(new CustomUserDetails(admin))))
                 .andExpect(status().isForbidden());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBatchCreateReturnsPerRowResults() throws Exception {
+        UserBatchResponseDto response = new UserBatchResponseDto();
+        response.setCreated(1);
+        response.setResults(List.of());
+        List<UserProvisionResult> results = List.of(UserProvisionResult.created(0, user));
+        when(userProvisioningService.provision(anyList())).thenReturn(results);
+        when(userMapper.toBatchResponseDto(results)).thenReturn(response);
+
+        mockMvc.perform(post("/users/batch")
+                        .with(user(new CustomUserDetails(admin)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"username\": \"user\", \"email\": \"user@test.com\", \"password\": \"pw\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1));
+
+        verify(userProvisioningService).provision(argThat(rows -> rows.size() == 1
+                && rows.getFirst().getEmail().equals("user@test.com")));
+    }
+}
@@ -1,5 +1,6 @@
 package com.shybaiev.expense_tracker_backend.repository;
 
+import com.shybaiev.expense_tracker_backend.dto.BudgetSummaryDto;
 import com.shybaiev.expense_tracker_backend.entity.Budget;
 import com.shybaiev.expense_tracker_backend.entity.Expense;
 import com.shybaiev.expense_tracker_backend.entity.User;
@@ -98,4 +99,48 @@ class BudgetRepositoryTest {
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSummarizeAllByUserId() {
+        // given
+        User user = new User();
+        user.setEmail("summary@example.com");
+        user.setUsername("summary");
+        user.setPasswordHash("hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd");
+        user = userRepository.save(user);
+
+        Budget food = newBudget(user, "Food", "100.00");
+        Budget empty = newBudget(user, "Travel", "500.00");
+        for (String amount : List.of("60.00", "55.50")) {
+            Expense expense = new Expense();
+            expense.setUser(user);
+            expense.setBudget(food);
+            expense.setAmount(new BigDecimal(amount));
+            expense.setTimestamp(OffsetDateTime.now());
+            expenseRepository.save(expense);
+        }
+
+        // when
+        List<BudgetSummaryDto> summaries = budgetRepository.summarizeAllByUserId(user.getId());
+
+        // then
+        assertThat(summaries).extracting(BudgetSummaryDto::getBudgetId).containsExactly(food.getId(), empty.getId());
+        assertThat(summaries.get(0).getSpent()).isEqualByComparingTo("115.50");
+        assertThat(summaries.get(0).getRemaining()).isEqualByComparingTo("-15.50");
+        assertThat(summaries.get(0).getExpenseCount()).isEqualTo(2);
+        assertThat(summaries.get(1).getSpent()).isEqualByComparingTo("0");
+        assertThat(summaries.get(1).getRemaining()).isEqualByComparingTo("500.00");
+        assertThat(summaries.get(1).getExpenseCount()).isZero();
+        assertThat(budgetRepository.summarizeAllByUserId(user.getId() + 1000)).isEmpty();
+    }
+
+    private Budget newBudget(User user, String name, String amount) {
+        Budget budget = new Budget();
+        budget.setUser(user);
+        budget.setTimePeriod("MONTHLY");
+        budget.setStartDate(java.time.LocalDate.now());
+        budget.setAmount(new BigDecimal(amount));
+        budget.setName(name);
+        return budgetRepository.save(budget);
+    }
+}
@@ -0,0 +1,78 @@
+package com.shybaiev.expense_tracker_backend.repository;
+
+import com.shybaiev.expense_tracker_backend.dto.CategorySpendDto;
+import com.shybaiev.expense_tracker_backend.entity.ExpenseMonthlyRollup;
+import com.shybaiev.expense_tracker_backend.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class ExpenseMonthlyRollupRepositoryTest {
+
+    private static final LocalDate MARCH = LocalDate.of(2025, 3, 1);
+
+    @Autowired
+    private ExpenseMonthlyRollupRepository rollupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setEmail("rollup-repo@example.com");
+        user.setUsername("rollup-repo");
+        user.setPasswordHash("hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd");
+        // flushed: the rollup rows are written with bulk statements that reference the user
+        userId = userRepository.saveAndFlush(user).getId();
+    }
+
+    @Test
+    void testDeltasAndCategoryTotals() {
+        // given
+        rollupRepository.insertRow(userId, MARCH, "Food", new BigDecimal("10.00"), 1);
+        rollupRepository.insertRow(userId, MARCH, ExpenseMonthlyRollup.NO_CATEGORY, new BigDecimal("3.00"), 1);
+        rollupRepository.insertRow(userId, MARCH.plusMonths(1), "Food", new BigDecimal("99.00"), 1);
+
+        // when
+        int updated = rollupRepository.applyDelta(userId, MARCH, "Food", new BigDecimal("5.50"), 1);
+        int missing = rollupRepository.applyDelta(userId, MARCH, "Rent", new BigDecimal("1.00"), 1);
+        List<CategorySpendDto> totals = rollupRepository.findCategoryTotals(userId, MARCH);
+
+        // then
+        assertThat(updated).isEqualTo(1);
+        assertThat(missing).isZero();
+        assertThat(totals).extracting(CategorySpendDto::getCategory).containsExactly("Food", null);
+        assertThat(totals.getFirst().getTotal()).isEqualByComparingTo("15.50");
+        assertThat(totals.getFirst().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testDeleteIfEmptyKeepsNonEmptyRows() {
+        // given
+        rollupRepository.insertRow(userId, MARCH, "Food", new BigDecimal("10.00"), 1);
+        rollupRepository.insertRow(userId, MARCH, "Fuel", new BigDecimal("40.00"), 2);
+        rollupRepository.applyDelta(userId, MARCH, "Food", new BigDecimal("-10.00"), -1);
+        rollupRepository.applyDelta(userId, MARCH, "Fuel", new BigDecimal("-20.00"), -1);
+
+        // when
+        int deletedFood = rollupRepository.deleteIfEmpty(userId, MARCH, "Food");
+        int deletedFuel = rollupRepository.deleteIfEmpty(userId, MARCH, "Fuel");
+
+        // then
+        assertThat(deletedFood).isEqualTo(1);
+        assertThat(deletedFuel).isZero();
+        assertThat(rollupRepository.findCategoryTotals(userId, MARCH)).extracting(CategorySpendDto::getCategory)
+                .containsExactly("Fuel");
+    }
+}
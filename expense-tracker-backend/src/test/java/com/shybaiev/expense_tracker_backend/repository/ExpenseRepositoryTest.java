@@ -1,20 +1,41 @@
 package com.shybaiev.expense_tracker_backend.repository;
+import com.shybaiev.expense_tracker_backend.dto.BudgetWindow;
+import com.shybaiev.expense_tracker_backend.dto.CategorySpendDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseCursor;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseFilter;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
 import com.shybaiev.expense_tracker_backend.entity.Budget;
 import com.shybaiev.expense_tracker_backend.entity.Expense;
 import com.shybaiev.expense_tracker_backend.entity.User;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.shybaiev.expense_tracker_backend.repository.ExpenseRepositoryTest$RecordingStatementInspector")
 class ExpenseRepositoryTest {
 
+    // keeps the SQL Hibernate sends, so a test can check the plan of a generated query
+    public static class RecordingStatementInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
     @Autowired
     private ExpenseRepository expenseRepository;
 
@@ -24,6 +45,9 @@ class ExpenseRepositoryTest {
     @Autowired
     private BudgetRepository budgetRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     void testFindAllByUser() {
         // given
@@ -59,5 +83,187 @@ class ExpenseRepositoryTest {
         assertThat(expenses).hasSize(1);
         assertThat(expenses.getFirst().getCategory()).isEqualTo("Food");
     }
-}
 
+    @Test
+    void testMigrationsCreateExpenseIndexes() {
+        // when
+        List<String> indexes = jdbcTemplate.queryForList(
+                "select lower(index_name) from information_schema.indexes", String.class);
+
+        // then
+        assertThat(indexes).contains("idx_expense_user_timestamp_id", "idx_expense_user_category", "idx_expense_budget")
+                .doesNotContain("idx_expense_user_timestamp", "idx_users_email", "idx_users_username");
+    }
+
+    @Test
+    void testFindPageForUserSeeksThroughAllPages() {
+        // given
+        User owner = userRepository.save(newUser("owner@example.com", "owner"));
+        User other = userRepository.save(newUser("other@example.com", "other"));
+
+        OffsetDateTime base = OffsetDateTime.parse("2025-03-01T10:00:00Z");
+        Expense newest = expenseRepository.save(newExpense(owner, "Food", "10.00", base.plusDays(2)));
+        Expense tieA = expenseRepository.save(newExpense(owner, "Food", "20.00", base));
+        Expense tieB = expenseRepository.save(newExpense(owner, "Travel", "30.00", base));
+        Expense oldest = expenseRepository.save(newExpense(owner, "Food", "40.00", base.minusDays(1)));
+        expenseRepository.save(newExpense(other, "Food", "50.00", base.plusDays(5)));
+
+        // when
+        List<ExpenseView> first = expenseRepository.findPageForUser(owner.getId(), new ExpenseFilter(), null, 2);
+        List<ExpenseView> second = expenseRepository.findPageForUser(owner.getId(), new ExpenseFilter(), ExpenseCursor.of(first.getLast()), 2);
+        List<ExpenseView> third = expenseRepository.findPageForUser(owner.getId(), new ExpenseFilter(), ExpenseCursor.of(second.getLast()), 2);
+
+        // then
+        assertThat(first).extracting(ExpenseView::id).containsExactly(newest.getId(), tieB.getId());
+        assertThat(second).extracting(ExpenseView::id).containsExactly(tieA.getId(), oldest.getId());
+        assertThat(third).isEmpty();
+    }
+
+    @Test
+    void testSeekReadsThePageOffTheListingIndex() {
+        // given
+        User owner = userRepository.save(newUser("seek@example.com", "seeker"));
+        OffsetDateTime base = OffsetDateTime.parse("2025-03-01T10:00:00Z");
+        Expense cursorRow = expenseRepository.save(newExpense(owner, "Food", "10.00", base));
+        expenseRepository.flush();
+        RecordingStatementInspector.STATEMENTS.clear();
+
+        // when
+        expenseRepository.findPageForUser(owner.getId(), new ExpenseFilter(), ExpenseCursor.of(cursorRow), 2);
+
+        // then
+        String sql = RecordingStatementInspector.STATEMENTS.getLast().toLowerCase();
+        assertThat(sql).contains("(e1_0.timestamp,e1_0.id)<(?,?)").doesNotContain("is null");
+        String plan = jdbcTemplate.queryForObject("explain " + sql, String.class,
+                owner.getId(), cursorRow.getTimestamp(), cursorRow.getId(), 2);
+        assertThat(plan.toLowerCase()).contains("idx_expense_user_timestamp_id");
+    }
+
+    @Test
+    void testFindPageForUserAppliesFilters() {
+        // given
+        User owner = userRepository.save(newUser("filter@example.com", "filter"));
+        OffsetDateTime base = OffsetDateTime.parse("2025-03-01T10:00:00Z");
+        Expense inRange = expenseRepository.save(newExpense(owner, "Food", "25.00", base));
+        expenseRepository.save(newExpense(owner, "Food", "5.00", base));
+        expenseRepository.save(newExpense(owner, "Food", "25.00", base.minusMonths(1)));
+        expenseRepository.save(newExpense(owner, "Travel", "25.00", base));
+
+        ExpenseFilter filter = new ExpenseFilter();
+        filter.setCategory("Food");
+        filter.setMinAmount(new BigDecimal("10.00"));
+        filter.setMaxAmount(new BigDecimal("100.00"));
+        filter.setFrom(base.minusDays(1));
+        filter.setTo(base);
+
+        // when
+        List<ExpenseView> page = expenseRepository.findPageForUser(owner.getId(), filter, null, 10);
+
+        // then
+        assertThat(page).extracting(ExpenseView::id).containsExactly(inRange.getId());
+    }
+
+    @Test
+    void testSumByCategoryForUser() {
+        // given
+        User owner = userRepository.save(newUser("sum@example.com", "summer"));
+        User other = userRepository.save(newUser("sum-other@example.com", "other-summer"));
+        OffsetDateTime march = OffsetDateTime.parse("2025-03-01T00:00:00Z");
+        expenseRepository.save(newExpense(owner, "Food", "10.00", march));
+        expenseRepository.save(newExpense(owner, "Food", "15.50", march.plusDays(30)));
+        expenseRepository.save(newExpense(owner, "Rent", "900.00", march.plusDays(4)));
+        expenseRepository.save(newExpense(owner, null, "3.00", march.plusDays(5)));
+        expenseRepository.save(newExpense(owner, "Food", "99.00", march.plusMonths(1)));
+        expenseRepository.save(newExpense(other, "Food", "77.00", march.plusDays(1)));
+
+        // when
+        List<CategorySpendDto> totals = expenseRepository.sumByCategoryForUser(owner.getId(), march, march.plusMonths(1));
+
+        // then
+        assertThat(totals).extracting(CategorySpendDto::getCategory).containsExactly("Rent", "Food", null);
+        assertThat(totals.get(1).getTotal()).isEqualByComparingTo("25.50");
+        assertThat(totals.get(1).getCount()).isEqualTo(2);
+        assertThat(totals.get(2).getTotal()).isEqualByComparingTo("3.00");
+    }
+
+    @Test
+    void testSumByBudgetWindowsAppliesEachBudgetsOwnWindow() {
+        // given
+        User owner = userRepository.save(newUser("window@example.com", "windower"));
+        Budget weekly = budgetRepository.save(newBudget(owner, "WEEKLY"));
+        Budget monthly = budgetRepository.save(newBudget(owner, "MONTHLY"));
+        Budget idle = budgetRepository.save(newBudget(owner, "MONTHLY"));
+        OffsetDateTime march = OffsetDateTime.parse("2025-03-01T00:00:00Z");
+
+        expenseRepository.save(withBudget(newExpense(owner, "Food", "10.00", march.plusDays(1)), weekly));
+        expenseRepository.save(withBudget(newExpense(owner, "Food", "5.00", march.plusDays(7)), weekly));
+        expenseRepository.save(withBudget(newExpense(owner, "Rent", "900.00", march), monthly));
+        expenseRepository.save(withBudget(newExpense(owner, "Rent", "20.00", march.plusDays(9)), monthly));
+        expenseRepository.save(withBudget(newExpense(owner, "Rent", "50.00", march.plusMonths(1)), monthly));
+
+        // when
+        Map<Long, BigDecimal> totals = expenseRepository.sumByBudgetWindows(owner.getId(), List.of(
+                new BudgetWindow(weekly.getId(), march, march.plusDays(7)),
+                new BudgetWindow(monthly.getId(), march, march.plusMonths(1)),
+                new BudgetWindow(idle.getId(), march, march.plusMonths(1))));
+
+        // then
+        assertThat(totals).containsOnlyKeys(weekly.getId(), monthly.getId());
+        assertThat(totals.get(weekly.getId())).isEqualByComparingTo("10.00");
+        assertThat(totals.get(monthly.getId())).isEqualByComparingTo("920.00");
+        assertThat(expenseRepository.sumByBudgetWindows(owner.getId(), List.of())).isEmpty();
+    }
+
+    @Test
+    void testViewsCarryForeignKeysWithoutLoadingAssociations() {
+        // given
+        User owner = userRepository.save(newUser("view@example.com", "viewer"));
+        Budget budget = budgetRepository.save(newBudget(owner, "MONTHLY"));
+        OffsetDateTime march = OffsetDateTime.parse("2025-03-01T00:00:00Z");
+        Expense budgeted = expenseRepository.save(withBudget(newExpense(owner, "Food", "10.00", march), budget));
+        Expense loose = expenseRepository.save(newExpense(owner, "Food", "4.00", march.plusDays(1)));
+
+        // when
+        List<ExpenseView> views = expenseRepository.findViewsByCategoryAndUserId("Food", owner.getId());
+
+        // then
+        assertThat(views).extracting(ExpenseView::id).containsExactlyInAnyOrder(budgeted.getId(), loose.getId());
+        assertThat(expenseRepository.findViewByIdAndUserId(budgeted.getId(), owner.getId())).get()
+                .extracting(ExpenseView::budgetId, ExpenseView::userId)
+                .containsExactly(budget.getId(), owner.getId());
+        assertThat(expenseRepository.findViewByIdAndUserId(loose.getId(), owner.getId()).orElseThrow().budgetId()).isNull();
+        assertThat(expenseRepository.findViewByIdAndUserId(loose.getId(), owner.getId() + 1000)).isEmpty();
+    }
+
+    private Budget newBudget(User user, String timePeriod) {
+        Budget budget = new Budget();
+        budget.setUser(user);
+        budget.setTimePeriod(timePeriod);
+        budget.setStartDate(java.time.LocalDate.of(2025, 3, 1));
+        budget.setAmount(BigDecimal.valueOf(1000));
+        budget.setName(timePeriod + " budget");
+        return budget;
+    }
+
+    private Expense withBudget(Expense expense, Budget budget) {
+        expense.setBudget(budget);
+        return expense;
+    }
+
+    private User newUser(String email, String username) {
+        User user = new User();
+        user.setEmail(email);
+        user.setUsername(username);
+        user.setPasswordHash("hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd");
+        return user;
+    }
+
+    private Expense newExpense(User user, String category, String amount, OffsetDateTime timestamp) {
+        Expense expense = new Expense();
+        expense.setUser(user);
+        expense.setCategory(category);
+        expense.setAmount(new BigDecimal(amount));
+        expense.setTimestamp(timestamp);
+        return expense;
+    }
+}
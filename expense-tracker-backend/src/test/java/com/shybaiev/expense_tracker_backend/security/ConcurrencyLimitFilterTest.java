@@ -0,0 +1,110 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private GradientConcurrencyLimit limit;
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limit = new GradientConcurrencyLimit(1, 1, 10);
+        filter = new ConcurrencyLimitFilter(limit, Duration.ofSeconds(2), meterRegistry);
+    }
+
+    @Test
+    void testPassesRequestAndReleasesSlot() throws Exception {
+        // given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // when
+        filter.doFilter(new MockHttpServletRequest("GET", "/expenses"), response, chain);
+
+        // then
+        assertNotNull(chain.getRequest());
+        assertEquals(200, response.getStatus());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    void testShedsRequestAboveLimit() throws Exception {
+        // given
+        limit.tryAcquire();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        // when
+        filter.doFilter(new MockHttpServletRequest("GET", "/expenses"), response, chain);
+
+        // then
+        assertEquals(503, response.getStatus());
+        assertEquals("2", response.getHeader("Retry-After"));
+        verify(chain, never()).doFilter(any(), any());
+        assertEquals(1.0, meterRegistry.get("api.concurrency.rejected").counter().count());
+        assertEquals(1.0, meterRegistry.get("api.concurrency.in-flight").gauge().value());
+        assertEquals(1.0, meterRegistry.get("api.concurrency.limit").gauge().value());
+    }
+
+    @Test
+    void testReleasesSlotWhenChainFails() throws Exception {
+        // given
+        FilterChain chain = mock(FilterChain.class);
+        doThrow(new IllegalStateException("boom")).when(chain).doFilter(any(), any());
+
+        // when
+        assertThrows(IllegalStateException.class, () ->
+                filter.doFilter(new MockHttpServletRequest("GET", "/expenses"), new MockHttpServletResponse(), chain));
+
+        // then
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    void testActuatorIsNeverShed() throws Exception {
+        // given
+        limit.tryAcquire();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/actuator/health");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void testExportIsNeverShed() throws Exception {
+        // given
+        limit.tryAcquire();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/expenses/export");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+        assertEquals(1, limit.getInFlight());
+    }
+}
@@ -0,0 +1,117 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradientConcurrencyLimitTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+
+    @Test
+    void testRejectsOnceLimitIsInFlight() {
+        // given
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(2, 1, 10);
+
+        // when
+        boolean first = limit.tryAcquire();
+        boolean second = limit.tryAcquire();
+        boolean third = limit.tryAcquire();
+
+        // then
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(2, limit.getInFlight());
+    }
+
+    @Test
+    void testReleaseFreesSlot() {
+        // given
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(1, 1, 10);
+        limit.tryAcquire();
+
+        // when
+        limit.release(FAST);
+
+        // then
+        assertEquals(0, limit.getInFlight());
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void testLimitGrowsWhileLatencyIsSteadyUnderLoad() {
+        // given
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(10, 5, 100);
+
+        // when
+        saturate(limit, FAST, 50);
+
+        // then
+        assertTrue(limit.getLimit() > 10);
+    }
+
+    @Test
+    void testLimitShrinksWhenLatencyRises() {
+        // given
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(50, 5, 100);
+        saturate(limit, FAST, 20);
+        int before = limit.getLimit();
+
+        // when the database slows down tenfold
+        saturate(limit, FAST * 10, 50);
+
+        // then
+        assertTrue(limit.getLimit() < before);
+        assertTrue(limit.getLimit() >= 5);
+    }
+
+    @Test
+    void testLimitStaysWhileAppLimited() {
+        // given
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 5, 100);
+
+        // when one request at a time, far below the limit
+        for (int i = 0; i < 100; i++) {
+            limit.tryAcquire();
+            limit.release(FAST);
+        }
+
+        // then
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    void testLimitIsClampedToBounds() {
+        // given
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(10, 5, 12);
+
+        // when
+        saturate(limit, FAST, 200);
+
+        // then
+        assertEquals(12, limit.getLimit());
+    }
+
+    @Test
+    void testRejectsInconsistentBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new GradientConcurrencyLimit(1, 5, 10));
+        assertThrows(IllegalArgumentException.class, () -> new GradientConcurrencyLimit(5, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new GradientConcurrencyLimit(5, 5, 4));
+    }
+
+    // fills every slot, then completes the requests one by one with the given latency
+    private static void saturate(GradientConcurrencyLimit limit, long rttNanos, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int taken = 0;
+            while (limit.tryAcquire()) {
+                taken++;
+            }
+            for (int i = 0; i < taken; i++) {
+                limit.release(rttNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import com.shybaiev.expense_tracker_backend.entity.Role;
+import com.shybaiev.expense_tracker_backend.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "testSecrettestSecrettestSecrettestSecret";
+
+    private JwtUtil jwtUtil;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil(SECRET, 60_000, 100);
+
+        user = new User();
+        user.setId(42L);
+        user.setEmail("jwt@test.com");
+        user.setRole(Role.ADMIN);
+    }
+
+    @Test
+    void testVerifyReturnsClaims() {
+        // given
+        String token = jwtUtil.generateToken(user);
+
+        // when
+        Optional<JwtClaims> claims = jwtUtil.verify(token);
+
+        // then
+        assertTrue(claims.isPresent());
+        assertEquals("jwt@test.com", claims.get().subject());
+        assertEquals(42L, claims.get().userId());
+        assertEquals(Role.ADMIN, claims.get().role());
+        assertTrue(claims.get().expiresAt().isAfter(Instant.now()));
+    }
+
+    @Test
+    void testTokenIdIsCarriedAsJti() {
+        // given
+        String token = jwtUtil.generateToken(user, "3f1c2a9e-0000-4000-8000-000000000001");
+
+        // when
+        JwtClaims claims = jwtUtil.verify(token).orElseThrow();
+
+        // then
+        assertEquals("3f1c2a9e-0000-4000-8000-000000000001", claims.tokenId());
+        assertNotEquals(jwtUtil.verify(jwtUtil.generateToken(user)).orElseThrow().tokenId(),
+                jwtUtil.verify(jwtUtil.generateToken(user)).orElseThrow().tokenId());
+    }
+
+    @Test
+    void testVerifyCachesClaimsForSameToken() {
+        // given
+        String token = jwtUtil.generateToken(user);
+
+        // when
+        JwtClaims first = jwtUtil.verify(token).orElseThrow();
+        JwtClaims second = jwtUtil.verify(token).orElseThrow();
+
+        // then
+        assertSame(first, second);
+    }
+
+    @Test
+    void testVerifyRejectsTamperedToken() {
+        // given
+        String token = jwtUtil.generateToken(user);
+        jwtUtil.verify(token);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        // when + then
+        assertTrue(jwtUtil.verify(tampered).isEmpty());
+    }
+
+    @Test
+    void testVerifyRejectsTokenSignedWithOtherKey() {
+        // given
+        JwtUtil other = new JwtUtil("otherSecretotherSecretotherSecretotherSecret", 60_000, 100);
+        String token = other.generateToken(user);
+
+        // when + then
+        assertTrue(jwtUtil.verify(token).isEmpty());
+    }
+
+    @Test
+    void testVerifyRejectsExpiredToken() {
+        // given
+        JwtUtil shortLived = new JwtUtil(SECRET, -1_000, 100);
+        String token = shortLived.generateToken(user);
+
+        // when + then
+        assertTrue(jwtUtil.verify(token).isEmpty());
+        assertNull(jwtUtil.extractUsername(token));
+    }
+
+    @Test
+    void testClaimsCacheEvictsLeastRecentlyUsed() {
+        // given
+        JwtClaimsCache cache = new JwtClaimsCache(2);
+        Instant now = Instant.now();
+        JwtClaims claims = new JwtClaims("a@test.com", 1L, Role.USER, 0, "jti-1", now, now.plusSeconds(60));
+
+        // when
+        cache.put("a", claims);
+        cache.put("b", claims);
+        cache.get("a", now);
+        cache.put("c", claims);
+
+        // then
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a", now));
+        assertNull(cache.get("b", now));
+        assertNotNull(cache.get("c", now));
+    }
+
+    @Test
+    void testClaimsCacheDropsExpiredEntries() {
+        // given
+        JwtClaimsCache cache = new JwtClaimsCache(10);
+        Instant now = Instant.now();
+        cache.put("a", new JwtClaims("a@test.com", 1L, Role.USER, 0, "jti-1", now, now.plusSeconds(1)));
+
+        // when + then
+        assertNull(cache.get("a", now.plusSeconds(5)));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,140 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import com.shybaiev.expense_tracker_backend.exception.TooManyRequestsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    @Test
+    void testCalibrateTakesHighestStrengthWithinTarget() {
+        // given 10 ms at the minimum strength, every extra round doubles it
+        Duration target = Duration.ofMillis(100);
+
+        // when
+        int strength = PasswordHasher.calibrate(target, s -> Duration.ofMillis(10).toNanos());
+
+        // then 10 -> 20 -> 40 -> 80 ms, 160 ms would exceed the target
+        assertEquals(PasswordHasher.MIN_STRENGTH + 3, strength);
+    }
+
+    @Test
+    void testCalibrateKeepsMinimumOnSlowMachine() {
+        // when
+        int strength = PasswordHasher.calibrate(Duration.ofMillis(100), s -> Duration.ofMillis(500).toNanos());
+
+        // then
+        assertEquals(PasswordHasher.MIN_STRENGTH, strength);
+    }
+
+    @Test
+    void testCalibrateIsCappedAtMaximum() {
+        // when
+        int strength = PasswordHasher.calibrate(Duration.ofSeconds(10), s -> 1L);
+
+        // then
+        assertEquals(PasswordHasher.MAX_STRENGTH, strength);
+    }
+
+    @Test
+    void testEncodeAndMatchRunOnTheExecutor() {
+        // given
+        AtomicInteger submitted = new AtomicInteger();
+        Executor executor = task -> {
+            submitted.incrementAndGet();
+            task.run();
+        };
+        PasswordHasher hasher = new PasswordHasher(executor, 4, Duration.ofMillis(100));
+
+        // when
+        String hash = hasher.encode("secret123");
+
+        // then
+        assertTrue(hasher.matches("secret123", hash));
+        assertFalse(hasher.matches("wrong", hash));
+        assertEquals(3, submitted.get());
+    }
+
+    @Test
+    void testFullQueueIsRejectedWithRetryHint() {
+        // given
+        Executor full = task -> {
+            throw new TaskRejectedException("queue full");
+        };
+        PasswordHasher hasher = new PasswordHasher(full, 4, Duration.ofMillis(100));
+
+        // when
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                () -> hasher.matches("secret123", "$2a$04$abcdefghijklmnopqrstuv"));
+
+        // then
+        assertTrue(ex.getRetryAfter().isPositive());
+    }
+
+    @Test
+    void testEncodeAllHashesInParallelAndKeepsOrder() {
+        // given
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(3);
+        pool.setMaxPoolSize(3);
+        pool.setQueueCapacity(10);
+        pool.initialize();
+        PasswordHasher hasher = new PasswordHasher(pool, 4, Duration.ofMillis(100));
+        List<String> passwords = List.of("a-secret", "b-secret", "c-secret", "d-secret", "e-secret");
+
+        try {
+            // when
+            List<String> hashes = hasher.encodeAll(passwords);
+
+            // then
+            assertEquals(passwords.size(), hashes.size());
+            for (int i = 0; i < passwords.size(); i++) {
+                assertTrue(hasher.getEncoder().matches(passwords.get(i), hashes.get(i)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testEncodeAllContinuesWithWorkersThatWereAccepted() {
+        // given only the first worker fits into the queue
+        AtomicInteger submitted = new AtomicInteger();
+        Executor oneSlot = task -> {
+            if (submitted.incrementAndGet() > 1) {
+                throw new TaskRejectedException("queue full");
+            }
+            task.run();
+        };
+        PasswordHasher hasher = new PasswordHasher(oneSlot, 4, Duration.ofMillis(100));
+
+        // when
+        List<String> hashes = hasher.encodeAll(List.of("a-secret", "b-secret", "c-secret"));
+
+        // then
+        assertEquals(3, hashes.size());
+        assertTrue(hasher.getEncoder().matches("c-secret", hashes.get(2)));
+    }
+
+    @Test
+    void testNeedsRehashWhenStrengthDiffers() {
+        // given
+        PasswordHasher hasher = new PasswordHasher(Runnable::run, 5, Duration.ofMillis(100));
+
+        // then
+        assertFalse(hasher.needsRehash(new BCryptPasswordEncoder(5).encode("secret123")));
+        assertTrue(hasher.needsRehash(new BCryptPasswordEncoder(4).encode("secret123")));
+        assertTrue(hasher.needsRehash(new BCryptPasswordEncoder(6).encode("secret123")));
+        assertFalse(hasher.needsRehash("not-a-bcrypt-hash"));
+        assertFalse(hasher.needsRehash(null));
+    }
+}
@@ -0,0 +1,105 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import com.shybaiev.expense_tracker_backend.entity.RevokedAccessToken;
+import com.shybaiev.expense_tracker_backend.repository.RevokedAccessTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevokedTokenStoreTest {
+
+    @Mock
+    private RevokedAccessTokenRepository repository;
+
+    private RevokedTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new RevokedTokenStore(repository, 4);
+    }
+
+    @Test
+    void testLoadRestoresUnexpiredRevocations() {
+        // given
+        OffsetDateTime later = OffsetDateTime.now(ZoneOffset.UTC).plusMinutes(5);
+        when(repository.findAllByExpiresAtAfter(any())).thenReturn(List.of(new RevokedAccessToken("jti-1", later)));
+
+        // when
+        store.load();
+
+        // then
+        assertTrue(store.isRevoked("jti-1"));
+        assertFalse(store.isRevoked("jti-2"));
+        assertFalse(store.isRevoked(null));
+    }
+
+    @Test
+    void testRevokePersistsAndIsVisibleImmediately() {
+        // given
+        Instant later = Instant.now().plusSeconds(300);
+
+        // when
+        store.revoke("jti-1", later);
+        store.revoke("jti-1", later);
+
+        // then
+        assertTrue(store.isRevoked("jti-1"));
+        verify(repository, times(1)).save(any(RevokedAccessToken.class));
+    }
+
+    @Test
+    void testAlreadyExpiredTokensAreNotStored() {
+        // when
+        store.revoke("jti-1", Instant.now().minusSeconds(1));
+
+        // then
+        assertFalse(store.isRevoked("jti-1"));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void testFilterGrowsBeyondExpectedRevocations() {
+        // given
+        Instant later = Instant.now().plusSeconds(300);
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            store.revoke("jti-" + i, later);
+        }
+
+        // then
+        for (int i = 0; i < 20; i++) {
+            assertTrue(store.isRevoked("jti-" + i));
+        }
+        assertEquals(20, store.size());
+    }
+
+    @Test
+    void testPurgeDropsExpiredEntries() throws InterruptedException {
+        // given
+        store.revoke("short", Instant.now().plusMillis(50));
+        store.revoke("long", Instant.now().plusSeconds(300));
+        Thread.sleep(100);
+
+        // when
+        store.purgeExpired();
+
+        // then
+        assertEquals(1, store.size());
+        assertFalse(store.isRevoked("short"));
+        assertTrue(store.isRevoked("long"));
+        verify(repository).deleteExpired(any());
+    }
+}
@@ -0,0 +1,123 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserStatusCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserStatusCache userStatusCache;
+
+    @BeforeEach
+    void setUp() {
+        userStatusCache = new UserStatusCache(userRepository, 100);
+    }
+
+    @Test
+    void testIsActiveLoadsStatusOnce() {
+        // given
+        when(userRepository.findStatusById(1L)).thenReturn(Optional.of(new UserStatus(true, 0)));
+
+        // when
+        boolean first = userStatusCache.isActive(1L, 0);
+        boolean second = userStatusCache.isActive(1L, 0);
+
+        // then
+        assertTrue(first);
+        assertTrue(second);
+        verify(userRepository, times(1)).findStatusById(1L);
+    }
+
+    @Test
+    void testIsActiveRejectsOldEpochAndDisabledUser() {
+        // given
+        when(userRepository.findStatusById(1L)).thenReturn(Optional.of(new UserStatus(true, 2)));
+        when(userRepository.findStatusById(2L)).thenReturn(Optional.of(new UserStatus(false, 0)));
+
+        // when + then
+        assertFalse(userStatusCache.isActive(1L, 1));
+        assertFalse(userStatusCache.isActive(2L, 0));
+    }
+
+    @Test
+    void testIsActiveRejectsMissingUser() {
+        // given
+        when(userRepository.findStatusById(404L)).thenReturn(Optional.empty());
+
+        // when + then
+        assertFalse(userStatusCache.isActive(404L, 0));
+    }
+
+    @Test
+    void testInvalidateReloadsStatus() {
+        // given
+        when(userRepository.findStatusById(1L))
+                .thenReturn(Optional.of(new UserStatus(true, 0)))
+                .thenReturn(Optional.of(new UserStatus(false, 1)));
+        assertTrue(userStatusCache.isActive(1L, 0));
+
+        // when
+        userStatusCache.invalidate(1L);
+
+        // then
+        assertFalse(userStatusCache.isActive(1L, 0));
+        assertFalse(userStatusCache.isActive(1L, 1));
+        verify(userRepository, times(2)).findStatusById(1L);
+    }
+
+    @Test
+    void testInvalidateWaitsForCommit() {
+        // given
+        when(userRepository.findStatusById(1L))
+                .thenReturn(Optional.of(new UserStatus(true, 0)))
+                .thenReturn(Optional.of(new UserStatus(true, 1)));
+        assertTrue(userStatusCache.isActive(1L, 0));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // when
+            userStatusCache.invalidate(1L);
+
+            // then
+            assertTrue(userStatusCache.isActive(1L, 0));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertTrue(userStatusCache.isActive(1L, 1));
+        verify(userRepository, times(2)).findStatusById(1L);
+    }
+
+    @Test
+    void testLoadOverlappingInvalidationIsNotKept() {
+        // given
+        when(userRepository.findStatusById(1L))
+                .thenAnswer(inv -> {
+                    // the user is updated while the old row is being read
+                    userStatusCache.invalidate(1L);
+                    return Optional.of(new UserStatus(true, 0));
+                })
+                .thenReturn(Optional.of(new UserStatus(true, 1)));
+
+        // when
+        boolean stale = userStatusCache.isActive(1L, 0);
+
+        // then
+        assertTrue(stale);
+        assertTrue(userStatusCache.isActive(1L, 1));
+        verify(userRepository, times(2)).findStatusById(1L);
+    }
+}
@@ -0,0 +1,23 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import com.shybaiev.expense_tracker_backend.entity.Role;
+import org.springframework.security.test.context.support.WithSecurityContext;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the test as an {@link AuthenticatedUser}, the principal the JWT filter produces.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@WithSecurityContext(factory = WithAuthenticatedUserSecurityContextFactory.class)
+public @interface WithAuthenticatedUser {
+    long id() default 1L;
+
+    String email() default "testuser@email.com";
+
+    Role role() default Role.USER;
+}
@@ -0,0 +1,18 @@
+package com.shybaiev.expense_tracker_backend.security;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.support.WithSecurityContextFactory;
+
+public class WithAuthenticatedUserSecurityContextFactory implements WithSecurityContextFactory<WithAuthenticatedUser> {
+
+    @Override
+    public SecurityContext createSecurityContext(WithAuthenticatedUser annotation) {
+        AuthenticatedUser principal = new AuthenticatedUser(annotation.id(), annotation.email(), annotation.role());
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        return context;
+    }
+}
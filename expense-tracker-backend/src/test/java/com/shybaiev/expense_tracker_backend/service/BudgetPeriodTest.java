@@ -0,0 +1,69 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BudgetPeriodTest {
+
+    @Test
+    void testParseAcceptsNamesDaysAndIsoPeriods() {
+        assertEquals(Period.ofMonths(1), BudgetPeriod.parse("MONTH").length());
+        assertEquals(Period.ofMonths(1), BudgetPeriod.parse(" monthly ").length());
+        assertEquals(Period.ofWeeks(1), BudgetPeriod.parse("WEEKLY").length());
+        assertEquals(Period.ofMonths(3), BudgetPeriod.parse("QUARTER").length());
+        assertEquals(Period.ofYears(1), BudgetPeriod.parse("ANNUAL").length());
+        assertEquals(Period.ofDays(30), BudgetPeriod.parse("30").length());
+        assertEquals(Period.ofWeeks(2), BudgetPeriod.parse("P2W").length());
+    }
+
+    @Test
+    void testParseRejectsUnknownAndEmptyPeriods() {
+        assertThrows(IllegalArgumentException.class, () -> BudgetPeriod.parse("FORTNIGHTLY-ISH"));
+        assertThrows(IllegalArgumentException.class, () -> BudgetPeriod.parse("0"));
+        assertThrows(IllegalArgumentException.class, () -> BudgetPeriod.parse("P-1M"));
+        assertThrows(IllegalArgumentException.class, () -> BudgetPeriod.parse(" "));
+        assertThrows(IllegalArgumentException.class, () -> BudgetPeriod.parse(null));
+    }
+
+    @Test
+    void testWindowContainingRepeatsFromStartDate() {
+        // given
+        BudgetPeriod weekly = BudgetPeriod.parse("WEEKLY");
+        LocalDate start = LocalDate.of(2025, 3, 5);
+
+        // when
+        BudgetPeriod.Window first = weekly.windowContaining(start, start);
+        BudgetPeriod.Window later = weekly.windowContaining(start, LocalDate.of(2025, 4, 2));
+
+        // then
+        assertEquals(new BudgetPeriod.Window(start, LocalDate.of(2025, 3, 12)), first);
+        assertEquals(new BudgetPeriod.Window(LocalDate.of(2025, 4, 2), LocalDate.of(2025, 4, 9)), later);
+    }
+
+    @Test
+    void testMonthlyWindowsClampToMonthEndWithoutDrifting() {
+        // given
+        LocalDate start = LocalDate.of(2024, 1, 31);
+
+        // when
+        BudgetPeriod.Window february = BudgetPeriod.MONTHLY.windowContaining(start, LocalDate.of(2024, 3, 1));
+        BudgetPeriod.Window march = BudgetPeriod.MONTHLY.windowContaining(start, LocalDate.of(2024, 3, 31));
+
+        // then
+        assertEquals(new BudgetPeriod.Window(LocalDate.of(2024, 2, 29), LocalDate.of(2024, 3, 31)), february);
+        assertEquals(new BudgetPeriod.Window(LocalDate.of(2024, 3, 31), LocalDate.of(2024, 4, 30)), march);
+    }
+
+    @Test
+    void testWindowBeforeStartIsTheFirstWindow() {
+        // when
+        BudgetPeriod.Window window = BudgetPeriod.MONTHLY.windowContaining(LocalDate.of(2025, 6, 1), LocalDate.of(2025, 1, 1));
+
+        // then
+        assertEquals(new BudgetPeriod.Window(LocalDate.of(2025, 6, 1), LocalDate.of(2025, 7, 1)), window);
+    }
+}
@@ -1,9 +1,12 @@
 package com.shybaiev.expense_tracker_backend.service;
 
 import com.shybaiev.expense_tracker_backend.dto.BudgetCreateUpdateDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetStatusDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetView;
 import com.shybaiev.expense_tracker_backend.entity.Budget;
 import com.shybaiev.expense_tracker_backend.entity.Expense;
 import com.shybaiev.expense_tracker_backend.entity.Role;
+import com.shybaiev.expense_tracker_backend.entity.SyncTombstone;
 import com.shybaiev.expense_tracker_backend.entity.User;
 import com.shybaiev.expense_tracker_backend.mapper.BudgetMapper;
 import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
@@ -42,11 +45,20 @@ class BudgetServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private ExpenseService expenseService;
+    private BudgetStatusService budgetStatusService;
 
     @Mock
     private BudgetMapper budgetMapper;
 
+    @Mock
+    private UserDataVersions userDataVersions;
+
+    @Mock
+    private ChangeLog changeLog;
+
+    @Mock
+    private LiveUpdateHub liveUpdateHub;
+
     @InjectMocks
     private BudgetService budgetService;
 
@@ -89,34 +101,54 @@ class BudgetServiceTest {
     @Test
     void testCreateBudgetForUser() {
         // given
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
         when(budgetMapper.toEntity(budgetCreateUpdateDto)).thenReturn(existingBudget);
         when(budgetRepository.save(any(Budget.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(changeLog.next(1L)).thenReturn(3L);
 
         // when
-        Budget result = budgetService.createBudgetForUser(budgetCreateUpdateDto, "email@test.com");
+        Budget result = budgetService.createBudgetForUser(budgetCreateUpdateDto, 1L);
 
         // then
         assertEquals(new BigDecimal("100.00"), result.getAmount());
         assertEquals(user, result.getUser());
+        assertEquals(3L, result.getChangeVersion());
+        verify(liveUpdateHub).publish(eq(1L), argThat(update ->
+                update.get().name().equals("budget.created") && update.get().cursor() == 3L));
 
         verify(budgetRepository).save(existingBudget);
+        verify(userRepository, never()).findByEmail(anyString());
     }
 
 
     @Test
     void testGetBudgetByIdForUser() {
         // given
-        when(budgetRepository.findById(existingBudget.getId())).thenReturn(Optional.of(existingBudget));
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
+        BudgetView view = new BudgetView(existingBudget.getId(), existingBudget.getAmount(), existingBudget.getName(),
+                null, existingBudget.getTimePeriod(), existingBudget.getStartDate(), 1L);
+        when(budgetRepository.findViewByIdAndUserId(existingBudget.getId(), 1L)).thenReturn(Optional.of(view));
 
         // when
-        Optional<Budget> result = budgetService.getBudgetByIdForUser(existingBudget.getId(),"email@test.com");
+        Optional<BudgetView> result = budgetService.getBudgetByIdForUser(existingBudget.getId(), 1L);
 
         // then
         assertTrue(result.isPresent());
-        assertEquals(existingBudget, result.get());
-        verify(budgetRepository).findById(existingBudget.getId());
+        assertEquals(view, result.get());
+        verify(budgetRepository).findViewByIdAndUserId(existingBudget.getId(), 1L);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testGetBudgetByIdForUser_OtherUsersBudget() {
+        // given
+        when(budgetRepository.findViewByIdAndUserId(existingBudget.getId(), 2L)).thenReturn(Optional.empty());
+
+        // when
+        Optional<BudgetView> result = budgetService.getBudgetByIdForUser(existingBudget.getId(), 2L);
+
+        // then
+        assertFalse(result.isPresent());
+        verify(budgetRepository, never()).findById(anyLong());
     }
 
     @Test
@@ -129,34 +161,47 @@ class BudgetServiceTest {
         budgetCreateUpdateDtoUpdated.setTimePeriod("WEEKLY");
         budgetCreateUpdateDtoUpdated.setStartDate(LocalDate.of(2024, 2, 1));
 
-        when(budgetRepository.findById(1L)).thenReturn(Optional.of(existingBudget));
+        when(budgetRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(existingBudget));
         when(budgetRepository.save(any(Budget.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
+        when(changeLog.next(1L)).thenReturn(4L);
 
         // when
-        Budget result = budgetService.updateBudgetForUser(1L, budgetCreateUpdateDtoUpdated,"email@test.com");
+        Budget result = budgetService.updateBudgetForUser(1L, budgetCreateUpdateDtoUpdated, 1L);
 
         // then
         assertEquals(new BigDecimal("250.50"), result.getAmount());
+        assertEquals(4L, result.getChangeVersion());
         assertEquals("Updated Name", result.getName());
         assertEquals("Updated Desc", result.getDescription());
         assertEquals("WEEKLY", result.getTimePeriod());
         assertEquals(LocalDate.of(2024, 2, 1), result.getStartDate());
 
-        verify(budgetRepository).findById(1L);
+        verify(budgetRepository).findByIdAndUserId(1L, 1L);
         verify(budgetRepository).save(existingBudget);
     }
 
     @Test
     void testUpdateBudgetNotFound() {
         // given
-        when(budgetRepository.findById(999L)).thenReturn(Optional.empty());
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
+        when(budgetRepository.findByIdAndUserId(999L, 1L)).thenReturn(Optional.empty());
+        when(budgetRepository.existsById(999L)).thenReturn(false);
 
         // when + then
-        assertThrows(EntityNotFoundException.class, () -> budgetService.updateBudgetForUser(999L, budgetCreateUpdateDto,"email@test.com"));
+        assertThrows(EntityNotFoundException.class, () -> budgetService.updateBudgetForUser(999L, budgetCreateUpdateDto, 1L));
+
+        verify(budgetRepository).findByIdAndUserId(999L, 1L);
+        verify(budgetRepository, never()).save(any(Budget.class));
+    }
+
+    @Test
+    void testUpdateBudgetAccessDenied() {
+        // given
+        when(budgetRepository.findByIdAndUserId(1L, 2L)).thenReturn(Optional.empty());
+        when(budgetRepository.existsById(1L)).thenReturn(true);
+
+        // when + then
+        assertThrows(AccessDeniedException.class, () -> budgetService.updateBudgetForUser(1L, budgetCreateUpdateDto, 2L));
 
-        verify(budgetRepository).findById(999L);
         verify(budgetRepository, never()).save(any(Budget.class));
     }
 
@@ -166,38 +211,19 @@ class BudgetServiceTest {
         Expense expense = new Expense();
         expense.setId(1L);
 
-        User user = new User();
-        user.setId(100L);
-        user.setEmail("email@test.com");
-
         Budget budget = new Budget();
         budget.setId(10L);
         budget.setUser(user);
 
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(budgetRepository.findByExpenses(expense)).thenReturn(Optional.of(budget));
+        when(budgetRepository.findByExpenseIdAndUserId(1L, 1L)).thenReturn(Optional.of(budget));
 
         // when
-        Budget result = budgetService.getBudgetByExpenseForUser(expense, "email@test.com");
+        Budget result = budgetService.getBudgetByExpenseForUser(expense, 1L);
 
         // then
         assertEquals(budget, result);
-        verify(userRepository).findByEmail("email@test.com");
-        verify(budgetRepository).findByExpenses(expense);
-    }
-
-    @Test
-    void testGetBudgetByExpenseForUser_UserNotFound() {
-        Expense expense = new Expense();
-        expense.setId(1L);
-
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.empty());
-
-        assertThrows(EntityNotFoundException.class,
-                () -> budgetService.getBudgetByExpenseForUser(expense, "email@test.com"));
-
-        verify(userRepository).findByEmail("email@test.com");
-        verifyNoInteractions(budgetRepository);
+        verify(budgetRepository).findByExpenseIdAndUserId(1L, 1L);
+        verify(budgetRepository, never()).findByExpenses(any(Expense.class));
     }
 
     @Test
@@ -205,17 +231,12 @@ class BudgetServiceTest {
         Expense expense = new Expense();
         expense.setId(1L);
 
-        User user = new User();
-        user.setId(100L);
-        user.setEmail("email@test.com");
-
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
+        when(budgetRepository.findByExpenseIdAndUserId(1L, 1L)).thenReturn(Optional.empty());
         when(budgetRepository.findByExpenses(expense)).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class,
-                () -> budgetService.getBudgetByExpenseForUser(expense, "email@test.com"));
+                () -> budgetService.getBudgetByExpenseForUser(expense, 1L));
 
-        verify(userRepository).findByEmail("email@test.com");
         verify(budgetRepository).findByExpenses(expense);
     }
 
@@ -224,10 +245,6 @@ class BudgetServiceTest {
         Expense expense = new Expense();
         expense.setId(1L);
 
-        User currentUser = new User();
-        currentUser.setId(100L);
-        currentUser.setEmail("email@test.com");
-
         User anotherUser = new User();
         anotherUser.setId(200L);
         anotherUser.setEmail("other@test.com");
@@ -236,85 +253,53 @@ class BudgetServiceTest {
         budget.setId(10L);
         budget.setUser(anotherUser);
 
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(currentUser));
+        when(budgetRepository.findByExpenseIdAndUserId(1L, 1L)).thenReturn(Optional.empty());
         when(budgetRepository.findByExpenses(expense)).thenReturn(Optional.of(budget));
 
         assertThrows(AccessDeniedException.class,
-                () -> budgetService.getBudgetByExpenseForUser(expense, "email@test.com"));
+                () -> budgetService.getBudgetByExpenseForUser(expense, 1L));
 
-        verify(userRepository).findByEmail("email@test.com");
         verify(budgetRepository).findByExpenses(expense);
     }
 
     @Test
     void testDeleteBudgetForUser_Success() {
         // given
-        User user = new User();
-        user.setId(100L);
-        user.setEmail("email@test.com");
-
-        Budget budget = new Budget();
-        budget.setId(10L);
-        budget.setUser(user);
-
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(budgetRepository.findById(10L)).thenReturn(Optional.of(budget));
+        when(budgetRepository.deleteByIdAndUserId(10L, 1L)).thenReturn(1);
+        when(changeLog.deleted(1L, SyncTombstone.Type.BUDGET, 10L)).thenReturn(8L);
 
         // when
-        budgetService.deleteBudgetForUser(10L, "email@test.com");
+        budgetService.deleteBudgetForUser(10L, 1L);
 
         // then
-        verify(budgetRepository).delete(budget);
-    }
-
-    @Test
-    void testDeleteBudgetForUser_UserNotFound() {
-        // given
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.empty());
-
-        // when + then
-        assertThrows(EntityNotFoundException.class,
-                () -> budgetService.deleteBudgetForUser(10L, "email@test.com"));
-
-        verifyNoInteractions(budgetRepository);
+        verify(budgetRepository).deleteByIdAndUserId(10L, 1L);
+        verify(changeLog).deleted(1L, SyncTombstone.Type.BUDGET, 10L);
+        verify(userDataVersions).bump(1L);
+        verify(liveUpdateHub).publish(eq(1L), argThat(update -> update.get().equals(LiveUpdate.deleted("budget.deleted", 8L, 10L))));
+        verify(budgetRepository, never()).existsById(anyLong());
     }
 
     @Test
     void testDeleteBudgetForUser_BudgetNotFound() {
         // given
-        User user = new User();
-        user.setId(100L);
-        user.setEmail("email@test.com");
-
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(budgetRepository.findById(10L)).thenReturn(Optional.empty());
+        when(budgetRepository.deleteByIdAndUserId(10L, 1L)).thenReturn(0);
+        when(budgetRepository.existsById(10L)).thenReturn(false);
 
         // when + then
         assertThrows(EntityNotFoundException.class,
-                () -> budgetService.deleteBudgetForUser(10L, "email@test.com"));
+                () -> budgetService.deleteBudgetForUser(10L, 1L));
+        verifyNoInteractions(changeLog);
     }
 
     @Test
     void testDeleteBudgetForUser_AccessDenied() {
         // given
-        User user = new User();
-        user.setId(100L);
-        user.setEmail("email@test.com");
-
-        User anotherUser = new User();
-        anotherUser.setId(200L);
-        anotherUser.setEmail("other@test.com");
-
-        Budget budget = new Budget();
-        budget.setId(10L);
-        budget.setUser(anotherUser);
-
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(budgetRepository.findById(10L)).thenReturn(Optional.of(budget));
+        when(budgetRepository.deleteByIdAndUserId(10L, 1L)).thenReturn(0);
+        when(budgetRepository.existsById(10L)).thenReturn(true);
 
         // when + then
         assertThrows(AccessDeniedException.class,
-                () -> budgetService.deleteBudgetForUser(10L, "email@test.com"));
+                () -> budgetService.deleteBudgetForUser(10L, 1L));
 
         verify(budgetRepository, never()).delete(any(Budget.class));
     }
@@ -322,138 +307,93 @@ class BudgetServiceTest {
     @Test
     void testGetTotalExpensesForBudgetForUser_Success() {
         // given
-        User user = new User();
-        user.setId(100L);
-        user.setEmail("email@test.com");
-
-        Budget budget = new Budget();
-        budget.setId(10L);
-        budget.setUser(user);
-
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.getTotalExpensesByBudget(budget)).thenReturn(new BigDecimal("123.45"));
+        when(expenseRepository.getTotalExpensesByBudgetIdAndUserId(10L, 1L))
+                .thenReturn(Optional.of(new BigDecimal("123.45")));
 
         // when
-        BigDecimal total = budgetService.getTotalExpensesForBudgetForUser(budget, "email@test.com");
+        BigDecimal total = budgetService.getTotalExpensesForBudgetForUser(10L, 1L);
 
         // then
         assertEquals(new BigDecimal("123.45"), total);
-        verify(userRepository).findByEmail("email@test.com");
-        verify(expenseRepository).getTotalExpensesByBudget(budget);
+        verify(expenseRepository).getTotalExpensesByBudgetIdAndUserId(10L, 1L);
+        verify(budgetRepository, never()).existsById(anyLong());
     }
 
     @Test
-    void testGetTotalExpensesForBudgetForUser_UserNotFound() {
+    void testGetTotalExpensesForBudgetForUser_BudgetNotFound() {
         // given
-        Budget budget = new Budget();
-        budget.setId(10L);
-
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.empty());
+        when(expenseRepository.getTotalExpensesByBudgetIdAndUserId(10L, 1L)).thenReturn(Optional.empty());
+        when(budgetRepository.existsById(10L)).thenReturn(false);
 
         // when + then
         assertThrows(EntityNotFoundException.class,
-                () -> budgetService.getTotalExpensesForBudgetForUser(budget, "email@test.com"));
-
-        verifyNoInteractions(expenseRepository);
+                () -> budgetService.getTotalExpensesForBudgetForUser(10L, 1L));
     }
 
     @Test
     void testGetTotalExpensesForBudgetForUser_AccessDenied() {
         // given
-        User user = new User();
-        user.setId(100L);
-        user.setEmail("email@test.com");
-
-        User anotherUser = new User();
-        anotherUser.setId(200L);
-        anotherUser.setEmail("other@test.com");
-
-        Budget budget = new Budget();
-        budget.setId(10L);
-        budget.setUser(anotherUser);
-
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
+        when(expenseRepository.getTotalExpensesByBudgetIdAndUserId(10L, 1L)).thenReturn(Optional.empty());
+        when(budgetRepository.existsById(10L)).thenReturn(true);
 
         // when + then
         assertThrows(AccessDeniedException.class,
-                () -> budgetService.getTotalExpensesForBudgetForUser(budget, "email@test.com"));
-
-        verify(expenseRepository, never()).getTotalExpensesByBudget(any(Budget.class));
+                () -> budgetService.getTotalExpensesForBudgetForUser(10L, 1L));
     }
 
     @Test
     void testIsUserOverBudgetInMonthForUser_NoBudgets() {
         // given
-        User user = new User();
-        user.setEmail("email@test.com");
-        user.setBudgets(new ArrayList<>());
-
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
+        when(budgetStatusService.getBudgetStatusesForUser(1L, LocalDate.of(2024, 2, 29))).thenReturn(List.of());
 
         // when
-        boolean result = budgetService.isUserOverBudgetInMonthForUser("email@test.com", YearMonth.of(2024, 2));
+        boolean result = budgetService.isUserOverBudgetInMonthForUser(1L, YearMonth.of(2024, 2));
 
         // then
         assertFalse(result);
-        verifyNoInteractions(expenseService);
     }
 
     @Test
     void testIsUserOverBudgetInMonthForUser_NotOver() {
         // given
-        User user = new User();
-        user.setId(1L);
-        user.setEmail("email@test.com");
-
-        Budget budget = new Budget();
-        budget.setAmount(new BigDecimal("100.00"));
-        user.setBudgets(new ArrayList<>(List.of(budget)));
-
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseService.getTotalExpensesForUserInMonth(user.getEmail(), YearMonth.of(2024, 2)))
-                .thenReturn(new BigDecimal("99.99"));
+        when(budgetStatusService.getBudgetStatusesForUser(1L, LocalDate.of(2024, 2, 29)))
+                .thenReturn(List.of(status(false), status(false)));
 
         // when
-        boolean result = budgetService.isUserOverBudgetInMonthForUser("email@test.com", YearMonth.of(2024, 2));
+        boolean result = budgetService.isUserOverBudgetInMonthForUser(1L, YearMonth.of(2024, 2));
 
         // then
         assertFalse(result);
-        verify(expenseService).getTotalExpensesForUserInMonth(user.getEmail(), YearMonth.of(2024, 2));
     }
 
     @Test
     void testIsUserOverBudgetInMonthForUser_Over() {
         // given
-        User user = new User();
-        user.setId(1L);
-        user.setEmail("email@test.com");
-
-        Budget budget = new Budget();
-        budget.setAmount(new BigDecimal("100.00"));
-        user.setBudgets(new ArrayList<>(List.of(budget)));
-
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseService.getTotalExpensesForUserInMonth(user.getEmail(), YearMonth.of(2024, 2)))
-                .thenReturn(new BigDecimal("150.00"));
+        when(budgetStatusService.getBudgetStatusesForUser(1L, LocalDate.of(2024, 2, 29)))
+                .thenReturn(List.of(status(false), status(true)));
 
         // when
-        boolean result = budgetService.isUserOverBudgetInMonthForUser("email@test.com", YearMonth.of(2024, 2));
+        boolean result = budgetService.isUserOverBudgetInMonthForUser(1L, YearMonth.of(2024, 2));
 
         // then
         assertTrue(result);
-        verify(expenseService).getTotalExpensesForUserInMonth(user.getEmail(), YearMonth.of(2024, 2));
     }
 
     @Test
-    void testIsUserOverBudgetInMonthForUser_UserNotFound() {
+    void testCreateBudgetForUser_UnsupportedTimePeriod() {
         // given
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.empty());
+        budgetCreateUpdateDto.setTimePeriod("FORTNIGHTLY-ISH");
 
         // when + then
-        assertThrows(EntityNotFoundException.class,
-                () -> budgetService.isUserOverBudgetInMonthForUser("email@test.com", YearMonth.of(2024, 2)));
+        assertThrows(IllegalArgumentException.class,
+                () -> budgetService.createBudgetForUser(budgetCreateUpdateDto, 1L));
+        verifyNoInteractions(budgetRepository);
+    }
 
-        verifyNoInteractions(expenseService);
+    private static BudgetStatusDto status(boolean overBudget) {
+        BudgetStatusDto status = new BudgetStatusDto();
+        status.setOverBudget(overBudget);
+        return status;
     }
 
 }
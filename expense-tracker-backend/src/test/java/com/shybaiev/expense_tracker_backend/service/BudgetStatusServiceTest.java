@@ -0,0 +1,108 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.BudgetStatusDto;
+import com.shybaiev.expense_tracker_backend.dto.BudgetWindow;
+import com.shybaiev.expense_tracker_backend.entity.Budget;
+import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BudgetStatusServiceTest {
+
+    @Mock
+    private BudgetRepository budgetRepository;
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @InjectMocks
+    private BudgetStatusService budgetStatusService;
+
+    @Test
+    void testGetBudgetStatusesForUser_OneQueryForAllWindows() {
+        // given
+        Budget weekly = budget(1L, "WEEKLY", "50.00", LocalDate.of(2025, 3, 3));
+        Budget monthly = budget(2L, "MONTHLY", "400.00", LocalDate.of(2025, 1, 15));
+        when(budgetRepository.findAllByUserId(7L)).thenReturn(List.of(weekly, monthly));
+        when(expenseRepository.sumByBudgetWindows(eq(7L), anyCollection()))
+                .thenReturn(Map.of(1L, new BigDecimal("62.50")));
+
+        // when
+        List<BudgetStatusDto> statuses = budgetStatusService.getBudgetStatusesForUser(7L, LocalDate.of(2025, 3, 20));
+
+        // then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BudgetWindow>> windows = ArgumentCaptor.forClass(List.class);
+        verify(expenseRepository, times(1)).sumByBudgetWindows(eq(7L), windows.capture());
+        assertEquals(List.of(
+                new BudgetWindow(1L, OffsetDateTime.parse("2025-03-17T00:00Z"), OffsetDateTime.parse("2025-03-24T00:00Z")),
+                new BudgetWindow(2L, OffsetDateTime.parse("2025-03-15T00:00Z"), OffsetDateTime.parse("2025-04-15T00:00Z"))),
+                windows.getValue());
+
+        BudgetStatusDto over = statuses.get(0);
+        assertEquals(new BigDecimal("62.50"), over.getSpent());
+        assertEquals(new BigDecimal("-12.50"), over.getRemaining());
+        assertEquals(new BigDecimal("125.00"), over.getPercentUsed());
+        assertTrue(over.isOverBudget());
+
+        BudgetStatusDto untouched = statuses.get(1);
+        assertEquals(LocalDate.of(2025, 3, 15), untouched.getWindowStart());
+        assertEquals(0, untouched.getSpent().signum());
+        assertEquals(new BigDecimal("400.00"), untouched.getRemaining());
+        assertFalse(untouched.isOverBudget());
+    }
+
+    @Test
+    void testGetBudgetStatusesForUser_NoBudgetsSkipsExpenseQuery() {
+        // given
+        when(budgetRepository.findAllByUserId(7L)).thenReturn(List.of());
+
+        // when
+        List<BudgetStatusDto> statuses = budgetStatusService.getBudgetStatusesForUser(7L, LocalDate.of(2025, 3, 20));
+
+        // then
+        assertTrue(statuses.isEmpty());
+        verifyNoInteractions(expenseRepository);
+    }
+
+    @Test
+    void testGetBudgetStatusesForUser_LegacyPeriodFallsBackToMonthly() {
+        // given
+        Budget legacy = budget(3L, "whenever", "100.00", null);
+        when(budgetRepository.findAllByUserId(7L)).thenReturn(List.of(legacy));
+        when(expenseRepository.sumByBudgetWindows(eq(7L), anyCollection())).thenReturn(Map.of());
+
+        // when
+        List<BudgetStatusDto> statuses = budgetStatusService.getBudgetStatusesForUser(7L, LocalDate.of(2025, 3, 20));
+
+        // then
+        assertEquals(LocalDate.of(2025, 3, 1), statuses.getFirst().getWindowStart());
+        assertEquals(LocalDate.of(2025, 4, 1), statuses.getFirst().getWindowEnd());
+    }
+
+    private static Budget budget(Long id, String timePeriod, String amount, LocalDate startDate) {
+        Budget budget = new Budget();
+        budget.setId(id);
+        budget.setName(timePeriod);
+        budget.setTimePeriod(timePeriod);
+        budget.setAmount(new BigDecimal(amount));
+        budget.setStartDate(startDate);
+        return budget;
+    }
+}
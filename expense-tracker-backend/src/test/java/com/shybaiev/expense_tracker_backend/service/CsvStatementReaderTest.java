@@ -0,0 +1,63 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvStatementReaderTest {
+
+    @Test
+    void testReadsRowsByHeaderName() throws IOException {
+        // given
+        String csv = "\uFEFFBooking Date,Payee,Amount,Memo,Reference\r\n"
+                + "2025-03-01,Bakery,-4.20,\"Bread, rolls\",A1\r\n"
+                + "\r\n"
+                + "2025-03-02,\"Cafe \"\"Blue\"\"\",-3.00,\"two\nlines\",A2\r\n";
+
+        try (CsvStatementReader reader = new CsvStatementReader(new StringReader(csv))) {
+            // when
+            StatementRow first = reader.next();
+            StatementRow second = reader.next();
+
+            // then
+            assertEquals(new StatementRow(2, "2025-03-01", "-4.20", "Bread, rolls", "Bakery", null, "A1"), first);
+            assertEquals(new StatementRow(4, "2025-03-02", "-3.00", "two\nlines", "Cafe \"Blue\"", null, "A2"), second);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void testDetectsSemicolonDelimiter() throws IOException {
+        // given
+        String csv = "date;amount;category\n01.03.2025;-1.234,50;Rent\n";
+
+        try (CsvStatementReader reader = new CsvStatementReader(new StringReader(csv))) {
+            // when
+            StatementRow row = reader.next();
+
+            // then
+            assertEquals("01.03.2025", row.date());
+            assertEquals("-1.234,50", row.amount());
+            assertEquals("Rent", row.category());
+            assertNull(row.description());
+        }
+    }
+
+    @Test
+    void testRejectsHeaderWithoutAmount() throws IOException {
+        try (CsvStatementReader reader = new CsvStatementReader(new StringReader("date,memo\n2025-03-01,x\n"))) {
+            assertThrows(IOException.class, reader::next);
+        }
+    }
+
+    @Test
+    void testRejectsUnterminatedQuote() throws IOException {
+        try (CsvStatementReader reader = new CsvStatementReader(new StringReader("date,amount\n2025-03-01,\"-1.00\n"))) {
+            IOException error = assertThrows(IOException.class, reader::next);
+            assertTrue(error.getMessage().contains("line 2"));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.shybaiev.expense_tracker_backend.entity.Budget;
+import com.shybaiev.expense_tracker_backend.entity.Expense;
+import com.shybaiev.expense_tracker_backend.exception.TooManyRequestsException;
+import com.shybaiev.expense_tracker_backend.mapper.ExpenseMapper;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseExportServiceTest {
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private ExpenseExportService exportService;
+
+    private Expense lunch;
+    private Expense rent;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        exportService = new ExpenseExportService(expenseRepository, new ExpenseMapper(), objectMapper, entityManager, 1);
+
+        Budget budget = new Budget();
+        budget.setId(5L);
+
+        lunch = new Expense();
+        lunch.setId(1L);
+        lunch.setAmount(new BigDecimal("12.50"));
+        lunch.setCategory("Food");
+        lunch.setDescription("Lunch, with \"friends\"");
+        lunch.setTimestamp(OffsetDateTime.parse("2025-03-01T12:00:00Z"));
+        lunch.setBudget(budget);
+
+        rent = new Expense();
+        rent.setId(2L);
+        rent.setAmount(new BigDecimal("900.00"));
+        rent.setCategory("Housing");
+    }
+
+    @Test
+    void testExportCsv() throws Exception {
+        // given
+        AtomicBoolean closed = new AtomicBoolean();
+        when(expenseRepository.streamAllByUserId(1L))
+                .thenReturn(Stream.of(lunch, rent).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        exportService.exportExpensesForUser(1L, ExportFormat.CSV, out);
+
+        // then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals(ExpenseExportService.CSV_HEADER, lines[0]);
+        assertEquals("1,2025-03-01T12:00Z,12.50,Food,\"Lunch, with \"\"friends\"\"\",,,5", lines[1]);
+        assertEquals("2,,900.00,Housing,,,,", lines[2]);
+        assertTrue(closed.get());
+        verify(entityManager).detach(lunch);
+        verify(entityManager).detach(rent);
+    }
+
+    @Test
+    void testExportNdjson() throws Exception {
+        // given
+        when(expenseRepository.streamAllByUserId(1L)).thenReturn(Stream.of(lunch, rent));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        exportService.exportExpensesForUser(1L, ExportFormat.NDJSON, out);
+
+        // then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[0].contains("\"budgetId\":5"));
+        assertTrue(lines[1].startsWith("{\"id\":2,"));
+        verify(entityManager, times(2)).detach(any(Expense.class));
+    }
+
+    @Test
+    void testExportEmptyHistory() throws Exception {
+        // given
+        when(expenseRepository.streamAllByUserId(1L)).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        exportService.exportExpensesForUser(1L, ExportFormat.NDJSON, out);
+
+        // then
+        assertEquals(0, out.size());
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void testUnsupportedFormat() {
+        assertThrows(IllegalArgumentException.class, () -> ExportFormat.fromParam("xml"));
+        assertEquals(ExportFormat.NDJSON, ExportFormat.fromParam("ndjson"));
+    }
+
+    @Test
+    void testConcurrentExportsAreBounded() {
+        // given
+        ExpenseExportService.Slot slot = exportService.acquireSlot();
+
+        // when + then
+        assertThrows(TooManyRequestsException.class, exportService::acquireSlot);
+        slot.close();
+        exportService.acquireSlot().close();
+    }
+}
@@ -0,0 +1,231 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.CategorySpendDto;
+import com.shybaiev.expense_tracker_backend.entity.ExpenseMonthlyRollup;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseMonthlyRollupRepository;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.service.ExpenseRollupService.Contribution;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseRollupServiceTest {
+
+    private static final OffsetDateTime MARCH = OffsetDateTime.parse("2025-03-15T10:00:00Z");
+    private static final LocalDate MARCH_START = LocalDate.of(2025, 3, 1);
+
+    @Mock
+    private ExpenseMonthlyRollupRepository rollupRepository;
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserDataVersions userDataVersions;
+
+    @InjectMocks
+    private ExpenseRollupService rollupService;
+
+    @Test
+    void testAddedUpdatesExistingRow() {
+        // given
+        when(rollupRepository.applyDelta(1L, MARCH_START, "Food", new BigDecimal("12.00"), 1)).thenReturn(1);
+
+        // when
+        rollupService.added(1L, new Contribution(MARCH, "Food", new BigDecimal("12.00")));
+
+        // then
+        verify(rollupRepository, never()).insertRow(anyLong(), any(), anyString(), any(), anyLong());
+    }
+
+    @Test
+    void testAddedInsertsMissingRow() {
+        // given
+        when(rollupRepository.applyDelta(anyLong(), any(), anyString(), any(), anyLong())).thenReturn(0);
+
+        // when
+        rollupService.added(1L, new Contribution(MARCH, null, new BigDecimal("12.00")));
+
+        // then
+        InOrder inOrder = inOrder(userRepository, rollupRepository);
+        inOrder.verify(userRepository).lockRowById(1L);
+        inOrder.verify(rollupRepository).applyDelta(1L, MARCH_START, ExpenseMonthlyRollup.NO_CATEGORY, new BigDecimal("12.00"), 1);
+        inOrder.verify(rollupRepository).insertRow(1L, MARCH_START, ExpenseMonthlyRollup.NO_CATEGORY, new BigDecimal("12.00"), 1);
+    }
+
+    @Test
+    void testAddedAllAppliesOneDeltaPerRow() {
+        // given
+        when(rollupRepository.applyDelta(anyLong(), any(), anyString(), any(), anyLong())).thenReturn(1);
+
+        // when
+        rollupService.addedAll(1L, List.of(
+                new Contribution(MARCH, "Food", new BigDecimal("12.00")),
+                new Contribution(MARCH.plusDays(3), "Food", new BigDecimal("3.50")),
+                new Contribution(MARCH.plusMonths(1), "Food", new BigDecimal("1.00")),
+                new Contribution(null, "Food", new BigDecimal("99.00"))));
+
+        // then
+        verify(rollupRepository).applyDelta(1L, MARCH_START, "Food", new BigDecimal("15.50"), 2);
+        verify(rollupRepository).applyDelta(1L, MARCH_START.plusMonths(1), "Food", new BigDecimal("1.00"), 1);
+        verifyNoMoreInteractions(rollupRepository);
+    }
+
+    @Test
+    void testRemovedSubtractsAndDropsEmptyRow() {
+        // given
+        when(rollupRepository.applyDelta(1L, MARCH_START, "Food", new BigDecimal("-12.00"), -1)).thenReturn(1);
+
+        // when
+        rollupService.removed(1L, new Contribution(MARCH, "Food", new BigDecimal("12.00")));
+
+        // then
+        verify(rollupRepository).deleteIfEmpty(1L, MARCH_START, "Food");
+        verify(rollupRepository, never()).insertRow(anyLong(), any(), anyString(), any(), anyLong());
+    }
+
+    @Test
+    void testChangedAmountInSameRowAppliesDifference() {
+        // when
+        rollupService.changed(1L,
+                new Contribution(MARCH, "Food", new BigDecimal("12.00")),
+                new Contribution(MARCH.plusDays(2), "Food", new BigDecimal("20.00")));
+
+        // then
+        verify(rollupRepository).applyDelta(1L, MARCH_START, "Food", new BigDecimal("8.00"), 0);
+        verifyNoMoreInteractions(rollupRepository);
+    }
+
+    @Test
+    void testChangedCategoryMovesContribution() {
+        // given
+        when(rollupRepository.applyDelta(anyLong(), any(), anyString(), any(), anyLong())).thenReturn(1);
+
+        // when
+        rollupService.changed(1L,
+                new Contribution(MARCH, "Food", new BigDecimal("12.00")),
+                new Contribution(MARCH.plusMonths(1), "Fuel", new BigDecimal("12.00")));
+
+        // then
+        verify(rollupRepository).applyDelta(1L, MARCH_START, "Food", new BigDecimal("-12.00"), -1);
+        verify(rollupRepository).applyDelta(1L, LocalDate.of(2025, 4, 1), "Fuel", new BigDecimal("12.00"), 1);
+    }
+
+    @Test
+    void testChangedWithoutEffectDoesNothing() {
+        // when
+        rollupService.changed(1L,
+                new Contribution(MARCH, "Food", new BigDecimal("12.00")),
+                new Contribution(MARCH.plusHours(1), "Food", new BigDecimal("12.0")));
+
+        // then
+        verifyNoInteractions(rollupRepository);
+    }
+
+    @Test
+    void testUndatedExpenseIsNotRolledUp() {
+        // when
+        rollupService.added(1L, new Contribution(null, "Food", new BigDecimal("12.00")));
+
+        // then
+        verifyNoInteractions(rollupRepository);
+    }
+
+    @Test
+    void testVerifyAndRepairLeavesMatchingRollup() {
+        // given
+        when(userRepository.lockRowById(1L)).thenReturn(Optional.of(1L));
+        when(expenseRepository.findFirstTimestampByUserId(1L)).thenReturn(Optional.of(MARCH));
+        when(expenseRepository.findLastTimestampByUserId(1L)).thenReturn(Optional.of(MARCH));
+        when(expenseRepository.sumByCategoryForUser(eq(1L), any(), any()))
+                .thenReturn(List.of(new CategorySpendDto("Food", new BigDecimal("25.50"), 2)));
+        when(rollupRepository.findAllByUserId(1L)).thenReturn(List.of(row("Food", "25.5", 2)));
+
+        // when
+        boolean repaired = rollupService.verifyAndRepair(1L);
+
+        // then
+        assertFalse(repaired);
+        verify(rollupRepository, never()).deleteAllByUserId(anyLong());
+        verifyNoInteractions(userDataVersions);
+    }
+
+    @Test
+    void testVerifyAndRepairRebuildsDriftedRollup() {
+        // given
+        when(userRepository.lockRowById(1L)).thenReturn(Optional.of(1L));
+        when(expenseRepository.findFirstTimestampByUserId(1L)).thenReturn(Optional.of(MARCH));
+        when(expenseRepository.findLastTimestampByUserId(1L)).thenReturn(Optional.of(MARCH.plusMonths(1)));
+        when(expenseRepository.sumByCategoryForUser(eq(1L), any(), any()))
+                .thenReturn(List.of(new CategorySpendDto("Food", new BigDecimal("25.50"), 2)));
+        when(rollupRepository.findAllByUserId(1L)).thenReturn(List.of(row("Food", "10.00", 1)));
+
+        // when
+        boolean repaired = rollupService.verifyAndRepair(1L);
+
+        // then
+        assertTrue(repaired);
+        verify(expenseRepository, times(2)).sumByCategoryForUser(eq(1L), any(), any());
+        verify(rollupRepository).deleteAllByUserId(1L);
+        verify(rollupRepository).insertRow(1L, MARCH_START, "Food", new BigDecimal("25.50"), 2);
+        verify(rollupRepository).insertRow(1L, LocalDate.of(2025, 4, 1), "Food", new BigDecimal("25.50"), 2);
+        verify(userDataVersions).bump(1L);
+    }
+
+    @Test
+    void testVerifyAndRepairLocksUserBeforeRecomputing() {
+        // given
+        when(userRepository.lockRowById(1L)).thenReturn(Optional.of(1L));
+        when(expenseRepository.findFirstTimestampByUserId(1L)).thenReturn(Optional.empty());
+        when(expenseRepository.findLastTimestampByUserId(1L)).thenReturn(Optional.empty());
+
+        // when
+        rollupService.verifyAndRepair(1L);
+
+        // then
+        InOrder inOrder = inOrder(userRepository, expenseRepository);
+        inOrder.verify(userRepository).lockRowById(1L);
+        inOrder.verify(expenseRepository).findFirstTimestampByUserId(1L);
+    }
+
+    @Test
+    void testVerifyAndRepairSkipsRemovedUser() {
+        // given
+        when(userRepository.lockRowById(1L)).thenReturn(Optional.empty());
+
+        // when
+        boolean repaired = rollupService.verifyAndRepair(1L);
+
+        // then
+        assertFalse(repaired);
+        verifyNoInteractions(expenseRepository, rollupRepository, userDataVersions);
+    }
+
+    private ExpenseMonthlyRollup row(String category, String total, long count) {
+        return ExpenseMonthlyRollup.builder()
+                .userId(1L)
+                .monthStart(MARCH_START)
+                .category(category)
+                .total(new BigDecimal(total))
+                .expenseCount(count)
+                .build();
+    }
+}
@@ -1,33 +1,46 @@
 package com.shybaiev.expense_tracker_backend.service;
 
+import com.shybaiev.expense_tracker_backend.dto.CategorySpendDto;
 import com.shybaiev.expense_tracker_backend.dto.ExpenseCreateUpdateDto;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseCursor;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseFilter;
+import com.shybaiev.expense_tracker_backend.dto.ExpenseView;
+import com.shybaiev.expense_tracker_backend.dto.MonthlySpendDto;
 import com.shybaiev.expense_tracker_backend.entity.Expense;
 import com.shybaiev.expense_tracker_backend.entity.Role;
+import com.shybaiev.expense_tracker_backend.entity.SyncTombstone;
 import com.shybaiev.expense_tracker_backend.entity.User;
 import com.shybaiev.expense_tracker_backend.entity.Budget;
 import com.shybaiev.expense_tracker_backend.mapper.ExpenseMapper;
+import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
 import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
 import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.access.AccessDeniedException;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.YearMonth;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +51,19 @@ public class ExpenseServiceTest {
     private UserRepository userRepository;
     @Mock
     private ExpenseMapper expenseMapper;
+    @Mock
+    private ExpenseRollupService expenseRollupService;
+    @Mock
+    private BudgetRepository budgetRepository;
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private UserDataVersions userDataVersions;
+    @Mock
+    private ChangeLog changeLog;
+    @Mock
+    private LiveUpdateHub liveUpdateHub;
     @InjectMocks
     private ExpenseService expenseService;
 
@@ -86,87 +112,68 @@ public class ExpenseServiceTest {
     @Test
     void testCreateExpenseForUser() {
         // given
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
         when(expenseMapper.toEntity(expenseCreateUpdateDto)).thenReturn(expense);
         when(expenseRepository.save(any(Expense.class))).thenAnswer(i -> i.getArgument(0));
+        when(changeLog.next(1L)).thenReturn(5L);
 
         // when
-        Expense result = expenseService.createExpenseForUser(expenseCreateUpdateDto, "email@test.com");
+        Expense result = expenseService.createExpenseForUser(expenseCreateUpdateDto, 1L);
 
         // then
         assertEquals(new BigDecimal("123.45"), result.getAmount());
         assertEquals(user, result.getUser());
+        assertEquals(5L, result.getChangeVersion());
+        // the payload is left to the hub, which builds it only for open streams
+        verify(expenseMapper, never()).toDto(any(Expense.class));
+        verify(liveUpdateHub).publish(eq(1L), argThat(update ->
+                update.get().name().equals("expense.created") && update.get().cursor() == 5L));
         verify(expenseRepository).save(expense);
-    }
-
-    @Test
-    void testCreateExpenseForUser_UserNotFound() {
-        // given
-        when(userRepository.findByEmail("nonexistent@test.com")).thenReturn(Optional.empty());
-
-        // when + then
-        assertThrows(IllegalArgumentException.class,
-                () -> expenseService.createExpenseForUser(expenseCreateUpdateDto, "nonexistent@test.com"));
-
-        verify(userRepository).findByEmail("nonexistent@test.com");
-        verifyNoInteractions(expenseRepository);
+        verify(expenseRollupService).added(1L, ExpenseRollupService.Contribution.of(expense));
+        verify(userRepository, never()).findByEmail(anyString());
     }
 
     @Test
     void testGetExpenseByIdForUser() {
         // given
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findById(1L)).thenReturn(Optional.of(expense));
+        ExpenseView view = view(1L, "Food", OffsetDateTime.now());
+        when(expenseRepository.findViewByIdAndUserId(1L, 1L)).thenReturn(Optional.of(view));
 
         // when
-        Optional<Expense> result = expenseService.getExpenseByIdForUser(1L, "email@test.com");
+        Optional<ExpenseView> result = expenseService.getExpenseByIdForUser(1L, 1L);
 
         // then
         assertTrue(result.isPresent());
-        assertEquals(expense, result.get());
-        verify(expenseRepository).findById(1L);
+        assertEquals(view, result.get());
+        verify(expenseRepository).findViewByIdAndUserId(1L, 1L);
+        verify(expenseRepository, never()).findByIdAndUserId(anyLong(), anyLong());
+        verifyNoInteractions(userRepository);
     }
 
     @Test
     void testGetExpenseByIdForUser_ExpenseNotFound() {
         // given
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findById(404L)).thenReturn(Optional.empty());
+        when(expenseRepository.findViewByIdAndUserId(404L, 1L)).thenReturn(Optional.empty());
 
         // when
-        Optional<Expense> result = expenseService.getExpenseByIdForUser(404L, "email@test.com");
+        Optional<ExpenseView> result = expenseService.getExpenseByIdForUser(404L, 1L);
 
         // then
         assertFalse(result.isPresent());
-        verify(expenseRepository).findById(404L);
-    }
-
-    @Test
-    void testGetExpenseByIdForUser_UserNotFound() {
-        // given
-        when(userRepository.findByEmail("nonexistent@test.com")).thenReturn(Optional.empty());
-
-        // when + then
-        assertThrows(EntityNotFoundException.class,
-                () -> expenseService.getExpenseByIdForUser(1L, "nonexistent@test.com"));
-
-        verify(userRepository).findByEmail("nonexistent@test.com");
-        verifyNoInteractions(expenseRepository);
+        verify(expenseRepository).findViewByIdAndUserId(404L, 1L);
     }
 
     @Test
     void testGetExpenseByIdForUser_ExpenseNotBelongsToUser() {
         // given
-        expense.setUser(otherUser);
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findById(1L)).thenReturn(Optional.of(expense));
+        when(expenseRepository.findViewByIdAndUserId(1L, 2L)).thenReturn(Optional.empty());
 
         // when
-        Optional<Expense> result = expenseService.getExpenseByIdForUser(1L, "email@test.com");
+        Optional<ExpenseView> result = expenseService.getExpenseByIdForUser(1L, 2L);
 
         // then
         assertFalse(result.isPresent());
-        verify(expenseRepository).findById(1L);
+        verify(expenseRepository, never()).findById(anyLong());
     }
 
     @Test
@@ -180,123 +187,91 @@ public class ExpenseServiceTest {
         updated.setSource("new source");
         updated.setTimestamp(OffsetDateTime.now().minusDays(1));
 
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findById(1L)).thenReturn(Optional.of(expense));
+        ExpenseRollupService.Contribution before = ExpenseRollupService.Contribution.of(expense);
+        when(expenseRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(expense));
         when(expenseRepository.save(any(Expense.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(changeLog.next(1L)).thenReturn(6L);
 
         // when
-        Expense result = expenseService.updateExpenseForUser(1L, updated, "email@test.com");
+        Expense result = expenseService.updateExpenseForUser(1L, updated, 1L);
 
         // then
         assertEquals(BigDecimal.valueOf(200), result.getAmount());
+        assertEquals(6L, result.getChangeVersion());
         assertEquals("new desc", result.getDescription());
         assertEquals("new place", result.getPlace());
         assertEquals("new category", result.getCategory());
         assertEquals("new source", result.getSource());
         assertEquals(updated.getTimestamp(), result.getTimestamp());
 
-        verify(expenseRepository).findById(1L);
+        verify(expenseRepository).findByIdAndUserId(1L, 1L);
         verify(expenseRepository).save(expense);
+        verify(expenseRepository, never()).existsById(anyLong());
+        verify(expenseRollupService).changed(1L, before, new ExpenseRollupService.Contribution(
+                updated.getTimestamp(), "new category", BigDecimal.valueOf(200)));
     }
 
     @Test
     void testUpdateExpenseForUser_ExpenseNotFound() {
         // given
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findById(999L)).thenReturn(Optional.empty());
+        when(expenseRepository.findByIdAndUserId(999L, 1L)).thenReturn(Optional.empty());
+        when(expenseRepository.existsById(999L)).thenReturn(false);
 
         // when + then
         assertThrows(EntityNotFoundException.class,
-                () -> expenseService.updateExpenseForUser(999L, new ExpenseCreateUpdateDto(), "email@test.com"));
+                () -> expenseService.updateExpenseForUser(999L, new ExpenseCreateUpdateDto(), 1L));
 
-        verify(expenseRepository).findById(999L);
+        verify(expenseRepository).findByIdAndUserId(999L, 1L);
         verify(expenseRepository, never()).save(any());
     }
 
-    @Test
-    void testUpdateExpenseForUser_UserNotFound() {
-        // given
-        when(userRepository.findByEmail("nonexistent@test.com")).thenReturn(Optional.empty());
-
-        // when + then
-        assertThrows(EntityNotFoundException.class,
-                () -> expenseService.updateExpenseForUser(1L, new ExpenseCreateUpdateDto(), "nonexistent@test.com"));
-
-        verify(userRepository).findByEmail("nonexistent@test.com");
-        verifyNoInteractions(expenseRepository);
-    }
-
     @Test
     void testUpdateExpenseForUser_AccessDenied() {
         // given
-        expense.setUser(otherUser);
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findById(1L)).thenReturn(Optional.of(expense));
+        when(expenseRepository.findByIdAndUserId(1L, 2L)).thenReturn(Optional.empty());
+        when(expenseRepository.existsById(1L)).thenReturn(true);
 
         // when + then
         assertThrows(AccessDeniedException.class,
-                () -> expenseService.updateExpenseForUser(1L, new ExpenseCreateUpdateDto(), "email@test.com"));
+                () -> expenseService.updateExpenseForUser(1L, new ExpenseCreateUpdateDto(), 2L));
 
-        verify(expenseRepository).findById(1L);
+        verify(expenseRepository).findByIdAndUserId(1L, 2L);
         verify(expenseRepository, never()).save(any());
     }
 
     @Test
     void testGetAllExpensesForUser() {
         // given
-        Expense e1 = new Expense();
-        e1.setUser(user);
-        e1.setAmount(BigDecimal.TEN);
-        e1.setTimestamp(OffsetDateTime.now());
-
-        Expense e2 = new Expense();
-        e2.setUser(user);
-        e2.setAmount(BigDecimal.ONE);
-        e2.setTimestamp(OffsetDateTime.now());
+        ExpenseView e1 = view(1L, "Food", OffsetDateTime.now());
+        ExpenseView e2 = view(2L, "Rent", OffsetDateTime.now());
 
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findAllByUser(user)).thenReturn(List.of(e1, e2));
+        when(expenseRepository.findViewsByUserId(1L)).thenReturn(List.of(e1, e2));
 
         // when
-        List<Expense> result = expenseService.getAllExpensesForUser("email@test.com");
+        List<ExpenseView> result = expenseService.getAllExpensesForUser(1L);
 
         // then
         assertEquals(2, result.size());
         assertTrue(result.containsAll(List.of(e1, e2)));
-        verify(expenseRepository).findAllByUser(user);
-    }
-
-    @Test
-    void testGetAllExpensesForUser_UserNotFound() {
-        // given
-        when(userRepository.findByEmail("nonexistent@test.com")).thenReturn(Optional.empty());
-
-        // when + then
-        assertThrows(EntityNotFoundException.class,
-                () -> expenseService.getAllExpensesForUser("nonexistent@test.com"));
-
-        verify(userRepository).findByEmail("nonexistent@test.com");
-        verifyNoInteractions(expenseRepository);
+        verify(expenseRepository).findViewsByUserId(1L);
+        verifyNoInteractions(userRepository);
     }
 
     @Test
     void testGetExpensesByCategoryForUser() {
         // given
         String category = "food";
-        Expense e1 = new Expense();
-        e1.setCategory(category);
-        e1.setUser(user);
+        ExpenseView e1 = view(1L, category, OffsetDateTime.now());
 
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findAllByCategoryAndUser(category, user)).thenReturn(List.of(e1));
+        when(expenseRepository.findViewsByCategoryAndUserId(category, 1L)).thenReturn(List.of(e1));
 
         // when
-        List<Expense> result = expenseService.getExpensesByCategoryForUser(category, "email@test.com");
+        List<ExpenseView> result = expenseService.getExpensesByCategoryForUser(category, 1L);
 
         // then
         assertEquals(1, result.size());
-        assertEquals(category, result.getFirst().getCategory());
-        verify(expenseRepository).findAllByCategoryAndUser(category, user);
+        assertEquals(category, result.getFirst().category());
+        verify(expenseRepository).findViewsByCategoryAndUserId(category, 1L);
     }
 
     @Test
@@ -304,171 +279,317 @@ public class ExpenseServiceTest {
         // given
         OffsetDateTime from = OffsetDateTime.now().minusDays(7).withOffsetSameInstant(ZoneOffset.UTC);
         OffsetDateTime to = OffsetDateTime.now().withOffsetSameInstant(ZoneOffset.UTC);
-        Expense e1 = new Expense();
-        e1.setUser(user);
-        e1.setTimestamp(from.plusDays(1));
+        ExpenseView e1 = view(1L, "Food", from.plusDays(1));
 
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findAllByTimestampBetweenAndUser(from, to, user)).thenReturn(List.of(e1));
+        when(expenseRepository.findViewsByTimestampBetweenAndUserId(from, to, 1L)).thenReturn(List.of(e1));
 
         // when
-        List<Expense> result = expenseService.getExpensesByDateRangeForUser(from, to, "email@test.com");
+        List<ExpenseView> result = expenseService.getExpensesByDateRangeForUser(from, to, 1L);
 
         // then
         assertEquals(1, result.size());
-        verify(expenseRepository).findAllByTimestampBetweenAndUser(from, to, user);
+        verify(expenseRepository).findViewsByTimestampBetweenAndUserId(from, to, 1L);
     }
 
     @Test
     void testDeleteExpenseForUser_Success() {
         // given
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findById(1L)).thenReturn(Optional.of(expense));
+        when(expenseRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(expense));
 
         // when
-        expenseService.deleteExpenseForUser(1L, "email@test.com");
+        expenseService.deleteExpenseForUser(1L, 1L);
 
         // then
-        verify(expenseRepository).findById(1L);
-        verify(expenseRepository).deleteById(1L);
+        verify(expenseRepository).delete(expense);
+        verify(expenseRollupService).removed(1L, ExpenseRollupService.Contribution.of(expense));
+        verify(changeLog).deleted(1L, SyncTombstone.Type.EXPENSE, 1L);
+        verify(userDataVersions).bump(1L);
+        verify(liveUpdateHub).publish(eq(1L), argThat(update -> update.get().name().equals("expense.deleted")));
+        verify(expenseRepository, never()).existsById(anyLong());
     }
 
     @Test
     void testDeleteExpenseForUser_ExpenseNotFound() {
         // given
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findById(999L)).thenReturn(Optional.empty());
+        when(expenseRepository.findByIdAndUserId(999L, 1L)).thenReturn(Optional.empty());
+        when(expenseRepository.existsById(999L)).thenReturn(false);
 
         // when + then
         assertThrows(EntityNotFoundException.class,
-                () -> expenseService.deleteExpenseForUser(999L, "email@test.com"));
+                () -> expenseService.deleteExpenseForUser(999L, 1L));
 
-        verify(expenseRepository).findById(999L);
-        verify(expenseRepository, never()).deleteById(anyLong());
+        verify(expenseRepository, never()).delete(any(Expense.class));
+        verifyNoInteractions(expenseRollupService, userDataVersions, changeLog);
     }
 
     @Test
-    void testDeleteExpenseForUser_UserNotFound() {
+    void testDeleteExpenseForUser_AccessDenied() {
         // given
-        when(userRepository.findByEmail("nonexistent@test.com")).thenReturn(Optional.empty());
+        when(expenseRepository.findByIdAndUserId(1L, 2L)).thenReturn(Optional.empty());
+        when(expenseRepository.existsById(1L)).thenReturn(true);
 
         // when + then
-        assertThrows(EntityNotFoundException.class,
-                () -> expenseService.deleteExpenseForUser(1L, "nonexistent@test.com"));
+        assertThrows(AccessDeniedException.class,
+                () -> expenseService.deleteExpenseForUser(1L, 2L));
 
-        verify(userRepository).findByEmail("nonexistent@test.com");
-        verifyNoInteractions(expenseRepository);
+        verify(expenseRepository, never()).delete(any(Expense.class));
+        verifyNoInteractions(expenseRollupService);
     }
 
     @Test
-    void testDeleteExpenseForUser_AccessDenied() {
+    void testGetTotalExpensesForUserInMonth() {
         // given
-        expense.setUser(otherUser);
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findById(1L)).thenReturn(Optional.of(expense));
+        YearMonth ym = YearMonth.of(2024, 2);
+        when(expenseRollupService.getCategoryTotals(1L, LocalDate.of(2024, 2, 1)))
+                .thenReturn(List.of(
+                        new CategorySpendDto("food", new BigDecimal("10.50"), 2),
+                        new CategorySpendDto(null, new BigDecimal("5.25"), 1)));
 
-        // when + then
-        assertThrows(AccessDeniedException.class,
-                () -> expenseService.deleteExpenseForUser(1L, "email@test.com"));
+        // when
+        BigDecimal total = expenseService.getTotalExpensesForUserInMonth(1L, ym);
 
-        verify(expenseRepository).findById(1L);
-        verify(expenseRepository, never()).deleteById(anyLong());
+        // then
+        assertEquals(new BigDecimal("15.75"), total);
+        verify(expenseRepository, never()).sumByCategoryForUser(anyLong(), any(), any());
     }
 
     @Test
-    void testGetTotalExpensesForUserInMonth() {
+    void testGetMonthlySpendForUser() {
         // given
         YearMonth ym = YearMonth.of(2024, 2);
-        Expense e1 = new Expense();
-        e1.setAmount(new BigDecimal("10.50"));
-        e1.setUser(user);
+        List<CategorySpendDto> categories = List.of(
+                new CategorySpendDto("rent", new BigDecimal("900.00"), 1),
+                new CategorySpendDto("food", new BigDecimal("120.40"), 7));
+        when(expenseRollupService.getCategoryTotals(1L, LocalDate.of(2024, 2, 1))).thenReturn(categories);
 
-        Expense e2 = new Expense();
-        e2.setAmount(new BigDecimal("5.25"));
-        e2.setUser(user);
+        // when
+        MonthlySpendDto spend = expenseService.getMonthlySpendForUser(1L, ym);
 
-        Expense e3 = new Expense(); // null amount should be skipped
-        e3.setAmount(null);
-        e3.setUser(user);
+        // then
+        assertEquals(ym, spend.getMonth());
+        assertEquals(new BigDecimal("1020.40"), spend.getTotal());
+        assertEquals(8, spend.getCount());
+        assertEquals(categories, spend.getCategories());
+    }
 
-        ArgumentCaptor<OffsetDateTime> startCaptor = ArgumentCaptor.forClass(OffsetDateTime.class);
-        ArgumentCaptor<OffsetDateTime> endCaptor = ArgumentCaptor.forClass(OffsetDateTime.class);
+    @Test
+    void testGetMonthlySpendForUser_NoExpenses() {
+        // given
+        when(expenseRollupService.getCategoryTotals(1L, LocalDate.of(2024, 2, 1))).thenReturn(List.of());
 
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findAllByTimestampBetweenAndUser(any(OffsetDateTime.class), any(OffsetDateTime.class), eq(user)))
-                .thenReturn(List.of(e1, e2, e3));
+        // when
+        MonthlySpendDto spend = expenseService.getMonthlySpendForUser(1L, YearMonth.of(2024, 2));
+
+        // then
+        assertEquals(BigDecimal.ZERO, spend.getTotal());
+        assertEquals(0, spend.getCount());
+        assertTrue(spend.getCategories().isEmpty());
+    }
+
+    @Test
+    void testGetAllExpensesByBudgetForUser_Success() {
+        // given
+        ExpenseView e1 = view(1L, "Food", OffsetDateTime.now());
+        ExpenseView e2 = view(2L, "Food", OffsetDateTime.now());
+
+        when(expenseRepository.findViewsByBudgetIdAndUserId(10L, 1L)).thenReturn(List.of(e1, e2));
 
         // when
-        BigDecimal total = expenseService.getTotalExpensesForUserInMonth("email@test.com", ym);
+        List<ExpenseView> result = expenseService.getAllExpensesByBudgetForUser(10L, 1L);
 
         // then
-        assertEquals(new BigDecimal("15.75"), total);
+        assertEquals(2, result.size());
+        verify(expenseRepository).findViewsByBudgetIdAndUserId(10L, 1L);
+    }
+
+    @Test
+    void testGetAllExpensesByBudgetForUser_OtherUsersBudget() {
+        // given
+        when(expenseRepository.findViewsByBudgetIdAndUserId(10L, 2L)).thenReturn(List.of());
+
+        // when
+        List<ExpenseView> result = expenseService.getAllExpensesByBudgetForUser(10L, 2L);
 
-        verify(expenseRepository).findAllByTimestampBetweenAndUser(startCaptor.capture(), endCaptor.capture(), eq(user));
+        // then
+        assertTrue(result.isEmpty());
+        verify(expenseRepository, never()).findAllByBudget(any(Budget.class));
+    }
 
-        OffsetDateTime start = startCaptor.getValue();
-        OffsetDateTime end = endCaptor.getValue();
+    @Test
+    void testGetExpensePageForUser_HasNextPage() {
+        // given
+        ExpenseView e1 = view(3L, "Food", OffsetDateTime.parse("2025-03-02T10:00:00Z"));
+        ExpenseView e2 = view(2L, "Food", OffsetDateTime.parse("2025-03-01T10:00:00Z"));
+        ExpenseView extra = view(1L, "Food", null);
+        ExpenseFilter filter = new ExpenseFilter();
 
-        assertEquals(1, start.getDayOfMonth());
-        assertEquals(0, start.getHour());
-        assertEquals(0, start.getMinute());
-        assertEquals(0, start.getSecond());
-        assertEquals(ZoneOffset.UTC, start.getOffset());
+        when(expenseRepository.findPageForUser(1L, filter, null, 3)).thenReturn(List.of(e1, e2, extra));
 
-        assertEquals(ym.atEndOfMonth().getDayOfMonth(), end.getDayOfMonth());
-        assertEquals(23, end.getHour());
-        assertEquals(59, end.getMinute());
-        assertEquals(59, end.getSecond());
-        assertEquals(ZoneOffset.UTC, end.getOffset());
+        // when
+        ExpensePage page = expenseService.getExpensePageForUser(1L, filter, null, 2);
+
+        // then
+        assertEquals(List.of(e1, e2), page.items());
+        assertEquals(new ExpenseCursor(e2.timestamp(), 2L), page.next());
     }
 
     @Test
-    void testGetTotalExpensesForUserInMonth_UserNotFound() {
+    void testGetExpensePageForUser_LastPage() {
         // given
-        when(userRepository.findByEmail("nonexistent@test.com")).thenReturn(Optional.empty());
+        ExpenseView e1 = view(1L, "Food", null);
+        ExpenseFilter filter = new ExpenseFilter();
+        ExpenseCursor cursor = new ExpenseCursor(OffsetDateTime.parse("2025-03-01T10:00:00Z"), 5L);
 
-        // when + then
-        assertThrows(EntityNotFoundException.class,
-                () -> expenseService.getTotalExpensesForUserInMonth("nonexistent@test.com", YearMonth.of(2024, 1)));
+        when(expenseRepository.findPageForUser(1L, filter, cursor, 3)).thenReturn(List.of(e1));
 
-        verify(userRepository).findByEmail("nonexistent@test.com");
-        verifyNoInteractions(expenseRepository);
+        // when
+        ExpensePage page = expenseService.getExpensePageForUser(1L, filter, cursor.encode(), 2);
+
+        // then
+        assertEquals(List.of(e1), page.items());
+        assertNull(page.next());
     }
 
     @Test
-    void testGetAllExpensesByBudgetForUser_Success() {
+    void testGetExpensePageForUser_LimitIsCapped() {
         // given
-        Budget budget = new Budget();
-        budget.setUser(user);
-        Expense e1 = new Expense();
-        e1.setUser(user);
-        Expense e2 = new Expense();
-        e2.setUser(user);
+        ExpenseFilter filter = new ExpenseFilter();
+        when(expenseRepository.findPageForUser(1L, filter, null, ExpenseService.MAX_PAGE_SIZE + 1)).thenReturn(List.of());
 
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
-        when(expenseRepository.findAllByBudget(budget)).thenReturn(List.of(e1, e2));
+        // when
+        ExpensePage page = expenseService.getExpensePageForUser(1L, filter, null, 10_000);
+
+        // then
+        assertTrue(page.items().isEmpty());
+        verify(expenseRepository).findPageForUser(1L, filter, null, ExpenseService.MAX_PAGE_SIZE + 1);
+    }
+
+    @Test
+    void testGetExpensePageForUser_InvalidArguments() {
+        ExpenseFilter reversed = new ExpenseFilter();
+        reversed.setFrom(OffsetDateTime.parse("2025-03-02T10:00:00Z"));
+        reversed.setTo(OffsetDateTime.parse("2025-03-01T10:00:00Z"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> expenseService.getExpensePageForUser(1L, new ExpenseFilter(), null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> expenseService.getExpensePageForUser(1L, reversed, null, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> expenseService.getExpensePageForUser(1L, new ExpenseFilter(), "not a cursor", 10));
+
+        verifyNoInteractions(expenseRepository);
+    }
+
+    @Test
+    void testCreateExpensesForUser_PersistsInFlushedChunks() {
+        // given
+        List<ExpenseCreateUpdateDto> dtos = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            ExpenseCreateUpdateDto dto = new ExpenseCreateUpdateDto();
+            dto.setAmount(new BigDecimal("2.00"));
+            dto.setCategory("Food");
+            dtos.add(dto);
+        }
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
+        when(expenseMapper.toEntity(any(ExpenseCreateUpdateDto.class))).thenAnswer(inv -> {
+            Expense mapped = new Expense();
+            mapped.setAmount(inv.<ExpenseCreateUpdateDto>getArgument(0).getAmount());
+            return mapped;
+        });
+        when(changeLog.next(1L)).thenReturn(9L);
 
         // when
-        List<Expense> result = expenseService.getAllExpensesByBudgetForUser(budget, "email@test.com");
+        List<Expense> saved = expenseService.createExpensesForUser(dtos, 1L);
 
         // then
-        assertEquals(2, result.size());
-        verify(expenseRepository).findAllByBudget(budget);
+        assertEquals(120, saved.size());
+        assertTrue(saved.stream().allMatch(e -> e.getUser() == user && e.getTimestamp() != null));
+        assertTrue(saved.stream().allMatch(e -> e.getChangeVersion() == 9L));
+        verify(changeLog, times(1)).next(1L);
+        verify(liveUpdateHub).publish(eq(1L), argThat(update -> update.get().equals(LiveUpdate.changes(9L))));
+        verify(entityManager, times(120)).persist(any(Expense.class));
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+        verify(expenseRollupService).addedAll(eq(1L), argThat(list -> list.size() == 120));
+        verifyNoInteractions(budgetRepository);
     }
 
     @Test
-    void testGetAllExpensesByBudgetForUser_AccessDenied() {
+    void testCreateExpensesForUser_RejectsInvalidRowBeforeWriting() {
         // given
-        Budget budget = new Budget();
-        budget.setUser(otherUser);
+        ExpenseCreateUpdateDto valid = new ExpenseCreateUpdateDto();
+        valid.setAmount(new BigDecimal("1.00"));
+        ExpenseCreateUpdateDto zero = new ExpenseCreateUpdateDto();
+        zero.setAmount(BigDecimal.ZERO);
 
-        when(userRepository.findByEmail("email@test.com")).thenReturn(Optional.of(user));
+        // when
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> expenseService.createExpensesForUser(List.of(valid, zero), 1L));
+
+        // then
+        assertTrue(error.getMessage().startsWith("Expense 1:"));
+        verifyNoInteractions(entityManager, expenseRollupService);
+    }
+
+    @Test
+    void testCreateExpensesForUser_RejectsForeignBudget() {
+        // given
+        ExpenseCreateUpdateDto first = new ExpenseCreateUpdateDto();
+        first.setAmount(new BigDecimal("1.00"));
+        first.setBudgetId(5L);
+        ExpenseCreateUpdateDto second = new ExpenseCreateUpdateDto();
+        second.setAmount(new BigDecimal("1.00"));
+        second.setBudgetId(6L);
+        when(budgetRepository.countByUserIdAndIdIn(1L, Set.of(5L, 6L))).thenReturn(1L);
 
         // when + then
-        assertThrows(AccessDeniedException.class,
-                () -> expenseService.getAllExpensesByBudgetForUser(budget, "email@test.com"));
+        assertThrows(IllegalArgumentException.class,
+                () -> expenseService.createExpensesForUser(List.of(first, second), 1L));
+        verifyNoInteractions(entityManager);
+    }
 
-        verify(userRepository).findByEmail("email@test.com");
-        verifyNoInteractions(expenseRepository);
+    @Test
+    void testImportExpensesForUser_SkipsKnownAndRepeatedFingerprints() {
+        // given
+        Expense known = imported("aaa");
+        Expense fresh = imported("bbb");
+        Expense repeated = imported("bbb");
+        when(expenseRepository.findExistingFingerprints(eq(1L), eq(Set.of("aaa", "bbb")))).thenReturn(List.of("aaa"));
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
+
+        // when
+        List<Expense> inserted = expenseService.importExpensesForUser(List.of(known, fresh, repeated), 1L);
+
+        // then
+        assertEquals(List.of(fresh), inserted);
+        verify(entityManager).persist(fresh);
+        verify(entityManager, never()).persist(known);
+        verify(entityManager, never()).persist(repeated);
+        verify(expenseRollupService).addedAll(eq(1L), argThat(list -> list.size() == 1));
+    }
+
+    @Test
+    void testImportExpensesForUser_NothingNewTakesNoChangeVersion() {
+        // given
+        Expense known = imported("aaa");
+        when(expenseRepository.findExistingFingerprints(1L, Set.of("aaa"))).thenReturn(List.of("aaa"));
+
+        // when
+        List<Expense> inserted = expenseService.importExpensesForUser(List.of(known), 1L);
+
+        // then
+        assertTrue(inserted.isEmpty());
+        verifyNoInteractions(changeLog, entityManager, userDataVersions, liveUpdateHub);
+    }
+
+    private static Expense imported(String fingerprint) {
+        Expense imported = new Expense();
+        imported.setAmount(new BigDecimal("1.00"));
+        imported.setFingerprint(fingerprint);
+        return imported;
+    }
+
+    private static ExpenseView view(Long id, String category, OffsetDateTime timestamp) {
+        return new ExpenseView(id, BigDecimal.TEN, null, null, category, null, timestamp, null, 1L);
     }
-}
\ No newline at end of file
+}
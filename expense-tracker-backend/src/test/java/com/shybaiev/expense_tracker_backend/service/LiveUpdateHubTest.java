@@ -0,0 +1,139 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class LiveUpdateHubTest {
+
+    private final List<Runnable> queued = new ArrayList<>();
+    // drain tasks are held back, so events pile up in the subscriber buffers
+    private final TaskExecutor heldBack = queued::add;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LiveUpdateHub hub;
+
+    @BeforeEach
+    void setUp() {
+        // room for the ready event and one update
+        hub = new LiveUpdateHub(mock(ChangeLog.class), heldBack, meterRegistry,
+                3, 2, 2, Duration.ofMinutes(1), Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testConnectionsPerUserAreCapped() {
+        // given
+        hub.subscribe(1L);
+        hub.subscribe(1L);
+
+        // when
+        TooManyRequestsException error = assertThrows(TooManyRequestsException.class, () -> hub.subscribe(1L));
+
+        // then
+        assertEquals(Duration.ofSeconds(5), error.getRetryAfter());
+        assertEquals(2, hub.connectionCount());
+        assertEquals(2.0, meterRegistry.get("api.stream.connections").gauge().value());
+    }
+
+    @Test
+    void testConnectionsAreCappedAcrossUsers() {
+        // given
+        hub.subscribe(1L);
+        hub.subscribe(2L);
+        hub.subscribe(3L);
+
+        // when + then
+        assertThrows(TooManyRequestsException.class, () -> hub.subscribe(4L));
+        assertEquals(3, hub.connectionCount());
+    }
+
+    @Test
+    void testSlowSubscriberBufferOverflowsIntoResync() {
+        // given
+        hub.subscribe(1L);
+
+        // when
+        hub.publish(1L, () -> new LiveUpdate("expense.created", 2, Map.of("id", 10L)));
+        hub.publish(1L, () -> new LiveUpdate("expense.created", 3, Map.of("id", 11L)));
+
+        // then
+        assertEquals(1.0, meterRegistry.get("api.stream.overflows").counter().count());
+        // one drain task per subscriber, however many events are buffered
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    void testUpdateIsDeliveredOnlyAfterCommit() {
+        // given
+        hub.subscribe(1L);
+        hub.publish(1L, () -> new LiveUpdate("expense.created", 2, Map.of("id", 10L)));
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        hub.publish(1L, () -> new LiveUpdate("expense.updated", 3, Map.of("id", 10L)));
+
+        // then
+        assertEquals(0.0, meterRegistry.get("api.stream.overflows").counter().count());
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertEquals(1.0, meterRegistry.get("api.stream.overflows").counter().count());
+    }
+
+    @Test
+    void testPublishWithoutSubscribersDoesNothing() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        hub.publish(1L, () -> {
+            throw new AssertionError("built without a subscriber");
+        });
+
+        // then
+        assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+        assertTrue(queued.isEmpty());
+    }
+
+    @Test
+    void testUpdateIsBuiltOnceAfterCommit() {
+        // given
+        hub.subscribe(1L);
+        hub.subscribe(1L);
+        AtomicInteger builds = new AtomicInteger();
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        hub.publish(1L, () -> {
+            builds.incrementAndGet();
+            return new LiveUpdate("expense.created", 2, Map.of("id", 10L));
+        });
+
+        // then
+        assertEquals(0, builds.get());
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertEquals(1, builds.get());
+    }
+}
@@ -0,0 +1,72 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OfxStatementReaderTest {
+
+    @Test
+    void testReadsSgmlTransactions() throws IOException {
+        // given
+        String ofx = """
+                OFXHEADER:100
+                DATA:OFXSGML
+
+                <OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>
+                <STMTTRN>
+                <TRNTYPE>DEBIT
+                <DTPOSTED>20250301120000.000[-5:EST]
+                <TRNAMT>-12.50
+                <FITID>X-1
+                <NAME>Fuel &amp; Co
+                <MEMO>Pump 4
+                </STMTTRN>
+                <STMTTRN>
+                <TRNTYPE>CREDIT
+                <DTPOSTED>20250302
+                <TRNAMT>100.00
+                <FITID>X-2
+                </STMTTRN>
+                </BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>
+                """;
+
+        try (OfxStatementReader reader = new OfxStatementReader(new StringReader(ofx))) {
+            // when
+            StatementRow debit = reader.next();
+            StatementRow credit = reader.next();
+
+            // then
+            assertEquals(new StatementRow(5, "2025-03-01T12:00-05:00", "-12.50", "Pump 4", "Fuel & Co", null, "X-1"), debit);
+            assertEquals("2025-03-02T00:00Z", credit.date());
+            assertEquals("100.00", credit.amount());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void testReadsXmlTransactions() throws IOException {
+        // given
+        String ofx = "<?xml version=\"1.0\"?><OFX><STMTTRN><DTPOSTED>20250305</DTPOSTED>"
+                + "<TRNAMT>-1.00</TRNAMT><NAME>Kiosk</NAME></STMTTRN></OFX>";
+
+        try (OfxStatementReader reader = new OfxStatementReader(new StringReader(ofx))) {
+            // when
+            StatementRow row = reader.next();
+
+            // then
+            assertEquals("2025-03-05T00:00Z", row.date());
+            assertEquals("Kiosk", row.place());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void testInvalidDateIsPassedOnForTheRowError() {
+        assertEquals("yesterday", OfxStatementReader.toIsoTimestamp("yesterday"));
+        assertEquals("2025-13-01", OfxStatementReader.toIsoTimestamp("2025-13-01"));
+    }
+}
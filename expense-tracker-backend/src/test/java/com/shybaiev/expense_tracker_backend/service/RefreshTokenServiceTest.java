@@ -0,0 +1,175 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.JwtResponse;
+import com.shybaiev.expense_tracker_backend.entity.RefreshToken;
+import com.shybaiev.expense_tracker_backend.entity.Role;
+import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.repository.RefreshTokenRepository;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.JwtClaimsCache;
+import com.shybaiev.expense_tracker_backend.security.JwtUtil;
+import com.shybaiev.expense_tracker_backend.security.RevokedTokenStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RevokedTokenStore revokedTokenStore;
+
+    private JwtUtil jwtUtil;
+    private RefreshTokenService refreshTokenService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil("testSecrettestSecrettestSecrettestSecret", 60_000, 100);
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, userRepository, jwtUtil, revokedTokenStore);
+
+        user = new User();
+        user.setId(7L);
+        user.setEmail("refresh@test.com");
+        user.setRole(Role.USER);
+        user.setEnabled(true);
+    }
+
+    @Test
+    void testIssueStoresOnlyTheHashAndLinksTheAccessToken() {
+        // when
+        JwtResponse response = refreshTokenService.issue(user);
+
+        // then
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertEquals(JwtClaimsCache.keyFor(response.getRefreshToken()), saved.getValue().getTokenHash());
+        assertNotEquals(response.getRefreshToken(), saved.getValue().getTokenHash());
+        assertEquals(7L, saved.getValue().getUserId());
+        assertEquals(jwtUtil.verify(response.getToken()).orElseThrow().tokenId(), saved.getValue().getAccessTokenId());
+        assertEquals(60, response.getExpiresIn());
+    }
+
+    @Test
+    void testRefreshRotatesWithinTheSameFamily() {
+        // given
+        RefreshToken current = stored("family-1", null, OffsetDateTime.now().plusDays(1));
+        when(refreshTokenRepository.findByTokenHash(JwtClaimsCache.keyFor("raw"))).thenReturn(Optional.of(current));
+        when(refreshTokenRepository.revokeIfActive(eq(1L), any())).thenReturn(1);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+
+        // when
+        JwtResponse response = refreshTokenService.refresh("raw");
+
+        // then
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertEquals("family-1", saved.getValue().getFamilyId());
+        assertNotEquals("raw", response.getRefreshToken());
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    void testReusedTokenRevokesFamilyAndItsAccessTokens() {
+        // given
+        RefreshToken rotated = stored("family-1", OffsetDateTime.now().minusMinutes(1), OffsetDateTime.now().plusDays(1));
+        when(refreshTokenRepository.findByTokenHash(JwtClaimsCache.keyFor("raw"))).thenReturn(Optional.of(rotated));
+        when(refreshTokenRepository.findAccessTokenIds(eq("family-1"), any())).thenReturn(List.of("jti-1", "jti-2"));
+
+        // when
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> refreshTokenService.refresh("raw"));
+
+        // then
+        assertEquals(HttpStatus.UNAUTHORIZED, ex.getStatusCode());
+        verify(refreshTokenRepository).revokeFamily(eq("family-1"), any());
+        verify(revokedTokenStore).revoke(eq("jti-1"), any(Instant.class));
+        verify(revokedTokenStore).revoke(eq("jti-2"), any(Instant.class));
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void testLosingConcurrentRefreshCountsAsReuse() {
+        // given
+        RefreshToken current = stored("family-1", null, OffsetDateTime.now().plusDays(1));
+        when(refreshTokenRepository.findByTokenHash(JwtClaimsCache.keyFor("raw"))).thenReturn(Optional.of(current));
+        when(refreshTokenRepository.revokeIfActive(eq(1L), any())).thenReturn(0);
+
+        // when + then
+        assertThrows(ResponseStatusException.class, () -> refreshTokenService.refresh("raw"));
+        verify(refreshTokenRepository).revokeFamily(eq("family-1"), any());
+    }
+
+    @Test
+    void testExpiredUnknownAndDisabledAreRejected() {
+        // given
+        RefreshToken expired = stored("family-1", null, OffsetDateTime.now().minusSeconds(1));
+        when(refreshTokenRepository.findByTokenHash(JwtClaimsCache.keyFor("expired"))).thenReturn(Optional.of(expired));
+        when(refreshTokenRepository.revokeIfActive(eq(1L), any())).thenReturn(1);
+        when(refreshTokenRepository.findByTokenHash(JwtClaimsCache.keyFor("unknown"))).thenReturn(Optional.empty());
+
+        // when + then
+        assertThrows(ResponseStatusException.class, () -> refreshTokenService.refresh("expired"));
+        assertThrows(ResponseStatusException.class, () -> refreshTokenService.refresh("unknown"));
+
+        // given
+        RefreshToken active = stored("family-2", null, OffsetDateTime.now().plusDays(1));
+        active.setId(2L);
+        when(refreshTokenRepository.findByTokenHash(JwtClaimsCache.keyFor("disabled"))).thenReturn(Optional.of(active));
+        when(refreshTokenRepository.revokeIfActive(eq(2L), any())).thenReturn(1);
+        user.setEnabled(false);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+
+        // when + then
+        assertThrows(ResponseStatusException.class, () -> refreshTokenService.refresh("disabled"));
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void testLogoutRevokesFamily() {
+        // given
+        RefreshToken current = stored("family-1", null, OffsetDateTime.now().plusDays(1));
+        when(refreshTokenRepository.findByTokenHash(JwtClaimsCache.keyFor("raw"))).thenReturn(Optional.of(current));
+        when(refreshTokenRepository.findAccessTokenIds(eq("family-1"), any())).thenReturn(List.of("jti-1"));
+
+        // when
+        refreshTokenService.logout("raw");
+        refreshTokenService.logout("unknown");
+
+        // then
+        verify(refreshTokenRepository, times(1)).revokeFamily(eq("family-1"), any());
+        verify(revokedTokenStore).revoke(eq("jti-1"), any(Instant.class));
+    }
+
+    private RefreshToken stored(String familyId, OffsetDateTime revokedAt, OffsetDateTime expiresAt) {
+        RefreshToken token = new RefreshToken();
+        token.setId(1L);
+        token.setUserId(7L);
+        token.setFamilyId(familyId);
+        token.setAccessTokenId("jti-0");
+        token.setRevokedAt(revokedAt);
+        token.setExpiresAt(expiresAt);
+        return token;
+    }
+}
@@ -0,0 +1,126 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UserDataVersions versions = new UserDataVersions(100);
+
+    @Test
+    void testBodyIsReusedUntilVersionMoves() {
+        // given
+        ResponseCache cache = new ResponseCache(versions, objectMapper, 1_000, Duration.ofMinutes(5));
+        AtomicInteger loads = new AtomicInteger();
+
+        // when
+        byte[] first = cache.get(1L, "expenses", "", () -> List.of(loads.incrementAndGet()));
+        byte[] second = cache.get(1L, "expenses", "", () -> List.of(loads.incrementAndGet()));
+        versions.bump(1L);
+        byte[] third = cache.get(1L, "expenses", "", () -> List.of(loads.incrementAndGet()));
+
+        // then
+        assertEquals("[1]", new String(first, StandardCharsets.UTF_8));
+        assertSame(first, second);
+        assertEquals("[2]", new String(third, StandardCharsets.UTF_8));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testKeysAreSeparatedByUserEndpointAndParams() {
+        // given
+        ResponseCache cache = new ResponseCache(versions, objectMapper, 1_000, Duration.ofMinutes(5));
+
+        // when
+        cache.get(1L, "expenses/category", "Food", () -> "food");
+        byte[] otherCategory = cache.get(1L, "expenses/category", "Rent", () -> "rent");
+        byte[] otherUser = cache.get(2L, "expenses/category", "Food", () -> "someone else");
+
+        // then
+        assertEquals("\"rent\"", new String(otherCategory, StandardCharsets.UTF_8));
+        assertEquals("\"someone else\"", new String(otherUser, StandardCharsets.UTF_8));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedBodiesAreEvictedBySize() {
+        // given: every body is 12 bytes, four of them fit
+        ResponseCache cache = new ResponseCache(versions, objectMapper, 50, Duration.ofMinutes(5));
+
+        // when
+        cache.get(1L, "budgets", "", () -> "aaaaaaaaaa");
+        cache.get(2L, "budgets", "", () -> "bbbbbbbbbb");
+        cache.get(3L, "budgets", "", () -> "cccccccccc");
+        cache.get(4L, "budgets", "", () -> "dddddddddd");
+        cache.get(1L, "budgets", "", () -> "reloaded");
+        cache.get(5L, "budgets", "", () -> "eeeeeeeeee");
+
+        // then
+        assertEquals(4, cache.size());
+        assertEquals("\"aaaaaaaaaa\"", new String(cache.get(1L, "budgets", "", () -> "reloaded"), StandardCharsets.UTF_8));
+        assertEquals("\"reloaded\"", new String(cache.get(2L, "budgets", "", () -> "reloaded"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testOversizedBodyIsNotCached() {
+        // given
+        ResponseCache cache = new ResponseCache(versions, objectMapper, 40, Duration.ofMinutes(5));
+
+        // when
+        cache.get(1L, "expenses", "", () -> "more than ten bytes");
+
+        // then
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testExpiredBodyIsReloaded() {
+        // given
+        ResponseCache cache = new ResponseCache(versions, objectMapper, 1_000, Duration.ZERO);
+
+        // when
+        cache.get(1L, "expenses", "", () -> "old");
+        byte[] body = cache.get(1L, "expenses", "", () -> "new");
+
+        // then
+        assertEquals("\"new\"", new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testZeroSizeDisablesCaching() {
+        // given
+        ResponseCache cache = new ResponseCache(versions, objectMapper, 0, Duration.ofMinutes(5));
+
+        // when
+        cache.get(1L, "expenses", "", () -> "old");
+        byte[] body = cache.get(1L, "expenses", "", () -> "new");
+
+        // then
+        assertEquals("\"new\"", new String(body, StandardCharsets.UTF_8));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testVersionTableResetInvalidatesEveryUser() {
+        // given
+        UserDataVersions small = new UserDataVersions(2);
+        long untouched = small.current(9L);
+        small.bump(1L);
+        small.bump(2L);
+
+        // when
+        small.bump(3L);
+
+        // then
+        assertNotEquals(untouched, small.current(9L));
+        assertNotEquals(small.current(1L), small.current(3L));
+    }
+}
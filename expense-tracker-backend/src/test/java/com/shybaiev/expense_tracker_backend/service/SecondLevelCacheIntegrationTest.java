@@ -0,0 +1,182 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.BudgetCreateUpdateDto;
+import com.shybaiev.expense_tracker_backend.entity.Budget;
+import com.shybaiev.expense_tracker_backend.entity.Role;
+import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.AuthenticatedUser;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// not @Transactional: every repository call has to run in its own session to reach the second-level cache
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private Statistics statistics;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        owner = saveUser("cached@example.com", "cached");
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from budget where user_id = ?", owner.getId());
+        userRepository.deleteById(owner.getId());
+    }
+
+    @Test
+    void testUserIsServedFromCacheAndRefreshedByUpdate() {
+        // given
+        userRepository.findById(owner.getId());
+
+        // when
+        User cached = userRepository.findById(owner.getId()).orElseThrow();
+
+        // then
+        CacheRegionStatistics users = statistics.getDomainDataRegionStatistics("users");
+        assertThat(cached.getUsername()).isEqualTo("cached");
+        assertThat(users.getMissCount()).isEqualTo(1);
+        assertThat(users.getHitCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+
+        // when
+        User changes = new User();
+        changes.setUsername("renamed");
+        changes.setEnabled(true);
+        userService.updateUser(owner.getId(), changes, null);
+
+        // then
+        assertThat(userRepository.findById(owner.getId()).orElseThrow().getUsername()).isEqualTo("renamed");
+    }
+
+    @Test
+    void testFindByEmailIsCachedAndInvalidatedByEmailChange() {
+        // given
+        userRepository.findByEmail("cached@example.com");
+
+        // when
+        assertThat(userRepository.findByEmail("cached@example.com")).isPresent();
+
+        // then
+        assertThat(statistics.getQueryRegionStatistics("users.byEmail").getHitCount()).isEqualTo(1);
+
+        // when
+        User changes = new User();
+        changes.setEmail("moved@example.com");
+        changes.setEnabled(true);
+        userService.updateUser(owner.getId(), changes, null);
+
+        // then
+        assertThat(userRepository.findByEmail("cached@example.com")).isEmpty();
+        assertThat(userRepository.findByEmail("moved@example.com")).get()
+                .extracting(User::getId).isEqualTo(owner.getId());
+    }
+
+    @Test
+    void testBudgetWritesThroughServiceInvalidateCachedBudget() {
+        // given
+        Budget budget = saveBudget(owner);
+        budgetRepository.findById(budget.getId());
+        budgetRepository.findById(budget.getId());
+        assertThat(statistics.getDomainDataRegionStatistics("budget").getHitCount()).isPositive();
+
+        // when
+        BudgetCreateUpdateDto update = new BudgetCreateUpdateDto();
+        update.setAmount(new BigDecimal("450.00"));
+        budgetService.updateBudgetForUser(budget.getId(), update, owner.getId());
+
+        // then
+        assertThat(budgetRepository.findById(budget.getId()).orElseThrow().getAmount())
+                .isEqualByComparingTo("450.00");
+
+        // when
+        budgetService.deleteBudgetForUser(budget.getId(), owner.getId());
+
+        // then
+        assertThat(budgetRepository.findById(budget.getId())).isEmpty();
+    }
+
+    @Test
+    void testCacheStatisticsArePublishedAsMetrics() throws Exception {
+        userRepository.findById(owner.getId());
+
+        mockMvc.perform(get("/actuator/metrics/hibernate.second.level.cache.requests")
+                        .param("tag", "region:users")
+                        .with(user(new AuthenticatedUser(owner.getId(), owner.getEmail(), Role.ADMIN))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("hibernate.second.level.cache.requests"));
+
+        mockMvc.perform(get("/actuator/metrics")
+                        .with(user(new AuthenticatedUser(owner.getId(), owner.getEmail(), Role.USER))))
+                .andExpect(status().isForbidden());
+    }
+
+    private User saveUser(String email, String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPasswordHash("hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd_hashed_pwd");
+        user.setEnabled(true);
+        return userRepository.save(user);
+    }
+
+    private Budget saveBudget(User user) {
+        Budget budget = new Budget();
+        budget.setUser(user);
+        budget.setName("Groceries");
+        budget.setAmount(new BigDecimal("300.00"));
+        budget.setTimePeriod("MONTHLY");
+        budget.setStartDate(LocalDate.parse("2025-06-01"));
+        return budgetRepository.save(budget);
+    }
+}
@@ -0,0 +1,157 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.entity.Expense;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatementImportServiceTest {
+
+    @Mock
+    private ExpenseService expenseService;
+
+    private StatementImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        // runs the worker on the calling thread, batches of two
+        importService = new StatementImportService(expenseService, Runnable::run, 2, 1, Duration.ofHours(1));
+    }
+
+    @Test
+    void testSubmitImportsInBatchesAndReportsRows() throws IOException {
+        // given
+        String csv = """
+                date,amount,payee
+                2025-03-01,-1.00,A
+                2025-03-02,-2.00,B
+                2025-03-03,50.00,Salary
+                not-a-date,-3.00,C
+                2025-03-04,-4.00,D
+                2025-03-05,abc,E
+                """;
+        when(expenseService.importExpensesForUser(anyList(), eq(7L)))
+                .thenAnswer(inv -> inv.getArgument(0))
+                .thenAnswer(inv -> List.of());
+
+        // when
+        ImportJob job = importService.submit(7L, StatementFormat.CSV, "march.csv", stream(csv), false);
+
+        // then
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(100, job.getPercentComplete());
+        assertEquals(6, job.getRowsRead());
+        assertEquals(2, job.getImported());
+        assertEquals(1, job.getDuplicates());
+        assertEquals(1, job.getSkipped());
+        assertEquals(2, job.getFailed());
+        // capped at one stored error
+        assertEquals(List.of(new ImportJob.RowError(5, "Unsupported date: not-a-date")), job.getErrors());
+        verify(expenseService, times(2)).importExpensesForUser(anyList(), eq(7L));
+        assertSame(job, importService.getJobForUser(job.getId(), 7L).orElseThrow());
+        assertTrue(importService.getJobForUser(job.getId(), 8L).isEmpty());
+    }
+
+    @Test
+    void testFailedBatchIsReportedAndImportContinues() throws IOException {
+        // given
+        String csv = "date,amount\n2025-03-01,-1.00\n2025-03-02,-2.00\n2025-03-03,-3.00\n";
+        when(expenseService.importExpensesForUser(anyList(), eq(7L)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenAnswer(inv -> inv.getArgument(0));
+
+        // when
+        ImportJob job = importService.submit(7L, StatementFormat.CSV, "march.csv", stream(csv), false);
+
+        // then
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(2, job.getFailed());
+        assertEquals(1, job.getImported());
+    }
+
+    @Test
+    void testMalformedFileFailsTheJob() throws IOException {
+        // when
+        ImportJob job = importService.submit(7L, StatementFormat.CSV, "bad.csv", stream("memo\nx\n"), false);
+
+        // then
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        assertNotNull(job.getFailureMessage());
+        verifyNoInteractions(expenseService);
+    }
+
+    @Test
+    void testToExpenseMapsSignAndFingerprint() {
+        // given
+        StatementRow row = new StatementRow(2, "2025-03-01", "-1.234,50", " Rent ", "Landlord", null, null);
+        StatementRow sameTransaction = new StatementRow(9, "2025-03-01T00:00:00Z", "-1234.5", "rent", "landlord", null, null);
+
+        // when
+        Expense expense = StatementImportService.toExpense(row, 7L, false);
+
+        // then
+        assertEquals(new BigDecimal("1234.50"), expense.getAmount());
+        assertEquals(OffsetDateTime.parse("2025-03-01T00:00:00Z"), expense.getTimestamp());
+        assertEquals(64, expense.getFingerprint().length());
+        assertEquals(expense.getFingerprint(), StatementImportService.toExpense(sameTransaction, 7L, false).getFingerprint());
+        assertNotEquals(expense.getFingerprint(), StatementImportService.toExpense(row, 8L, false).getFingerprint());
+        assertNull(StatementImportService.toExpense(row, 7L, true));
+    }
+
+    @Test
+    void testIdenticalLinesGetDistinctStableFingerprints() throws IOException {
+        // given
+        String csv = "date,amount,payee\n2025-03-01,-2.50,Coffee\n2025-03-01,-2.50,Coffee\n";
+        // copied, the worker reuses the batch list
+        List<List<String>> batches = new ArrayList<>();
+        when(expenseService.importExpensesForUser(anyList(), eq(7L))).thenAnswer(inv -> {
+            List<Expense> batch = inv.getArgument(0);
+            batches.add(batch.stream().map(Expense::getFingerprint).toList());
+            return batch;
+        });
+
+        // when
+        importService.submit(7L, StatementFormat.CSV, "march.csv", stream(csv), false);
+        importService.submit(7L, StatementFormat.CSV, "march.csv", stream(csv), false);
+
+        // then
+        List<String> first = batches.get(0);
+        List<String> second = batches.get(1);
+        assertEquals(2, first.size());
+        assertNotEquals(first.get(0), first.get(1));
+        assertEquals(first, second);
+        // the first occurrence keeps the plain content fingerprint
+        Expense single = StatementImportService.toExpense(
+                new StatementRow(2, "2025-03-01", "-2.50", null, "Coffee", null, null), 7L, false);
+        assertEquals(single.getFingerprint(), first.get(0));
+    }
+
+    @Test
+    void testParseAmountRejectsAmbiguousValues() {
+        assertEquals(new BigDecimal("1234.50"), StatementImportService.parseAmount("1,234.50"));
+        assertEquals(new BigDecimal("-0.99"), StatementImportService.parseAmount("-0,99"));
+        assertThrows(IllegalArgumentException.class, () -> StatementImportService.parseAmount("1.2345"));
+        assertThrows(IllegalArgumentException.class, () -> StatementImportService.parseAmount("EUR 5"));
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,91 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.UserIdentity;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserIdentityIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Test
+    void testEverythingIsMaybeTakenBeforeTheFirstLoad() {
+        // given
+        UserIdentityIndex index = new UserIdentityIndex(userRepository, 100);
+
+        // when + then
+        assertTrue(index.mightContainEmail("anyone@email.com"));
+        assertTrue(index.mightContainUsername("anyone"));
+    }
+
+    @Test
+    void testRebuildLoadsAllPagesOfUsers() {
+        // given
+        List<UserIdentity> firstPage = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            firstPage.add(new UserIdentity(id, "user" + id + "@email.com", "user" + id));
+        }
+        when(userRepository.count()).thenReturn(1001L);
+        when(userRepository.findIdentitiesAfter(eq(0L), any(Limit.class))).thenReturn(firstPage);
+        when(userRepository.findIdentitiesAfter(eq(1000L), any(Limit.class)))
+                .thenReturn(List.of(new UserIdentity(1001L, "last@email.com", "last")));
+        UserIdentityIndex index = new UserIdentityIndex(userRepository, 100);
+
+        // when
+        index.rebuild();
+
+        // then
+        assertTrue(index.mightContainEmail("user1@email.com"));
+        assertTrue(index.mightContainUsername("user1000"));
+        assertTrue(index.mightContainEmail("last@email.com"));
+        assertFalse(index.mightContainEmail("never@email.com"));
+        assertFalse(index.mightContainUsername("never"));
+        assertFalse(index.mightContainEmail(null));
+    }
+
+    @Test
+    void testAddedUsersAreSeenWithoutRebuild() {
+        // given
+        when(userRepository.findIdentitiesAfter(eq(0L), any(Limit.class))).thenReturn(List.of());
+        UserIdentityIndex index = new UserIdentityIndex(userRepository, 100);
+        index.rebuild();
+
+        // when
+        index.add("new@email.com", "new");
+
+        // then
+        assertTrue(index.mightContainEmail("new@email.com"));
+        assertTrue(index.mightContainUsername("new"));
+        assertFalse(index.mightContainUsername("new@email.com"));
+    }
+
+    @Test
+    void testFullIndexSendsEveryCheckToTheDatabase() {
+        // given
+        when(userRepository.findIdentitiesAfter(eq(0L), any(Limit.class))).thenReturn(List.of());
+        UserIdentityIndex index = new UserIdentityIndex(userRepository, 2);
+        index.rebuild();
+
+        // when
+        index.add("a@email.com", "a");
+        index.add("b@email.com", "b");
+        index.add("c@email.com", "c");
+
+        // then
+        assertTrue(index.mightContainEmail("never@email.com"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.dto.UserCreateUpdateDto;
+import com.shybaiev.expense_tracker_backend.dto.UserIdentity;
+import com.shybaiev.expense_tracker_backend.entity.Role;
+import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.mapper.UserMapper;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.PasswordHasher;
+import jakarta.persistence.EntityExistsException;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserProvisioningServiceTest {
+
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    private UserProvisioningService provisioningService;
+
+    @BeforeEach
+    void setUp() {
+        provisioningService = new UserProvisioningService(userService, userRepository, new UserMapper(),
+                passwordHasher, VALIDATOR);
+    }
+
+    @Test
+    void testRowsAreAcceptedOrRejectedIndividually() {
+        // given
+        List<UserCreateUpdateDto> rows = List.of(
+                row("anna", "anna@corp.com"),
+                row("bob", "not-an-email"),
+                row("anna2", "anna@corp.com"),
+                row("carl", "carl@corp.com"),
+                row("dora", "dora@corp.com"));
+        rows.get(4).setPassword(" ");
+        when(userRepository.findIdentitiesByEmailInOrUsernameIn(any(), any()))
+                .thenReturn(List.of(new UserIdentity(9L, "other@corp.com", "carl")));
+        when(passwordHasher.encodeAll(List.of("password-anna"))).thenReturn(List.of("hashed-anna"));
+
+        // when
+        List<UserProvisionResult> results = provisioningService.provision(rows);
+
+        // then
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isCreated());
+        assertEquals("hashed-anna", results.get(0).user().getPasswordHash());
+        assertEquals(Role.USER, results.get(0).user().getRole());
+        assertTrue(results.get(0).user().isEnabled());
+        assertTrue(results.get(1).error().startsWith("email:"));
+        assertEquals("Duplicate email in batch", results.get(2).error());
+        assertEquals("Username already in use", results.get(3).error());
+        assertEquals("password: must not be blank", results.get(4).error());
+
+        ArgumentCaptor<List<User>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(userService).createUsers(inserted.capture());
+        assertEquals(1, inserted.getValue().size());
+    }
+
+    @Test
+    void testUniquenessIsCheckedWithOneQueryAndPasswordsHashedInOneCall() {
+        // given
+        List<UserCreateUpdateDto> rows = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            rows.add(row("user" + i, "user" + i + "@corp.com"));
+        }
+        when(userRepository.findIdentitiesByEmailInOrUsernameIn(any(), any())).thenReturn(List.of());
+        when(passwordHasher.encodeAll(anyList()))
+                .thenAnswer(invocation -> Collections.nCopies(120, "hashed"));
+
+        // when
+        List<UserProvisionResult> results = provisioningService.provision(rows);
+
+        // then
+        assertTrue(results.stream().allMatch(UserProvisionResult::isCreated));
+        verify(userRepository, times(1)).findIdentitiesByEmailInOrUsernameIn(any(), any());
+        verify(passwordHasher, times(1)).encodeAll(anyList());
+        verify(passwordHasher, never()).encode(any());
+    }
+
+    @Test
+    void testNothingToInsertSkipsHashing() {
+        // given
+        List<UserCreateUpdateDto> rows = List.of(row("", "x@corp.com"));
+
+        // when
+        List<UserProvisionResult> results = provisioningService.provision(rows);
+
+        // then
+        assertFalse(results.getFirst().isCreated());
+        verifyNoInteractions(passwordHasher, userService, userRepository);
+    }
+
+    @Test
+    void testConcurrentRegistrationRejectsWholeBatch() {
+        // given
+        when(userRepository.findIdentitiesByEmailInOrUsernameIn(any(), any())).thenReturn(List.of());
+        when(passwordHasher.encodeAll(anyList())).thenReturn(List.of("hashed"));
+        doThrow(new DataIntegrityViolationException("uk_users_email")).when(userService).createUsers(anyList());
+
+        // when + then
+        assertThrows(EntityExistsException.class,
+                () -> provisioningService.provision(List.of(row("anna", "anna@corp.com"))));
+    }
+
+    @Test
+    void testBatchSizeLimits() {
+        assertThrows(IllegalArgumentException.class, () -> provisioningService.provision(List.of()));
+        List<UserCreateUpdateDto> tooMany = Collections.nCopies(UserProvisioningService.MAX_BATCH_SIZE + 1,
+                row("x", "x@corp.com"));
+        assertThrows(IllegalArgumentException.class, () -> provisioningService.provision(tooMany));
+    }
+
+    private UserCreateUpdateDto row(String username, String email) {
+        UserCreateUpdateDto dto = new UserCreateUpdateDto();
+        dto.setUsername(username);
+        dto.setEmail(email);
+        dto.setPassword("password-" + username);
+        return dto;
+    }
+}
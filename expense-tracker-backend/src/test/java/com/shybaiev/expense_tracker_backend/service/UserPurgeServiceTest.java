@@ -0,0 +1,148 @@
+package com.shybaiev.expense_tracker_backend.service;
+
+import com.shybaiev.expense_tracker_backend.entity.UserPurge;
+import com.shybaiev.expense_tracker_backend.repository.BudgetRepository;
+import com.shybaiev.expense_tracker_backend.repository.ExpenseRepository;
+import com.shybaiev.expense_tracker_backend.repository.UserPurgeRepository;
+import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.security.UserStatusCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserPurgeServiceTest {
+
+    @Mock
+    private UserPurgeRepository userPurgeRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private BudgetRepository budgetRepository;
+
+    @Mock
+    private UserStatusCache userStatusCache;
+
+    @InjectMocks
+    private UserPurgeService userPurgeService;
+
+    private UserPurge purge;
+
+    @BeforeEach
+    void setUp() {
+        purge = UserPurge.builder()
+                .userId(7L)
+                .expensesTotal(3)
+                .budgetsTotal(1)
+                .requestedAt(OffsetDateTime.now())
+                .build();
+    }
+
+    @Test
+    void testScheduleCountsRowsToDelete() {
+        // given
+        when(expenseRepository.countByUserId(7L)).thenReturn(1200L);
+        when(budgetRepository.countByUserId(7L)).thenReturn(4L);
+        when(userPurgeRepository.save(any(UserPurge.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // when
+        UserPurge scheduled = userPurgeService.schedule(7L);
+
+        // then
+        assertEquals(UserPurge.Status.QUEUED, scheduled.getStatus());
+        assertEquals(1200L, scheduled.getExpensesTotal());
+        assertEquals(4L, scheduled.getBudgetsTotal());
+        assertEquals(0, scheduled.getPercentComplete());
+    }
+
+    @Test
+    void testChunkDeletesExpensesBeforeBudgets() {
+        // given
+        when(userPurgeRepository.findById(7L)).thenReturn(Optional.of(purge));
+        when(expenseRepository.findIdsByUserId(7L, Limit.of(2))).thenReturn(List.of(1L, 2L));
+        when(expenseRepository.deleteAllByIdIn(List.of(1L, 2L))).thenReturn(2);
+
+        // when
+        boolean done = userPurgeService.purgeChunk(7L, 2);
+
+        // then
+        assertFalse(done);
+        assertEquals(UserPurge.Status.RUNNING, purge.getStatus());
+        assertEquals(2, purge.getExpensesDeleted());
+        assertEquals(50, purge.getPercentComplete());
+        verify(budgetRepository, never()).findIdsByUserId(anyLong(), any());
+        verify(userRepository, never()).deleteRowById(anyLong());
+        verifyNoInteractions(userStatusCache);
+    }
+
+    @Test
+    void testChunkDeletesBudgetsOnceExpensesAreGone() {
+        // given
+        purge.setExpensesDeleted(3);
+        when(userPurgeRepository.findById(7L)).thenReturn(Optional.of(purge));
+        when(expenseRepository.findIdsByUserId(7L, Limit.of(2))).thenReturn(List.of());
+        when(budgetRepository.findIdsByUserId(7L, Limit.of(2))).thenReturn(List.of(9L));
+        when(budgetRepository.deleteAllByIdIn(List.of(9L))).thenReturn(1);
+
+        // when
+        boolean done = userPurgeService.purgeChunk(7L, 2);
+
+        // then
+        assertFalse(done);
+        assertEquals(1, purge.getBudgetsDeleted());
+        assertEquals(99, purge.getPercentComplete());
+        verify(userRepository, never()).deleteRowById(anyLong());
+        verifyNoInteractions(userStatusCache);
+    }
+
+    @Test
+    void testLastChunkDeletesUserRowAndCompletes() {
+        // given
+        when(userPurgeRepository.findById(7L)).thenReturn(Optional.of(purge));
+        when(expenseRepository.findIdsByUserId(7L, Limit.of(2))).thenReturn(List.of());
+        when(budgetRepository.findIdsByUserId(7L, Limit.of(2))).thenReturn(List.of());
+
+        // when
+        boolean done = userPurgeService.purgeChunk(7L, 2);
+
+        // then
+        assertTrue(done);
+        assertEquals(UserPurge.Status.COMPLETED, purge.getStatus());
+        assertNotNull(purge.getFinishedAt());
+        assertEquals(100, purge.getPercentComplete());
+        verify(userRepository).deleteRowById(7L);
+        verify(userStatusCache).invalidate(7L);
+    }
+
+    @Test
+    void testCompletedPurgeIsNotRunAgain() {
+        // given
+        purge.setStatus(UserPurge.Status.COMPLETED);
+        when(userPurgeRepository.findById(7L)).thenReturn(Optional.of(purge));
+
+        // when
+        boolean done = userPurgeService.purgeChunk(7L, 2);
+
+        // then
+        assertTrue(done);
+        verifyNoInteractions(expenseRepository, budgetRepository, userRepository);
+    }
+}
@@ -1,22 +1,38 @@
 package com.shybaiev.expense_tracker_backend.service;
 
+import com.shybaiev.expense_tracker_backend.dto.AvailabilityDto;
+import com.shybaiev.expense_tracker_backend.dto.UserIdentity;
+import com.shybaiev.expense_tracker_backend.dto.UserRegisterDto;
 import com.shybaiev.expense_tracker_backend.entity.Role;
 import com.shybaiev.expense_tracker_backend.entity.User;
+import com.shybaiev.expense_tracker_backend.entity.UserPurge;
 import com.shybaiev.expense_tracker_backend.mapper.UserMapper;
 import com.shybaiev.expense_tracker_backend.repository.UserRepository;
+import com.shybaiev.expense_tracker_backend.exception.TooManyRequestsException;
+import com.shybaiev.expense_tracker_backend.security.PasswordHasher;
+import com.shybaiev.expense_tracker_backend.security.UserStatusCache;
+import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,8 +42,23 @@ class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
 
+    @Mock
+    private UserStatusCache userStatusCache;
+
+    @Mock
+    private UserIdentityIndex userIdentityIndex;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private UserPurgeService userPurgeService;
+
+    // runs the callback on the calling thread, as the real template does
+    @Spy
+    private TransactionOperations transactionOperations = TransactionOperations.withoutTransaction();
 
     @InjectMocks
     private UserService userService;
@@ -76,25 +107,53 @@ class UserServiceTest {
         User updatedUser = new User();
         updatedUser.setUsername("newName");
         updatedUser.setEmail("new@email.com");
-        updatedUser.setPasswordHash("newPass");
+        updatedUser.setPasswordHash("ignored");
         updatedUser.setRole(Role.ADMIN);
         updatedUser.setEnabled(false);
 
+        when(passwordHasher.encode("newPass")).thenReturn("hashedNewPass");
         when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
         when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // when
-        User result = userService.updateUser(1L, updatedUser);
+        User result = userService.updateUser(1L, updatedUser, "newPass");
 
         // then
         assertEquals("newName", result.getUsername());
         assertEquals("new@email.com", result.getEmail());
-        assertEquals("newPass", result.getPasswordHash());
+        assertEquals("hashedNewPass", result.getPasswordHash());
         assertEquals(Role.ADMIN, result.getRole());
         assertFalse(result.isEnabled());
+        assertEquals(1, result.getTokenEpoch());
 
         verify(userRepository).findById(1L);
         verify(userRepository).save(existingUser);
+        verify(userStatusCache).invalidate(1L);
+    }
+
+    @Test
+    void testUpdateUserWithoutPasswordKeepsHash() {
+        // given
+        User updatedUser = new User();
+        updatedUser.setPasswordHash("plaintext");
+        updatedUser.setEnabled(true);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        User result = userService.updateUser(1L, updatedUser, null);
+
+        // then
+        assertEquals("oldPass", result.getPasswordHash());
+        verifyNoInteractions(passwordHasher);
+    }
+
+    @Test
+    void testUpdateUserRejectsBlankPassword() {
+        // when + then
+        assertThrows(IllegalArgumentException.class, () -> userService.updateUser(1L, new User(), " "));
+
+        verifyNoInteractions(userRepository, passwordHasher);
     }
 
     @Test
@@ -105,37 +164,65 @@ class UserServiceTest {
 
         // when + then
         assertThrows(EntityNotFoundException.class,
-                () -> userService.updateUser(999L, updatedUser));
+                () -> userService.updateUser(999L, updatedUser, null));
 
         verify(userRepository).findById(999L);
         verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
-    void testDeleteUserSuccess() {
+    void testDeleteUserDisablesAccountAndSchedulesPurge() {
         // given
-        when(userRepository.existsById(existingUser.getId())).thenReturn(true);
+        UserPurge purge = UserPurge.builder().userId(existingUser.getId()).build();
+        when(userRepository.findById(existingUser.getId())).thenReturn(Optional.of(existingUser));
+        when(userPurgeService.schedule(existingUser.getId())).thenReturn(purge);
 
         // when
-        userService.deleteUser(existingUser.getId());
+        UserPurge result = userService.deleteUser(existingUser.getId());
 
         // then
-        verify(userRepository).existsById(existingUser.getId());
-        verify(userRepository).deleteById(existingUser.getId());
+        assertSame(purge, result);
+        assertFalse(existingUser.isEnabled());
+        assertNotNull(existingUser.getDeletedAt());
+        assertEquals(1, existingUser.getTokenEpoch());
+        verify(userStatusCache).invalidate(existingUser.getId());
+        verify(userRepository, never()).deleteById(anyLong());
     }
 
     @Test
     void testDeleteUserNotFound() {
         // given
         Long nonExistentUserId = 999L;
-        when(userRepository.existsById(nonExistentUserId)).thenReturn(false);
+        when(userRepository.findById(nonExistentUserId)).thenReturn(Optional.empty());
 
         // when + then
         assertThrows(EntityNotFoundException.class,
                 () -> userService.deleteUser(nonExistentUserId));
 
-        verify(userRepository).existsById(nonExistentUserId);
-        verify(userRepository, never()).deleteById(anyLong());
+        verify(userPurgeService, never()).schedule(anyLong());
+    }
+
+    @Test
+    void testDeleteUserAlreadyDeleted() {
+        // given
+        existingUser.setDeletedAt(OffsetDateTime.now());
+        when(userRepository.findById(existingUser.getId())).thenReturn(Optional.of(existingUser));
+
+        // when + then
+        assertThrows(EntityNotFoundException.class,
+                () -> userService.deleteUser(existingUser.getId()));
+
+        verify(userPurgeService, never()).schedule(anyLong());
+    }
+
+    @Test
+    void testGetUserByIdHidesDeletedUser() {
+        // given
+        existingUser.setDeletedAt(OffsetDateTime.now());
+        when(userRepository.findById(existingUser.getId())).thenReturn(Optional.of(existingUser));
+
+        // when + then
+        assertTrue(userService.getUserById(existingUser.getId()).isEmpty());
     }
 
     @Test
@@ -181,4 +268,147 @@ class UserServiceTest {
         assertTrue(result.isEmpty());
         verify(userRepository).findAll();
     }
+
+    @Test
+    void testAuthenticateKeepsHashOfCurrentStrength() {
+        // given
+        when(userRepository.findByEmail("old@email.com")).thenReturn(Optional.of(existingUser));
+        when(passwordHasher.matches("secret123", "oldPass")).thenReturn(true);
+        when(passwordHasher.needsRehash("oldPass")).thenReturn(false);
+
+        // when
+        User result = userService.authenticate("old@email.com", "secret123");
+
+        // then
+        assertEquals(existingUser, result);
+        verify(passwordHasher, never()).encode(any());
+        verify(userRepository, never()).updatePasswordHash(any(), any(), any());
+    }
+
+    @Test
+    void testAuthenticateRehashesHashOfOtherStrength() {
+        // given
+        when(userRepository.findByEmail("old@email.com")).thenReturn(Optional.of(existingUser));
+        when(passwordHasher.matches("secret123", "oldPass")).thenReturn(true);
+        when(passwordHasher.needsRehash("oldPass")).thenReturn(true);
+        when(passwordHasher.encode("secret123")).thenReturn("newPass");
+        when(userRepository.updatePasswordHash(1L, "oldPass", "newPass")).thenReturn(1);
+
+        // when
+        User result = userService.authenticate("old@email.com", "secret123");
+
+        // then
+        assertEquals("newPass", result.getPasswordHash());
+        verify(userRepository).updatePasswordHash(1L, "oldPass", "newPass");
+    }
+
+    @Test
+    void testAuthenticateSucceedsWhenRehashIsRejected() {
+        // given
+        when(userRepository.findByEmail("old@email.com")).thenReturn(Optional.of(existingUser));
+        when(passwordHasher.matches("secret123", "oldPass")).thenReturn(true);
+        when(passwordHasher.needsRehash("oldPass")).thenReturn(true);
+        when(passwordHasher.encode("secret123")).thenThrow(new TooManyRequestsException("busy", Duration.ofSeconds(1)));
+
+        // when
+        User result = userService.authenticate("old@email.com", "secret123");
+
+        // then
+        assertEquals("oldPass", result.getPasswordHash());
+        verify(userRepository, never()).updatePasswordHash(any(), any(), any());
+    }
+
+    @Test
+    void testAuthenticateWrongPassword() {
+        // given
+        when(userRepository.findByEmail("old@email.com")).thenReturn(Optional.of(existingUser));
+        when(passwordHasher.matches("wrong", "oldPass")).thenReturn(false);
+
+        // when
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> userService.authenticate("old@email.com", "wrong"));
+
+        // then
+        assertEquals(HttpStatus.UNAUTHORIZED, ex.getStatusCode());
+        verify(passwordHasher, never()).needsRehash(any());
+    }
+
+    @Test
+    void testRegisterSkipsQueryForValuesTheIndexHasNeverSeen() {
+        // given
+        UserRegisterDto dto = registerDto();
+        when(userMapper.registerToEntity(dto)).thenReturn(existingUser);
+        when(passwordHasher.encode("secret123")).thenReturn("hashed");
+        when(userRepository.save(existingUser)).thenReturn(existingUser);
+
+        // when
+        userService.registerUser(dto);
+
+        // then
+        verify(userRepository, never()).findIdentitiesByEmailOrUsername(any(), any());
+        verify(userIdentityIndex).add("old@email.com", "oldName");
+    }
+
+    @Test
+    void testRegisterConfirmsPossibleMatchWithOneQuery() {
+        // given
+        UserRegisterDto dto = registerDto();
+        when(userIdentityIndex.mightContainUsername("newName")).thenReturn(true);
+        when(userRepository.findIdentitiesByEmailOrUsername("new@email.com", "newName"))
+                .thenReturn(List.of(new UserIdentity(5L, "other@email.com", "newName")));
+
+        // when
+        EntityExistsException ex = assertThrows(EntityExistsException.class, () -> userService.registerUser(dto));
+
+        // then
+        assertEquals("Username already in use", ex.getMessage());
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void testRegisterFalsePositiveStillRegisters() {
+        // given
+        UserRegisterDto dto = registerDto();
+        when(userIdentityIndex.mightContainEmail("new@email.com")).thenReturn(true);
+        when(userRepository.findIdentitiesByEmailOrUsername("new@email.com", "newName")).thenReturn(List.of());
+        when(userMapper.registerToEntity(dto)).thenReturn(existingUser);
+        when(userRepository.save(existingUser)).thenReturn(existingUser);
+
+        // when
+        User result = userService.registerUser(dto);
+
+        // then
+        assertEquals(existingUser, result);
+    }
+
+    @Test
+    void testRegisterMapsUniqueConstraintViolationToConflict() {
+        // given
+        UserRegisterDto dto = registerDto();
+        when(userMapper.registerToEntity(dto)).thenReturn(existingUser);
+        when(userRepository.save(existingUser)).thenThrow(new DataIntegrityViolationException("uk_users_email"));
+
+        // when + then
+        assertThrows(EntityExistsException.class, () -> userService.registerUser(dto));
+        verify(userIdentityIndex, never()).add(any(), any());
+    }
+
+    @Test
+    void testCheckAvailabilityOnlyReportsRequestedFields() {
+        // when
+        AvailabilityDto result = userService.checkAvailability(null, "free");
+
+        // then
+        assertNull(result.getEmailAvailable());
+        assertTrue(result.getUsernameAvailable());
+        verifyNoInteractions(userRepository);
+    }
+
+    private UserRegisterDto registerDto() {
+        UserRegisterDto dto = new UserRegisterDto();
+        dto.setEmail("new@email.com");
+        dto.setUsername("newName");
+        dto.setPassword("secret123");
+        return dto;
+    }
 }